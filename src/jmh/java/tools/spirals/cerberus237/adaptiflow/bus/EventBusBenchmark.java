@@ -0,0 +1,106 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.bus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures an {@link EventBus} between two services over each transport: the messages
+ * delivered per second when publishing continuously, and the delivery latency of a single
+ * message on an idle bus, whose p99 is reported by the sample mode.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args=EventBusBenchmark}.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EventBusBenchmark {
+
+    @Param({"inprocess", "loopback"})
+    public String transport;
+
+    private BusTransport publisherTransport;
+    private BusTransport receiverTransport;
+    private EventBus publisher;
+    private EventBus receiver;
+    private volatile long received = 0;
+    private long published = 0;
+
+    @Setup
+    public void setUp() throws Exception {
+        if (transport.equals("inprocess")) {
+            publisherTransport = new InProcessTransport();
+            receiverTransport = publisherTransport;
+        } else {
+            LoopbackSocketTransport server = LoopbackSocketTransport.listen(0);
+            publisherTransport = server;
+            receiverTransport = LoopbackSocketTransport.connect(server.getPort());
+            while (server.getConnectionCount() == 0) {
+                Thread.sleep(1);
+            }
+        }
+        publisher = new EventBus(publisherTransport, "publisher");
+        receiver = new EventBus(receiverTransport, "receiver");
+        receiver.subscribe("benchmark", message -> received++);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        publisher.close();
+        receiver.close();
+        receiverTransport.close();
+        publisherTransport.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long publish() {
+        // A full queue pushes back on the publisher, so the rate is the delivered rate.
+        while (!publisher.publish("benchmark", published)) {
+            Thread.onSpinWait();
+        }
+        return ++published;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long deliver() {
+        long target = received + 1;
+        publisher.publish("benchmark", 0);
+        while (received < target) {
+            Thread.onSpinWait();
+        }
+        return target;
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.history;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the encoding and decoding throughput of a {@link CompressedSeries} on an hour
+ * of per-second samples shaped like the metrics of a service: a CPU percentage drifting by
+ * tenths, a memory footprint changing every few minutes, and a request counter, all with
+ * a millisecond of clock jitter. The compression ratio of the trace is printed at setup.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args=CompressedSeriesBenchmark}.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CompressedSeriesBenchmark {
+    private static final int SAMPLES = 3600;
+
+    @Param({"cpu", "memory", "requests"})
+    public String trace;
+
+    private long[] timestamps;
+    private double[] values;
+    private CompressedSeries series;
+    private CompressedSeries encoding;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        timestamps = new long[SAMPLES];
+        values = new double[SAMPLES];
+        fill(trace, timestamps, values);
+        series = new CompressedSeries(SAMPLES, 1);
+        for (int i = 0; i < SAMPLES; i++) {
+            series.accept(timestamps[i], values[i]);
+        }
+        encoding = new CompressedSeries(SAMPLES, 2);
+        System.out.println("Compression ratio of " + trace + ": " + series.getCompressionRatio()
+                + " (" + (series.getEncodedBytes() * 8.0 / SAMPLES) + " bits per sample)");
+    }
+
+    /**
+     * Fills an hour of per-second samples of the given trace.
+     */
+    static void fill(String trace, long[] timestamps, double[] values) {
+        Random random = new Random(42);
+        long time = 1700000000000L;
+        double level = trace.equals("memory") ? 512.0 : 35.0;
+        for (int i = 0; i < timestamps.length; i++) {
+            time += 1000 + (random.nextInt(8) == 0 ? random.nextInt(3) - 1 : 0);
+            timestamps[i] = time;
+            switch (trace) {
+                case "cpu":
+                    level = Math.max(0, Math.min(100, level + (random.nextInt(11) - 5) / 10.0));
+                    values[i] = Math.round(level * 10) / 10.0;
+                    break;
+                case "memory":
+                    if (random.nextInt(180) == 0) {
+                        level += random.nextInt(64) - 24;
+                    }
+                    values[i] = level;
+                    break;
+                default:
+                    values[i] = 200 + random.nextInt(50);
+            }
+        }
+    }
+
+    @Benchmark
+    public long encode() {
+        int i = next++ % SAMPLES;
+        encoding.accept(timestamps[i] + (next / SAMPLES) * SAMPLES * 1000L, values[i]);
+        return encoding.getSampleCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double decode() {
+        return series.aggregate(Long.MIN_VALUE, Long.MAX_VALUE, WindowAggregate.SUM);
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.patterns;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of a {@link PatternMatcher} on a synthetic stream of occurrences
+ * over 16 event names, one every 100 ms, against patterns mixing sequences, absences and
+ * windows. Each operation feeds one occurrence; the matches per second follow from the
+ * match ratio printed at setup.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args=PatternMatcherBenchmark}.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PatternMatcherBenchmark {
+    private static final int EVENTS = 16;
+    private static final int STREAM = 1 << 16;
+
+    @Param({"4", "64"})
+    public int patterns;
+
+    private PatternMatcher matcher;
+    private int[] symbols;
+    private long matches = 0;
+    private int next = 0;
+    private long time = 0;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Pattern> list = new ArrayList<>();
+        for (int p = 0; p < patterns; p++) {
+            Pattern pattern = Pattern.named("pattern-" + p).begin(event(random));
+            int steps = 1 + random.nextInt(3);
+            for (int k = 0; k < steps; k++) {
+                if (random.nextInt(3) == 0) {
+                    pattern.notFollowedBy(event(random));
+                }
+                pattern.followedBy(event(random));
+            }
+            if (random.nextBoolean()) {
+                pattern.notFollowedBy(event(random));
+            }
+            list.add(pattern.within(1000 + random.nextInt(30000)));
+        }
+        matcher = new PatternMatcher(list, (name, start, end) -> matches++);
+        symbols = new int[STREAM];
+        for (int i = 0; i < STREAM; i++) {
+            symbols[i] = matcher.symbolOf(event(random));
+        }
+        for (int i = 0; i < STREAM; i++) {
+            feed();
+        }
+        System.out.println("Matches per occurrence: " + (double) matches / STREAM);
+    }
+
+    private static String event(Random random) {
+        return "event-" + random.nextInt(EVENTS);
+    }
+
+    private void feed() {
+        matcher.onEvent(symbols[next++ & (STREAM - 1)], time += 100);
+    }
+
+    @Benchmark
+    public long matchOccurrence() {
+        feed();
+        return matches;
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.rules;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.spirals.cerberus237.adaptationactionsbase.core.IAdaptationAction;
+import tools.spirals.cerberus237.adaptationactionsbase.enums.AdaptationActionResult;
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.models.MetricsSnapshot;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the evaluation of compiled rule conditions as trees of evaluator lambdas and
+ * as method handles. Several rules of different shapes are evaluated against the same
+ * snapshot, so the call sites of the lambda trees see many receiver types, as in a
+ * service running a full rule file.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args=RuleEvaluationBenchmark}.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RuleEvaluationBenchmark {
+    private static final String RULES =
+            "attack: when requests > 300 and cpu > 80 for 3 ticks then Noop\n"
+                    + "overload: when cpu > 75 or memory > 80 then Noop\n"
+                    + "recovered: when cpu <= 60 and memory <= 60 and not requests > 300 then Noop\n"
+                    + "pressure: when (cpu + memory) / 2 > 70 and requests * 0.8 > 200 then Noop\n"
+                    + "idle: when requests < 5 or (cpu < 10 and memory < 30 and latency < 100) then Noop\n"
+                    + "slow: when latency > 2s or latency - latency * 0.5 > 800 and cpu >= 50 then Noop";
+
+    private static final int SNAPSHOTS = 1024;
+
+    @Param({"false", "true"})
+    public boolean methodHandles;
+
+    private ConditionEvaluator<MetricsSnapshot>[] evaluators;
+    private MetricsSnapshot[] snapshots;
+    private int next = 0;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        RuleSet ruleSet = new RuleCompiler()
+                .source("requests", () -> 0.0)
+                .source("cpu", () -> 0.0)
+                .source("memory", () -> 0.0)
+                .source("latency", () -> 0.0)
+                .action("Noop", new NoopAction())
+                .methodHandles(methodHandles)
+                .compile(RULES);
+        evaluators = new ConditionEvaluator[ruleSet.getRules().size()];
+        for (int i = 0; i < evaluators.length; i++) {
+            evaluators[i] = ruleSet.getEvent(ruleSet.getRules().get(i).getName()).getConditionEvaluator();
+        }
+        List<String> names = ruleSet.getCollector().getNames();
+        Random random = new Random(42);
+        snapshots = new MetricsSnapshot[SNAPSHOTS];
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            Object[] values = new Object[names.size()];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = random.nextDouble() * (names.get(j).equals("requests") ? 600 : 100) * (names.get(j).equals("latency") ? 50 : 1);
+            }
+            snapshots[i] = new MetricsSnapshot(names, values, i);
+        }
+    }
+
+    @Benchmark
+    public int evaluateRules() {
+        MetricsSnapshot snapshot = snapshots[next++ & (SNAPSHOTS - 1)];
+        int triggered = 0;
+        for (ConditionEvaluator<MetricsSnapshot> evaluator : evaluators) {
+            if (evaluator.test(snapshot)) {
+                triggered++;
+            }
+        }
+        return triggered;
+    }
+
+    private static final class NoopAction implements IAdaptationAction {
+        @Override
+        public AdaptationActionResult perform() {
+            return AdaptationActionResult.SUCCESS;
+        }
+
+        @Override
+        public String getActionId() {
+            return "noop";
+        }
+
+        @Override
+        public String getDescription() {
+            return "Does nothing";
+        }
+
+        @Override
+        public boolean canPerform() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.subscriptions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import tools.spirals.cerberus237.adaptiflow.events.Event;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the duration of a {@link ShardedObservationScheduler} round over 4096 events
+ * sharing 1024 collectors, each observation burning a few microseconds of CPU. With one
+ * shard per core, the round duration should fall close to linearly with the shard count,
+ * up to the number of cores.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args=ShardedObservationBenchmark}.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ShardedObservationBenchmark {
+    private static final int EVENTS = 4096;
+    private static final int COLLECTORS = 1024;
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    private ShardedObservationScheduler scheduler;
+
+    @Setup
+    public void setUp() {
+        List<IMetricsCollector<Double>> collectors = new ArrayList<>();
+        for (int c = 0; c < COLLECTORS; c++) {
+            double value = c;
+            collectors.add(() -> {
+                Blackhole.consumeCPU(1000);
+                return value;
+            });
+        }
+        List<Event> events = new ArrayList<>();
+        for (int e = 0; e < EVENTS; e++) {
+            events.add(new Event<>(collectors.get(e % COLLECTORS)));
+        }
+        scheduler = new ShardedObservationScheduler(events, 1000, shards);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public long observeRound() {
+        scheduler.observeAll();
+        return scheduler.getRoundCount();
+    }
+}
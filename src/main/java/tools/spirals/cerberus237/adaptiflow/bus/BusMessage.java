@@ -0,0 +1,88 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.bus;
+
+/**
+ * The {@link BusMessage} class is a triggered event carried by an {@link EventBus}
+ * between services: the topic it was published on, the service that published it, the
+ * time it was published and a numeric value, such as the metric that triggered it.
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public final class BusMessage {
+    private final String topic;
+    private final String source;
+    private final long timestampMillis;
+    private final double value;
+
+    /**
+     * Constructs a {@code BusMessage}.
+     *
+     * @param topic the topic, usually the name of the triggered event.
+     * @param source the name of the publishing service.
+     * @param timestampMillis the time of publication.
+     * @param value the value carried, or {@link Double#NaN} for none.
+     * @throws IllegalArgumentException if the topic or source is {@code null}.
+     */
+    public BusMessage(String topic, String source, long timestampMillis, double value) {
+        if (topic == null || source == null) {
+            throw new IllegalArgumentException("The topic and source must not be null");
+        }
+        this.topic = topic;
+        this.source = source;
+        this.timestampMillis = timestampMillis;
+        this.value = value;
+    }
+
+    /**
+     * Returns the topic of this message.
+     *
+     * @return the topic, usually the name of the triggered event.
+     */
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * Returns the source of this message.
+     *
+     * @return the name of the publishing service.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the publication time of this message.
+     *
+     * @return the time of publication, in milliseconds.
+     */
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * Returns the value of this message.
+     *
+     * @return the value carried, or {@link Double#NaN} for none.
+     */
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return topic + " from " + source + " at " + timestampMillis + ": " + value;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.bus;
+
+import tools.spirals.cerberus237.adaptiflow.interfaces.EventContext;
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.interfaces.Observer;
+import tools.spirals.cerberus237.adaptiflow.operators.TrueEvaluator;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The {@link BusPublishingSubscriber} class publishes the notifications of a local event
+ * on an {@link EventBus} topic, so other services receive them as {@link RemoteEvent}s.
+ * <p>
+ * It replaces broadcast actions issuing one request per service and per trigger: the
+ * notification is queued and sent in the next frame of the bus.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * attackEvent.subscribe(new BusPublishingSubscriber&lt;&gt;(bus, "ddosAttack", ServiceMetrics::getRequestRate));
+ * </pre>
+ *
+ * @param <T> the type of the metric of the event.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class BusPublishingSubscriber<T> implements Observer<T> {
+
+    private final EventBus bus;
+    private final String topic;
+    private final ToDoubleFunction<? super T> extractor;
+    private final ConditionEvaluator<T> conditionEvaluator;
+
+    /**
+     * Constructs a {@code BusPublishingSubscriber} publishing every notification.
+     *
+     * @param bus the bus.
+     * @param topic the topic.
+     * @param extractor the function extracting the published value from the metric.
+     */
+    public BusPublishingSubscriber(EventBus bus, String topic, ToDoubleFunction<? super T> extractor) {
+        this(bus, topic, extractor, new TrueEvaluator<>());
+    }
+
+    /**
+     * Constructs a {@code BusPublishingSubscriber}.
+     *
+     * @param bus the bus.
+     * @param topic the topic.
+     * @param extractor the function extracting the published value from the metric.
+     * @param conditionEvaluator the condition a notification must meet to be published.
+     * @throws IllegalArgumentException if an argument is {@code null}.
+     */
+    public BusPublishingSubscriber(EventBus bus, String topic, ToDoubleFunction<? super T> extractor,
+                                   ConditionEvaluator<T> conditionEvaluator) {
+        if (bus == null || topic == null || extractor == null || conditionEvaluator == null) {
+            throw new IllegalArgumentException("The bus, topic, extractor and condition evaluator must not be null");
+        }
+        this.bus = bus;
+        this.topic = topic;
+        this.extractor = extractor;
+        this.conditionEvaluator = conditionEvaluator;
+    }
+
+    @Override
+    public void update(T metricValue, String message) {
+        bus.publish(topic, extractor.applyAsDouble(metricValue));
+    }
+
+    @Override
+    public void update(T metricValue, EventContext context) {
+        bus.publish(topic, extractor.applyAsDouble(metricValue));
+    }
+
+    @Override
+    public ConditionEvaluator<T> getConditionEvaluator() {
+        return conditionEvaluator;
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.bus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * The {@link BusTransport} interface carries the binary frames of an {@link EventBus}
+ * between services.
+ * <p>
+ * A transport sends each frame whole to its peers and hands every frame it receives to
+ * its handlers. Handlers receive a read-only buffer positioned at the start of the
+ * frame, valid only for the duration of the call.
+ * </p>
+ * <p>
+ * Every transport follows the same delivery rules: a frame sent through a transport
+ * reaches each handler attached to it or to the transports connected to it exactly once,
+ * including the handlers of the sending transport, which receive it on the sending thread.
+ * A bus therefore receives the messages it publishes, as well as those of the other buses.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public interface BusTransport extends Closeable {
+
+    /**
+     * Sends a frame to the peers of this transport.
+     *
+     * @param frame the frame, from its position to its limit.
+     * @throws IOException if the frame cannot be sent.
+     */
+    void send(ByteBuffer frame) throws IOException;
+
+    /**
+     * Adds a handler receiving the frames sent by the peers of this transport.
+     *
+     * @param handler the frame handler.
+     */
+    void addFrameHandler(Consumer<ByteBuffer> handler);
+
+    /**
+     * Removes a handler added by {@link #addFrameHandler(Consumer)}, leaving the other
+     * handlers attached.
+     *
+     * @param handler the frame handler.
+     */
+    void removeFrameHandler(Consumer<ByteBuffer> handler);
+}
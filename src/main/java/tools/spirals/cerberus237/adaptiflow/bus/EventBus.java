@@ -0,0 +1,310 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.bus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * The {@link EventBus} class carries triggered events between services as batched
+ * binary frames over a {@link BusTransport}.
+ * <p>
+ * Publishing only enqueues the message. A sender thread takes the queued messages,
+ * up to {@code maxBatch} at a time, encodes them into one frame and sends it: under load,
+ * messages queue up while a frame is being sent and the next frame carries them all, and
+ * at low rates a message leaves as soon as it is published, without waiting for a batch to
+ * fill. When the queue is full, new messages are dropped and counted.
+ * </p>
+ * <p>
+ * Received frames are decoded and their messages handed to the listeners of their topic,
+ * on the transport's receiving thread. Following the delivery rules of {@link BusTransport},
+ * a bus also receives the messages it publishes. A {@link RemoteEvent} turns them into
+ * local event notifications.
+ * </p>
+ * <p>
+ * Several buses may share a transport. Closing a bus detaches it from the transport and
+ * leaves the transport open: whoever created the transport closes it.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * // Persistence service: broadcast the database state instead of one REST call per service
+ * EventBus bus = new EventBus(LoopbackSocketTransport.listen(7400), "persistence");
+ * databaseUnavailableEvent.subscribe(new BusPublishingSubscriber&lt;&gt;(bus, "databaseUnavailable", SQLDatabaseMetrics::getResponseTime));
+ *
+ * // WebUI service
+ * EventBus bus = new EventBus(LoopbackSocketTransport.connect(7400), "webui");
+ * new RemoteEvent(bus, "databaseUnavailable").subscribe(new EventSubscriber&lt;&gt;(List.of(new EnableMaintenanceMode())));
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class EventBus implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(EventBus.class);
+
+    /**
+     * The default number of messages the queue holds.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 65536;
+
+    /**
+     * The default largest number of messages of a frame.
+     */
+    public static final int DEFAULT_MAX_BATCH = 1024;
+
+    private final BusTransport transport;
+    private final Consumer<ByteBuffer> frameHandler = this::receive;
+    private final String source;
+    private final int maxBatch;
+    private final BlockingQueue<BusMessage> queue;
+    private final Map<String, List<Consumer<BusMessage>>> listeners = new ConcurrentHashMap<>();
+    private final Thread sender;
+    private volatile boolean closed = false;
+
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder receivedCount = new LongAdder();
+    private volatile long frameCount = 0;
+    private volatile long sentCount = 0;
+    private volatile long sendFailureCount = 0;
+
+    /**
+     * Constructs an {@code EventBus} with the default queue capacity and batch size.
+     *
+     * @param transport the transport carrying the frames.
+     * @param source the name of this service, attached to the messages it publishes.
+     */
+    public EventBus(BusTransport transport, String source) {
+        this(transport, source, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH);
+    }
+
+    /**
+     * Constructs an {@code EventBus}.
+     *
+     * @param transport the transport carrying the frames.
+     * @param source the name of this service, attached to the messages it publishes.
+     * @param queueCapacity the number of messages waiting to be sent beyond which new ones are dropped.
+     * @param maxBatch the largest number of messages of a frame.
+     * @throws IllegalArgumentException if a size is not positive or an argument is {@code null}.
+     */
+    public EventBus(BusTransport transport, String source, int queueCapacity, int maxBatch) {
+        if (transport == null || source == null) {
+            throw new IllegalArgumentException("The transport and source must not be null");
+        }
+        if (queueCapacity <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("The queue capacity and batch size must be positive: "
+                    + queueCapacity + ", " + maxBatch);
+        }
+        this.transport = transport;
+        this.source = source;
+        this.maxBatch = maxBatch;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        transport.addFrameHandler(frameHandler);
+        sender = new Thread(this::send, "adaptiflow-bus-send-" + source);
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /**
+     * Publishes a message on a topic, timestamped with the wall clock.
+     *
+     * @param topic the topic.
+     * @param value the value carried, or {@link Double#NaN} for none.
+     * @return {@code false} if the message was dropped because the queue is full or the bus closed.
+     */
+    public boolean publish(String topic, double value) {
+        return publish(new BusMessage(topic, source, System.currentTimeMillis(), value));
+    }
+
+    /**
+     * Publishes a message.
+     *
+     * @param message the message.
+     * @return {@code false} if the message was dropped because the queue is full or the bus closed.
+     */
+    public boolean publish(BusMessage message) {
+        if (closed || !queue.offer(message)) {
+            droppedCount.increment();
+            return false;
+        }
+        publishedCount.increment();
+        return true;
+    }
+
+    /**
+     * Adds a listener receiving the messages of a topic, on the transport's receiving thread.
+     *
+     * @param topic the topic.
+     * @param listener the listener.
+     */
+    public void subscribe(String topic, Consumer<BusMessage> listener) {
+        listeners.computeIfAbsent(topic, key -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * Removes a listener of a topic.
+     *
+     * @param topic the topic.
+     * @param listener the listener.
+     */
+    public void unsubscribe(String topic, Consumer<BusMessage> listener) {
+        List<Consumer<BusMessage>> topicListeners = listeners.get(topic);
+        if (topicListeners != null) {
+            topicListeners.remove(listener);
+        }
+    }
+
+    private void send() {
+        List<BusMessage> batch = new ArrayList<>(maxBatch);
+        ByteBuffer buffer = null;
+        while (!closed || !queue.isEmpty()) {
+            try {
+                BusMessage first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            buffer = FrameCodec.encode(batch, buffer);
+            try {
+                transport.send(buffer);
+                sentCount += batch.size();
+                frameCount++;
+            } catch (IOException | RuntimeException e) {
+                sendFailureCount += batch.size();
+                LOG.warn("Could not send a frame of {} message(s)", batch.size(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void receive(ByteBuffer frame) {
+        try {
+            FrameCodec.decode(frame, this::dispatch);
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Dropping a malformed frame", e);
+        }
+    }
+
+    private void dispatch(BusMessage message) {
+        receivedCount.increment();
+        List<Consumer<BusMessage>> topicListeners = listeners.get(message.getTopic());
+        if (topicListeners == null) {
+            return;
+        }
+        for (Consumer<BusMessage> listener : topicListeners) {
+            try {
+                listener.accept(message);
+            } catch (RuntimeException e) {
+                LOG.warn("A listener of {} failed", message.getTopic(), e);
+            }
+        }
+    }
+
+    /**
+     * Returns the name of this service on the bus.
+     *
+     * @return the source attached to published messages.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the number of messages accepted for sending.
+     *
+     * @return the published count.
+     */
+    public long getPublishedCount() {
+        return publishedCount.sum();
+    }
+
+    /**
+     * Returns the number of messages dropped because the queue was full or the bus closed.
+     *
+     * @return the dropped count.
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Returns the number of messages sent.
+     *
+     * @return the sent count.
+     */
+    public long getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * Returns the number of messages lost because their frame could not be sent.
+     *
+     * @return the send failure count.
+     */
+    public long getSendFailureCount() {
+        return sendFailureCount;
+    }
+
+    /**
+     * Returns the number of frames sent; the sent count divided by it is the average batch size.
+     *
+     * @return the frame count.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the number of messages received, whether or not a listener handled them.
+     *
+     * @return the received count.
+     */
+    public long getReceivedCount() {
+        return receivedCount.sum();
+    }
+
+    /**
+     * Sends the queued messages, then stops the sender and detaches this bus from the
+     * transport, which stays open for the other buses using it.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            sender.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        transport.removeFrameHandler(frameHandler);
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.bus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * The {@link InProcessTransport} class connects the {@link EventBus}es of one process,
+ * for tests and for components of a service talking through the bus.
+ * <p>
+ * A frame sent is handed synchronously, on the sending thread, to every handler of the
+ * transport, including the handlers of the sending bus: every bus attached to the
+ * transport receives every message, as defined by {@link BusTransport}.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class InProcessTransport implements BusTransport {
+    private static final Logger LOG = LoggerFactory.getLogger(InProcessTransport.class);
+
+    private final List<Consumer<ByteBuffer>> handlers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void send(ByteBuffer frame) {
+        for (Consumer<ByteBuffer> handler : handlers) {
+            try {
+                handler.accept(frame.asReadOnlyBuffer());
+            } catch (RuntimeException e) {
+                LOG.warn("A frame handler failed", e);
+            }
+        }
+    }
+
+    @Override
+    public void addFrameHandler(Consumer<ByteBuffer> handler) {
+        handlers.add(handler);
+    }
+
+    @Override
+    public void removeFrameHandler(Consumer<ByteBuffer> handler) {
+        handlers.remove(handler);
+    }
+
+    /**
+     * Detaches every handler, so the buses still using the transport stop receiving.
+     */
+    @Override
+    public void close() {
+        handlers.clear();
+    }
+}
@@ -0,0 +1,279 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.bus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * The {@link LoopbackSocketTransport} class carries the frames of an {@link EventBus}
+ * over TCP connections on the loopback interface, between the services of a host.
+ * <p>
+ * One service listens on a port and the others connect to it. Frames are sent to every
+ * open connection, prefixed with their length, and handed to the local handlers on the
+ * sending thread. The frames received on a connection are handed to the handlers on a
+ * thread reading that connection; the listening transport also relays them to its other
+ * clients. Every transport of the host thus receives every frame once, following the
+ * delivery rules of {@link BusTransport}. A connection that fails is closed and dropped;
+ * a client does not reconnect.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * // Persistence service
+ * EventBus bus = new EventBus(LoopbackSocketTransport.listen(7400), "persistence");
+ * // WebUI service
+ * EventBus bus = new EventBus(LoopbackSocketTransport.connect(7400), "webui");
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class LoopbackSocketTransport implements BusTransport {
+    private static final Logger LOG = LoggerFactory.getLogger(LoopbackSocketTransport.class);
+
+    /**
+     * The largest frame accepted from a peer.
+     */
+    public static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    private final ServerSocketChannel server;
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    private final List<Consumer<ByteBuffer>> handlers = new CopyOnWriteArrayList<>();
+    private volatile boolean closed = false;
+
+    private LoopbackSocketTransport(ServerSocketChannel server) {
+        this.server = server;
+    }
+
+    /**
+     * Listens for connections on a loopback port.
+     *
+     * @param port the port, or 0 for any free port.
+     * @return the listening transport.
+     * @throws IOException if the port cannot be bound.
+     */
+    public static LoopbackSocketTransport listen(int port) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        try {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        LoopbackSocketTransport transport = new LoopbackSocketTransport(server);
+        Thread acceptor = new Thread(transport::accept, "adaptiflow-bus-accept-" + transport.getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return transport;
+    }
+
+    /**
+     * Connects to a transport listening on a loopback port.
+     *
+     * @param port the port.
+     * @return the connected transport.
+     * @throws IOException if the connection fails.
+     */
+    public static LoopbackSocketTransport connect(int port) throws IOException {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        LoopbackSocketTransport transport = new LoopbackSocketTransport(null);
+        transport.open(channel);
+        return transport;
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                open(server.accept());
+            } catch (IOException e) {
+                if (!closed) {
+                    LOG.warn("Could not accept a bus connection", e);
+                }
+                return;
+            }
+        }
+    }
+
+    private void open(SocketChannel channel) throws IOException {
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Connection connection = new Connection(channel);
+        connections.add(connection);
+        Thread reader = new Thread(() -> read(connection), "adaptiflow-bus-read");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void read(Connection connection) {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        ByteBuffer frame = ByteBuffer.allocate(64 * 1024);
+        try {
+            while (!closed) {
+                header.clear();
+                readFully(connection.channel, header);
+                int length = header.getInt(0);
+                if (length < 0 || length > MAX_FRAME_BYTES) {
+                    throw new IOException("Invalid frame length: " + length);
+                }
+                if (frame.capacity() < length) {
+                    frame = ByteBuffer.allocate(Math.max(length, frame.capacity() * 2));
+                }
+                frame.clear().limit(length);
+                readFully(connection.channel, frame);
+                frame.flip();
+                if (server != null) {
+                    relay(frame, connection);
+                }
+                deliver(frame);
+            }
+        } catch (IOException e) {
+            if (!closed && !(e instanceof EOFException)) {
+                LOG.warn("Closing a bus connection", e);
+            }
+        } finally {
+            drop(connection);
+        }
+    }
+
+    /**
+     * Forwards a frame received from a client to the other clients.
+     */
+    private void relay(ByteBuffer frame, Connection from) {
+        for (Connection connection : connections) {
+            if (connection != from) {
+                try {
+                    connection.write(frame.duplicate());
+                } catch (IOException e) {
+                    LOG.debug("Could not relay a frame", e);
+                    drop(connection);
+                }
+            }
+        }
+    }
+
+    private void deliver(ByteBuffer frame) {
+        for (Consumer<ByteBuffer> handler : handlers) {
+            try {
+                handler.accept(frame.asReadOnlyBuffer());
+            } catch (RuntimeException e) {
+                LOG.warn("A frame handler failed", e);
+            }
+        }
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private void drop(Connection connection) {
+        connections.remove(connection);
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            LOG.debug("Could not close a bus connection", e);
+        }
+    }
+
+    @Override
+    public void send(ByteBuffer frame) throws IOException {
+        IOException failure = null;
+        for (Connection connection : connections) {
+            try {
+                connection.write(frame.duplicate());
+            } catch (IOException e) {
+                drop(connection);
+                failure = e;
+            }
+        }
+        deliver(frame);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void addFrameHandler(Consumer<ByteBuffer> handler) {
+        handlers.add(handler);
+    }
+
+    @Override
+    public void removeFrameHandler(Consumer<ByteBuffer> handler) {
+        handlers.remove(handler);
+    }
+
+    /**
+     * Returns the local port of a listening transport.
+     *
+     * @return the port, or -1 for a connected transport.
+     */
+    public int getPort() {
+        return server == null ? -1 : server.socket().getLocalPort();
+    }
+
+    /**
+     * Returns the number of open connections.
+     *
+     * @return the connection count.
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (server != null) {
+            server.close();
+        }
+        for (Connection connection : connections) {
+            drop(connection);
+        }
+    }
+
+    /**
+     * A connection to a peer, written by one sender at a time.
+     */
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer header = ByteBuffer.allocate(4);
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private synchronized void write(ByteBuffer frame) throws IOException {
+            header.clear();
+            header.putInt(frame.remaining()).flip();
+            ByteBuffer[] buffers = {header, frame};
+            while (header.hasRemaining() || frame.hasRemaining()) {
+                channel.write(buffers);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.bus;
+
+import tools.spirals.cerberus237.adaptiflow.events.Event;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.util.function.Consumer;
+
+/**
+ * The {@link RemoteEvent} class is a local {@link Event} raised by the messages another
+ * service publishes on an {@link EventBus} topic.
+ * <p>
+ * Each message received on the topic is observed as soon as it arrives, on the
+ * transport's receiving thread: the observers whose condition holds for the message are
+ * notified, as for an event observing a collector. A remote event is driven by the bus
+ * and is not meant to be added to an observation scheduler.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * RemoteEvent databaseUnavailableEvent = new RemoteEvent(bus, "databaseUnavailable");
+ * databaseUnavailableEvent.subscribe(new EventSubscriber&lt;&gt;(List.of(new EnableMaintenanceMode())));
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class RemoteEvent extends Event<BusMessage> {
+
+    /**
+     * Hands the message being observed to the event as its collected value.
+     */
+    private static final class Inbox implements IMetricsCollector<BusMessage> {
+        private BusMessage message;
+
+        @Override
+        public BusMessage get() {
+            return message;
+        }
+    }
+
+    private final EventBus bus;
+    private final Consumer<BusMessage> listener = this::onMessage;
+
+    /**
+     * Constructs a {@code RemoteEvent} named after its topic and subscribes it to the bus.
+     *
+     * @param bus the bus receiving the messages.
+     * @param topic the topic.
+     * @throws IllegalArgumentException if an argument is {@code null}.
+     */
+    public RemoteEvent(EventBus bus, String topic) {
+        super(topic, new Inbox());
+        if (bus == null || topic == null) {
+            throw new IllegalArgumentException("The bus and topic must not be null");
+        }
+        this.bus = bus;
+        bus.subscribe(topic, listener);
+    }
+
+    private synchronized void onMessage(BusMessage message) {
+        ((Inbox) collector).message = message;
+        observe();
+    }
+
+    /**
+     * Stops receiving the messages of the topic.
+     */
+    public void close() {
+        bus.unsubscribe(name, listener);
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import tools.spirals.cerberus237.adaptiflow.models.MetricsSnapshot;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link AbstractSnapshotCollector} class is the base class for collectors that
+ * gather several metric kinds at once into a {@link MetricsSnapshot}.
+ * <p>
+ * A snapshot is reused by every caller until it is older than {@code maxAgeMillis},
+ * so several events bound to fields of the same collector trigger one fetch per tick.
+ * Choose a maximum age below the observation interval so that every tick sees fresh
+ * values. Concurrent callers arriving while a fetch is in progress wait for it
+ * instead of fetching again.
+ * </p>
+ * <p>
+ * Subclasses implement {@link #fetch()}, either with one call returning every metric
+ * or with a fan-out over several sources (see {@link CompositeMetricsCollector}).
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public abstract class AbstractSnapshotCollector implements IMetricsCollector<MetricsSnapshot> {
+
+    /**
+     * The field names of the snapshots produced by this collector.
+     */
+    protected final List<String> names;
+
+    private final long maxAgeNanos;
+    private MetricsSnapshot snapshot;
+    private long fetchedAtNanos;
+    private long fetchCount = 0;
+
+    /**
+     * Constructs an {@code AbstractSnapshotCollector}.
+     *
+     * @param names the field names of the snapshots.
+     * @param maxAgeMillis how long, in milliseconds, a snapshot is reused.
+     */
+    protected AbstractSnapshotCollector(List<String> names, long maxAgeMillis) {
+        if (maxAgeMillis < 0) {
+            throw new IllegalArgumentException("The maximum age must not be negative: " + maxAgeMillis);
+        }
+        this.names = List.copyOf(names);
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+    }
+
+    /**
+     * Gathers the values of every field.
+     *
+     * @return the values, in the order of {@link #names}.
+     */
+    protected abstract Object[] fetch();
+
+    /**
+     * Returns the current snapshot, fetching a new one if the cached snapshot is
+     * older than the maximum age.
+     *
+     * @return the current snapshot.
+     */
+    @Override
+    public synchronized MetricsSnapshot get() {
+        long now = System.nanoTime();
+        if (snapshot == null || now - fetchedAtNanos >= maxAgeNanos) {
+            snapshot = new MetricsSnapshot(names, fetch(), System.currentTimeMillis());
+            fetchedAtNanos = System.nanoTime();
+            fetchCount++;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns a collector reading the specified field of the shared snapshot,
+     * so an event can be bound to one metric of this collector.
+     *
+     * @param name the field name.
+     * @param <T> the type of the field value.
+     * @return a collector returning the field value, {@code null} when unavailable.
+     * @throws IllegalArgumentException if this collector has no such field.
+     */
+    public <T> IMetricsCollector<T> field(String name) {
+        int index = names.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown metric field: " + name);
+        }
+        return () -> get().get(index);
+    }
+
+    /**
+     * Returns the field names of the snapshots produced by this collector.
+     *
+     * @return the field names.
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Returns the number of fetches performed so far.
+     *
+     * @return the number of fetches.
+     */
+    public synchronized long getFetchCount() {
+        return fetchCount;
+    }
+}
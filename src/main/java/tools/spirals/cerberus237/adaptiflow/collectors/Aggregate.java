@@ -0,0 +1,144 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import java.util.Arrays;
+
+/**
+ * The {@link Aggregate} interface reduces the values collected from several instances of
+ * a service to a single value.
+ * <p>
+ * An aggregate receives the values in the first {@code count} slots of an array it may
+ * reorder. It returns {@link Double#NaN} when it is undefined for that many values.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * // true when at least 2 replicas are above 80% CPU
+ * new IncreaseEvent&lt;&gt;(new AggregatingCollector(replicas, Aggregate.kthLargest(2), executor, 500), () -&gt; 80.0);
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+@FunctionalInterface
+public interface Aggregate {
+
+    /**
+     * Reduces the specified values.
+     *
+     * @param values the array holding the values, which may be reordered.
+     * @param count the number of values, at the start of the array.
+     * @return the aggregated value, or {@link Double#NaN} if it is undefined.
+     */
+    double apply(double[] values, int count);
+
+    /**
+     * Returns the aggregate computing the largest value.
+     *
+     * @return the maximum aggregate.
+     */
+    static Aggregate max() {
+        return (values, count) -> {
+            double max = Double.NaN;
+            for (int i = 0; i < count; i++) {
+                max = i == 0 ? values[i] : Math.max(max, values[i]);
+            }
+            return max;
+        };
+    }
+
+    /**
+     * Returns the aggregate computing the smallest value.
+     *
+     * @return the minimum aggregate.
+     */
+    static Aggregate min() {
+        return (values, count) -> {
+            double min = Double.NaN;
+            for (int i = 0; i < count; i++) {
+                min = i == 0 ? values[i] : Math.min(min, values[i]);
+            }
+            return min;
+        };
+    }
+
+    /**
+     * Returns the aggregate computing the sum of the values, e.g. the request rate of a
+     * whole service.
+     *
+     * @return the sum aggregate.
+     */
+    static Aggregate sum() {
+        return (values, count) -> {
+            double sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += values[i];
+            }
+            return sum;
+        };
+    }
+
+    /**
+     * Returns the aggregate computing the arithmetic mean of the values.
+     *
+     * @return the mean aggregate.
+     */
+    static Aggregate mean() {
+        return (values, count) -> count == 0 ? Double.NaN : sum().apply(values, count) / count;
+    }
+
+    /**
+     * Returns the aggregate computing a quantile of the values, interpolating linearly
+     * between the closest ranks.
+     *
+     * @param q the quantile, in {@code [0, 1]}; 0.5 is the median.
+     * @return the quantile aggregate.
+     */
+    static Aggregate quantile(double q) {
+        if (!(q >= 0.0 && q <= 1.0)) {
+            throw new IllegalArgumentException("The quantile must be in [0, 1]: " + q);
+        }
+        return (values, count) -> {
+            if (count == 0) {
+                return Double.NaN;
+            }
+            Arrays.sort(values, 0, count);
+            double position = q * (count - 1);
+            int lower = (int) Math.floor(position);
+            int upper = (int) Math.ceil(position);
+            return values[lower] + (values[upper] - values[lower]) * (position - lower);
+        };
+    }
+
+    /**
+     * Returns the aggregate computing the k-th largest value. Comparing it to a threshold
+     * tells whether at least {@code k} instances are above that threshold, a k-of-n vote
+     * that a single outlier cannot trigger.
+     *
+     * @param k the rank, starting at 1 for the largest value.
+     * @return the k-th largest aggregate, {@link Double#NaN} for fewer than {@code k} values.
+     */
+    static Aggregate kthLargest(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("The rank must be positive: " + k);
+        }
+        return (values, count) -> {
+            if (count < k) {
+                return Double.NaN;
+            }
+            Arrays.sort(values, 0, count);
+            return values[count - k];
+        };
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link AggregatingCollector} class collects a metric from every instance of a
+ * replicated service concurrently and reduces the values with an {@link Aggregate}.
+ * <p>
+ * Querying the instances one after the other makes the collection time grow with the
+ * number of replicas. This collector submits all queries to an executor at once and waits
+ * at most the timeout for them, so a tick costs the slowest answering instance, bounded by
+ * the timeout. Instances that fail, time out or return no number are left out of the
+ * aggregate; if fewer than the required number of instances answered, {@link #get()}
+ * returns {@code null}; enable {@link tools.spirals.cerberus237.adaptiflow.events.Event#setSkipMissingValues(boolean)}
+ * on the events observing it to skip such observations.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * List&lt;IMetricsCollector&lt;Double&gt;&gt; replicas = instances.stream()
+ *         .map(instance -&gt; new RemoteCpuUsageCollector(instance, "metrics/cpu"))
+ *         .collect(Collectors.toList());
+ * AggregatingCollector cpu = new AggregatingCollector(replicas, Aggregate.quantile(0.9), executor, 500, 2);
+ * IncreaseEvent&lt;Double&gt; highCpuEvent = new IncreaseEvent&lt;&gt;(cpu, () -&gt; 80.0);
+ * highCpuEvent.setSkipMissingValues(true);
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class AggregatingCollector implements IMetricsCollector<Double> {
+    private static final Logger LOG = LoggerFactory.getLogger(AggregatingCollector.class);
+
+    /**
+     * The collectors of the instances.
+     */
+    private final List<IMetricsCollector<? extends Number>> instances;
+
+    /**
+     * The aggregate reducing the collected values.
+     */
+    private final Aggregate aggregate;
+
+    /**
+     * The executor querying the instances.
+     */
+    private final ExecutorService executor;
+
+    private final long timeoutNanos;
+
+    /**
+     * The minimum number of instances that must answer.
+     */
+    private final int minResponses;
+
+    private volatile int lastResponseCount = 0;
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+
+    /**
+     * Constructs an {@code AggregatingCollector} accepting any number of answering instances,
+     * as long as there is one.
+     *
+     * @param instances the collectors of the instances.
+     * @param aggregate the aggregate reducing the collected values.
+     * @param executor the executor querying the instances.
+     * @param timeoutMillis how long, in milliseconds, a collection waits for the instances.
+     */
+    public AggregatingCollector(List<? extends IMetricsCollector<? extends Number>> instances, Aggregate aggregate,
+                                ExecutorService executor, long timeoutMillis) {
+        this(instances, aggregate, executor, timeoutMillis, 1);
+    }
+
+    /**
+     * Constructs an {@code AggregatingCollector}.
+     *
+     * @param instances the collectors of the instances.
+     * @param aggregate the aggregate reducing the collected values.
+     * @param executor the executor querying the instances.
+     * @param timeoutMillis how long, in milliseconds, a collection waits for the instances.
+     * @param minResponses the minimum number of instances that must answer, between 1 and
+     *                     the number of instances.
+     */
+    public AggregatingCollector(List<? extends IMetricsCollector<? extends Number>> instances, Aggregate aggregate,
+                                ExecutorService executor, long timeoutMillis, int minResponses) {
+        if (minResponses < 1 || minResponses > instances.size()) {
+            throw new IllegalArgumentException("The minimum number of responses must be between 1 and "
+                    + instances.size() + ": " + minResponses);
+        }
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("The timeout must not be negative: " + timeoutMillis);
+        }
+        this.instances = List.copyOf(instances);
+        this.aggregate = aggregate;
+        this.executor = executor;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.minResponses = minResponses;
+    }
+
+    /**
+     * Collects the metric from all instances and aggregates the values received in time.
+     *
+     * @return the aggregated value, or {@code null} if fewer than the required number of
+     *         instances answered.
+     */
+    @Override
+    public Double get() {
+        int size = instances.size();
+        List<Future<? extends Number>> futures = new ArrayList<>(size);
+        for (IMetricsCollector<? extends Number> instance : instances) {
+            futures.add(executor.submit(instance::get));
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        double[] values = new double[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            Future<? extends Number> future = futures.get(i);
+            try {
+                Number value = future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (value != null && !Double.isNaN(value.doubleValue())) {
+                    values[count++] = value.doubleValue();
+                } else {
+                    failureCount.incrementAndGet();
+                }
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                timeoutCount.incrementAndGet();
+            } catch (ExecutionException e) {
+                failureCount.incrementAndGet();
+                LOG.debug("Failed to collect instance {}", i, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                break;
+            }
+        }
+        lastResponseCount = count;
+        if (count < minResponses) {
+            LOG.warn("Only {} of {} instances answered, {} required", count, size, minResponses);
+            return null;
+        }
+        return aggregate.apply(values, count);
+    }
+
+    /**
+     * Returns the number of instances that answered the last collection.
+     *
+     * @return the number of values aggregated by the last collection.
+     */
+    public int getLastResponseCount() {
+        return lastResponseCount;
+    }
+
+    /**
+     * Returns the number of instance queries that timed out since this collector was created.
+     *
+     * @return the timeout count.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * Returns the number of instance queries that failed or returned no number since this
+     * collector was created.
+     *
+     * @return the failure count.
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * Returns the number of instances.
+     *
+     * @return the number of instance collectors.
+     */
+    public int getInstanceCount() {
+        return instances.size();
+    }
+}
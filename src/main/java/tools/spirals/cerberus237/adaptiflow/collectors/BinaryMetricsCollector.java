@@ -0,0 +1,196 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.spirals.cerberus237.adaptiflow.wire.MetricCodec;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+
+/**
+ * The {@link BinaryMetricsCollector} class collects a metric served by a remote endpoint
+ * in the binary format of a {@link MetricCodec}, instead of text or JSON.
+ * <p>
+ * The response body is read into a buffer allocated once and decoded straight from it,
+ * so a tick allocates no string, no parser state and no intermediate tree; only the
+ * decoded value and the HTTP exchange itself remain. Connections are kept alive between
+ * ticks. A failed request, an error status, a frame larger than the buffer or a malformed
+ * frame is logged and reported as {@code null}, like a collector without data.
+ * </p>
+ * <p>
+ * The endpoint answers with the frame produced by
+ * {@link tools.spirals.cerberus237.adaptiflow.wire.MetricCodecs#toBytes(MetricCodec, Object)}
+ * and the {@link #CONTENT_TYPE} content type.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * IMetricsCollector&lt;SQLDatabaseMetrics&gt; collector = new BinaryMetricsCollector&lt;&gt;(
+ *         "http://persistence:8080/metrics/database", MetricCodecs.databaseMetrics());
+ * ConditionalEvent&lt;SQLDatabaseMetrics&gt; databaseUnavailableEvent =
+ *         new ConditionalEvent&lt;&gt;(collector, new UnHealthyDatabaseEvaluator(5000L, true));
+ * </pre>
+ *
+ * @param <T> the type of the collected metric.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class BinaryMetricsCollector<T> implements IMetricsCollector<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(BinaryMetricsCollector.class);
+
+    /**
+     * The content type of binary metric frames.
+     */
+    public static final String CONTENT_TYPE = "application/x-adaptiflow-metrics";
+
+    /**
+     * The default size, in bytes, of the largest frame read.
+     */
+    public static final int DEFAULT_MAX_FRAME_BYTES = 4096;
+
+    /**
+     * The default connect and read timeout, in milliseconds.
+     */
+    public static final int DEFAULT_TIMEOUT_MILLIS = 2000;
+
+    private final URL url;
+    private final MetricCodec<T> codec;
+    private final int timeoutMillis;
+    private final ByteBuffer buffer;
+
+    private long fetchCount = 0;
+    private long failureCount = 0;
+    private int lastFrameBytes = 0;
+
+    /**
+     * Constructs a {@code BinaryMetricsCollector} with the default timeout and frame size.
+     *
+     * @param url the URL of the metric endpoint.
+     * @param codec the codec of the served metric.
+     */
+    public BinaryMetricsCollector(String url, MetricCodec<T> codec) {
+        this(url, codec, DEFAULT_TIMEOUT_MILLIS, DEFAULT_MAX_FRAME_BYTES);
+    }
+
+    /**
+     * Constructs a {@code BinaryMetricsCollector}.
+     *
+     * @param url the URL of the metric endpoint.
+     * @param codec the codec of the served metric.
+     * @param timeoutMillis the connect and read timeout, in milliseconds.
+     * @param maxFrameBytes the size, in bytes, of the largest frame read.
+     * @throws IllegalArgumentException if the URL is malformed, or the timeout or frame size is not positive.
+     */
+    public BinaryMetricsCollector(String url, MetricCodec<T> codec, int timeoutMillis, int maxFrameBytes) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("The timeout must be positive: " + timeoutMillis);
+        }
+        if (maxFrameBytes <= 0) {
+            throw new IllegalArgumentException("The maximum frame size must be positive: " + maxFrameBytes);
+        }
+        try {
+            this.url = new URL(url);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Malformed metric endpoint URL: " + url, e);
+        }
+        this.codec = codec;
+        this.timeoutMillis = timeoutMillis;
+        this.buffer = ByteBuffer.allocate(maxFrameBytes);
+    }
+
+    /**
+     * Fetches and decodes the current metric value.
+     *
+     * @return the metric value, or {@code null} if it could not be fetched or decoded.
+     */
+    @Override
+    public synchronized T get() {
+        fetchCount++;
+        try {
+            fetch();
+            T value = codec.decode(buffer);
+            // The body is one frame: bytes left after it mean the body is not what the codec expects.
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException(buffer.remaining() + " byte(s) after the metric frame");
+            }
+            return value;
+        } catch (IOException | IllegalArgumentException e) {
+            failureCount++;
+            LOG.warn("Failed to collect the binary metric of {}", url, e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the response body into the buffer, flipped for decoding.
+     */
+    private void fetch() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        connection.setRequestProperty("Accept", CONTENT_TYPE);
+        int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            connection.disconnect();
+            throw new IOException("Unexpected status " + status);
+        }
+        byte[] array = buffer.array();
+        int length = 0;
+        try (InputStream in = connection.getInputStream()) {
+            int read;
+            while ((read = in.read(array, length, array.length - length)) > 0) {
+                length += read;
+            }
+            if (length == array.length && in.read() >= 0) {
+                connection.disconnect();
+                throw new IOException("The frame exceeds " + array.length + " bytes");
+            }
+        }
+        lastFrameBytes = length;
+        buffer.clear().limit(length);
+    }
+
+    /**
+     * Returns the number of fetches performed so far.
+     *
+     * @return the number of fetches.
+     */
+    public synchronized long getFetchCount() {
+        return fetchCount;
+    }
+
+    /**
+     * Returns the number of fetches that returned no value.
+     *
+     * @return the number of failed fetches.
+     */
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * Returns the size of the last frame read.
+     *
+     * @return the frame size, in bytes.
+     */
+    public synchronized int getLastFrameBytes() {
+        return lastFrameBytes;
+    }
+}
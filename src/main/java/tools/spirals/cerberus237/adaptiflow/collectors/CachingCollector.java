@@ -0,0 +1,318 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@link CachingCollector} class decorates a collector with a time-to-live cache and
+ * single-flight fetching, so that events and schedulers sharing a remote collector share
+ * its round trips.
+ * <p>
+ * A value younger than the TTL is returned without calling the delegate. When the value is
+ * missing or expired, the first caller fetches it and concurrent callers wait for that same
+ * fetch instead of issuing their own; a failure is rethrown to all of them and nothing is
+ * cached. A {@code null} value is returned but not cached. With refresh-ahead, a hit on a
+ * value close to expiry starts a fetch in the background, so callers keep getting cached
+ * values while it runs.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * IMetricsCollector&lt;ServiceMetrics&gt; requests = new CachingCollector&lt;&gt;(
+ *         new RemoteServiceMetricsCollector(Service.AUTH, "metrics/requests"), 1000, 200, executor);
+ * ConditionalEvent&lt;ServiceMetrics&gt; attackEvent = new ConditionalEvent&lt;&gt;(requests, new DDoSEvaluator(() -&gt; 300.0, 60000));
+ * ConditionalEvent&lt;ServiceMetrics&gt; calmEvent = new ConditionalEvent&lt;&gt;(requests, new NonDDoSEvaluator(() -&gt; 100.0, 60000));
+ * </pre>
+ *
+ * @param <T> the type of the collected metric.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class CachingCollector<T> implements IMetricsCollector<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(CachingCollector.class);
+
+    /**
+     * A cached value and the time it was fetched.
+     */
+    private static final class Entry<T> {
+        private final T value;
+        private final long fetchedAtNanos;
+
+        private Entry(T value, long fetchedAtNanos) {
+            this.value = value;
+            this.fetchedAtNanos = fetchedAtNanos;
+        }
+    }
+
+    private final IMetricsCollector<T> delegate;
+    private final long ttlNanos;
+
+    /**
+     * How long before expiry a hit starts a background refresh, or 0 to disable refresh-ahead.
+     */
+    private final long refreshAheadNanos;
+
+    /**
+     * The executor running background refreshes, or {@code null} without refresh-ahead.
+     */
+    private final Executor refreshExecutor;
+
+    private final Object lock = new Object();
+    private volatile Entry<T> entry;
+
+    /**
+     * The fetch in progress, or {@code null}; guarded by {@link #lock}.
+     */
+    private CompletableFuture<T> inflight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder sharedFetches = new LongAdder();
+    private final LongAdder fetches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder fetchNanos = new LongAdder();
+    private volatile long lastFetchNanos = 0;
+
+    /**
+     * Constructs a {@code CachingCollector} without refresh-ahead.
+     *
+     * @param delegate the collector to cache.
+     * @param ttlMillis how long, in milliseconds, a value is returned from the cache.
+     */
+    public CachingCollector(IMetricsCollector<T> delegate, long ttlMillis) {
+        this(delegate, ttlMillis, 0, null);
+    }
+
+    /**
+     * Constructs a {@code CachingCollector} refreshing values in the background shortly
+     * before they expire.
+     *
+     * @param delegate the collector to cache.
+     * @param ttlMillis how long, in milliseconds, a value is returned from the cache.
+     * @param refreshAheadMillis how long, in milliseconds, before expiry a hit starts a
+     *                           background refresh; 0 disables refresh-ahead.
+     * @param refreshExecutor the executor running background refreshes.
+     */
+    public CachingCollector(IMetricsCollector<T> delegate, long ttlMillis, long refreshAheadMillis,
+                            Executor refreshExecutor) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("The time to live must be positive: " + ttlMillis);
+        }
+        if (refreshAheadMillis < 0 || refreshAheadMillis >= ttlMillis) {
+            throw new IllegalArgumentException("The refresh-ahead time must be in [0, " + ttlMillis + "): " + refreshAheadMillis);
+        }
+        if (refreshAheadMillis > 0 && refreshExecutor == null) {
+            throw new IllegalArgumentException("Refresh-ahead requires an executor");
+        }
+        this.delegate = delegate;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.refreshAheadNanos = TimeUnit.MILLISECONDS.toNanos(refreshAheadMillis);
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * Returns the cached value if it is fresh, otherwise fetches it once for all
+     * concurrent callers.
+     *
+     * @return the metric value.
+     */
+    @Override
+    public T get() {
+        Entry<T> current = entry;
+        if (current != null) {
+            long age = System.nanoTime() - current.fetchedAtNanos;
+            if (age < ttlNanos) {
+                hits.increment();
+                if (refreshAheadNanos > 0 && age >= ttlNanos - refreshAheadNanos) {
+                    refreshAhead();
+                }
+                return current.value;
+            }
+        }
+        misses.increment();
+        return fetchShared();
+    }
+
+    private T fetchShared() {
+        CompletableFuture<T> future;
+        boolean owner = false;
+        synchronized (lock) {
+            future = inflight;
+            if (future == null) {
+                future = new CompletableFuture<>();
+                inflight = future;
+                owner = true;
+            }
+        }
+        if (owner) {
+            fetch(future);
+        } else {
+            sharedFetches.increment();
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void refreshAhead() {
+        CompletableFuture<T> future;
+        synchronized (lock) {
+            if (inflight != null) {
+                return;
+            }
+            future = new CompletableFuture<>();
+            inflight = future;
+        }
+        refreshes.increment();
+        try {
+            refreshExecutor.execute(() -> fetch(future));
+        } catch (RejectedExecutionException e) {
+            synchronized (lock) {
+                inflight = null;
+            }
+            future.cancel(false);
+            LOG.debug("Background refresh rejected", e);
+        }
+    }
+
+    private void fetch(CompletableFuture<T> future) {
+        long start = System.nanoTime();
+        try {
+            T value = delegate.get();
+            long end = System.nanoTime();
+            if (value != null) {
+                entry = new Entry<>(value, end);
+            }
+            record(end - start);
+            future.complete(value);
+        } catch (Throwable e) {
+            // Any failure, errors included, must complete the future: waiters block on it.
+            record(System.nanoTime() - start);
+            failures.increment();
+            future.completeExceptionally(e);
+        } finally {
+            synchronized (lock) {
+                if (inflight == future) {
+                    inflight = null;
+                }
+            }
+        }
+    }
+
+    private void record(long nanos) {
+        fetches.increment();
+        fetchNanos.add(nanos);
+        lastFetchNanos = nanos;
+    }
+
+    /**
+     * Drops the cached value, so the next call fetches a new one.
+     */
+    public void invalidate() {
+        entry = null;
+    }
+
+    /**
+     * Returns the number of calls served from the cache.
+     *
+     * @return the hit count.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of calls that found no fresh value, including those that waited
+     * for a fetch started by another caller.
+     *
+     * @return the miss count.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of misses that waited for a fetch started by another caller
+     * instead of calling the delegate.
+     *
+     * @return the number of deduplicated fetches.
+     */
+    public long getSharedFetchCount() {
+        return sharedFetches.sum();
+    }
+
+    /**
+     * Returns the number of calls made to the delegate, in the foreground or background.
+     *
+     * @return the fetch count.
+     */
+    public long getFetchCount() {
+        return fetches.sum();
+    }
+
+    /**
+     * Returns the number of calls to the delegate that threw an exception.
+     *
+     * @return the failure count.
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Returns the number of background refreshes started.
+     *
+     * @return the refresh-ahead count.
+     */
+    public long getRefreshAheadCount() {
+        return refreshes.sum();
+    }
+
+    /**
+     * Returns the duration of the last call to the delegate.
+     *
+     * @return the duration, in nanoseconds.
+     */
+    public long getLastFetchNanos() {
+        return lastFetchNanos;
+    }
+
+    /**
+     * Returns the average duration of the calls to the delegate.
+     *
+     * @return the average duration, in nanoseconds, or 0 before the first fetch.
+     */
+    public long getAverageFetchNanos() {
+        long count = fetches.sum();
+        return count == 0 ? 0 : fetchNanos.sum() / count;
+    }
+}
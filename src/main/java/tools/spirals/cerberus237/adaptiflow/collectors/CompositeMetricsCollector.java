@@ -0,0 +1,133 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The {@link CompositeMetricsCollector} class gathers the metrics of several
+ * collectors into one shared {@link tools.spirals.cerberus237.adaptiflow.models.MetricsSnapshot}.
+ * <p>
+ * Services typically observe CPU, memory and request metrics of the same host through
+ * separate remote collectors, each event paying its own round trip. Binding the events
+ * to {@link #field(String) fields} of a composite collector fetches every metric once
+ * per tick. With an executor, the sources are queried concurrently so the fetch costs
+ * the slowest round trip instead of their sum; a source that fails or does not answer
+ * within the timeout yields a {@code null} value.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * Map&lt;String, IMetricsCollector&lt;?&gt;&gt; sources = new LinkedHashMap&lt;&gt;();
+ * sources.put("cpu", new RemoteCpuUsageCollector(Service.AUTH, "metrics/cpu"));
+ * sources.put("memory", new RemoteMemoryUsageCollector(Service.AUTH, "metrics/memory"));
+ * CompositeMetricsCollector host = new CompositeMetricsCollector(sources, 1000, executor, 2000);
+ *
+ * IncreaseEvent&lt;Double&gt; highCpuEvent = new IncreaseEvent&lt;&gt;(host.field("cpu"), () -&gt; 80.0);
+ * IncreaseEvent&lt;Double&gt; highMemoryEvent = new IncreaseEvent&lt;&gt;(host.field("memory"), () -&gt; 80.0);
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class CompositeMetricsCollector extends AbstractSnapshotCollector {
+    private static final Logger LOG = LoggerFactory.getLogger(CompositeMetricsCollector.class);
+
+    private final List<IMetricsCollector<?>> sources;
+
+    /**
+     * The executor used to query the sources concurrently, or {@code null} to query them in turn.
+     */
+    private final ExecutorService executor;
+
+    private final long timeoutNanos;
+
+    /**
+     * Constructs a {@code CompositeMetricsCollector} querying its sources in turn.
+     *
+     * @param sources the collectors to combine, by field name, in iteration order.
+     * @param maxAgeMillis how long, in milliseconds, a snapshot is reused.
+     */
+    public CompositeMetricsCollector(Map<String, ? extends IMetricsCollector<?>> sources, long maxAgeMillis) {
+        this(sources, maxAgeMillis, null, 0);
+    }
+
+    /**
+     * Constructs a {@code CompositeMetricsCollector} querying its sources concurrently.
+     *
+     * @param sources the collectors to combine, by field name, in iteration order.
+     * @param maxAgeMillis how long, in milliseconds, a snapshot is reused.
+     * @param executor the executor running the queries.
+     * @param timeoutMillis how long, in milliseconds, a fetch waits for all sources.
+     */
+    public CompositeMetricsCollector(Map<String, ? extends IMetricsCollector<?>> sources, long maxAgeMillis,
+                                     ExecutorService executor, long timeoutMillis) {
+        super(new ArrayList<>(sources.keySet()), maxAgeMillis);
+        this.sources = new ArrayList<>(sources.values());
+        this.executor = executor;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    @Override
+    protected Object[] fetch() {
+        return executor == null ? fetchSequentially() : fetchConcurrently();
+    }
+
+    private Object[] fetchSequentially() {
+        Object[] values = new Object[sources.size()];
+        for (int i = 0; i < values.length; i++) {
+            try {
+                values[i] = sources.get(i).get();
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to collect metric {}", names.get(i), e);
+            }
+        }
+        return values;
+    }
+
+    private Object[] fetchConcurrently() {
+        Object[] values = new Object[sources.size()];
+        List<Future<?>> futures = new ArrayList<>(values.length);
+        for (IMetricsCollector<?> source : sources) {
+            futures.add(executor.submit(source::get));
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        for (int i = 0; i < values.length; i++) {
+            Future<?> future = futures.get(i);
+            try {
+                values[i] = future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                LOG.warn("Timed out collecting metric {}", names.get(i));
+            } catch (ExecutionException e) {
+                LOG.warn("Failed to collect metric {}", names.get(i), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                break;
+            }
+        }
+        return values;
+    }
+}
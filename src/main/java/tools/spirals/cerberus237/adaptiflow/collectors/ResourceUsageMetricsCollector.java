@@ -0,0 +1,104 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import tools.spirals.cerberus237.adaptiflow.models.ResourceUsageMetrics;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * The {@link ResourceUsageMetricsCollector} class collects CPU and memory usage into
+ * a typed {@link ResourceUsageMetrics} snapshot.
+ * <p>
+ * The collector refills one snapshot instance on every call instead of allocating a
+ * map of boxed values per tick. The returned snapshot is therefore only valid until
+ * the next call; observers that need to keep it must {@link ResourceUsageMetrics#copy() copy} it.
+ * A collector instance is meant to be driven by a single observation scheduler.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * IMetricsCollector&lt;ResourceUsageMetrics&gt; collector = ResourceUsageMetricsCollector.of(
+ *         new LocalCpuUsageCollector(), new LocalMemoryUsageCollector());
+ * ConditionalEvent&lt;ResourceUsageMetrics&gt; trafficIncreaseEvent =
+ *         new ConditionalEvent&lt;&gt;(collector, new HighResourceUsageEvaluator(75.0, 80.0));
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class ResourceUsageMetricsCollector implements IMetricsCollector<ResourceUsageMetrics> {
+    private final DoubleSupplier cpuSupplier;
+    private final DoubleSupplier memorySupplier;
+    private final ResourceUsageMetrics snapshot = new ResourceUsageMetrics();
+
+    /**
+     * Constructs a {@code ResourceUsageMetricsCollector} reading primitive values.
+     *
+     * @param cpuSupplier the supplier of the CPU usage.
+     * @param memorySupplier the supplier of the memory usage.
+     */
+    public ResourceUsageMetricsCollector(DoubleSupplier cpuSupplier, DoubleSupplier memorySupplier) {
+        this.cpuSupplier = cpuSupplier;
+        this.memorySupplier = memorySupplier;
+    }
+
+    /**
+     * Creates a collector combining two scalar collectors, such as
+     * {@code LocalCpuUsageCollector} and {@code LocalMemoryUsageCollector}.
+     * A {@code null} reading is reported as {@link Double#NaN}.
+     *
+     * @param cpuCollector the collector of the CPU usage.
+     * @param memoryCollector the collector of the memory usage.
+     * @return the combined collector.
+     */
+    public static ResourceUsageMetricsCollector of(IMetricsCollector<? extends Number> cpuCollector,
+                                                   IMetricsCollector<? extends Number> memoryCollector) {
+        return new ResourceUsageMetricsCollector(() -> valueOf(cpuCollector.get()), () -> valueOf(memoryCollector.get()));
+    }
+
+    /**
+     * Creates a collector adapting a legacy collector that returns a map with
+     * {@code "cpu"} and {@code "memory"} keys, so typed evaluators can be adopted
+     * before the underlying collector is migrated.
+     *
+     * @param mapCollector the legacy collector.
+     * @return the adapted collector.
+     */
+    public static IMetricsCollector<ResourceUsageMetrics> fromMap(IMetricsCollector<? extends Map<String, Double>> mapCollector) {
+        ResourceUsageMetrics adapted = new ResourceUsageMetrics();
+        return () -> {
+            Map<String, Double> metric = mapCollector.get();
+            if (metric == null) {
+                return adapted.set(Double.NaN, Double.NaN);
+            }
+            return adapted.set(valueOf(metric.get("cpu")), valueOf(metric.get("memory")));
+        };
+    }
+
+    /**
+     * Refills and returns the shared snapshot with the current readings.
+     *
+     * @return the snapshot, valid until the next call.
+     */
+    @Override
+    public ResourceUsageMetrics get() {
+        return snapshot.set(cpuSupplier.getAsDouble(), memorySupplier.getAsDouble());
+    }
+
+    private static double valueOf(Number value) {
+        return value == null ? Double.NaN : value.doubleValue();
+    }
+}
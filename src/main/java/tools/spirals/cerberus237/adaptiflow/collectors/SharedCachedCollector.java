@@ -0,0 +1,184 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@link SharedCachedCollector} class decorates a numeric collector with a
+ * {@link SharedMetricCache}, so the JVMs of a host share the values of a remote source.
+ * <p>
+ * A value younger than the TTL is read from the shared slot. When it is missing or
+ * expired, the process that claims the refresh lease calls the delegate and publishes
+ * the result; the other processes return the expired value, if it is not older than
+ * twice the TTL, rather than issuing their own call. A process that finds no usable value
+ * and no free lease calls the delegate without publishing. {@code null} and NaN values,
+ * and failures, are not published; neither is a fetched value whose slot another writer
+ * held, which is returned all the same.
+ * </p>
+ * <p>
+ * The cache holds one number per key: a structured metric is shared as one key per field.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * IMetricsCollector&lt;Double&gt; cpu = new SharedCachedCollector(cache, "registry.cpu.recommender",
+ *         new RemoteRegistryCpuUsageCollector(Service.RECOMMENDER), 1000);
+ * ConditionalEvent&lt;Double&gt; highCpuEvent = new ConditionalEvent&lt;&gt;(cpu, new GreaterThanEvaluator&lt;&gt;(80.0));
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class SharedCachedCollector implements IMetricsCollector<Double> {
+    private static final Logger LOG = LoggerFactory.getLogger(SharedCachedCollector.class);
+
+    private final SharedMetricCache cache;
+    private final int slot;
+    private final IMetricsCollector<Double> delegate;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder staleCount = new LongAdder();
+    private final LongAdder refreshCount = new LongAdder();
+    private final LongAdder directFetchCount = new LongAdder();
+    private final LongAdder unpublishedCount = new LongAdder();
+
+    /**
+     * Constructs a {@code SharedCachedCollector} with the wall clock.
+     *
+     * @param cache the shared cache.
+     * @param key the key of the metric, identical in every process sharing it.
+     * @param delegate the collector fetching the metric.
+     * @param ttlMillis the time a value is used before it is refreshed.
+     */
+    public SharedCachedCollector(SharedMetricCache cache, String key, IMetricsCollector<Double> delegate, long ttlMillis) {
+        this(cache, key, delegate, ttlMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a {@code SharedCachedCollector}.
+     *
+     * @param cache the shared cache.
+     * @param key the key of the metric, identical in every process sharing it.
+     * @param delegate the collector fetching the metric.
+     * @param ttlMillis the time a value is used before it is refreshed.
+     * @param clock the wall clock shared by the processes, in milliseconds.
+     * @throws IllegalArgumentException if the TTL is not positive or an argument is {@code null}.
+     */
+    public SharedCachedCollector(SharedMetricCache cache, String key, IMetricsCollector<Double> delegate,
+                                 long ttlMillis, LongSupplier clock) {
+        if (cache == null || key == null || delegate == null || clock == null) {
+            throw new IllegalArgumentException("The cache, key, delegate and clock must not be null");
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("The TTL must be positive: " + ttlMillis);
+        }
+        this.cache = cache;
+        this.slot = cache.slot(key);
+        this.delegate = delegate;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    @Override
+    public Double get() {
+        long now = clock.getAsLong();
+        double value = cache.read(slot, ttlMillis, now);
+        if (!Double.isNaN(value)) {
+            hitCount.increment();
+            return value;
+        }
+        // The lease outlives a slow fetch, so only one process refreshes at a time.
+        if (cache.tryClaimRefresh(slot, now, 2 * ttlMillis)) {
+            refreshCount.increment();
+            boolean published = false;
+            try {
+                Double fetched = delegate.get();
+                if (fetched != null && !fetched.isNaN()) {
+                    published = cache.write(slot, clock.getAsLong(), fetched);
+                    if (!published) {
+                        LOG.debug("Slot {} is held by another writer, returning the value unpublished", slot);
+                        unpublishedCount.increment();
+                    }
+                }
+                return fetched;
+            } finally {
+                // A published value clears the lease; on any other outcome, even an Error
+                // from the delegate, it is released so others do not wait for it to expire.
+                if (!published) {
+                    cache.releaseRefresh(slot);
+                }
+            }
+        }
+        value = cache.read(slot, 2 * ttlMillis, now);
+        if (!Double.isNaN(value)) {
+            staleCount.increment();
+            return value;
+        }
+        LOG.debug("No shared value for slot {}, fetching directly", slot);
+        directFetchCount.increment();
+        return delegate.get();
+    }
+
+    /**
+     * Returns the number of calls answered with a fresh shared value.
+     *
+     * @return the hit count.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns the number of calls answered with an expired value while another process refreshed it.
+     *
+     * @return the stale count.
+     */
+    public long getStaleCount() {
+        return staleCount.sum();
+    }
+
+    /**
+     * Returns the number of refreshes this process performed for all the processes.
+     *
+     * @return the refresh count.
+     */
+    public long getRefreshCount() {
+        return refreshCount.sum();
+    }
+
+    /**
+     * Returns the number of calls that fetched without sharing, for want of a usable value.
+     *
+     * @return the direct fetch count.
+     */
+    public long getDirectFetchCount() {
+        return directFetchCount.sum();
+    }
+
+    /**
+     * Returns the number of refreshed values left unpublished because another writer held the slot.
+     *
+     * @return the unpublished count.
+     */
+    public long getUnpublishedCount() {
+        return unpublishedCount.sum();
+    }
+}
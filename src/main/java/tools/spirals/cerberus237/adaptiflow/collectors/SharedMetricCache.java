@@ -0,0 +1,331 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The {@link SharedMetricCache} class is a metric cache shared by the JVMs of a host
+ * through a memory-mapped file, so the services of a dense deployment poll a remote
+ * source once per refresh instead of once each.
+ * <p>
+ * The file holds a fixed number of 64-byte slots, one per metric key, each holding the
+ * latest value of its key and the time it was written. A slot is protected by a seqlock:
+ * the writer makes its sequence odd while it writes and even again once done, and a
+ * reader retries when the sequence was odd or changed during its read, so values are read
+ * in place, without locks and never torn.
+ * </p>
+ * <p>
+ * Writers first take a short write lease with a compare-and-set and record themselves as
+ * the slot's writer. A writer gives up after a bounded number of attempts rather than
+ * spinning behind another one, and the caller keeps its value unpublished. If a process
+ * dies while writing, its sequence stays odd; once the lease expires, the next writer
+ * takes over the slot, completes the write and makes the sequence even again. To avoid every process refreshing an expired
+ * key at once, a process first claims a short refresh lease in the slot with an atomic
+ * compare-and-set; the others keep reading the previous value meanwhile.
+ * </p>
+ * <p>
+ * Keys are identified by a 64-bit hash of their name and placed by open addressing. All
+ * processes must open the file with the same number of slots. Slots are never freed: the
+ * file is sized for the keys of the host.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * SharedMetricCache cache = SharedMetricCache.open(Path.of("/dev/shm/adaptiflow-metrics"), 256);
+ * IMetricsCollector&lt;Double&gt; cpu = new SharedCachedCollector(cache, "registry.cpu.recommender",
+ *         new RemoteRegistryCpuUsageCollector(Service.RECOMMENDER), 1000);
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public final class SharedMetricCache implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(SharedMetricCache.class);
+
+    private static final int MAGIC = 0x41464D43;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 64;
+
+    private static final int SEQUENCE = 0;
+    private static final int KEY = 8;
+    private static final int LEASE = 16;
+    private static final int WRITTEN_AT = 24;
+    private static final int VALUE = 32;
+    private static final int WRITE_LEASE = 40;
+    private static final int WRITER = 48;
+
+    private static final int MAX_READ_ATTEMPTS = 64;
+    private static final int MAX_WRITE_ATTEMPTS = 64;
+
+    /**
+     * The time a writer owns a slot. Writing two fields takes nanoseconds: the lease only
+     * expires when the writer died or stalled, and then lets another writer recover the slot.
+     */
+    static final long WRITE_LEASE_MILLIS = 1000;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slots;
+
+    /**
+     * The identifier of this process's mapping, recorded in the slots it writes.
+     */
+    private final long owner;
+
+    private SharedMetricCache(FileChannel channel, MappedByteBuffer buffer, int slots) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.slots = slots;
+        long random = ThreadLocalRandom.current().nextLong();
+        this.owner = random == 0 ? 1 : random;
+    }
+
+    /**
+     * Opens the cache file, creating and formatting it if needed.
+     *
+     * @param file the cache file, preferably on a memory file system such as {@code /dev/shm}.
+     * @param slots the number of keys the cache can hold.
+     * @return the cache.
+     * @throws IOException if the file cannot be mapped, or was formatted with another number of slots.
+     * @throws IllegalArgumentException if the number of slots is not positive or too large.
+     */
+    public static SharedMetricCache open(Path file, int slots) throws IOException {
+        if (slots <= 0 || slots > (Integer.MAX_VALUE - HEADER_BYTES) / SLOT_BYTES) {
+            throw new IllegalArgumentException("Invalid number of slots: " + slots);
+        }
+        int bytes = HEADER_BYTES + slots * SLOT_BYTES;
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.order(ByteOrder.nativeOrder());
+            // A new file reads as zeros: the first process to get there formats it.
+            if (INTS.compareAndSet(buffer, 0, 0, MAGIC)) {
+                buffer.putInt(4, VERSION);
+                INTS.setRelease(buffer, 8, slots);
+            } else {
+                long deadline = System.nanoTime() + 1_000_000_000L;
+                while ((int) INTS.getAcquire(buffer, 8) == 0 && System.nanoTime() < deadline) {
+                    Thread.onSpinWait();
+                }
+            }
+            if ((int) INTS.getAcquire(buffer, 0) != MAGIC || buffer.getInt(4) != VERSION
+                    || (int) INTS.getAcquire(buffer, 8) != slots) {
+                throw new IOException("The cache file " + file + " is not a cache of " + slots + " slots");
+            }
+            return new SharedMetricCache(channel, buffer, slots);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the slot of a key, claiming a free slot on first use.
+     *
+     * @param key the metric key.
+     * @return the slot, used by the other methods.
+     * @throws IllegalStateException if every slot is taken by other keys.
+     */
+    public int slot(String key) {
+        long hash = hash(key);
+        int start = (int) Long.remainderUnsigned(hash, slots);
+        for (int i = 0; i < slots; i++) {
+            int slot = (start + i) % slots;
+            int base = base(slot);
+            long owner = (long) LONGS.getAcquire(buffer, base + KEY);
+            if (owner == hash) {
+                return slot;
+            }
+            if (owner == 0) {
+                long witness = (long) LONGS.compareAndExchange(buffer, base + KEY, 0L, hash);
+                if (witness == 0 || witness == hash) {
+                    return slot;
+                }
+            }
+        }
+        throw new IllegalStateException("The shared metric cache is full: " + slots + " slots");
+    }
+
+    /**
+     * Hashes a key with FNV-1a, never returning 0, which marks a free slot.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Reads the time the value of a slot was written.
+     *
+     * @param slot the slot.
+     * @return the write time, in milliseconds, or 0 if the slot holds no value yet.
+     */
+    public long writtenAt(int slot) {
+        int base = base(slot);
+        return (long) LONGS.getAcquire(buffer, base + WRITTEN_AT);
+    }
+
+    /**
+     * Reads the value of a slot consistently with its write time.
+     *
+     * @param slot the slot.
+     * @param maxAgeMillis the age beyond which the value is not returned.
+     * @param nowMillis the current time.
+     * @return the value, or {@link Double#NaN} if the slot holds no value, a value older
+     *         than {@code maxAgeMillis}, or is being written by a process that did not finish.
+     */
+    public double read(int slot, long maxAgeMillis, long nowMillis) {
+        int base = base(slot);
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            long before = (long) LONGS.getAcquire(buffer, base + SEQUENCE);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long writtenAt = buffer.getLong(base + WRITTEN_AT);
+            double value = buffer.getDouble(base + VALUE);
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getAcquire(buffer, base + SEQUENCE) == before) {
+                return writtenAt == 0 || nowMillis - writtenAt > maxAgeMillis ? Double.NaN : value;
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Claims the right to refresh a slot until the lease expires, so other processes do
+     * not refresh it at the same time.
+     *
+     * @param slot the slot.
+     * @param nowMillis the current time.
+     * @param leaseMillis the duration of the claim.
+     * @return {@code true} if this caller won the claim.
+     */
+    public boolean tryClaimRefresh(int slot, long nowMillis, long leaseMillis) {
+        int base = base(slot);
+        long lease = (long) LONGS.getAcquire(buffer, base + LEASE);
+        return lease <= nowMillis && LONGS.compareAndSet(buffer, base + LEASE, lease, nowMillis + leaseMillis);
+    }
+
+    /**
+     * Writes the value of a slot and releases its refresh lease.
+     *
+     * @param slot the slot.
+     * @param nowMillis the write time, not 0.
+     * @param value the value.
+     * @return {@code true} if the value was written; {@code false} if another writer held
+     *         the slot during every attempt, in which case the refresh lease is kept until
+     *         it expires or is released.
+     */
+    public boolean write(int slot, long nowMillis, double value) {
+        int base = base(slot);
+        long sequence = beginWrite(slot, nowMillis);
+        if (sequence < 0) {
+            return false;
+        }
+        buffer.putLong(base + WRITTEN_AT, nowMillis);
+        buffer.putDouble(base + VALUE, value);
+        LONGS.setRelease(buffer, base + SEQUENCE, sequence + 1);
+        LONGS.setRelease(buffer, base + LEASE, 0L);
+        LONGS.compareAndSet(buffer, base + WRITE_LEASE, nowMillis + WRITE_LEASE_MILLIS, 0L);
+        return true;
+    }
+
+    /**
+     * Takes the write lease of a slot and makes its sequence odd.
+     *
+     * @return the odd sequence, or -1 if the lease stayed held by another writer.
+     */
+    long beginWrite(int slot, long nowMillis) {
+        int base = base(slot);
+        for (int attempt = 0; attempt < MAX_WRITE_ATTEMPTS; attempt++) {
+            long lease = (long) LONGS.getAcquire(buffer, base + WRITE_LEASE);
+            if (lease <= nowMillis
+                    && LONGS.compareAndSet(buffer, base + WRITE_LEASE, lease, nowMillis + WRITE_LEASE_MILLIS)) {
+                long previous = (long) LONGS.getAndSetRelease(buffer, base + WRITER, owner);
+                long sequence = (long) LONGS.getAcquire(buffer, base + SEQUENCE);
+                if ((sequence & 1) == 0) {
+                    sequence++;
+                    LONGS.setRelease(buffer, base + SEQUENCE, sequence);
+                } else {
+                    // The previous writer left the sequence odd: readers already retry.
+                    LOG.warn("Recovering slot {} of the shared metric cache, left mid-write by writer {}",
+                            slot, Long.toHexString(previous));
+                }
+                // The odd sequence is visible before any field changes.
+                VarHandle.storeStoreFence();
+                return sequence;
+            }
+            Thread.onSpinWait();
+        }
+        return -1;
+    }
+
+    /**
+     * Releases the refresh lease of a slot without writing, after a failed refresh.
+     *
+     * @param slot the slot.
+     */
+    public void releaseRefresh(int slot) {
+        LONGS.setRelease(buffer, base(slot) + LEASE, 0L);
+    }
+
+    private int base(int slot) {
+        if (slot < 0 || slot >= slots) {
+            throw new IllegalArgumentException("Unknown slot: " + slot);
+        }
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    /**
+     * Returns the number of keys the cache can hold.
+     *
+     * @return the number of slots.
+     */
+    public int getSlotCount() {
+        return slots;
+    }
+
+    /**
+     * Closes the cache file; the mapping itself is released by the garbage collector.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,331 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.coordination;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@link LeaderElector} class elects, among the replicas of a service running on the
+ * same host, the single replica allowed to perform the actions of a group, without any
+ * external coordination service.
+ * <p>
+ * The replicas of a group share a directory. The leader holds an exclusive
+ * {@link FileLock} on {@code group.lock}, and every tick it writes its identifier, its
+ * epoch and the time of the tick to the memory-mapped {@code group.heartbeat} file, for
+ * monitoring. A replica that is not the leader tries to take the lock on each tick:
+ * failover relies on the lock only. The operating system releases the lock of a process
+ * that dies, so another replica takes over within one tick.
+ * </p>
+ * <p>
+ * A leader holds a lease of {@code leaseMillis} from its last tick. When a leader stalls
+ * longer than its lease, for instance during a long garbage collection, it stops
+ * reporting itself as the leader, and it steps down and releases the lock at its next tick
+ * so another replica takes over. Actions guarded by the elector are therefore never
+ * performed on an expired lease. A stalled leader keeps the lock until it resumes,
+ * however: no replica of the group acts between the end of its lease and its next tick,
+ * and a live process whose tick thread stays blocked holds the group until it exits. A
+ * tick that fails with an unexpected exception releases the lock.
+ * </p>
+ * <p>
+ * File locks are held per process. Electors of the same group in one process, in tests
+ * for example, also exclude each other.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * LeaderElector elector = new LeaderElector(Path.of("/var/run/teastore-recommender"), "cluster-actions", 3000);
+ * elector.start(1000);
+ * List&lt;IAdaptationAction&gt; actions = List.of(new LeaderGuardedAction(new HighPerformanceMode(), elector));
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class LeaderElector implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(LeaderElector.class);
+
+    private static final int EPOCH = 0;
+    private static final int LEADER_ID = 8;
+    private static final int HEARTBEAT = 16;
+    private static final int HEARTBEAT_BYTES = 24;
+
+    private final String group;
+    private final long leaseMillis;
+    private final LongSupplier clock;
+    private final long id = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+
+    private final FileChannel lockChannel;
+    private final FileChannel heartbeatChannel;
+    private final MappedByteBuffer heartbeat;
+
+    private FileLock lock;
+    private volatile long leaseStart = Long.MIN_VALUE;
+    private long lastTick = Long.MIN_VALUE;
+    private ScheduledExecutorService executor;
+    private boolean closed = false;
+
+    private volatile long leadershipCount = 0;
+    private volatile long stepDownCount = 0;
+
+    /**
+     * Constructs a {@code LeaderElector} with the wall clock.
+     *
+     * @param directory the directory shared by the replicas.
+     * @param group the name of the action group.
+     * @param leaseMillis the time a leader remains the leader after its last tick.
+     * @throws IOException if the files of the group cannot be opened.
+     */
+    public LeaderElector(Path directory, String group, long leaseMillis) throws IOException {
+        this(directory, group, leaseMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a {@code LeaderElector}.
+     *
+     * @param directory the directory shared by the replicas.
+     * @param group the name of the action group.
+     * @param leaseMillis the time a leader remains the leader after its last tick.
+     * @param clock the clock measuring leases, in milliseconds.
+     * @throws IOException if the files of the group cannot be opened.
+     * @throws IllegalArgumentException if the lease is not positive or an argument is {@code null}.
+     */
+    public LeaderElector(Path directory, String group, long leaseMillis, LongSupplier clock) throws IOException {
+        if (directory == null || group == null || clock == null) {
+            throw new IllegalArgumentException("The directory, group and clock must not be null");
+        }
+        if (leaseMillis <= 0) {
+            throw new IllegalArgumentException("The lease must be positive: " + leaseMillis);
+        }
+        this.group = group;
+        this.leaseMillis = leaseMillis;
+        this.clock = clock;
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve(group + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            heartbeatChannel = FileChannel.open(directory.resolve(group + ".heartbeat"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            heartbeat = heartbeatChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEARTBEAT_BYTES);
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Renews the lease of the leader, or tries to become the leader.
+     *
+     * @return whether this replica is the leader after the tick.
+     */
+    public synchronized boolean tick() {
+        if (closed) {
+            return false;
+        }
+        long now = clock.getAsLong();
+        long previous = lastTick;
+        lastTick = now;
+        if (lock != null) {
+            if (now - previous > leaseMillis) {
+                LOG.warn("Stepping down as leader of {}: {} ms since the last tick exceeds the {} ms lease",
+                        group, now - previous, leaseMillis);
+                release();
+                stepDownCount++;
+                return false;
+            }
+            heartbeat.putLong(HEARTBEAT, now);
+            leaseStart = now;
+            return true;
+        }
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Another elector of this process holds the lock.
+            lock = null;
+        } catch (IOException e) {
+            LOG.warn("Could not try the lock of {}", group, e);
+            lock = null;
+        }
+        if (lock == null) {
+            return false;
+        }
+        heartbeat.putLong(EPOCH, heartbeat.getLong(EPOCH) + 1);
+        heartbeat.putLong(LEADER_ID, id);
+        heartbeat.putLong(HEARTBEAT, now);
+        leaseStart = now;
+        leadershipCount++;
+        LOG.info("Elected leader of {} for epoch {}", group, heartbeat.getLong(EPOCH));
+        return true;
+    }
+
+    private void release() {
+        leaseStart = Long.MIN_VALUE;
+        try {
+            lock.release();
+        } catch (IOException e) {
+            LOG.warn("Could not release the lock of {}", group, e);
+        }
+        lock = null;
+    }
+
+    /**
+     * Returns whether this replica is the leader with an unexpired lease.
+     *
+     * @return {@code true} if the actions of the group may be performed by this replica.
+     */
+    public boolean isLeader() {
+        long start = leaseStart;
+        return start != Long.MIN_VALUE && clock.getAsLong() - start <= leaseMillis;
+    }
+
+    /**
+     * Starts ticking periodically on a background thread.
+     *
+     * @param tickMillis the time between two ticks, shorter than the lease.
+     * @throws IllegalArgumentException if the tick is not positive or not shorter than the lease.
+     * @throws IllegalStateException if the elector is already started or closed.
+     */
+    public synchronized void start(long tickMillis) {
+        if (tickMillis <= 0 || tickMillis >= leaseMillis) {
+            throw new IllegalArgumentException("The tick must be positive and shorter than the "
+                    + leaseMillis + " ms lease: " + tickMillis);
+        }
+        if (executor != null || closed) {
+            throw new IllegalStateException("The elector is already started or closed");
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "adaptiflow-elector-" + group);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::tickQuietly, 0, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ticks on the background thread. An exception escaping the task would cancel the
+     * schedule while the lock stays held, so the leadership is released instead.
+     */
+    private void tickQuietly() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            LOG.error("The tick of {} failed, releasing the leadership", group, e);
+            synchronized (this) {
+                if (lock != null) {
+                    release();
+                    stepDownCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the identifier of the leader last written to the heartbeat file.
+     *
+     * @return the leader identifier, or 0 if no leader was ever elected.
+     */
+    public long getLeaderId() {
+        return heartbeat.getLong(LEADER_ID);
+    }
+
+    /**
+     * Returns the time of the last heartbeat written by a leader.
+     *
+     * @return the heartbeat time, in milliseconds of the clock, or 0 if none.
+     */
+    public long getLastHeartbeatMillis() {
+        return heartbeat.getLong(HEARTBEAT);
+    }
+
+    /**
+     * Returns the number of leaderships the group went through, incremented at each election.
+     *
+     * @return the epoch of the last elected leader.
+     */
+    public long getEpoch() {
+        return heartbeat.getLong(EPOCH);
+    }
+
+    /**
+     * Returns the identifier of this replica.
+     *
+     * @return the replica identifier.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the number of times this replica was elected.
+     *
+     * @return the leadership count.
+     */
+    public long getLeadershipCount() {
+        return leadershipCount;
+    }
+
+    /**
+     * Returns the number of times this replica stepped down after its lease expired or a
+     * background tick failed.
+     *
+     * @return the step-down count.
+     */
+    public long getStepDownCount() {
+        return stepDownCount;
+    }
+
+    /**
+     * Stops ticking and releases the leadership, if held, so another replica takes over
+     * at its next tick.
+     *
+     * @throws IOException if the files of the group cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current = executor;
+            executor = null;
+            if (lock != null) {
+                release();
+            }
+        }
+        if (current != null) {
+            current.shutdownNow();
+        }
+        try {
+            heartbeatChannel.close();
+        } finally {
+            lockChannel.close();
+        }
+    }
+}
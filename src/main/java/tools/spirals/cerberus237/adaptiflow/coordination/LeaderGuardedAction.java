@@ -0,0 +1,109 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.coordination;
+
+import tools.spirals.cerberus237.adaptationactionsbase.core.IAdaptationAction;
+import tools.spirals.cerberus237.adaptationactionsbase.enums.AdaptationActionResult;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@link LeaderGuardedAction} class performs a wrapped action only on the replica
+ * currently elected by a {@link LeaderElector}, so a cluster-wide action detected by
+ * every replica of a host runs once.
+ * <p>
+ * Replicas that are not the leader keep observing and evaluating: their subscribers are
+ * notified as usual, and only the guarded actions are skipped. Local actions are left
+ * unguarded.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * List&lt;IAdaptationAction&gt; actions = List.of(new LeaderGuardedAction(new HighPerformanceMode(), elector), new LocalCacheFlush());
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class LeaderGuardedAction implements IAdaptationAction {
+
+    private final IAdaptationAction delegate;
+    private final LeaderElector elector;
+    private final LongAdder performedCount = new LongAdder();
+    private final LongAdder skippedCount = new LongAdder();
+
+    /**
+     * Constructs a {@code LeaderGuardedAction}.
+     *
+     * @param delegate the action performed by the leader.
+     * @param elector the elector of the action group.
+     * @throws IllegalArgumentException if an argument is {@code null}.
+     */
+    public LeaderGuardedAction(IAdaptationAction delegate, LeaderElector elector) {
+        if (delegate == null || elector == null) {
+            throw new IllegalArgumentException("The delegate action and elector must not be null");
+        }
+        this.delegate = delegate;
+        this.elector = elector;
+    }
+
+    /**
+     * Performs the wrapped action if this replica is the leader.
+     *
+     * @return the result of the wrapped action, or {@link AdaptationActionResult#SUCCESS}
+     *         if this replica is not the leader: skipping is the expected outcome on a
+     *         follower, not a failure of the action.
+     */
+    @Override
+    public AdaptationActionResult perform() {
+        if (!elector.isLeader()) {
+            skippedCount.increment();
+            return AdaptationActionResult.SUCCESS;
+        }
+        performedCount.increment();
+        return delegate.perform();
+    }
+
+    @Override
+    public String getActionId() {
+        return delegate.getActionId();
+    }
+
+    @Override
+    public String getDescription() {
+        return delegate.getDescription() + " (leader only)";
+    }
+
+    @Override
+    public boolean canPerform() {
+        return elector.isLeader() && delegate.canPerform();
+    }
+
+    /**
+     * Returns the number of times this replica performed the wrapped action.
+     *
+     * @return the performed count.
+     */
+    public long getPerformedCount() {
+        return performedCount.sum();
+    }
+
+    /**
+     * Returns the number of times the action was skipped because this replica was not the leader.
+     *
+     * @return the skipped count.
+     */
+    public long getSkippedCount() {
+        return skippedCount.sum();
+    }
+}
@@ -63,6 +63,15 @@ public class ConditionalEvent<T> extends Event<T> {
         this.conditionEvaluator = conditionEvaluator;
     }
 
+    /**
+     * Returns the condition evaluator of this event.
+     *
+     * @return the condition evaluator.
+     */
+    public ConditionEvaluator<T> getConditionEvaluator() {
+        return conditionEvaluator;
+    }
+
     /**
      * Observe metric changes and notifies observers if both the event's
      * condition and the observers' conditions are met.
@@ -72,12 +81,30 @@ public class ConditionalEvent<T> extends Event<T> {
      * If both conditions are satisfied, the observer is notified with the current
      * metric value.
      * </p>
+     * <p>
+     * The event's condition is evaluated exactly once per observation, so stateful
+     * evaluators (smoothing, windows, counters) see each collected sample once,
+     * whatever the number of subscribers. An observation for which the collector
+     * returns {@code null} is skipped without evaluating the condition when
+     * {@link #setSkipMissingValues(boolean)} is enabled.
+     * </p>
+     * <p>
+     * The outcome of the observation is the result of the event's condition.
+     * </p>
      */
     @Override
     public void observe() {
+        observationCount++;
         T metric = collector.get();
-        for (Observer<T> observer : subscribers) {
-            if (this.conditionEvaluator.test(metric) && observer.getConditionEvaluator().test(metric)) {
+        lastValue = metric;
+        boolean outcome = (metric != null || !skipMissingValues) && this.conditionEvaluator.test(metric);
+        lastOutcome = outcome;
+        if (!outcome) {
+            return;
+        }
+        for (int i = 0; i < subscribers.size(); i++) {
+            Observer<T> observer = subscribers.get(i);
+            if (observer.getConditionEvaluator().test(metric)) {
                 notifyObserver(observer, metric);
             }
         }
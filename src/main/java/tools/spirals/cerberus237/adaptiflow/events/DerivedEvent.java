@@ -0,0 +1,125 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.events;
+
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@link DerivedEvent} class is a {@link ConditionalEvent} observing the outcomes of
+ * other events instead of a metrics collector.
+ * <p>
+ * Each observation reads the last outcome and value of every input, without collecting or
+ * evaluating anything again, and evaluates its condition on them. Inputs must therefore be
+ * observed before the derived event in each round: order the scheduler's events with
+ * {@link EventGraph#order(List)}. Derived events may consume other derived events.
+ * Schedulers observing events concurrently, such as the {@code PriorityObservationScheduler},
+ * do not guarantee this order; the {@code ShardedObservationScheduler} does, by observing a
+ * derived event on the shard of its inputs.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * DerivedEvent degradedEvent = DerivedEvent.allOf("degraded", databaseUnavailableEvent, attackEvent);
+ * degradedEvent.subscribe(new EventSubscriber&lt;&gt;(List.of(new EnableMaintenanceMode())));
+ * new ContinuousObservationScheduler(EventGraph.order(List.of(degradedEvent)), EVENT_LISTENING_INTERVAL_MS).start();
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class DerivedEvent extends ConditionalEvent<EventOutcomes> {
+
+    /**
+     * Reads the outcomes of the inputs.
+     */
+    private static final class OutcomeCollector implements IMetricsCollector<EventOutcomes> {
+        private final List<Event<?>> inputs;
+
+        private OutcomeCollector(List<? extends Event<?>> inputs) {
+            if (inputs.isEmpty()) {
+                throw new IllegalArgumentException("A derived event needs at least one input");
+            }
+            this.inputs = List.copyOf(inputs);
+        }
+
+        @Override
+        public EventOutcomes get() {
+            return new EventOutcomes(inputs);
+        }
+    }
+
+    /**
+     * Constructs a {@code DerivedEvent} over the given inputs.
+     *
+     * @param name the event name.
+     * @param inputs the events whose outcomes this event consumes.
+     * @param conditionEvaluator the condition on the outcomes of the inputs.
+     * @throws IllegalArgumentException if there is no input.
+     */
+    public DerivedEvent(String name, List<? extends Event<?>> inputs, ConditionEvaluator<EventOutcomes> conditionEvaluator) {
+        super(name, new OutcomeCollector(inputs), conditionEvaluator);
+    }
+
+    /**
+     * Creates a derived event whose condition holds when the conditions of all inputs held.
+     *
+     * @param name the event name.
+     * @param inputs the input events.
+     * @return the derived event.
+     */
+    public static DerivedEvent allOf(String name, Event<?>... inputs) {
+        return new DerivedEvent(name, Arrays.asList(inputs), outcomes -> outcomes.countTrue() == outcomes.size());
+    }
+
+    /**
+     * Creates a derived event whose condition holds when the condition of at least one input held.
+     *
+     * @param name the event name.
+     * @param inputs the input events.
+     * @return the derived event.
+     */
+    public static DerivedEvent anyOf(String name, Event<?>... inputs) {
+        return new DerivedEvent(name, Arrays.asList(inputs), outcomes -> outcomes.countTrue() > 0);
+    }
+
+    /**
+     * Creates a derived event whose condition holds when the conditions of at least
+     * {@code count} inputs held.
+     *
+     * @param name the event name.
+     * @param count the number of inputs required.
+     * @param inputs the input events.
+     * @return the derived event.
+     * @throws IllegalArgumentException if {@code count} is not between 1 and the number of inputs.
+     */
+    public static DerivedEvent atLeast(String name, int count, Event<?>... inputs) {
+        if (count < 1 || count > inputs.length) {
+            throw new IllegalArgumentException("The count must be in [1, " + inputs.length + "]: " + count);
+        }
+        return new DerivedEvent(name, Arrays.asList(inputs), outcomes -> outcomes.countTrue() >= count);
+    }
+
+    /**
+     * Returns the events whose outcomes this event consumes.
+     *
+     * @return the input events.
+     */
+    @Override
+    public List<Event<?>> getInputs() {
+        return ((OutcomeCollector) collector).inputs;
+    }
+}
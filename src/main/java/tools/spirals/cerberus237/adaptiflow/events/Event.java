@@ -13,10 +13,15 @@
  */
 package tools.spirals.cerberus237.adaptiflow.events;
 
+import tools.spirals.cerberus237.adaptiflow.interfaces.EventContext;
 import tools.spirals.cerberus237.adaptiflow.interfaces.Observable;
 import tools.spirals.cerberus237.adaptiflow.interfaces.Observer;
+import tools.spirals.cerberus237.adaptiflow.interfaces.Snapshottable;
 import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -32,7 +37,7 @@ import java.util.List;
  * @param <T> the type of data that this event will provide to its observers.
  * @author Arléon Zemtsop (Cerberus)
  */
-public class Event<T> implements Observable<T> {
+public class Event<T> implements Observable<T>, Snapshottable {
 
     /**
      * Event name.
@@ -49,6 +54,46 @@ public class Event<T> implements Observable<T> {
      */
     protected final IMetricsCollector<T> collector;
 
+    /**
+     * The context handed to observers, rebuilt only when the event name changes.
+     */
+    private EventContext context;
+
+    /**
+     * The number of observations performed by this event; volatile because state
+     * snapshots read it from another thread. Only the observing thread increments it.
+     */
+    protected volatile long observationCount = 0;
+
+    /**
+     * The priority of this event for schedulers ordering their observations.
+     */
+    protected EventPriority priority = EventPriority.NORMAL;
+
+    /**
+     * The longest delay, in milliseconds, acceptable between the time this event is due
+     * and its observation, or 0 for none.
+     */
+    protected long deadlineMillis = 0;
+
+    /**
+     * The metric value collected by the last observation, possibly {@code null}; volatile
+     * because concurrent schedulers observe inputs and derived events on different threads.
+     */
+    protected volatile T lastValue;
+
+    /**
+     * Whether the condition of this event held at the last observation; volatile like
+     * {@link #lastValue}.
+     */
+    protected volatile boolean lastOutcome = false;
+
+    /**
+     * Whether observations for which the collector returns {@code null} are skipped
+     * instead of being evaluated.
+     */
+    protected boolean skipMissingValues = false;
+
     /**
      * Constructs an {@code Event} with the specified metrics collector.
      *
@@ -131,14 +176,35 @@ public class Event<T> implements Observable<T> {
      * checks each observer's condition evaluator. If the condition is satisfied,
      * the observer is notified with the current metric value.
      * </p>
+     * <p>
+     * A collector returning {@code null} has no data for this observation, for
+     * instance because its sources did not answer in time. The {@code null} value is
+     * handed to the condition evaluators, unless {@link #setSkipMissingValues(boolean)}
+     * was enabled, in which case no observer is notified.
+     * </p>
+     * <p>
+     * The outcome of the observation, true when at least one observer was notified, is
+     * kept with the collected value for {@link DerivedEvent}s.
+     * </p>
      */
     public void observe() {
+        observationCount++;
         T metric = collector.get();
-        for (Observer<T> observer : subscribers) {
+        lastValue = metric;
+        if (metric == null && skipMissingValues) {
+            lastOutcome = false;
+            return;
+        }
+        // Published once, so a derived event never reads the outcome of a half-done observation
+        boolean outcome = false;
+        for (int i = 0; i < subscribers.size(); i++) {
+            Observer<T> observer = subscribers.get(i);
             if (observer.getConditionEvaluator().test(metric)) {
+                outcome = true;
                 notifyObserver(observer, metric);
             }
         }
+        lastOutcome = outcome;
     }
 
     /**
@@ -152,8 +218,8 @@ public class Event<T> implements Observable<T> {
      */
     @Override
     public void notifyObservers(T metricValue) {
-        for (Observer<T> subscriber : subscribers) {
-            notifyObserver(subscriber, metricValue);
+        for (int i = 0; i < subscribers.size(); i++) {
+            notifyObserver(subscribers.get(i), metricValue);
         }
     }
 
@@ -161,7 +227,8 @@ public class Event<T> implements Observable<T> {
      * Notifies a specific observer with the given metric value.
      * <p>
      * This method triggers an update to the specified observer only,
-     * passing the current metric value for its consideration.
+     * passing the current metric value and the event's precomputed
+     * {@link EventContext}, so no message is built per notification.
      * </p>
      *
      * @param observer  the observer to be notified.
@@ -169,7 +236,172 @@ public class Event<T> implements Observable<T> {
      */
     @Override
     public void notifyObserver(Observer<T> observer, T metricValue) {
-        observer.update(metricValue, "Handling " + this.name + " event");
+        observer.update(metricValue, getContext());
+    }
+
+    /**
+     * Returns the context handed to the observers of this event.
+     *
+     * @return the event context.
+     */
+    public EventContext getContext() {
+        EventContext current = context;
+        // Subclasses may assign the name directly, so the context follows the field.
+        if (current == null || current.getEventName() != name) {
+            current = new EventContext(name, this::getObservationCount);
+            context = current;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the name of this event.
+     *
+     * @return the event name, possibly {@code null}.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the collector this event observes.
+     *
+     * @return the metrics collector.
+     */
+    public IMetricsCollector<T> getCollector() {
+        return collector;
+    }
+
+    /**
+     * Returns the priority of this event.
+     *
+     * @return the event priority, {@link EventPriority#NORMAL} by default.
+     */
+    public EventPriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Sets the priority of this event, used by schedulers ordering their observations.
+     *
+     * @param priority the event priority.
+     * @throws IllegalArgumentException if the priority is {@code null}.
+     */
+    public void setPriority(EventPriority priority) {
+        if (priority == null) {
+            throw new IllegalArgumentException("The priority must not be null");
+        }
+        this.priority = priority;
+    }
+
+    /**
+     * Returns the longest acceptable delay between the time this event is due and its observation.
+     *
+     * @return the deadline, in milliseconds, or 0 for none.
+     */
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    /**
+     * Sets the longest acceptable delay between the time this event is due and its
+     * observation; among events of the same priority, the earliest deadline is observed first.
+     *
+     * @param deadlineMillis the deadline, in milliseconds, or 0 for none.
+     * @throws IllegalArgumentException if the deadline is negative.
+     */
+    public void setDeadlineMillis(long deadlineMillis) {
+        if (deadlineMillis < 0) {
+            throw new IllegalArgumentException("The deadline must not be negative: " + deadlineMillis);
+        }
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * Returns whether observations without data are skipped.
+     *
+     * @return {@code true} if observations for which the collector returns {@code null}
+     *         are skipped, {@code false} by default.
+     */
+    public boolean isSkipMissingValues() {
+        return skipMissingValues;
+    }
+
+    /**
+     * Sets whether observations for which the collector returns {@code null} are skipped
+     * without evaluating any condition, for collectors such as {@code AggregatingCollector}
+     * that return {@code null} when they have no data. By default {@code null} values
+     * are evaluated, so evaluators can react to the absence of data.
+     *
+     * @param skipMissingValues {@code true} to skip observations without data.
+     */
+    public void setSkipMissingValues(boolean skipMissingValues) {
+        this.skipMissingValues = skipMissingValues;
+    }
+
+    /**
+     * Returns the metric value collected by the last observation.
+     *
+     * @return the last value, or {@code null} before the first observation or when the
+     *         collector had no data.
+     */
+    public T getLastValue() {
+        return lastValue;
+    }
+
+    /**
+     * Returns whether the condition of this event held at the last observation.
+     *
+     * @return the last outcome, {@code false} before the first observation.
+     */
+    public boolean isLastOutcome() {
+        return lastOutcome;
+    }
+
+    /**
+     * Returns the events whose outcomes this event consumes, which must be observed
+     * before it in each round.
+     *
+     * @return the input events, empty for events observing a collector only.
+     */
+    public List<Event<?>> getInputs() {
+        return List.of();
+    }
+
+    /**
+     * Returns the number of observations performed by this event.
+     *
+     * @return the observation count.
+     */
+    public long getObservationCount() {
+        return observationCount;
+    }
+
+    /**
+     * Writes the observation count and the outcome of the last observation, which
+     * {@link DerivedEvent}s consume. The collected value is not part of the state.
+     *
+     * @param out the output receiving the state.
+     * @throws IOException if the state cannot be written.
+     */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeLong(observationCount);
+        out.writeBoolean(lastOutcome);
+    }
+
+    /**
+     * Restores the observation count and the outcome of the last observation.
+     *
+     * @param in the input holding the state.
+     * @throws IOException if the state cannot be read.
+     */
+    @Override
+    public void readState(DataInput in) throws IOException {
+        long savedCount = in.readLong();
+        boolean savedOutcome = in.readBoolean();
+        observationCount = savedCount;
+        lastOutcome = savedOutcome;
     }
 
     /**
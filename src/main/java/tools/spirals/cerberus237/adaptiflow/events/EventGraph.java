@@ -0,0 +1,90 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.events;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link EventGraph} class orders events so that every event is observed after the
+ * events whose outcomes it consumes ({@link Event#getInputs()}).
+ * <p>
+ * The events and their inputs form a directed acyclic graph. {@link #order(List)} returns a
+ * topological order of it, adding the inputs missing from the given list, so that a
+ * scheduler observing its events in list order observes each input once per round, before
+ * the events derived from it.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * List&lt;Event&gt; events = EventGraph.order(List.of(databaseUnavailableEvent, attackEvent, degradedEvent));
+ * new ContinuousObservationScheduler(events, EVENT_LISTENING_INTERVAL_MS).start();
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public final class EventGraph {
+
+    private enum Mark { VISITING, DONE }
+
+    private EventGraph() {
+    }
+
+    /**
+     * Returns the given events and their transitive inputs, each once, every event after
+     * its inputs. Events keep their relative order when their dependencies allow it.
+     *
+     * @param events the events to order.
+     * @return a new, topologically ordered list.
+     * @throws IllegalArgumentException if the inputs form a cycle.
+     */
+    @SuppressWarnings("rawtypes")
+    public static List<Event> order(List<? extends Event> events) {
+        List<Event> ordered = new ArrayList<>();
+        Map<Event<?>, Mark> marks = new IdentityHashMap<>();
+        for (Event<?> event : events) {
+            visit(event, marks, ordered, new ArrayList<>());
+        }
+        return ordered;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static void visit(Event<?> event, Map<Event<?>, Mark> marks, List<Event> ordered, List<Event<?>> path) {
+        Mark mark = marks.get(event);
+        if (mark == Mark.DONE) {
+            return;
+        }
+        path.add(event);
+        if (mark == Mark.VISITING) {
+            throw new IllegalArgumentException("Events form a cycle: " + describe(path.subList(path.indexOf(event), path.size())));
+        }
+        marks.put(event, Mark.VISITING);
+        for (Event<?> input : event.getInputs()) {
+            visit(input, marks, ordered, path);
+        }
+        marks.put(event, Mark.DONE);
+        path.remove(path.size() - 1);
+        ordered.add(event);
+    }
+
+    private static String describe(List<Event<?>> cycle) {
+        List<String> names = new ArrayList<>();
+        for (Event<?> event : cycle) {
+            names.add(event.getName() != null ? event.getName() : event.getClass().getSimpleName());
+        }
+        return String.join(" -> ", names);
+    }
+}
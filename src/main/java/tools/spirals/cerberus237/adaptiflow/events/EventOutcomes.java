@@ -0,0 +1,133 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.events;
+
+import java.util.List;
+
+/**
+ * The {@link EventOutcomes} class is the metric observed by a {@link DerivedEvent}: the
+ * outcomes and values of its input events at the time it was observed.
+ * <p>
+ * Inputs are addressed by their position in the derived event's input list, or by the
+ * event itself.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public final class EventOutcomes {
+    private final List<Event<?>> inputs;
+    private final boolean[] outcomes;
+    private final Object[] values;
+
+    EventOutcomes(List<Event<?>> inputs) {
+        this.inputs = inputs;
+        this.outcomes = new boolean[inputs.size()];
+        this.values = new Object[inputs.size()];
+        for (int i = 0; i < outcomes.length; i++) {
+            Event<?> input = inputs.get(i);
+            outcomes[i] = input.isLastOutcome();
+            values[i] = input.getLastValue();
+        }
+    }
+
+    /**
+     * Returns the number of inputs.
+     *
+     * @return the input count.
+     */
+    public int size() {
+        return outcomes.length;
+    }
+
+    /**
+     * Returns the outcome of the input at the given position.
+     *
+     * @param index the position of the input.
+     * @return whether the condition of the input held.
+     */
+    public boolean isTrue(int index) {
+        return outcomes[index];
+    }
+
+    /**
+     * Returns the outcome of the given input.
+     *
+     * @param input an input event.
+     * @return whether the condition of the input held.
+     * @throws IllegalArgumentException if the event is not an input.
+     */
+    public boolean isTrue(Event<?> input) {
+        return outcomes[indexOf(input)];
+    }
+
+    /**
+     * Returns the value collected by the input at the given position.
+     *
+     * @param index the position of the input.
+     * @return the value, possibly {@code null}.
+     */
+    public Object getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns the value collected by the given input.
+     *
+     * @param input an input event.
+     * @param <T> the metric type of the input.
+     * @return the value, possibly {@code null}.
+     * @throws IllegalArgumentException if the event is not an input.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getValue(Event<T> input) {
+        return (T) values[indexOf(input)];
+    }
+
+    /**
+     * Returns the number of inputs whose condition held.
+     *
+     * @return the number of true outcomes.
+     */
+    public int countTrue() {
+        int count = 0;
+        for (boolean outcome : outcomes) {
+            if (outcome) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int indexOf(Event<?> input) {
+        for (int i = 0; i < inputs.size(); i++) {
+            if (inputs.get(i) == input) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Not an input of this derived event: " + input.getName());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < outcomes.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            String name = inputs.get(i).getName();
+            builder.append(name != null ? name : "#" + i).append('=').append(outcomes[i]);
+        }
+        return builder.append('}').toString();
+    }
+}
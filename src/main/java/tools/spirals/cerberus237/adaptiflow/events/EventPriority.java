@@ -0,0 +1,47 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.events;
+
+/**
+ * The {@link EventPriority} enum ranks events for schedulers that order observations,
+ * such as the {@code PriorityObservationScheduler}.
+ * <p>
+ * Constants are declared from the most to the least urgent, so their natural order is
+ * the observation order.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public enum EventPriority {
+
+    /**
+     * Health checks whose reaction time matters most, observed on reserved capacity.
+     */
+    CRITICAL,
+
+    /**
+     * Events observed before the normal ones.
+     */
+    HIGH,
+
+    /**
+     * The default priority.
+     */
+    NORMAL,
+
+    /**
+     * Events that may be delayed or skipped when the scheduler is overloaded.
+     */
+    LOW
+}
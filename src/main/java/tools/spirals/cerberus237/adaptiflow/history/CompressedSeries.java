@@ -0,0 +1,179 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.history;
+
+import java.util.ArrayDeque;
+
+/**
+ * The {@link CompressedSeries} class retains a long history of one metric series in
+ * compressed blocks, for evaluators and replays that need hours of samples.
+ * <p>
+ * Samples are appended as they are observed, usually through a {@link RecordingCollector},
+ * and encoded on the fly with the Gorilla scheme: delta-of-delta timestamps and
+ * XOR-compressed values. A series observed at a steady interval with slowly changing values
+ * takes a few bits per sample rather than the sixteen bytes of a raw
+ * {@code (timestamp, value)} pair. Samples are grouped in blocks of
+ * {@code samplesPerBlock}; when the series holds {@code maxBlocks} blocks, the oldest block
+ * is dropped, bounding the memory of the series.
+ * </p>
+ * <p>
+ * Reads decode the blocks overlapping the requested range, oldest first; blocks entirely
+ * outside of it are skipped without decoding. Timestamps are expected not to decrease.
+ * Appends and reads are synchronized, so a series may be recorded and evaluated from
+ * different threads.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * CompressedSeries cpuHistory = new CompressedSeries(3600, 24);
+ * IMetricsCollector&lt;Double&gt; cpu = new RecordingCollector&lt;&gt;(new LocalCpuUsageCollector(), cpuHistory);
+ * ConditionalEvent&lt;Double&gt; sustainedCpuEvent = new ConditionalEvent&lt;&gt;(cpu,
+ *         new WindowedEvaluator&lt;&gt;(cpuHistory, 3600000, WindowAggregate.MEAN, new GreaterThanEvaluator&lt;&gt;(70.0)));
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class CompressedSeries implements SeriesHistory, SampleConsumer {
+
+    private final int samplesPerBlock;
+    private final int maxBlocks;
+    private final ArrayDeque<GorillaBlock> blocks = new ArrayDeque<>();
+    private long sampleCount = 0;
+    private long droppedCount = 0;
+
+    /**
+     * Constructs a {@code CompressedSeries}.
+     *
+     * @param samplesPerBlock the number of samples encoded in each block.
+     * @param maxBlocks the number of blocks retained; the series keeps between
+     *                  {@code (maxBlocks - 1) * samplesPerBlock} and
+     *                  {@code maxBlocks * samplesPerBlock} samples once full.
+     * @throws IllegalArgumentException if a size is not positive.
+     */
+    public CompressedSeries(int samplesPerBlock, int maxBlocks) {
+        if (samplesPerBlock <= 0 || maxBlocks <= 0) {
+            throw new IllegalArgumentException("The block sizes must be positive: " + maxBlocks + " blocks of "
+                    + samplesPerBlock + " samples");
+        }
+        this.samplesPerBlock = samplesPerBlock;
+        this.maxBlocks = maxBlocks;
+    }
+
+    /**
+     * Appends a sample to the series.
+     *
+     * @param timestampMillis the time of the sample, not before the previous one.
+     * @param value the value of the sample.
+     */
+    @Override
+    public synchronized void accept(long timestampMillis, double value) {
+        GorillaBlock block = blocks.peekLast();
+        if (block == null || block.getCount() == samplesPerBlock) {
+            if (block != null) {
+                block.seal();
+            }
+            if (blocks.size() == maxBlocks) {
+                droppedCount += blocks.removeFirst().getCount();
+            }
+            block = new GorillaBlock();
+            blocks.addLast(block);
+        }
+        block.append(timestampMillis, value);
+        sampleCount++;
+    }
+
+    @Override
+    public synchronized long getLastTimestamp() {
+        GorillaBlock block = blocks.peekLast();
+        return block == null ? Long.MIN_VALUE : block.getLastTimestamp();
+    }
+
+    @Override
+    public synchronized int scan(long fromMillis, long toMillis, SampleConsumer consumer) {
+        int visited = 0;
+        for (GorillaBlock block : blocks) {
+            if (block.getFirstTimestamp() > toMillis) {
+                break;
+            }
+            // Blocks ending before the range are skipped without decoding.
+            if (block.getLastTimestamp() >= fromMillis) {
+                visited += block.decode(fromMillis, toMillis, consumer);
+            }
+        }
+        return visited;
+    }
+
+    @Override
+    public double aggregate(long fromMillis, long toMillis, WindowAggregate aggregate) {
+        WindowAccumulator accumulator = new WindowAccumulator();
+        scan(fromMillis, toMillis, accumulator);
+        return accumulator.result(aggregate);
+    }
+
+    /**
+     * Returns the number of samples currently retained.
+     *
+     * @return the retained sample count.
+     */
+    public synchronized long size() {
+        return sampleCount - droppedCount;
+    }
+
+    /**
+     * Returns the number of samples ever appended.
+     *
+     * @return the appended sample count, including dropped samples.
+     */
+    public synchronized long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Returns the size of the encoded samples retained.
+     *
+     * @return the encoded size, in bytes.
+     */
+    public synchronized long getEncodedBytes() {
+        long bytes = 0;
+        for (GorillaBlock block : blocks) {
+            bytes += block.getEncodedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the memory held by the block buffers, including the unused capacity of the
+     * block being appended to.
+     *
+     * @return the allocated size, in bytes.
+     */
+    public synchronized long getAllocatedBytes() {
+        long bytes = 0;
+        for (GorillaBlock block : blocks) {
+            bytes += block.getAllocatedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the ratio between the raw size of the retained samples, sixteen bytes each,
+     * and their encoded size.
+     *
+     * @return the compression ratio, or 0 if the series is empty.
+     */
+    public synchronized double getCompressionRatio() {
+        long encoded = getEncodedBytes();
+        return encoded == 0 ? 0 : size() * 16.0 / encoded;
+    }
+}
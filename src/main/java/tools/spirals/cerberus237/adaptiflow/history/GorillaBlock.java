@@ -0,0 +1,240 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.history;
+
+import java.util.Arrays;
+
+/**
+ * A block of samples compressed with the encoding of Facebook's Gorilla time-series
+ * database: timestamps as delta-of-deltas and values as the XOR of their bits with the
+ * previous value, both written with variable-length prefix codes.
+ * <p>
+ * Regular timestamps cost one bit and unchanged values one bit, so a sample of a steady
+ * series takes two bits instead of sixteen bytes. A block is appended to by one writer and
+ * decoded from its start; it is sealed by trimming its bit buffer to the bits written.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+final class GorillaBlock {
+    private static final int INITIAL_WORDS = 16;
+
+    private long[] words = new long[INITIAL_WORDS];
+    private long bits = 0;
+    private int count = 0;
+
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long lastDelta;
+    private long lastValueBits;
+    private int lastLeading = Integer.MAX_VALUE;
+    private int lastTrailing = 0;
+
+    /**
+     * Appends a sample; its timestamp must not precede the previous one by more than the
+     * 64-bit escape can carry, which holds for any real clock.
+     */
+    void append(long timestampMillis, double value) {
+        long valueBits = Double.doubleToRawLongBits(value);
+        if (count == 0) {
+            firstTimestamp = timestampMillis;
+            write(timestampMillis, 64);
+            write(valueBits, 64);
+        } else {
+            long delta = timestampMillis - lastTimestamp;
+            writeDeltaOfDelta(delta - lastDelta);
+            writeXor(valueBits ^ lastValueBits);
+            lastDelta = delta;
+        }
+        lastTimestamp = timestampMillis;
+        lastValueBits = valueBits;
+        count++;
+    }
+
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            write(0b0, 1);
+        } else if (dod >= -64 && dod <= 63) {
+            write(0b10, 2);
+            write(dod, 7);
+        } else if (dod >= -256 && dod <= 255) {
+            write(0b110, 3);
+            write(dod, 9);
+        } else if (dod >= -2048 && dod <= 2047) {
+            write(0b1110, 4);
+            write(dod, 12);
+        } else {
+            write(0b1111, 4);
+            write(dod, 64);
+        }
+    }
+
+    private void writeXor(long xor) {
+        if (xor == 0) {
+            write(0b0, 1);
+            return;
+        }
+        // The leading zero count is written on 5 bits.
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (leading >= lastLeading && trailing >= lastTrailing) {
+            write(0b10, 2);
+            write(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+        } else {
+            int significant = 64 - leading - trailing;
+            write(0b11, 2);
+            write(leading, 5);
+            // 64 significant bits do not fit on 6 bits and are written as 0.
+            write(significant, 6);
+            write(xor >>> trailing, significant);
+            lastLeading = leading;
+            lastTrailing = trailing;
+        }
+    }
+
+    private void write(long value, int length) {
+        if (bits + length > (long) words.length * 64) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        int word = (int) (bits >>> 6);
+        int free = 64 - (int) (bits & 63);
+        long masked = length == 64 ? value : value & ((1L << length) - 1);
+        if (length <= free) {
+            words[word] |= masked << (free - length);
+        } else {
+            words[word] |= masked >>> (length - free);
+            words[word + 1] |= masked << (64 - (length - free));
+        }
+        bits += length;
+    }
+
+    /**
+     * Releases the unused capacity of the bit buffer once the block is full.
+     */
+    void seal() {
+        words = Arrays.copyOf(words, (int) ((bits + 63) >>> 6));
+    }
+
+    /**
+     * Decodes the samples of the block whose timestamp is in {@code [fromMillis, toMillis]},
+     * oldest first.
+     */
+    int decode(long fromMillis, long toMillis, SampleConsumer consumer) {
+        if (count == 0 || lastTimestamp < fromMillis || firstTimestamp > toMillis) {
+            return 0;
+        }
+        Reader reader = new Reader(words);
+        long timestamp = reader.read(64);
+        long valueBits = reader.read(64);
+        long delta = 0;
+        int leading = 0;
+        int trailing = 0;
+        int visited = 0;
+        for (int i = 0; ; ) {
+            if (timestamp > toMillis) {
+                break;
+            }
+            if (timestamp >= fromMillis) {
+                consumer.accept(timestamp, Double.longBitsToDouble(valueBits));
+                visited++;
+            }
+            if (++i == count) {
+                break;
+            }
+            delta += readDeltaOfDelta(reader);
+            timestamp += delta;
+            if (reader.read(1) != 0) {
+                if (reader.read(1) != 0) {
+                    leading = (int) reader.read(5);
+                    int significant = (int) reader.read(6);
+                    trailing = 64 - leading - (significant == 0 ? 64 : significant);
+                }
+                valueBits ^= reader.read(64 - leading - trailing) << trailing;
+            }
+        }
+        return visited;
+    }
+
+    private static long readDeltaOfDelta(Reader reader) {
+        if (reader.read(1) == 0) {
+            return 0;
+        }
+        if (reader.read(1) == 0) {
+            return reader.readSigned(7);
+        }
+        if (reader.read(1) == 0) {
+            return reader.readSigned(9);
+        }
+        if (reader.read(1) == 0) {
+            return reader.readSigned(12);
+        }
+        return reader.read(64);
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * Returns the bytes held by the bit buffer, including unused capacity.
+     */
+    long getAllocatedBytes() {
+        return (long) words.length * 8;
+    }
+
+    /**
+     * Returns the bytes of the encoded samples.
+     */
+    long getEncodedBytes() {
+        return (bits + 7) >>> 3;
+    }
+
+    /**
+     * Reads a bit buffer from its start; a reader is confined to one decoding.
+     */
+    private static final class Reader {
+        private final long[] words;
+        private long position = 0;
+
+        private Reader(long[] words) {
+            this.words = words;
+        }
+
+        long read(int length) {
+            int word = (int) (position >>> 6);
+            int offset = (int) (position & 63);
+            int available = 64 - offset;
+            position += length;
+            if (length <= available) {
+                return (words[word] << offset) >>> (64 - length);
+            }
+            int rest = length - available;
+            long high = words[word] & ((1L << available) - 1);
+            return (high << rest) | (words[word + 1] >>> (64 - rest));
+        }
+
+        long readSigned(int length) {
+            long value = read(length);
+            return (value << (64 - length)) >> (64 - length);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link MetricHistoryStore} class keeps the recent samples of many metric series off
+ * the Java heap, in one direct or memory-mapped buffer shared by all the evaluators that
+ * need a history.
+ * <p>
+ * Each series owns a fixed-size segment of the buffer: a 64-byte header holding the number
+ * of samples ever recorded, followed by a ring of {@code (timestamp, value)} entries of 16
+ * bytes. Recording overwrites the oldest entry once the ring is full, so the memory of the
+ * store is fixed when it is created, and the heap only holds the index of series names.
+ * Scans find the oldest sample of the range by binary search, then hand the samples to
+ * the caller oldest first, as primitives and without copying them; aggregates walk the
+ * ring from the newest sample.
+ * </p>
+ * <p>
+ * A series has a single writer, usually the thread observing the event that records it.
+ * Readers may run on other threads: the sample count is published with release semantics,
+ * and a reader skips the entries the writer may have overwritten during the query, so it
+ * never returns a torn sample. Timestamps of a series are expected not to decrease.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * MetricHistoryStore history = MetricHistoryStore.allocate(1024, 720);
+ * IMetricsCollector&lt;Double&gt; cpu = new RecordingCollector&lt;&gt;(new LocalCpuUsageCollector(), history, "cpu");
+ * ConditionalEvent&lt;Double&gt; highCpuEvent = new ConditionalEvent&lt;&gt;(cpu,
+ *         new WindowedEvaluator&lt;&gt;(history, "cpu", 60000, WindowAggregate.MEAN, new GreaterThanEvaluator&lt;&gt;(80.0)));
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public final class MetricHistoryStore implements Closeable {
+    private static final int HEADER_BYTES = 64;
+    private static final int ENTRY_BYTES = 16;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer buffer;
+    private final FileChannel channel;
+    private final int maxSeries;
+
+    /**
+     * The number of entries of each ring, one more than the number of samples readable, as
+     * the entry the writer fills next is never read.
+     */
+    private final int slots;
+    private final int segmentBytes;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    private MetricHistoryStore(ByteBuffer buffer, FileChannel channel, int maxSeries, int capacity) {
+        this.buffer = buffer.order(ByteOrder.nativeOrder());
+        this.channel = channel;
+        this.maxSeries = maxSeries;
+        this.slots = capacity + 1;
+        this.segmentBytes = HEADER_BYTES + slots * ENTRY_BYTES;
+    }
+
+    /**
+     * Creates a store in a direct buffer.
+     *
+     * @param maxSeries the number of series the store can hold.
+     * @param capacity the number of samples kept per series.
+     * @return the store.
+     * @throws IllegalArgumentException if a size is not positive or the store exceeds 2 GiB.
+     */
+    public static MetricHistoryStore allocate(int maxSeries, int capacity) {
+        return new MetricHistoryStore(ByteBuffer.allocateDirect(bytes(maxSeries, capacity)), null, maxSeries, capacity);
+    }
+
+    /**
+     * Creates a store in a memory-mapped file, so the history lives in the page cache
+     * rather than in the process's memory. The file is truncated; series names are not
+     * persisted.
+     *
+     * @param file the file backing the store.
+     * @param maxSeries the number of series the store can hold.
+     * @param capacity the number of samples kept per series.
+     * @return the store.
+     * @throws IOException if the file cannot be mapped.
+     * @throws IllegalArgumentException if a size is not positive or the store exceeds 2 GiB.
+     */
+    public static MetricHistoryStore map(Path file, int maxSeries, int capacity) throws IOException {
+        int bytes = bytes(maxSeries, capacity);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return new MetricHistoryStore(channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes), channel, maxSeries, capacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int bytes(int maxSeries, int capacity) {
+        if (maxSeries <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("The store sizes must be positive: " + maxSeries + " series of " + capacity + " samples");
+        }
+        long bytes = (long) maxSeries * (HEADER_BYTES + (capacity + 1L) * ENTRY_BYTES);
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The store would take " + bytes + " bytes, more than a buffer can hold");
+        }
+        return (int) bytes;
+    }
+
+    /**
+     * Returns the identifier of a series, registering it on first use.
+     *
+     * @param name the series name.
+     * @return the series identifier, used by the other methods.
+     * @throws IllegalStateException if the store already holds its maximum number of series.
+     */
+    public int series(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (names) {
+            id = ids.get(name);
+            if (id == null) {
+                if (names.size() == maxSeries) {
+                    throw new IllegalStateException("The history store is full: " + maxSeries + " series");
+                }
+                id = names.size();
+                names.add(name);
+                ids.put(name, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Returns a view of a series, registering it on first use.
+     *
+     * @param name the series name.
+     * @return the history of the series, read in place from the store.
+     * @throws IllegalStateException if the store already holds its maximum number of series.
+     */
+    public SeriesHistory history(String name) {
+        int series = series(name);
+        return new SeriesHistory() {
+            @Override
+            public long getLastTimestamp() {
+                return MetricHistoryStore.this.getLastTimestamp(series);
+            }
+
+            @Override
+            public int scan(long fromMillis, long toMillis, SampleConsumer consumer) {
+                return MetricHistoryStore.this.scan(series, fromMillis, toMillis, consumer);
+            }
+
+            @Override
+            public double aggregate(long fromMillis, long toMillis, WindowAggregate aggregate) {
+                return MetricHistoryStore.this.aggregate(series, fromMillis, toMillis, aggregate);
+            }
+        };
+    }
+
+    /**
+     * Returns a consumer appending the samples it receives to a series, registering it on first use.
+     *
+     * @param name the series name.
+     * @return the consumer recording in the series.
+     * @throws IllegalStateException if the store already holds its maximum number of series.
+     */
+    public SampleConsumer recorder(String name) {
+        int series = series(name);
+        return (timestampMillis, value) -> record(series, timestampMillis, value);
+    }
+
+    /**
+     * Returns the names of the registered series, in registration order.
+     *
+     * @return the series names.
+     */
+    public List<String> getSeriesNames() {
+        synchronized (names) {
+            return Collections.unmodifiableList(new ArrayList<>(names));
+        }
+    }
+
+    /**
+     * Appends a sample to a series, overwriting its oldest sample when the ring is full.
+     *
+     * @param series the series identifier.
+     * @param timestampMillis the time of the sample.
+     * @param value the value of the sample.
+     */
+    public void record(int series, long timestampMillis, double value) {
+        int base = base(series);
+        long count = (long) LONGS.getAcquire(buffer, base);
+        int entry = entry(base, count);
+        // The entry holds the oldest sample of a reader that loaded the previous count: the
+        // count published by the previous record must be visible before the entry changes,
+        // or the reader could accept a torn sample. A release store alone does not order the
+        // later plain stores.
+        VarHandle.storeStoreFence();
+        buffer.putLong(entry, timestampMillis);
+        buffer.putDouble(entry + 8, value);
+        LONGS.setRelease(buffer, base, count + 1);
+    }
+
+    /**
+     * Returns the number of samples ever recorded in a series.
+     *
+     * @param series the series identifier.
+     * @return the recorded count, including overwritten samples.
+     */
+    public long getRecordedCount(int series) {
+        return (long) LONGS.getAcquire(buffer, base(series));
+    }
+
+    /**
+     * Returns the number of samples a series keeps.
+     *
+     * @return the capacity of the rings.
+     */
+    public int getCapacity() {
+        return slots - 1;
+    }
+
+    /**
+     * Returns the timestamp of the newest sample of a series.
+     *
+     * @param series the series identifier.
+     * @return the timestamp, or {@link Long#MIN_VALUE} if the series is empty.
+     */
+    public long getLastTimestamp(int series) {
+        int base = base(series);
+        long count = (long) LONGS.getAcquire(buffer, base);
+        return count == 0 ? Long.MIN_VALUE : buffer.getLong(entry(base, count - 1));
+    }
+
+    /**
+     * Visits the samples of a series whose timestamp is in {@code [fromMillis, toMillis]},
+     * oldest first.
+     *
+     * @param series the series identifier.
+     * @param fromMillis the start of the range, inclusive.
+     * @param toMillis the end of the range, inclusive.
+     * @param consumer the consumer receiving the samples.
+     * @return the number of samples visited.
+     */
+    public int scan(int series, long fromMillis, long toMillis, SampleConsumer consumer) {
+        int base = base(series);
+        long count = (long) LONGS.getAcquire(buffer, base);
+        int visited = 0;
+        for (long index = first(base, Math.max(0, count - (slots - 1)), count, fromMillis); index < count; index++) {
+            int entry = entry(base, index);
+            long timestamp = buffer.getLong(entry);
+            double value = buffer.getDouble(entry + 8);
+            if (!readable(base, index)) {
+                // Overwritten during the scan by a sample newer than the range read.
+                continue;
+            }
+            if (timestamp > toMillis) {
+                break;
+            }
+            if (timestamp >= fromMillis) {
+                consumer.accept(timestamp, value);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Returns the index of the oldest sample in {@code [low, high)} not older than
+     * {@code fromMillis}, counting overwritten entries as older.
+     */
+    private long first(int base, long low, long high, long fromMillis) {
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            long timestamp = buffer.getLong(entry(base, middle));
+            if (readable(base, middle) && timestamp >= fromMillis) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Computes an aggregate of the samples of a series whose timestamp is in
+     * {@code [fromMillis, toMillis]}.
+     *
+     * @param series the series identifier.
+     * @param fromMillis the start of the range, inclusive.
+     * @param toMillis the end of the range, inclusive.
+     * @param aggregate the aggregate to compute.
+     * @return the aggregate; {@link Double#NaN} for the aggregates of values over an empty range.
+     */
+    public double aggregate(int series, long fromMillis, long toMillis, WindowAggregate aggregate) {
+        int base = base(series);
+        long count = (long) LONGS.getAcquire(buffer, base);
+        long oldest = Math.max(0, count - (slots - 1));
+        int samples = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double last = Double.NaN;
+        for (long index = count - 1; index >= oldest; index--) {
+            int entry = entry(base, index);
+            long timestamp = buffer.getLong(entry);
+            double value = buffer.getDouble(entry + 8);
+            if (!readable(base, index) || timestamp < fromMillis) {
+                break;
+            }
+            if (timestamp <= toMillis) {
+                if (samples == 0) {
+                    last = value;
+                }
+                samples++;
+                sum += value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        switch (aggregate) {
+            case COUNT:
+                return samples;
+            case SUM:
+                return sum;
+            case MEAN:
+                return samples == 0 ? Double.NaN : sum / samples;
+            case MIN:
+                return samples == 0 ? Double.NaN : min;
+            case MAX:
+                return samples == 0 ? Double.NaN : max;
+            default:
+                return last;
+        }
+    }
+
+    /**
+     * Returns whether the entry of a sample still holds it: the writer starts overwriting
+     * it once {@code slots - 1} newer samples are recorded.
+     */
+    private boolean readable(int base, long index) {
+        // Keeps the plain reads of the entry before the second read of the count.
+        VarHandle.loadLoadFence();
+        return (long) LONGS.getAcquire(buffer, base) - index < slots;
+    }
+
+    private int base(int series) {
+        if (series < 0 || series >= maxSeries) {
+            throw new IllegalArgumentException("Unknown series: " + series);
+        }
+        return series * segmentBytes;
+    }
+
+    private int entry(int base, long index) {
+        return base + HEADER_BYTES + (int) (index % slots) * ENTRY_BYTES;
+    }
+
+    /**
+     * Closes the file backing a mapped store; the mapping itself is released by the
+     * garbage collector. Does nothing for a direct store.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
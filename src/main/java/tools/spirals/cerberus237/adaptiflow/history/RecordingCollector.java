@@ -0,0 +1,189 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.history;
+
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.util.function.LongSupplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The {@link RecordingCollector} class records every value collected by a delegate in a
+ * series, such as a series of a {@link MetricHistoryStore} or a {@link CompressedSeries},
+ * then hands the value to its event unchanged.
+ * <p>
+ * Every value is recorded by default. A {@code null} value, for which the delegate had no
+ * data, is not recorded.
+ * </p>
+ * <p>
+ * When several events share the collector, or when the delegate is a {@code CachingCollector}
+ * returning the same value to several rounds, {@link #setSkipRepeatedValues(boolean)} records
+ * each value once: the instance last recorded is not recorded again. Only enable it for
+ * delegates returning a new instance per collection; collectors reusing their result object,
+ * such as the {@code ResourceUsageMetricsCollector}, would otherwise be recorded once.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * IMetricsCollector&lt;SQLDatabaseMetrics&gt; database = new RecordingCollector&lt;&gt;(collector, history,
+ *         "database.responseTime", SQLDatabaseMetrics::getResponseTime);
+ * </pre>
+ *
+ * @param <T> the type of the collected metric.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class RecordingCollector<T> implements IMetricsCollector<T> {
+
+    private final IMetricsCollector<T> delegate;
+    private final SampleConsumer sink;
+    private final int series;
+    private final ToDoubleFunction<? super T> extractor;
+    private final LongSupplier clock;
+
+    /**
+     * The value last recorded, compared by identity.
+     */
+    private T lastRecorded;
+
+    /**
+     * Whether the instance last recorded is skipped when collected again.
+     */
+    private volatile boolean skipRepeatedValues = false;
+
+    /**
+     * Constructs a {@code RecordingCollector} for a numeric metric, timestamped with the wall clock.
+     *
+     * @param delegate the collector whose values are recorded.
+     * @param store the store receiving the samples.
+     * @param seriesName the name of the series.
+     */
+    public RecordingCollector(IMetricsCollector<T> delegate, MetricHistoryStore store, String seriesName) {
+        this(delegate, store, seriesName, value -> ((Number) value).doubleValue());
+    }
+
+    /**
+     * Constructs a {@code RecordingCollector} timestamped with the wall clock.
+     *
+     * @param delegate the collector whose values are recorded.
+     * @param store the store receiving the samples.
+     * @param seriesName the name of the series.
+     * @param extractor the function extracting the recorded number from a value.
+     */
+    public RecordingCollector(IMetricsCollector<T> delegate, MetricHistoryStore store, String seriesName,
+                              ToDoubleFunction<? super T> extractor) {
+        this(delegate, store, seriesName, extractor, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a {@code RecordingCollector}.
+     *
+     * @param delegate the collector whose values are recorded.
+     * @param store the store receiving the samples.
+     * @param seriesName the name of the series.
+     * @param extractor the function extracting the recorded number from a value.
+     * @param clock the clock timestamping the samples, in milliseconds.
+     * @throws IllegalArgumentException if an argument is {@code null}.
+     */
+    public RecordingCollector(IMetricsCollector<T> delegate, MetricHistoryStore store, String seriesName,
+                              ToDoubleFunction<? super T> extractor, LongSupplier clock) {
+        this(delegate, recorder(store, seriesName), extractor, clock, store.series(seriesName));
+    }
+
+    /**
+     * Constructs a {@code RecordingCollector} for a numeric metric, timestamped with the wall clock.
+     *
+     * @param delegate the collector whose values are recorded.
+     * @param sink the consumer receiving the samples, such as a {@link CompressedSeries}.
+     */
+    public RecordingCollector(IMetricsCollector<T> delegate, SampleConsumer sink) {
+        this(delegate, sink, value -> ((Number) value).doubleValue(), System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a {@code RecordingCollector}.
+     *
+     * @param delegate the collector whose values are recorded.
+     * @param sink the consumer receiving the samples.
+     * @param extractor the function extracting the recorded number from a value.
+     * @param clock the clock timestamping the samples, in milliseconds.
+     * @throws IllegalArgumentException if an argument is {@code null}.
+     */
+    public RecordingCollector(IMetricsCollector<T> delegate, SampleConsumer sink,
+                              ToDoubleFunction<? super T> extractor, LongSupplier clock) {
+        this(delegate, sink, extractor, clock, -1);
+    }
+
+    private RecordingCollector(IMetricsCollector<T> delegate, SampleConsumer sink,
+                               ToDoubleFunction<? super T> extractor, LongSupplier clock, int series) {
+        if (delegate == null || sink == null || extractor == null || clock == null) {
+            throw new IllegalArgumentException("The delegate, sink, extractor and clock must not be null");
+        }
+        this.delegate = delegate;
+        this.sink = sink;
+        this.series = series;
+        this.extractor = extractor;
+        this.clock = clock;
+    }
+
+    private static SampleConsumer recorder(MetricHistoryStore store, String seriesName) {
+        if (store == null || seriesName == null) {
+            throw new IllegalArgumentException("The store and series name must not be null");
+        }
+        return store.recorder(seriesName);
+    }
+
+    @Override
+    public T get() {
+        T value = delegate.get();
+        if (value != null) {
+            // One writer per series: events sharing this collector may observe it concurrently.
+            synchronized (this) {
+                if (!skipRepeatedValues || value != lastRecorded) {
+                    sink.accept(clock.getAsLong(), extractor.applyAsDouble(value));
+                    lastRecorded = value;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the identifier of the series this collector records.
+     *
+     * @return the series identifier in the store, or {@code -1} if the collector records
+     * in a {@link SampleConsumer}.
+     */
+    public int getSeries() {
+        return series;
+    }
+
+    /**
+     * Returns whether the instance last recorded is skipped when collected again.
+     *
+     * @return {@code true} if repeated values are skipped.
+     */
+    public boolean isSkipRepeatedValues() {
+        return skipRepeatedValues;
+    }
+
+    /**
+     * Sets whether the instance last recorded is skipped when collected again, so that a
+     * value shared by several events or rounds is recorded once. Disabled by default.
+     *
+     * @param skipRepeatedValues {@code true} to skip repeated values.
+     */
+    public void setSkipRepeatedValues(boolean skipRepeatedValues) {
+        this.skipRepeatedValues = skipRepeatedValues;
+    }
+}
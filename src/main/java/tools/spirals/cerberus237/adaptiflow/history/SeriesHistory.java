@@ -0,0 +1,51 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.history;
+
+/**
+ * The {@link SeriesHistory} interface gives read access to the recorded samples of one
+ * metric series, whatever their storage.
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public interface SeriesHistory {
+
+    /**
+     * Returns the timestamp of the newest sample.
+     *
+     * @return the timestamp, or {@link Long#MIN_VALUE} if the series is empty.
+     */
+    long getLastTimestamp();
+
+    /**
+     * Visits the samples whose timestamp is in {@code [fromMillis, toMillis]}, oldest
+     * first, in every implementation.
+     *
+     * @param fromMillis the start of the range, inclusive.
+     * @param toMillis the end of the range, inclusive.
+     * @param consumer the consumer receiving the samples.
+     * @return the number of samples visited.
+     */
+    int scan(long fromMillis, long toMillis, SampleConsumer consumer);
+
+    /**
+     * Computes an aggregate of the samples whose timestamp is in {@code [fromMillis, toMillis]}.
+     *
+     * @param fromMillis the start of the range, inclusive.
+     * @param toMillis the end of the range, inclusive.
+     * @param aggregate the aggregate to compute.
+     * @return the aggregate; {@link Double#NaN} for the aggregates of values over an empty range.
+     */
+    double aggregate(long fromMillis, long toMillis, WindowAggregate aggregate);
+}
@@ -0,0 +1,54 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.history;
+
+/**
+ * Folds the samples of a range into the {@link WindowAggregate}s, for histories that
+ * decode their samples oldest first.
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+final class WindowAccumulator implements SampleConsumer {
+    private int samples = 0;
+    private double sum = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double last = Double.NaN;
+
+    @Override
+    public void accept(long timestampMillis, double value) {
+        samples++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        last = value;
+    }
+
+    double result(WindowAggregate aggregate) {
+        switch (aggregate) {
+            case COUNT:
+                return samples;
+            case SUM:
+                return sum;
+            case MEAN:
+                return samples == 0 ? Double.NaN : sum / samples;
+            case MIN:
+                return samples == 0 ? Double.NaN : min;
+            case MAX:
+                return samples == 0 ? Double.NaN : max;
+            default:
+                return last;
+        }
+    }
+}
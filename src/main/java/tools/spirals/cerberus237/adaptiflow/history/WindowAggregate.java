@@ -0,0 +1,53 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.history;
+
+/**
+ * The {@link WindowAggregate} enum lists the aggregates a {@link MetricHistoryStore}
+ * computes over a time range of a series.
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public enum WindowAggregate {
+
+    /**
+     * The number of samples.
+     */
+    COUNT,
+
+    /**
+     * The sum of the values.
+     */
+    SUM,
+
+    /**
+     * The average of the values, {@link Double#NaN} without samples.
+     */
+    MEAN,
+
+    /**
+     * The smallest value, {@link Double#NaN} without samples.
+     */
+    MIN,
+
+    /**
+     * The largest value, {@link Double#NaN} without samples.
+     */
+    MAX,
+
+    /**
+     * The most recent value, {@link Double#NaN} without samples.
+     */
+    LAST
+}
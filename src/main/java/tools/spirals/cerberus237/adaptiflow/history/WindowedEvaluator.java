@@ -0,0 +1,113 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.history;
+
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+
+/**
+ * The {@link WindowedEvaluator} class evaluates an aggregate of the recent history of a
+ * series, read from a {@link MetricHistoryStore} or a {@link CompressedSeries}, with a
+ * wrapped evaluator.
+ * <p>
+ * The window ends at the newest sample of the series and spans {@code windowMillis}
+ * before it; the aggregate is computed in place by the history, so evaluators over long
+ * windows keep no samples of their own. The metric handed to {@link #test(Object)} only
+ * gates the evaluation: the series is expected to be recorded by a
+ * {@link RecordingCollector} before the event evaluates it.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * ConditionalEvent&lt;Double&gt; sustainedCpuEvent = new ConditionalEvent&lt;&gt;(cpu,
+ *         new WindowedEvaluator&lt;&gt;(history, "cpu", 300000, WindowAggregate.MIN, new GreaterThanEvaluator&lt;&gt;(80.0)));
+ * </pre>
+ *
+ * @param <T> the type of the metric of the event.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class WindowedEvaluator<T> implements ConditionEvaluator<T> {
+
+    private final SeriesHistory history;
+    private final long windowMillis;
+    private final WindowAggregate aggregate;
+    private final ConditionEvaluator<Double> delegate;
+
+    /**
+     * Constructs a {@code WindowedEvaluator}.
+     *
+     * @param store the store holding the series.
+     * @param seriesName the name of the series.
+     * @param windowMillis the length of the window, in milliseconds.
+     * @param aggregate the aggregate computed over the window.
+     * @param delegate the evaluator applied to the aggregate.
+     * @throws IllegalArgumentException if the window is negative or an argument is {@code null}.
+     */
+    public WindowedEvaluator(MetricHistoryStore store, String seriesName, long windowMillis,
+                             WindowAggregate aggregate, ConditionEvaluator<Double> delegate) {
+        this(store == null || seriesName == null ? null : store.history(seriesName), windowMillis, aggregate, delegate);
+    }
+
+    /**
+     * Constructs a {@code WindowedEvaluator} over any series history.
+     *
+     * @param history the history of the series.
+     * @param windowMillis the length of the window, in milliseconds.
+     * @param aggregate the aggregate computed over the window.
+     * @param delegate the evaluator applied to the aggregate.
+     * @throws IllegalArgumentException if the window is negative or an argument is {@code null}.
+     */
+    public WindowedEvaluator(SeriesHistory history, long windowMillis, WindowAggregate aggregate,
+                             ConditionEvaluator<Double> delegate) {
+        if (history == null || aggregate == null || delegate == null) {
+            throw new IllegalArgumentException("The history, aggregate and delegate must not be null");
+        }
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("The window must not be negative: " + windowMillis);
+        }
+        this.history = history;
+        this.windowMillis = windowMillis;
+        this.aggregate = aggregate;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Evaluates the aggregate of the window ending at the newest sample of the series.
+     *
+     * @param metric the metric of the current observation.
+     * @return {@code false} if the metric is {@code null}, the series is empty or the
+     *         aggregate is undefined; otherwise the result of the wrapped evaluator.
+     */
+    @Override
+    public boolean test(T metric) {
+        if (metric == null) {
+            return false;
+        }
+        double value = getAggregate();
+        return !Double.isNaN(value) && delegate.test(value);
+    }
+
+    /**
+     * Returns the aggregate of the window ending at the newest sample of the series.
+     *
+     * @return the aggregate; for an empty series, 0 for {@link WindowAggregate#COUNT} and
+     *         {@link WindowAggregate#SUM}, {@link Double#NaN} otherwise.
+     */
+    public double getAggregate() {
+        long last = history.getLastTimestamp();
+        if (last == Long.MIN_VALUE) {
+            return aggregate == WindowAggregate.COUNT || aggregate == WindowAggregate.SUM ? 0 : Double.NaN;
+        }
+        return history.aggregate(last - windowMillis, last, aggregate);
+    }
+}
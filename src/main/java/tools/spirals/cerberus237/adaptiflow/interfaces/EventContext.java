@@ -0,0 +1,116 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.interfaces;
+
+import java.util.function.LongSupplier;
+
+/**
+ * The {@link EventContext} class describes the event that notifies an observer.
+ * <p>
+ * Each event owns one context whose message is computed once, so notifying
+ * observers does not build a new string on every tick. The context is handed to
+ * {@link Observer#update(Object, EventContext)};
+ * its {@link #toString()} is the message, so it can be passed to a logger as is and
+ * only rendered when the log line is actually written.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public final class EventContext {
+
+    /**
+     * The name of the event, possibly {@code null}.
+     */
+    private final String eventName;
+
+    /**
+     * The precomputed notification message.
+     */
+    private final String message;
+
+    /**
+     * The observation count of the owning event, or {@code null} for a detached context.
+     */
+    private final LongSupplier observationCount;
+
+    /**
+     * Constructs a detached {@code EventContext} for the event with the specified name.
+     *
+     * @param eventName the name of the event, possibly {@code null}.
+     */
+    public EventContext(String eventName) {
+        this(eventName, "Handling " + eventName + " event", null);
+    }
+
+    /**
+     * Constructs the {@code EventContext} owned by an event.
+     *
+     * @param eventName the name of the owning event, possibly {@code null}.
+     * @param observationCount the observation count of the owning event.
+     */
+    public EventContext(String eventName, LongSupplier observationCount) {
+        this(eventName, "Handling " + eventName + " event", observationCount);
+    }
+
+    private EventContext(String eventName, String message, LongSupplier observationCount) {
+        this.eventName = eventName;
+        this.message = message;
+        this.observationCount = observationCount;
+    }
+
+    /**
+     * Creates a detached context carrying a ready-made message, for observers
+     * notified through {@link Observer#update(Object, String)}.
+     *
+     * @param message the notification message.
+     * @return a context whose message is {@code message} and whose event name is {@code null}.
+     */
+    public static EventContext forMessage(String message) {
+        return new EventContext(null, message, null);
+    }
+
+    /**
+     * Returns the name of the event.
+     *
+     * @return the event name, possibly {@code null}.
+     */
+    public String getEventName() {
+        return eventName;
+    }
+
+    /**
+     * Returns the notification message.
+     *
+     * @return the message, of the form {@code "Handling <name> event"}.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the number of observations performed by the owning event, the current
+     * one included. Observers can compare successive values to tell whether they
+     * were notified on consecutive ticks.
+     *
+     * @return the observation count of the owning event, or {@code 0} for a detached context.
+     */
+    public long getObservationCount() {
+        return observationCount == null ? 0L : observationCount.getAsLong();
+    }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+}
@@ -39,6 +39,22 @@ public interface Observer<T> {
      */
     void update(T metricValue, String message);
 
+    /**
+     * Updates the observer with a new metric value and the context of the
+     * notifying event.
+     * <p>
+     * Events call this method on every notification. The default implementation
+     * forwards the context's precomputed message to {@link #update(Object, String)};
+     * observers on hot paths can override it to avoid touching the message at all.
+     * </p>
+     *
+     * @param metricValue the new metric value provided by the observable.
+     * @param context     the context of the notifying event.
+     */
+    default void update(T metricValue, EventContext context) {
+        update(metricValue, context.getMessage());
+    }
+
     /**
      * Returns the condition evaluator associated with this observer.
      * <p>
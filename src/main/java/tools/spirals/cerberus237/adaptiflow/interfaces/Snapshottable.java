@@ -0,0 +1,100 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.interfaces;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The {@link Snapshottable} interface is implemented by events, evaluators and
+ * subscribers whose runtime state can be saved and restored, so a restarted service
+ * resumes counting, smoothing and streaks where it stopped instead of from zero.
+ * <p>
+ * The state is written in a compact binary form. An implementation reads back exactly
+ * what it wrote, and tolerates a state saved by the same class configured differently,
+ * for instance with another window size. Configuration itself is not part of the state.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public interface Snapshottable {
+
+    /**
+     * Writes the runtime state of this component.
+     *
+     * @param out the output receiving the state.
+     * @throws IOException if the state cannot be written.
+     */
+    void writeState(DataOutput out) throws IOException;
+
+    /**
+     * Replaces the runtime state of this component with a state written by
+     * {@link #writeState(DataOutput)}.
+     *
+     * @param in the input holding the state.
+     * @throws IOException if the state cannot be read.
+     */
+    void readState(DataInput in) throws IOException;
+
+    /**
+     * Returns the identifier of this component among the components of the same owner,
+     * such as the subscribers of an event, so its state is found again when they are
+     * reordered. Components of the same class need distinct identifiers.
+     *
+     * @return the identifier; the class name by default.
+     */
+    default String getSnapshotId() {
+        return getClass().getName();
+    }
+
+    /**
+     * Writes the state of a wrapped component, such as the delegate of an evaluator, as a
+     * length-prefixed block, empty if the component is not {@link Snapshottable}.
+     *
+     * @param component the wrapped component.
+     * @param out the output receiving the state.
+     * @throws IOException if the state cannot be written.
+     */
+    static void writeNested(Object component, DataOutput out) throws IOException {
+        if (!(component instanceof Snapshottable)) {
+            out.writeInt(0);
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ((Snapshottable) component).writeState(new DataOutputStream(bytes));
+        out.writeInt(bytes.size());
+        out.write(bytes.toByteArray());
+    }
+
+    /**
+     * Reads a block written by {@link #writeNested(Object, DataOutput)} into a wrapped
+     * component; the block is skipped if the component is not {@link Snapshottable}.
+     *
+     * @param component the wrapped component.
+     * @param in the input holding the state.
+     * @throws IOException if the state cannot be read.
+     */
+    static void readNested(Object component, DataInput in) throws IOException {
+        byte[] state = new byte[in.readInt()];
+        in.readFully(state);
+        if (state.length > 0 && component instanceof Snapshottable) {
+            ((Snapshottable) component).readState(new DataInputStream(new ByteArrayInputStream(state)));
+        }
+    }
+}
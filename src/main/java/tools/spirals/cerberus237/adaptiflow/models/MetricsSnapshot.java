@@ -0,0 +1,141 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.models;
+
+import java.util.List;
+
+/**
+ * The {@link MetricsSnapshot} class holds several named metric values collected
+ * together, for instance the CPU, memory and request metrics of one host fetched
+ * in a single observation.
+ * <p>
+ * The field names are shared by every snapshot of the same collector, so values
+ * can be read by position once the position of a name has been resolved.
+ * Missing values (failed or timed out fetches) are {@code null}.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public final class MetricsSnapshot {
+
+    /**
+     * The field names, in the order of {@link #values}.
+     */
+    private final List<String> names;
+
+    /**
+     * The field values, {@code null} when unavailable.
+     */
+    private final Object[] values;
+
+    /**
+     * The time at which the snapshot was collected, in milliseconds since the epoch.
+     */
+    private final long timestamp;
+
+    /**
+     * Constructs a {@code MetricsSnapshot}.
+     *
+     * @param names the field names.
+     * @param values the field values, in the order of the names.
+     * @param timestamp the time at which the snapshot was collected, in milliseconds since the epoch.
+     */
+    public MetricsSnapshot(List<String> names, Object[] values, long timestamp) {
+        if (names.size() != values.length) {
+            throw new IllegalArgumentException("Expected " + names.size() + " values but got " + values.length);
+        }
+        this.names = names;
+        this.values = values;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Returns the position of the specified field.
+     *
+     * @param name the field name.
+     * @return the position of the field, or {@code -1} if the snapshot has no such field.
+     */
+    public int indexOf(String name) {
+        return names.indexOf(name);
+    }
+
+    /**
+     * Returns the value of the field at the specified position.
+     *
+     * @param index the position of the field.
+     * @param <T> the type of the value.
+     * @return the value, or {@code null} if it is unavailable.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(int index) {
+        return (T) values[index];
+    }
+
+    /**
+     * Returns the value of the specified field.
+     *
+     * @param name the field name.
+     * @param <T> the type of the value.
+     * @return the value, or {@code null} if it is unavailable.
+     * @throws IllegalArgumentException if the snapshot has no such field.
+     */
+    public <T> T get(String name) {
+        int index = indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown metric field: " + name);
+        }
+        return get(index);
+    }
+
+    /**
+     * Returns the numeric value of the field at the specified position.
+     *
+     * @param index the position of the field.
+     * @return the value, or {@link Double#NaN} if it is unavailable or not numeric.
+     */
+    public double getDouble(int index) {
+        Object value = values[index];
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    /**
+     * Returns the field names of this snapshot.
+     *
+     * @return the field names.
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Returns the time at which the snapshot was collected.
+     *
+     * @return the collection time, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("MetricsSnapshot{");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(names.get(i)).append('=').append(values[i]);
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.models;
+
+/**
+ * The {@link ResourceUsageMetrics} class is a flat, typed snapshot of the resource
+ * usage of a service: CPU and memory usage held in primitive fields.
+ * <p>
+ * It replaces the {@code HashMap<String, Double>} with {@code "cpu"} and {@code "memory"}
+ * keys for resource rules, so evaluating them involves no hashing, no boxing and no
+ * per-tick map allocation. A missing reading is represented by {@link Double#NaN}.
+ * </p>
+ * <p>
+ * Instances are mutable so that a collector can refill the same snapshot on every
+ * observation; use {@link #copy()} to keep a sample beyond the current observation.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public final class ResourceUsageMetrics {
+
+    /**
+     * The CPU usage, or {@link Double#NaN} if unknown.
+     */
+    private double cpu;
+
+    /**
+     * The memory usage, or {@link Double#NaN} if unknown.
+     */
+    private double memory;
+
+    /**
+     * Constructs an empty {@code ResourceUsageMetrics} whose readings are unknown.
+     */
+    public ResourceUsageMetrics() {
+        this(Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Constructs a {@code ResourceUsageMetrics} with the specified readings.
+     *
+     * @param cpu the CPU usage.
+     * @param memory the memory usage.
+     */
+    public ResourceUsageMetrics(double cpu, double memory) {
+        this.cpu = cpu;
+        this.memory = memory;
+    }
+
+    /**
+     * Overwrites both readings of this snapshot.
+     *
+     * @param cpu the CPU usage.
+     * @param memory the memory usage.
+     * @return this snapshot.
+     */
+    public ResourceUsageMetrics set(double cpu, double memory) {
+        this.cpu = cpu;
+        this.memory = memory;
+        return this;
+    }
+
+    public double getCpu() {
+        return cpu;
+    }
+
+    public void setCpu(double cpu) {
+        this.cpu = cpu;
+    }
+
+    public double getMemory() {
+        return memory;
+    }
+
+    public void setMemory(double memory) {
+        this.memory = memory;
+    }
+
+    /**
+     * Returns whether both readings are known.
+     *
+     * @return {@code true} if neither the CPU nor the memory usage is {@link Double#NaN}.
+     */
+    public boolean isComplete() {
+        return !Double.isNaN(cpu) && !Double.isNaN(memory);
+    }
+
+    /**
+     * Returns an independent copy of this snapshot.
+     *
+     * @return a new {@code ResourceUsageMetrics} holding the same readings.
+     */
+    public ResourceUsageMetrics copy() {
+        return new ResourceUsageMetrics(cpu, memory);
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceUsageMetrics{cpu=" + cpu + ", memory=" + memory + '}';
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.operators;
+
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.interfaces.Snapshottable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The {@link ConsecutiveEvaluator} class holds a wrapped condition back until it has
+ * been met on a number of consecutive observations.
+ * <p>
+ * A single noisy sample should not trigger an adaptation. This evaluator counts the
+ * consecutive observations on which the delegate returns {@code true} and only returns
+ * {@code true} once that streak reaches the required length; any observation on which
+ * the delegate returns {@code false} resets the streak. The evaluator keeps returning
+ * {@code true} for as long as the streak lasts.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * ConditionalEvent&lt;ServiceMetrics&gt; attackEvent = new ConditionalEvent&lt;&gt;(collector,
+ *         new ConsecutiveEvaluator&lt;&gt;(new DDoSEvaluator(() -&gt; 300.0, 60000), 3));
+ * </pre>
+ *
+ * @param <T> the type of data that this evaluator will work with.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class ConsecutiveEvaluator<T> implements ConditionEvaluator<T>, Snapshottable {
+
+    /**
+     * The evaluator whose result must hold on consecutive observations.
+     */
+    private final ConditionEvaluator<T> delegate;
+
+    /**
+     * The number of consecutive observations required.
+     */
+    private final int required;
+
+    /**
+     * The length of the current streak.
+     */
+    private int streak = 0;
+
+    /**
+     * Constructs a {@code ConsecutiveEvaluator} with the specified wrapped evaluator
+     * and streak length.
+     *
+     * @param delegate the evaluator whose result must hold on consecutive observations.
+     * @param required the number of consecutive observations required, at least 1.
+     */
+    public ConsecutiveEvaluator(ConditionEvaluator<T> delegate, int required) {
+        if (required < 1) {
+            throw new IllegalArgumentException("The number of consecutive observations must be positive: " + required);
+        }
+        this.delegate = delegate;
+        this.required = required;
+    }
+
+    /**
+     * Evaluates the wrapped condition and updates the current streak.
+     *
+     * @param metric the metric value to be evaluated.
+     * @return {@code true} if the wrapped condition has held on at least the required
+     *         number of consecutive observations; {@code false} otherwise.
+     */
+    @Override
+    public synchronized boolean test(T metric) {
+        if (!delegate.test(metric)) {
+            streak = 0;
+            return false;
+        }
+        if (streak < required) {
+            streak++;
+        }
+        return streak >= required;
+    }
+
+    /**
+     * Returns the length of the current streak, capped at the required length.
+     *
+     * @return the number of consecutive observations on which the wrapped condition held.
+     */
+    public synchronized int getStreak() {
+        return streak;
+    }
+
+    /**
+     * Returns the number of consecutive observations required.
+     *
+     * @return the required streak length.
+     */
+    public int getRequired() {
+        return required;
+    }
+
+    /**
+     * Continues the streak of another evaluator, for instance when a rule is recompiled
+     * without change. The streak is capped at the required length of this evaluator.
+     *
+     * @param other the evaluator whose streak to copy.
+     */
+    public void copyStateFrom(ConsecutiveEvaluator<?> other) {
+        int otherStreak = other.getStreak();
+        synchronized (this) {
+            streak = Math.min(otherStreak, required);
+        }
+    }
+
+    /**
+     * Writes the current streak and the state of the wrapped evaluator.
+     *
+     * @param out the output receiving the state.
+     * @throws IOException if the state cannot be written.
+     */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(getStreak());
+        Snapshottable.writeNested(delegate, out);
+    }
+
+    /**
+     * Restores the current streak, capped at the required length.
+     *
+     * @param in the input holding the state.
+     * @throws IOException if the state cannot be read.
+     */
+    @Override
+    public void readState(DataInput in) throws IOException {
+        int savedStreak = in.readInt();
+        synchronized (this) {
+            streak = Math.max(0, Math.min(savedStreak, required));
+        }
+        Snapshottable.readNested(delegate, in);
+    }
+
+    /**
+     * Resets the current streak.
+     */
+    public synchronized void reset() {
+        streak = 0;
+    }
+}
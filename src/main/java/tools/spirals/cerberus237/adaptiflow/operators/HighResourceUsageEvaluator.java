@@ -0,0 +1,81 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.operators;
+
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.interfaces.ThresholdProvider;
+import tools.spirals.cerberus237.adaptiflow.models.ResourceUsageMetrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * The {@link HighResourceUsageEvaluator} class implements the {@link ConditionEvaluator}
+ * interface to evaluate whether the CPU or the memory usage is above its threshold.
+ * <p>
+ * It is the typed counterpart of {@link IncreaseResourceUsageEvaluator}: it reads the primitive
+ * fields of a {@link ResourceUsageMetrics} snapshot, so no hashing or unboxing
+ * happens per evaluation. Incomplete snapshots never satisfy the condition.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * HighResourceUsageEvaluator evaluator = new HighResourceUsageEvaluator(75.0, 80.0);
+ * boolean matches = evaluator.test(new ResourceUsageMetrics(70.0, 85.0));
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class HighResourceUsageEvaluator implements ConditionEvaluator<ResourceUsageMetrics> {
+    private final DoubleSupplier cpuThreshold;
+    private final DoubleSupplier memoryThreshold;
+
+    /**
+     * Constructs a {@code HighResourceUsageEvaluator} with fixed thresholds.
+     *
+     * @param cpuThreshold the CPU usage threshold.
+     * @param memoryThreshold the memory usage threshold.
+     */
+    public HighResourceUsageEvaluator(double cpuThreshold, double memoryThreshold) {
+        this.cpuThreshold = () -> cpuThreshold;
+        this.memoryThreshold = () -> memoryThreshold;
+    }
+
+    /**
+     * Constructs a {@code HighResourceUsageEvaluator} whose thresholds are read
+     * from {@link ThresholdProvider}s on every evaluation.
+     *
+     * @param cpuThresholdProvider the provider of the CPU usage threshold.
+     * @param memoryThresholdProvider the provider of the memory usage threshold.
+     */
+    public HighResourceUsageEvaluator(ThresholdProvider<Double> cpuThresholdProvider,
+                                      ThresholdProvider<Double> memoryThresholdProvider) {
+        this.cpuThreshold = cpuThresholdProvider::getThreshold;
+        this.memoryThreshold = memoryThresholdProvider::getThreshold;
+    }
+
+    /**
+     * Evaluates whether the CPU or the memory usage exceeds its threshold.
+     *
+     * @param metric the resource usage snapshot to be evaluated.
+     * @return {@code true} if the snapshot is complete and either reading is above
+     *         its threshold; {@code false} otherwise.
+     */
+    @Override
+    public boolean test(ResourceUsageMetrics metric) {
+        return metric != null
+                && metric.isComplete()
+                && (metric.getCpu() > cpuThreshold.getAsDouble()
+                || metric.getMemory() > memoryThreshold.getAsDouble());
+    }
+}
@@ -18,6 +18,17 @@ import tools.spirals.cerberus237.adaptiflow.interfaces.ThresholdProvider;
 
 import java.util.HashMap;
 
+/**
+ * The {@link IncreaseResourceUsageEvaluator} class evaluates whether the CPU or the memory
+ * usage found under the {@code "cpu"} and {@code "memory"} keys of a map is above
+ * its threshold.
+ * <p>
+ * Prefer {@link HighResourceUsageEvaluator} with a {@code ResourceUsageMetrics} snapshot,
+ * which avoids hashing and unboxing on every evaluation.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
 public class IncreaseResourceUsageEvaluator implements ConditionEvaluator<HashMap<String, Double>> {
     private final ThresholdProvider<Double> cpuThresholdProvider;
     private final ThresholdProvider<Double> memoryThresholdProvider;
@@ -29,9 +40,11 @@ public class IncreaseResourceUsageEvaluator implements ConditionEvaluator<HashMa
 
     @Override
     public boolean test(HashMap<String, Double> metric) {
-        return metric.get("cpu") != null
-                && metric.get("memory") != null
-                && (metric.get("cpu") > cpuThresholdProvider.getThreshold()
-                || metric.get("memory") > memoryThresholdProvider.getThreshold());
+        Double cpu = metric.get("cpu");
+        Double memory = metric.get("memory");
+        return cpu != null
+                && memory != null
+                && (cpu > cpuThresholdProvider.getThreshold()
+                || memory > memoryThresholdProvider.getThreshold());
     }
 }
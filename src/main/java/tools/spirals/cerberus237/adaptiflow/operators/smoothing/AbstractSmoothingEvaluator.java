@@ -0,0 +1,93 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.operators.smoothing;
+
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.interfaces.Snapshottable;
+
+/**
+ * The {@link AbstractSmoothingEvaluator} class is the base class for evaluators
+ * that smooth a numeric metric before handing it to another {@link ConditionEvaluator}.
+ * <p>
+ * Raw samples (for example CPU usage read through JMX) are noisy, so comparing them
+ * directly against a threshold makes events fire on one-tick spikes. A smoothing
+ * evaluator folds every sample into a running statistic and tests that statistic
+ * with the wrapped evaluator instead.
+ * </p>
+ * <p>
+ * Implementations keep a constant amount of primitive state and update it under the
+ * evaluator's monitor, so one instance can safely be shared by several threads.
+ * The state is {@link Snapshottable}, with the state of the wrapped evaluator.
+ * </p>
+ *
+ * @param <T> the numeric type of the metric being smoothed.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public abstract class AbstractSmoothingEvaluator<T extends Number> implements ConditionEvaluator<T>, Snapshottable {
+
+    /**
+     * The evaluator applied to the smoothed value.
+     */
+    protected final ConditionEvaluator<Double> delegate;
+
+    /**
+     * Constructs an {@code AbstractSmoothingEvaluator} wrapping the specified evaluator.
+     *
+     * @param delegate the evaluator applied to the smoothed value.
+     */
+    protected AbstractSmoothingEvaluator(ConditionEvaluator<Double> delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("The delegate evaluator must not be null");
+        }
+        this.delegate = delegate;
+    }
+
+    /**
+     * Folds the specified metric into the running statistic and evaluates the
+     * smoothed value with the wrapped evaluator.
+     * <p>
+     * A {@code null} metric is ignored and evaluates to {@code false}.
+     * </p>
+     *
+     * @param metric the metric value to be evaluated.
+     * @return {@code true} if the smoothed value meets the wrapped condition; {@code false} otherwise.
+     */
+    @Override
+    public boolean test(T metric) {
+        if (metric == null) {
+            return false;
+        }
+        return delegate.test(smooth(metric.doubleValue()));
+    }
+
+    /**
+     * Folds a new sample into the running statistic.
+     *
+     * @param sample the new raw sample.
+     * @return the smoothed value after taking the sample into account.
+     */
+    protected abstract double smooth(double sample);
+
+    /**
+     * Returns the current smoothed value.
+     *
+     * @return the current smoothed value, or {@link Double#NaN} if no sample has been seen yet.
+     */
+    public abstract double getSmoothedValue();
+
+    /**
+     * Forgets every sample seen so far.
+     */
+    public abstract void reset();
+}
@@ -0,0 +1,135 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.operators.smoothing;
+
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.interfaces.Snapshottable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The {@link ExponentialMovingAverageEvaluator} class evaluates the exponentially
+ * weighted moving average (EWMA) of a numeric metric with a wrapped evaluator.
+ * <p>
+ * Every sample {@code x} updates the average as {@code avg = avg + alpha * (x - avg)}.
+ * A small {@code alpha} smooths more aggressively, while {@code alpha = 1} disables
+ * smoothing. The first sample seeds the average.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * ConditionalEvent&lt;Double&gt; highCpuEvent = new ConditionalEvent&lt;&gt;(new LocalCpuUsageCollector(),
+ *         new ExponentialMovingAverageEvaluator&lt;&gt;(0.3, new GreaterThanOrEqualEvaluator&lt;&gt;(80.0)));
+ * </pre>
+ *
+ * @param <T> the numeric type of the metric being smoothed.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class ExponentialMovingAverageEvaluator<T extends Number> extends AbstractSmoothingEvaluator<T> {
+
+    /**
+     * The weight given to the newest sample, in {@code (0, 1]}.
+     */
+    private final double alpha;
+
+    /**
+     * The current moving average.
+     */
+    private double average = Double.NaN;
+
+    /**
+     * Whether the average has been seeded with a first sample.
+     */
+    private boolean initialized = false;
+
+    /**
+     * Constructs an {@code ExponentialMovingAverageEvaluator} with the specified
+     * smoothing factor and wrapped evaluator.
+     *
+     * @param alpha the weight given to the newest sample, in {@code (0, 1]}.
+     * @param delegate the evaluator applied to the moving average.
+     */
+    public ExponentialMovingAverageEvaluator(double alpha, ConditionEvaluator<Double> delegate) {
+        super(delegate);
+        if (!(alpha > 0.0 && alpha <= 1.0)) {
+            throw new IllegalArgumentException("The smoothing factor must be in (0, 1]: " + alpha);
+        }
+        this.alpha = alpha;
+    }
+
+    @Override
+    protected synchronized double smooth(double sample) {
+        if (!initialized) {
+            average = sample;
+            initialized = true;
+        } else {
+            average += alpha * (sample - average);
+        }
+        return average;
+    }
+
+    @Override
+    public synchronized double getSmoothedValue() {
+        return average;
+    }
+
+    @Override
+    public synchronized void reset() {
+        average = Double.NaN;
+        initialized = false;
+    }
+
+    /**
+     * Writes the current average and the state of the wrapped evaluator.
+     *
+     * @param out the output receiving the state.
+     * @throws IOException if the state cannot be written.
+     */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        synchronized (this) {
+            out.writeBoolean(initialized);
+            out.writeDouble(average);
+        }
+        Snapshottable.writeNested(delegate, out);
+    }
+
+    /**
+     * Restores the current average.
+     *
+     * @param in the input holding the state.
+     * @throws IOException if the state cannot be read.
+     */
+    @Override
+    public void readState(DataInput in) throws IOException {
+        boolean savedInitialized = in.readBoolean();
+        double savedAverage = in.readDouble();
+        synchronized (this) {
+            initialized = savedInitialized;
+            average = savedAverage;
+        }
+        Snapshottable.readNested(delegate, in);
+    }
+
+    /**
+     * Returns the smoothing factor of this evaluator.
+     *
+     * @return the weight given to the newest sample.
+     */
+    public double getAlpha() {
+        return alpha;
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.operators.smoothing;
+
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.interfaces.Snapshottable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The {@link MovingAverageEvaluator} class evaluates the simple moving average of
+ * the last {@code window} samples of a numeric metric with a wrapped evaluator.
+ * <p>
+ * Samples are kept in a fixed-size ring of primitives and the running sum is updated
+ * in constant time per sample. Until the window is full, the average is taken over
+ * the samples seen so far.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * ConditionalEvent&lt;Double&gt; highCpuEvent = new ConditionalEvent&lt;&gt;(new LocalCpuUsageCollector(),
+ *         new MovingAverageEvaluator&lt;&gt;(5, new GreaterThanOrEqualEvaluator&lt;&gt;(80.0)));
+ * </pre>
+ *
+ * @param <T> the numeric type of the metric being smoothed.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class MovingAverageEvaluator<T extends Number> extends AbstractSmoothingEvaluator<T> {
+
+    /**
+     * The ring of the last {@code window} samples.
+     */
+    private final double[] samples;
+
+    /**
+     * The index of the slot that receives the next sample.
+     */
+    private int next = 0;
+
+    /**
+     * The number of samples currently held in the ring.
+     */
+    private int count = 0;
+
+    /**
+     * The sum of the samples currently held in the ring.
+     */
+    private double sum = 0.0;
+
+    /**
+     * Constructs a {@code MovingAverageEvaluator} with the specified window size
+     * and wrapped evaluator.
+     *
+     * @param window the number of samples to average over.
+     * @param delegate the evaluator applied to the moving average.
+     */
+    public MovingAverageEvaluator(int window, ConditionEvaluator<Double> delegate) {
+        super(delegate);
+        if (window <= 0) {
+            throw new IllegalArgumentException("The window size must be positive: " + window);
+        }
+        this.samples = new double[window];
+    }
+
+    @Override
+    protected synchronized double smooth(double sample) {
+        if (count == samples.length) {
+            sum -= samples[next];
+        } else {
+            count++;
+        }
+        samples[next] = sample;
+        sum += sample;
+        next++;
+        if (next == samples.length) {
+            next = 0;
+            // Recompute the sum once per full turn so floating point drift cannot accumulate.
+            double exact = 0.0;
+            for (int i = 0; i < count; i++) {
+                exact += samples[i];
+            }
+            sum = exact;
+        }
+        return sum / count;
+    }
+
+    @Override
+    public synchronized double getSmoothedValue() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    @Override
+    public synchronized void reset() {
+        next = 0;
+        count = 0;
+        sum = 0.0;
+    }
+
+    /**
+     * Writes the samples of the window, oldest first, and the state of the wrapped evaluator.
+     *
+     * @param out the output receiving the state.
+     * @throws IOException if the state cannot be written.
+     */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        synchronized (this) {
+            out.writeInt(count);
+            int oldest = count == samples.length ? next : 0;
+            for (int i = 0; i < count; i++) {
+                out.writeDouble(samples[(oldest + i) % samples.length]);
+            }
+        }
+        Snapshottable.writeNested(delegate, out);
+    }
+
+    /**
+     * Restores the samples of the window; when the window is now smaller, the newest
+     * samples are kept.
+     *
+     * @param in the input holding the state.
+     * @throws IOException if the state cannot be read.
+     */
+    @Override
+    public void readState(DataInput in) throws IOException {
+        double[] saved = new double[in.readInt()];
+        for (int i = 0; i < saved.length; i++) {
+            saved[i] = in.readDouble();
+        }
+        synchronized (this) {
+            reset();
+            for (int i = Math.max(0, saved.length - samples.length); i < saved.length; i++) {
+                smooth(saved[i]);
+            }
+        }
+        Snapshottable.readNested(delegate, in);
+    }
+
+    /**
+     * Returns the window size of this evaluator.
+     *
+     * @return the number of samples averaged over.
+     */
+    public int getWindow() {
+        return samples.length;
+    }
+}
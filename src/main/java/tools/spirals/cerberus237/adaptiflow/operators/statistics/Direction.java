@@ -0,0 +1,38 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.operators.statistics;
+
+/**
+ * The {@link Direction} enum tells statistical evaluators which side of a
+ * bound is of interest.
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public enum Direction {
+
+    /**
+     * Only values above the bound are of interest (e.g. traffic surges).
+     */
+    UPPER,
+
+    /**
+     * Only values below the bound are of interest (e.g. traffic drops).
+     */
+    LOWER,
+
+    /**
+     * Values on either side of the bound are of interest.
+     */
+    BOTH
+}
@@ -0,0 +1,286 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.operators.statistics;
+
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.interfaces.Snapshottable;
+import tools.spirals.cerberus237.adaptiflow.interfaces.ThresholdProvider;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.DoubleSupplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The {@link TrendEvaluator} class predicts threshold breaches by fitting a
+ * least-squares line over a sliding window of the last samples.
+ * <p>
+ * The line is extrapolated {@code horizon} observations ahead. In the
+ * {@link Direction#UPPER} direction, the evaluator fires as soon as the fitted line
+ * reaches the bound anywhere between the newest sample and the horizon; in the
+ * {@link Direction#LOWER} direction, as soon as it falls to the bound; and in the
+ * {@link Direction#BOTH} direction, when the line crosses the bound within the horizon.
+ * Adaptation actions therefore start ahead of saturation instead of after it.
+ * </p>
+ * <p>
+ * The regression sums are maintained incrementally, with the newest sample at
+ * {@code x = 0}, so each sample costs constant time whatever the window size.
+ * The evaluator does not fire until the window is full.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * // Fire when CPU usage is projected to reach 80% within the next 6 observations.
+ * ConditionalEvent&lt;Double&gt; cpuTrendEvent = new ConditionalEvent&lt;&gt;(new LocalCpuUsageCollector(),
+ *         new TrendEvaluator&lt;&gt;(Double::doubleValue, () -&gt; 80.0, 10, 6));
+ * </pre>
+ *
+ * @param <T> the type of data that this evaluator will work with.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class TrendEvaluator<T> implements ConditionEvaluator<T>, Snapshottable {
+    private final ToDoubleFunction<T> extractor;
+    private final DoubleSupplier bound;
+    private final Direction direction;
+    private final int horizon;
+
+    /**
+     * The ring of the last {@code window} samples, the oldest one at {@code next} once full.
+     */
+    private final double[] samples;
+    private int next = 0;
+    private int count = 0;
+
+    private double sumX = 0.0;
+    private double sumXX = 0.0;
+    private double sumY = 0.0;
+    private double sumXY = 0.0;
+
+    /**
+     * Constructs a {@code TrendEvaluator} predicting upward breaches of the bound
+     * supplied by a {@link ThresholdProvider}.
+     *
+     * @param extractor the function reading the observed value from the metric.
+     * @param thresholdProvider the provider of the bound.
+     * @param window the number of samples the line is fitted over (at least 2).
+     * @param horizon the number of observations ahead the line is extrapolated.
+     */
+    public TrendEvaluator(ToDoubleFunction<T> extractor, ThresholdProvider<Double> thresholdProvider,
+                          int window, int horizon) {
+        this(extractor, thresholdProvider, Direction.UPPER, window, horizon);
+    }
+
+    /**
+     * Constructs a {@code TrendEvaluator} with a bound supplied by a {@link ThresholdProvider}.
+     *
+     * @param extractor the function reading the observed value from the metric.
+     * @param thresholdProvider the provider of the bound.
+     * @param direction the breach direction to predict.
+     * @param window the number of samples the line is fitted over (at least 2).
+     * @param horizon the number of observations ahead the line is extrapolated.
+     */
+    public TrendEvaluator(ToDoubleFunction<T> extractor, ThresholdProvider<Double> thresholdProvider,
+                          Direction direction, int window, int horizon) {
+        this(extractor, (DoubleSupplier) thresholdProvider::getThreshold, direction, window, horizon);
+    }
+
+    /**
+     * Constructs a {@code TrendEvaluator} with a fixed bound.
+     *
+     * @param extractor the function reading the observed value from the metric.
+     * @param bound the bound whose breach is predicted.
+     * @param direction the breach direction to predict.
+     * @param window the number of samples the line is fitted over (at least 2).
+     * @param horizon the number of observations ahead the line is extrapolated.
+     */
+    public TrendEvaluator(ToDoubleFunction<T> extractor, double bound, Direction direction, int window, int horizon) {
+        this(extractor, (DoubleSupplier) () -> bound, direction, window, horizon);
+    }
+
+    private TrendEvaluator(ToDoubleFunction<T> extractor, DoubleSupplier bound, Direction direction,
+                           int window, int horizon) {
+        if (extractor == null || direction == null) {
+            throw new IllegalArgumentException("The extractor and the direction must not be null");
+        }
+        if (window < 2) {
+            throw new IllegalArgumentException("The window must hold at least two samples: " + window);
+        }
+        if (horizon < 0) {
+            throw new IllegalArgumentException("The horizon must not be negative: " + horizon);
+        }
+        this.extractor = extractor;
+        this.bound = bound;
+        this.direction = direction;
+        this.horizon = horizon;
+        this.samples = new double[window];
+    }
+
+    /**
+     * Folds the specified metric into the window and evaluates whether the fitted
+     * line breaches the bound within the horizon.
+     * <p>
+     * {@code null} metrics and non-finite values are ignored and evaluate to {@code false}.
+     * </p>
+     *
+     * @param metric the metric value to be evaluated.
+     * @return {@code true} if a breach is predicted; {@code false} otherwise.
+     */
+    @Override
+    public synchronized boolean test(T metric) {
+        if (metric == null) {
+            return false;
+        }
+        double sample = extractor.applyAsDouble(metric);
+        if (!Double.isFinite(sample)) {
+            return false;
+        }
+        add(sample);
+        if (count < samples.length) {
+            return false;
+        }
+        double slope = slope();
+        double current = intercept(slope);
+        double projected = current + slope * horizon;
+        double limit = bound.getAsDouble();
+        switch (direction) {
+            case UPPER:
+                return Math.max(current, projected) >= limit;
+            case LOWER:
+                return Math.min(current, projected) <= limit;
+            default:
+                return (current - limit) * (projected - limit) <= 0.0;
+        }
+    }
+
+    private void add(double sample) {
+        if (count == samples.length) {
+            double oldestX = -(count - 1);
+            double oldestY = samples[next];
+            sumX -= oldestX;
+            sumXX -= oldestX * oldestX;
+            sumY -= oldestY;
+            sumXY -= oldestX * oldestY;
+            count--;
+        }
+        // Every retained sample moves one step into the past: x becomes x - 1.
+        sumXY -= sumY;
+        sumXX += count - 2.0 * sumX;
+        sumX -= count;
+        // The new sample sits at x = 0 and does not contribute to sumX, sumXX or sumXY.
+        sumY += sample;
+        count++;
+        samples[next] = sample;
+        next++;
+        if (next == samples.length) {
+            next = 0;
+            recomputeSums();
+        }
+    }
+
+    /**
+     * Recomputes the sums depending on sample values once per full turn of the ring,
+     * so floating point drift cannot accumulate.
+     */
+    private void recomputeSums() {
+        double y = 0.0;
+        double xy = 0.0;
+        for (int k = 0; k < count; k++) {
+            double value = samples[(next - 1 - k + samples.length) % samples.length];
+            y += value;
+            xy -= k * value;
+        }
+        sumY = y;
+        sumXY = xy;
+    }
+
+    private double slope() {
+        double denominator = count * sumXX - sumX * sumX;
+        return denominator == 0.0 ? 0.0 : (count * sumXY - sumX * sumY) / denominator;
+    }
+
+    private double intercept(double slope) {
+        return (sumY - slope * sumX) / count;
+    }
+
+    /**
+     * Returns the slope of the fitted line, in metric units per observation.
+     *
+     * @return the current slope, or {@code 0} with fewer than two samples.
+     */
+    public synchronized double getSlope() {
+        return count < 2 ? 0.0 : slope();
+    }
+
+    /**
+     * Returns the value of the fitted line {@code horizon} observations ahead.
+     *
+     * @return the projected value, or {@link Double#NaN} if no sample has been seen yet.
+     */
+    public synchronized double getProjectedValue() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double slope = count < 2 ? 0.0 : slope();
+        return intercept(slope) + slope * horizon;
+    }
+
+    /**
+     * Writes the samples of the window, oldest first.
+     *
+     * @param out the output receiving the state.
+     * @throws IOException if the state cannot be written.
+     */
+    @Override
+    public synchronized void writeState(DataOutput out) throws IOException {
+        out.writeInt(count);
+        int oldest = count == samples.length ? next : 0;
+        for (int i = 0; i < count; i++) {
+            out.writeDouble(samples[(oldest + i) % samples.length]);
+        }
+    }
+
+    /**
+     * Restores the samples of the window; when the window is now smaller, the newest
+     * samples are kept.
+     *
+     * @param in the input holding the state.
+     * @throws IOException if the state cannot be read.
+     */
+    @Override
+    public void readState(DataInput in) throws IOException {
+        double[] saved = new double[in.readInt()];
+        for (int i = 0; i < saved.length; i++) {
+            saved[i] = in.readDouble();
+        }
+        synchronized (this) {
+            reset();
+            for (int i = Math.max(0, saved.length - samples.length); i < saved.length; i++) {
+                add(saved[i]);
+            }
+        }
+    }
+
+    /**
+     * Forgets every sample seen so far.
+     */
+    public synchronized void reset() {
+        next = 0;
+        count = 0;
+        sumX = 0.0;
+        sumXX = 0.0;
+        sumY = 0.0;
+        sumXY = 0.0;
+    }
+}
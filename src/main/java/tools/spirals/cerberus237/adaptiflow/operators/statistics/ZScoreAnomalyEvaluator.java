@@ -0,0 +1,265 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.operators.statistics;
+
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.interfaces.Snapshottable;
+import tools.spirals.cerberus237.adaptiflow.interfaces.ThresholdProvider;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.DoubleSupplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The {@link ZScoreAnomalyEvaluator} class detects anomalous samples by comparing
+ * them with the running mean and standard deviation of the samples seen so far.
+ * <p>
+ * Statistics are maintained online with Welford's algorithm, so memory is constant
+ * and no allocation happens per sample. With a non-zero {@code decay}, an exponentially
+ * weighted mean and variance are kept instead, so the baseline follows slow drifts
+ * of the observed service. A sample fires when its z-score
+ * {@code (x - mean) / stddev} passes the configured bound in the configured
+ * {@link Direction}; it is then folded into the statistics.
+ * </p>
+ * <p>
+ * Unlike fixed thresholds such as {@code () -> 300.0}, the same evaluator fits
+ * services whose baseline traffic differs by orders of magnitude.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * ConditionalEvent&lt;ServiceMetrics&gt; trafficSurgeEvent = new ConditionalEvent&lt;&gt;(new LocalRequestMetricsCollector(),
+ *         new ZScoreAnomalyEvaluator&lt;&gt;(metrics -&gt; metrics.getRequestRatePerSecond(60000), 3.0));
+ * </pre>
+ *
+ * @param <T> the type of data that this evaluator will work with.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class ZScoreAnomalyEvaluator<T> implements ConditionEvaluator<T>, Snapshottable {
+
+    /**
+     * The number of samples observed before the evaluator may fire, by default.
+     */
+    public static final int DEFAULT_WARM_UP_SAMPLES = 10;
+
+    private final ToDoubleFunction<T> extractor;
+    private final DoubleSupplier zThreshold;
+    private final Direction direction;
+    private final int warmUpSamples;
+
+    /**
+     * The weight of the newest sample for the exponentially weighted statistics,
+     * or {@code 0} for plain Welford statistics.
+     */
+    private final double decay;
+
+    private long count = 0;
+    private double mean = 0.0;
+
+    /**
+     * The sum of squared differences from the mean with plain Welford statistics,
+     * or the variance itself with exponentially weighted statistics.
+     */
+    private double m2 = 0.0;
+
+    /**
+     * Constructs a {@code ZScoreAnomalyEvaluator} detecting upward anomalies with
+     * plain Welford statistics and the default warm-up.
+     *
+     * @param extractor the function reading the observed value from the metric.
+     * @param zThreshold the z-score bound above which a sample is anomalous.
+     */
+    public ZScoreAnomalyEvaluator(ToDoubleFunction<T> extractor, double zThreshold) {
+        this(extractor, zThreshold, Direction.UPPER, DEFAULT_WARM_UP_SAMPLES, 0.0);
+    }
+
+    /**
+     * Constructs a {@code ZScoreAnomalyEvaluator} with a fixed z-score bound.
+     *
+     * @param extractor the function reading the observed value from the metric.
+     * @param zThreshold the z-score bound past which a sample is anomalous.
+     * @param direction the side(s) of the mean on which anomalies are reported.
+     * @param warmUpSamples the number of samples observed before the evaluator may fire.
+     * @param decay the weight of the newest sample in {@code [0, 1)}; {@code 0} keeps
+     *              plain Welford statistics over every sample.
+     */
+    public ZScoreAnomalyEvaluator(ToDoubleFunction<T> extractor, double zThreshold, Direction direction,
+                                  int warmUpSamples, double decay) {
+        this(extractor, (DoubleSupplier) () -> zThreshold, direction, warmUpSamples, decay);
+    }
+
+    /**
+     * Constructs a {@code ZScoreAnomalyEvaluator} whose z-score bound is read from a
+     * {@link ThresholdProvider} on every evaluation.
+     *
+     * @param extractor the function reading the observed value from the metric.
+     * @param zThresholdProvider the provider of the z-score bound.
+     * @param direction the side(s) of the mean on which anomalies are reported.
+     * @param warmUpSamples the number of samples observed before the evaluator may fire.
+     * @param decay the weight of the newest sample in {@code [0, 1)}; {@code 0} keeps
+     *              plain Welford statistics over every sample.
+     */
+    public ZScoreAnomalyEvaluator(ToDoubleFunction<T> extractor, ThresholdProvider<Double> zThresholdProvider,
+                                  Direction direction, int warmUpSamples, double decay) {
+        this(extractor, (DoubleSupplier) zThresholdProvider::getThreshold, direction, warmUpSamples, decay);
+    }
+
+    private ZScoreAnomalyEvaluator(ToDoubleFunction<T> extractor, DoubleSupplier zThreshold, Direction direction,
+                                   int warmUpSamples, double decay) {
+        if (extractor == null || direction == null) {
+            throw new IllegalArgumentException("The extractor and the direction must not be null");
+        }
+        if (warmUpSamples < 2) {
+            throw new IllegalArgumentException("At least two warm-up samples are required: " + warmUpSamples);
+        }
+        if (!(decay >= 0.0 && decay < 1.0)) {
+            throw new IllegalArgumentException("The decay must be in [0, 1): " + decay);
+        }
+        this.extractor = extractor;
+        this.zThreshold = zThreshold;
+        this.direction = direction;
+        this.warmUpSamples = warmUpSamples;
+        this.decay = decay;
+    }
+
+    /**
+     * Evaluates whether the specified metric is anomalous with respect to the
+     * samples seen so far, then folds it into the running statistics.
+     * <p>
+     * The evaluator never fires during warm-up, and ignores {@code null} metrics
+     * and non-finite values.
+     * </p>
+     *
+     * @param metric the metric value to be evaluated.
+     * @return {@code true} if the sample's z-score passes the bound; {@code false} otherwise.
+     */
+    @Override
+    public synchronized boolean test(T metric) {
+        if (metric == null) {
+            return false;
+        }
+        double sample = extractor.applyAsDouble(metric);
+        if (!Double.isFinite(sample)) {
+            return false;
+        }
+        boolean anomalous = count >= warmUpSamples && isAnomalous(sample);
+        update(sample);
+        return anomalous;
+    }
+
+    private boolean isAnomalous(double sample) {
+        // A flat baseline has no deviation: any different sample gives an infinite z-score.
+        double z = (sample - mean) / Math.sqrt(variance());
+        double bound = zThreshold.getAsDouble();
+        switch (direction) {
+            case UPPER:
+                return z >= bound;
+            case LOWER:
+                return z <= -bound;
+            default:
+                return Math.abs(z) >= bound;
+        }
+    }
+
+    private void update(double sample) {
+        count++;
+        double delta = sample - mean;
+        if (decay > 0.0 && count > 1) {
+            double increment = decay * delta;
+            mean += increment;
+            m2 = (1.0 - decay) * (m2 + delta * increment);
+        } else if (decay > 0.0) {
+            mean = sample;
+        } else {
+            mean += delta / count;
+            m2 += delta * (sample - mean);
+        }
+    }
+
+    private double variance() {
+        if (decay > 0.0) {
+            return m2;
+        }
+        return count > 1 ? m2 / (count - 1) : 0.0;
+    }
+
+    /**
+     * Returns the number of samples folded into the statistics.
+     *
+     * @return the number of samples seen.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the running mean of the samples.
+     *
+     * @return the running mean.
+     */
+    public synchronized double getMean() {
+        return mean;
+    }
+
+    /**
+     * Returns the running standard deviation of the samples.
+     *
+     * @return the running standard deviation.
+     */
+    public synchronized double getStandardDeviation() {
+        return Math.sqrt(variance());
+    }
+
+    /**
+     * Writes the running statistics.
+     *
+     * @param out the output receiving the state.
+     * @throws IOException if the state cannot be written.
+     */
+    @Override
+    public synchronized void writeState(DataOutput out) throws IOException {
+        out.writeLong(count);
+        out.writeDouble(mean);
+        out.writeDouble(m2);
+    }
+
+    /**
+     * Restores the running statistics, so the evaluator does not warm up again.
+     *
+     * @param in the input holding the state.
+     * @throws IOException if the state cannot be read.
+     */
+    @Override
+    public void readState(DataInput in) throws IOException {
+        long savedCount = in.readLong();
+        double savedMean = in.readDouble();
+        double savedM2 = in.readDouble();
+        synchronized (this) {
+            count = savedCount;
+            mean = savedMean;
+            m2 = savedM2;
+        }
+    }
+
+    /**
+     * Forgets every sample seen so far; the evaluator warms up again.
+     */
+    public synchronized void reset() {
+        count = 0;
+        mean = 0.0;
+        m2 = 0.0;
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.patterns;
+
+import java.util.Arrays;
+
+/**
+ * The {@link Automaton} class is the compiled form of a {@link Pattern}: a non-deterministic
+ * automaton over integer event symbols, whose partial matches are kept in primitive arrays.
+ * <p>
+ * State {@code k} means that {@code k} steps matched. A partial match is the time of its
+ * first step, stored in the starts of its state. When a pattern is reported on its last
+ * step, two partial matches in the same state have the same future, except that the later
+ * one expires later: only the latest is kept, so the state of the pattern is one
+ * {@code long} per step and an occurrence costs a pass over it.
+ * </p>
+ * <p>
+ * A pattern ending with forbidden events is reported when its window ends, so the later
+ * start does not dominate: the earlier one may reach the end of its window before a
+ * forbidden event that still falls in the later one's. Such an automaton keeps the starts
+ * of each state in increasing order, up to {@link #MAX_PENDING_STARTS}; beyond that, the
+ * latest starts are dropped, as the earliest are reported first.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+final class Automaton {
+
+    /**
+     * The number of starts kept per state by a pattern ending with forbidden events.
+     */
+    static final int MAX_PENDING_STARTS = 32;
+
+    /**
+     * The position of the pattern in its matcher.
+     */
+    final int index;
+    final String name;
+
+    /**
+     * The symbol of each step.
+     */
+    private final int[] steps;
+
+    /**
+     * The symbols forbidden in each state, index {@code k} once {@code k} steps matched.
+     */
+    private final int[][] absent;
+    private final long within;
+    private final boolean trailing;
+
+    /**
+     * The start times of the partial matches in each state, in increasing order.
+     */
+    private final long[][] starts;
+    private final int[] counts;
+    private int active = 0;
+
+    Automaton(int index, String name, int[] steps, int[][] absent, long within) {
+        this.index = index;
+        this.name = name;
+        this.steps = steps;
+        this.absent = absent;
+        this.within = within;
+        this.trailing = absent[steps.length].length > 0;
+        this.starts = new long[steps.length + 1][trailing ? MAX_PENDING_STARTS : 1];
+        this.counts = new int[steps.length + 1];
+    }
+
+    /**
+     * Feeds an occurrence of a symbol referenced by the pattern.
+     *
+     * @return the number of matches reported.
+     */
+    int onSymbol(int symbol, long now, MatchListener listener) {
+        int matches = expire(now, listener);
+        int n = steps.length;
+        if (active > 0) {
+            for (int k = 1; k <= n; k++) {
+                if (counts[k] > 0 && contains(absent[k], symbol)) {
+                    clear(k);
+                }
+            }
+            // From the last state down, so an occurrence advances a partial match by one step only
+            for (int k = n - 1; k >= 1; k--) {
+                if (counts[k] > 0 && steps[k] == symbol) {
+                    for (int i = 0; i < counts[k]; i++) {
+                        enter(k + 1, starts[k][i]);
+                    }
+                    clear(k);
+                }
+            }
+        }
+        if (steps[0] == symbol) {
+            enter(1, now);
+        }
+        if (!trailing && counts[n] > 0) {
+            listener.onMatch(name, starts[n][0], now);
+            clear(n);
+            matches++;
+        }
+        return matches;
+    }
+
+    /**
+     * Drops the partial matches whose window ended before {@code now}, reporting those
+     * that only waited for the window to end.
+     *
+     * @return the number of matches reported.
+     */
+    int expire(long now, MatchListener listener) {
+        if (active == 0 || within == Long.MAX_VALUE) {
+            return 0;
+        }
+        int matches = 0;
+        for (int k = 1; k < starts.length; k++) {
+            long[] queue = starts[k];
+            int expired = 0;
+            while (expired < counts[k] && now - queue[expired] > within) {
+                if (k == steps.length) {
+                    listener.onMatch(name, queue[expired], queue[expired] + within);
+                    matches++;
+                }
+                expired++;
+            }
+            if (expired > 0) {
+                System.arraycopy(queue, expired, queue, 0, counts[k] - expired);
+                counts[k] -= expired;
+                active -= expired;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the time at which the earliest pending match of a pattern ending with
+     * forbidden events is reported. Other partial matches expire silently, so they are
+     * dropped lazily by the next occurrence.
+     */
+    long getReportTime() {
+        int n = steps.length;
+        return trailing && counts[n] > 0 && within != Long.MAX_VALUE ? starts[n][0] + within : Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the number of partial matches whose window has not ended at {@code now},
+     * without dropping or reporting the others.
+     */
+    int getLiveCount(long now) {
+        if (active == 0 || within == Long.MAX_VALUE) {
+            return active;
+        }
+        int live = 0;
+        for (int k = 1; k < starts.length; k++) {
+            for (int i = 0; i < counts[k]; i++) {
+                if (now - starts[k][i] <= within) {
+                    live++;
+                }
+            }
+        }
+        return live;
+    }
+
+    private void enter(int state, long start) {
+        long[] queue = starts[state];
+        int count = counts[state];
+        if (queue.length == 1) {
+            if (count == 0) {
+                queue[0] = start;
+                counts[state] = 1;
+                active++;
+            } else if (start > queue[0]) {
+                queue[0] = start;
+            }
+            return;
+        }
+        int position = count;
+        while (position > 0 && queue[position - 1] > start) {
+            position--;
+        }
+        if (count == queue.length) {
+            if (position == count) {
+                return;
+            }
+            // Drops the latest start to make room for an earlier one
+            count--;
+            active--;
+        }
+        System.arraycopy(queue, position, queue, position + 1, count - position);
+        queue[position] = start;
+        counts[state] = count + 1;
+        active++;
+    }
+
+    private void clear(int state) {
+        active -= counts[state];
+        counts[state] = 0;
+    }
+
+    private static boolean contains(int[] symbols, int symbol) {
+        for (int candidate : symbols) {
+            if (candidate == symbol) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.patterns;
+
+/**
+ * The {@link MatchListener} interface receives the matches found by a {@link PatternMatcher}.
+ * <p>
+ * Listeners are called by the thread feeding the matcher, while it holds the matcher's
+ * lock, and should hand long work, such as adaptation actions, to another thread.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+@FunctionalInterface
+public interface MatchListener {
+
+    /**
+     * Called for every match.
+     *
+     * @param pattern the name of the matched pattern.
+     * @param startMillis the time of the occurrence matching the first step.
+     * @param endMillis the time of the occurrence matching the last step or, for patterns
+     *                  ending with forbidden events, the end of the window.
+     */
+    void onMatch(String pattern, long startMillis, long endMillis);
+}
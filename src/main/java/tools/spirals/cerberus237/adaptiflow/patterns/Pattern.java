@@ -0,0 +1,219 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.patterns;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@link Pattern} class describes a time-bounded sequence of event occurrences, such
+ * as "database slow, followed by request rate high, not followed by database recovered,
+ * within 30 seconds".
+ * <p>
+ * A pattern starts with {@link #begin(String)} and adds steps with {@link #followedBy(String)}.
+ * {@link #notFollowedBy(String)} forbids an event between the last step added and the next
+ * one; after the last step, it forbids the event until the end of the window, so the pattern
+ * matches only when the window expires without it. The window given to {@link #within(long)}
+ * bounds the time from the first step to the end of the match, and is required by patterns
+ * ending with forbidden events. Occurrences of other events are ignored.
+ * </p>
+ * <p>
+ * Patterns are compiled into automata by a {@link PatternMatcher}.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * Pattern pattern = Pattern.named("degraded-under-attack")
+ *         .begin("database-slow")
+ *         .followedBy("requests-high")
+ *         .notFollowedBy("database-recovered")
+ *         .within(30000);
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public final class Pattern {
+    private final String name;
+    private final List<String> steps = new ArrayList<>();
+
+    /**
+     * The forbidden events per automaton state: index {@code k} applies once {@code k}
+     * steps matched.
+     */
+    private final List<List<String>> absences = new ArrayList<>();
+    private long withinMillis = Long.MAX_VALUE;
+
+    private Pattern(String name) {
+        this.name = name;
+        absences.add(new ArrayList<>());
+    }
+
+    /**
+     * Creates an empty pattern.
+     *
+     * @param name the name reported with the matches.
+     * @return the pattern.
+     */
+    public static Pattern named(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("A pattern needs a name");
+        }
+        return new Pattern(name);
+    }
+
+    /**
+     * Sets the first step of the pattern.
+     *
+     * @param event the name of the event starting a match.
+     * @return this pattern.
+     * @throws IllegalArgumentException if the pattern already has a step.
+     */
+    public Pattern begin(String event) {
+        if (!steps.isEmpty()) {
+            throw new IllegalArgumentException("Pattern " + name + " already begins with " + steps.get(0));
+        }
+        return step(event);
+    }
+
+    /**
+     * Adds a step following the previous ones, possibly after other occurrences.
+     *
+     * @param event the name of the event.
+     * @return this pattern.
+     * @throws IllegalArgumentException if the pattern has no first step.
+     */
+    public Pattern followedBy(String event) {
+        if (steps.isEmpty()) {
+            throw new IllegalArgumentException("Pattern " + name + " must begin before followedBy");
+        }
+        return step(event);
+    }
+
+    /**
+     * Forbids an event after the last step added, until the next step or, after the last
+     * step, until the end of the window.
+     *
+     * @param event the name of the forbidden event.
+     * @return this pattern.
+     * @throws IllegalArgumentException if the pattern has no first step.
+     */
+    public Pattern notFollowedBy(String event) {
+        if (steps.isEmpty()) {
+            throw new IllegalArgumentException("Pattern " + name + " must begin before notFollowedBy");
+        }
+        absences.get(steps.size()).add(requireEvent(event));
+        return this;
+    }
+
+    /**
+     * Bounds the time between the first step and the end of a match.
+     *
+     * @param millis the window, in milliseconds.
+     * @return this pattern.
+     * @throws IllegalArgumentException if the window is not positive.
+     */
+    public Pattern within(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("The window must be positive: " + millis);
+        }
+        this.withinMillis = millis;
+        return this;
+    }
+
+    private Pattern step(String event) {
+        steps.add(requireEvent(event));
+        absences.add(new ArrayList<>());
+        return this;
+    }
+
+    private String requireEvent(String event) {
+        if (event == null || event.isEmpty()) {
+            throw new IllegalArgumentException("Pattern " + name + " references an unnamed event");
+        }
+        return event;
+    }
+
+    /**
+     * Checks that the pattern can match: it has a first step, and a pattern ending with
+     * forbidden events has a window, since it only matches when its window expires.
+     *
+     * @throws IllegalArgumentException if the pattern can never match.
+     */
+    void validate() {
+        if (steps.isEmpty()) {
+            throw new IllegalArgumentException("Pattern " + name + " has no step");
+        }
+        if (hasTrailingAbsence() && withinMillis == Long.MAX_VALUE) {
+            throw new IllegalArgumentException("Pattern " + name + " ends with notFollowedBy but has no window");
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the steps of the pattern, in order.
+     *
+     * @return the event names of the steps.
+     */
+    public List<String> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * Returns the events forbidden once {@code matchedSteps} steps matched.
+     *
+     * @param matchedSteps the number of matched steps, from 1 to the number of steps.
+     * @return the names of the forbidden events.
+     */
+    public List<String> getAbsences(int matchedSteps) {
+        return Collections.unmodifiableList(absences.get(matchedSteps));
+    }
+
+    /**
+     * Returns the window of the pattern.
+     *
+     * @return the window, in milliseconds, {@link Long#MAX_VALUE} when unbounded.
+     */
+    public long getWithinMillis() {
+        return withinMillis;
+    }
+
+    /**
+     * Returns whether the pattern ends with forbidden events, and so matches when its
+     * window expires.
+     *
+     * @return {@code true} if the pattern ends with {@link #notFollowedBy(String)}.
+     */
+    public boolean hasTrailingAbsence() {
+        return !absences.get(steps.size()).isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(name).append(':');
+        for (int k = 0; k < steps.size(); k++) {
+            builder.append(k == 0 ? " " : " -> ").append(steps.get(k));
+            for (String absent : absences.get(k + 1)) {
+                builder.append(" !").append(absent);
+            }
+        }
+        if (withinMillis != Long.MAX_VALUE) {
+            builder.append(" within ").append(withinMillis).append(" ms");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,363 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.patterns;
+
+import tools.spirals.cerberus237.adaptiflow.events.Event;
+import tools.spirals.cerberus237.adaptiflow.interfaces.EventContext;
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.interfaces.Observer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@link PatternMatcher} class compiles {@link Pattern}s into automata and matches
+ * them against a stream of event occurrences.
+ * <p>
+ * Event names are mapped to integer symbols when the matcher is built, and each symbol is
+ * dispatched to the automata of the patterns referencing it only. Occurrences are fed with
+ * {@link #onEvent(int, long)}, or by subscribing the {@link Observer} returned by
+ * {@link #observer(String)} to the event, so that every notification of the event is an
+ * occurrence. Timestamps should not decrease; an earlier timestamp is treated as the
+ * latest one seen.
+ * </p>
+ * <p>
+ * Patterns ending with forbidden events match when their window expires, which is detected
+ * by the next occurrence or when time advances. On a quiet system no occurrence arrives, so
+ * time must be advanced by a timer: schedule the {@link #tickEvent()} with the events, and
+ * every scheduler round calls {@link #tick()}. Such matches are then reported at most one
+ * observation interval after their window ends.
+ * </p>
+ * <p>
+ * The matcher is thread-safe; the listener is called while holding its lock.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * PatternMatcher matcher = new PatternMatcher(List.of(pattern), (name, start, end) -&gt; executor.execute(maintenance::perform));
+ * databaseSlowEvent.subscribe(matcher.observer("database-slow"));
+ * requestsHighEvent.subscribe(matcher.observer("requests-high"));
+ * databaseRecoveredEvent.subscribe(matcher.observer("database-recovered"));
+ * new ContinuousObservationScheduler(List.of(databaseSlowEvent, requestsHighEvent, databaseRecoveredEvent,
+ *         matcher.tickEvent()), EVENT_LISTENING_INTERVAL_MS).start();
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class PatternMatcher {
+    private final Map<String, Integer> symbols = new HashMap<>();
+    private final Automaton[] automata;
+
+
+    /**
+     * The automata referencing each symbol.
+     */
+    private final Automaton[][] bySymbol;
+    private final MatchListener listener;
+    private final LongSupplier clock;
+    private long now = Long.MIN_VALUE;
+
+    /**
+     * A binary min-heap of the times at which pending matches are reported, in parallel
+     * arrays of report times and automaton indexes. Entries superseded by a later report
+     * time of the same automaton are skipped when popped.
+     */
+    private long[] reportTimes = new long[16];
+    private int[] reportAutomata = new int[16];
+    private int reports = 0;
+
+    /**
+     * The report time last pushed for each automaton.
+     */
+    private final long[] scheduledReports;
+    private long matchCount = 0;
+    private long occurrenceCount = 0;
+
+    /**
+     * Constructs a {@code PatternMatcher} timestamping observer notifications with the system clock.
+     *
+     * @param patterns the patterns to match.
+     * @param listener the listener receiving the matches.
+     */
+    public PatternMatcher(List<Pattern> patterns, MatchListener listener) {
+        this(patterns, listener, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a {@code PatternMatcher}.
+     *
+     * @param patterns the patterns to match.
+     * @param listener the listener receiving the matches.
+     * @param clock the clock, in milliseconds, timestamping observer notifications.
+     * @throws IllegalArgumentException if a pattern has no step, or ends with forbidden
+     *                                  events but has no window.
+     */
+    public PatternMatcher(List<Pattern> patterns, MatchListener listener, LongSupplier clock) {
+        this.listener = listener;
+        this.clock = clock;
+        this.automata = new Automaton[patterns.size()];
+        List<Set<Automaton>> referencing = new ArrayList<>();
+        for (int p = 0; p < automata.length; p++) {
+            Pattern pattern = patterns.get(p);
+            pattern.validate();
+            List<String> steps = pattern.getSteps();
+            int[] stepSymbols = new int[steps.size()];
+            for (int k = 0; k < stepSymbols.length; k++) {
+                stepSymbols[k] = symbol(steps.get(k), referencing);
+            }
+            int[][] absent = new int[steps.size() + 1][];
+            absent[0] = new int[0];
+            for (int k = 1; k <= steps.size(); k++) {
+                List<String> names = pattern.getAbsences(k);
+                absent[k] = new int[names.size()];
+                for (int i = 0; i < names.size(); i++) {
+                    absent[k][i] = symbol(names.get(i), referencing);
+                }
+            }
+            Automaton automaton = new Automaton(p, pattern.getName(), stepSymbols, absent, pattern.getWithinMillis());
+            automata[p] = automaton;
+            for (int symbol : stepSymbols) {
+                referencing.get(symbol).add(automaton);
+            }
+            for (int[] symbolsOfState : absent) {
+                for (int symbol : symbolsOfState) {
+                    referencing.get(symbol).add(automaton);
+                }
+            }
+        }
+        this.scheduledReports = new long[automata.length];
+        Arrays.fill(scheduledReports, Long.MAX_VALUE);
+        this.bySymbol = new Automaton[referencing.size()][];
+        for (int s = 0; s < bySymbol.length; s++) {
+            bySymbol[s] = referencing.get(s).toArray(new Automaton[0]);
+        }
+    }
+
+    private int symbol(String event, List<Set<Automaton>> referencing) {
+        return symbols.computeIfAbsent(event, name -> {
+            referencing.add(new LinkedHashSet<>());
+            return referencing.size() - 1;
+        });
+    }
+
+    /**
+     * Returns the symbol of an event.
+     *
+     * @param event the event name.
+     * @return the symbol, or -1 if no pattern references the event.
+     */
+    public int symbolOf(String event) {
+        Integer symbol = symbols.get(event);
+        return symbol == null ? -1 : symbol;
+    }
+
+    /**
+     * Feeds an occurrence of an event.
+     *
+     * @param symbol the symbol of the event, see {@link #symbolOf(String)}; -1 only advances time.
+     * @param timestampMillis the time of the occurrence.
+     */
+    public synchronized void onEvent(int symbol, long timestampMillis) {
+        advanceTo(timestampMillis);
+        if (symbol < 0) {
+            return;
+        }
+        occurrenceCount++;
+        Automaton[] targets = bySymbol[symbol];
+        for (int i = 0; i < targets.length; i++) {
+            Automaton automaton = targets[i];
+            matchCount += automaton.onSymbol(symbol, now, listener);
+            schedule(automaton);
+        }
+    }
+
+    /**
+     * Schedules the next report of an automaton, if it changed.
+     */
+    private void schedule(Automaton automaton) {
+        long report = automaton.getReportTime();
+        if (report != scheduledReports[automaton.index]) {
+            scheduledReports[automaton.index] = report;
+            if (report != Long.MAX_VALUE) {
+                push(report, automaton.index);
+            }
+        }
+    }
+
+    /**
+     * Feeds an occurrence of an event.
+     *
+     * @param event the event name.
+     * @param timestampMillis the time of the occurrence.
+     */
+    public void onEvent(String event, long timestampMillis) {
+        onEvent(symbolOf(event), timestampMillis);
+    }
+
+    /**
+     * Advances time without an occurrence, reporting the patterns whose window expired
+     * without a forbidden event.
+     *
+     * @param timestampMillis the current time.
+     */
+    public synchronized void advanceTo(long timestampMillis) {
+        if (timestampMillis > now) {
+            now = timestampMillis;
+        }
+        while (reports > 0 && reportTimes[0] < now) {
+            long report = reportTimes[0];
+            int index = reportAutomata[0];
+            pop();
+            if (scheduledReports[index] == report) {
+                scheduledReports[index] = Long.MAX_VALUE;
+                matchCount += automata[index].expire(now, listener);
+                // A later pending match may report at the end of its own window
+                schedule(automata[index]);
+            }
+        }
+    }
+
+    /**
+     * Advances time to the current time of the matcher's clock, reporting the patterns
+     * whose window expired without a forbidden event.
+     */
+    public void tick() {
+        advanceTo(clock.getAsLong());
+    }
+
+    /**
+     * Returns an event advancing the matcher at every observation, to be scheduled with the
+     * observed events so that patterns ending with forbidden events are reported when no
+     * occurrence arrives. The event collects the time it advanced to and has no subscriber.
+     *
+     * @return the tick event of this matcher.
+     */
+    public Event<Long> tickEvent() {
+        return new Event<>("pattern-matcher-tick", () -> {
+            long time = clock.getAsLong();
+            advanceTo(time);
+            return time;
+        });
+    }
+
+    private void push(long time, int index) {
+        if (reports == reportTimes.length) {
+            reportTimes = Arrays.copyOf(reportTimes, reports * 2);
+            reportAutomata = Arrays.copyOf(reportAutomata, reports * 2);
+        }
+        int i = reports++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (reportTimes[parent] <= time) {
+                break;
+            }
+            reportTimes[i] = reportTimes[parent];
+            reportAutomata[i] = reportAutomata[parent];
+            i = parent;
+        }
+        reportTimes[i] = time;
+        reportAutomata[i] = index;
+    }
+
+    private void pop() {
+        long time = reportTimes[--reports];
+        int index = reportAutomata[reports];
+        int i = 0;
+        int half = reports >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < reports && reportTimes[child + 1] < reportTimes[child]) {
+                child++;
+            }
+            if (time <= reportTimes[child]) {
+                break;
+            }
+            reportTimes[i] = reportTimes[child];
+            reportAutomata[i] = reportAutomata[child];
+            i = child;
+        }
+        reportTimes[i] = time;
+        reportAutomata[i] = index;
+    }
+
+    /**
+     * Returns an observer feeding every notification it receives as an occurrence of the
+     * given event, timestamped with the matcher's clock.
+     *
+     * @param event the event name.
+     * @param <T> the metric type of the event.
+     * @return the observer to subscribe to the event.
+     * @throws IllegalArgumentException if no pattern references the event.
+     */
+    public <T> Observer<T> observer(String event) {
+        int symbol = symbolOf(event);
+        if (symbol < 0) {
+            throw new IllegalArgumentException("No pattern references the event " + event);
+        }
+        return new Observer<T>() {
+            @Override
+            public void update(T metricValue, String message) {
+                onEvent(symbol, clock.getAsLong());
+            }
+
+            @Override
+            public void update(T metricValue, EventContext context) {
+                onEvent(symbol, clock.getAsLong());
+            }
+
+            @Override
+            public ConditionEvaluator<T> getConditionEvaluator() {
+                return metric -> true;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of matches reported.
+     *
+     * @return the match count.
+     */
+    public synchronized long getMatchCount() {
+        return matchCount;
+    }
+
+    /**
+     * Returns the number of occurrences of events referenced by the patterns.
+     *
+     * @return the occurrence count.
+     */
+    public synchronized long getOccurrenceCount() {
+        return occurrenceCount;
+    }
+
+    /**
+     * Returns the number of partial matches of all patterns whose window has not ended at
+     * the latest time seen. Expired matches are not reported by this call.
+     *
+     * @return the number of partial matches.
+     */
+    public synchronized int getPartialMatchCount() {
+        int count = 0;
+        for (Automaton automaton : automata) {
+            count += automaton.getLiveCount(now);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.rules;
+
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.models.MetricsSnapshot;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+
+/**
+ * The {@link CompiledEvaluator} class evaluates a rule condition compiled into a single
+ * {@link MethodHandle} of type {@code (MetricsSnapshot)boolean}.
+ * <p>
+ * A condition built from nested evaluator lambdas calls through one interface call site
+ * per node; once several rules share those call sites they become megamorphic and the JIT
+ * stops inlining them. A method handle tree has no such call sites: its nodes are bound
+ * with their operands, thresholds and accessors, and once the handle is hot the JVM
+ * generates bytecode customized for that one handle, in which every comparison is a
+ * primitive operation on doubles. Each rule therefore gets its own specialized code, as
+ * if a class had been generated for it.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * RuleSet ruleSet = new RuleCompiler()
+ *         .source("requests", collector)
+ *         .action("OpenCircuitBreaker", new OpenCircuitBreaker())
+ *         .methodHandles(true)
+ *         .compile("when requests.rate(60s) &gt; 300 then OpenCircuitBreaker");
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public final class CompiledEvaluator implements ConditionEvaluator<MetricsSnapshot> {
+
+    /**
+     * The type of condition handles.
+     */
+    public static final MethodType TYPE = MethodType.methodType(boolean.class, MetricsSnapshot.class);
+
+    /**
+     * The compiled condition.
+     */
+    private final MethodHandle handle;
+
+    /**
+     * The source expression of the condition, for diagnostics.
+     */
+    private final String expression;
+
+    /**
+     * Constructs a {@code CompiledEvaluator} over the specified handle.
+     *
+     * @param handle a method handle of type {@code (MetricsSnapshot)boolean}.
+     * @param expression the source expression of the condition.
+     */
+    public CompiledEvaluator(MethodHandle handle, String expression) {
+        if (!handle.type().equals(TYPE)) {
+            throw new IllegalArgumentException("Expected a handle of type " + TYPE + " but got " + handle.type());
+        }
+        this.handle = handle;
+        this.expression = expression;
+    }
+
+    /**
+     * Evaluates the compiled condition on the specified snapshot.
+     *
+     * @param metric the snapshot to evaluate.
+     * @return the value of the condition.
+     */
+    @Override
+    public boolean test(MetricsSnapshot metric) {
+        try {
+            return (boolean) handle.invokeExact(metric);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Failed to evaluate " + expression, t);
+        }
+    }
+
+    /**
+     * Returns the compiled condition.
+     *
+     * @return a method handle of type {@code (MetricsSnapshot)boolean}.
+     */
+    public MethodHandle getHandle() {
+        return handle;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,333 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.rules;
+
+import tools.spirals.cerberus237.adaptiflow.models.MetricsSnapshot;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles folded rule conditions into method handle trees, one {@link CompiledEvaluator}
+ * per rule. Structurally equal subexpressions are compiled once and, when referenced more
+ * than once, computed once per snapshot, as in the interpreted compilation.
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+final class MethodHandleCompilation {
+    private static final MethodType NUMBER = MethodType.methodType(double.class, MetricsSnapshot.class);
+    private static final MethodType BINARY = MethodType.methodType(double.class, double.class, double.class);
+    private static final MethodType COMPARISON = MethodType.methodType(boolean.class, double.class, double.class);
+
+    private static final MethodHandle ADD;
+    private static final MethodHandle SUBTRACT;
+    private static final MethodHandle MULTIPLY;
+    private static final MethodHandle DIVIDE;
+    private static final MethodHandle NEGATE;
+    private static final MethodHandle LESS;
+    private static final MethodHandle LESS_OR_EQUAL;
+    private static final MethodHandle GREATER;
+    private static final MethodHandle GREATER_OR_EQUAL;
+    private static final MethodHandle EQUAL;
+    private static final MethodHandle NOT_EQUAL;
+    private static final MethodHandle NOT;
+    private static final MethodHandle TRUTH;
+    private static final MethodHandle READ;
+    private static final MethodHandle NUMBER_MEMO;
+    private static final MethodHandle CONDITION_MEMO;
+    private static final MethodHandle TRUE = constant(true);
+    private static final MethodHandle FALSE = constant(false);
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Class<?> self = MethodHandleCompilation.class;
+            ADD = lookup.findStatic(self, "add", BINARY);
+            SUBTRACT = lookup.findStatic(self, "subtract", BINARY);
+            MULTIPLY = lookup.findStatic(self, "multiply", BINARY);
+            DIVIDE = lookup.findStatic(self, "divide", BINARY);
+            NEGATE = lookup.findStatic(self, "negate", MethodType.methodType(double.class, double.class));
+            LESS = lookup.findStatic(self, "less", COMPARISON);
+            LESS_OR_EQUAL = lookup.findStatic(self, "lessOrEqual", COMPARISON);
+            GREATER = lookup.findStatic(self, "greater", COMPARISON);
+            GREATER_OR_EQUAL = lookup.findStatic(self, "greaterOrEqual", COMPARISON);
+            EQUAL = lookup.findStatic(self, "equal", COMPARISON);
+            NOT_EQUAL = lookup.findStatic(self, "notEqual", COMPARISON);
+            NOT = lookup.findStatic(self, "not", MethodType.methodType(boolean.class, boolean.class));
+            TRUTH = lookup.findStatic(self, "truth", MethodType.methodType(boolean.class, double.class));
+            READ = lookup.findStatic(self, "read", MethodType.methodType(double.class,
+                    int.class, MetricAccessor.class, double[].class, MetricsSnapshot.class));
+            NUMBER_MEMO = lookup.findVirtual(NumberMemo.class, "apply", NUMBER);
+            CONDITION_MEMO = lookup.findVirtual(ConditionMemo.class, "apply", CompiledEvaluator.TYPE);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final RuleCompiler compiler;
+    private final List<String> names;
+    private final Map<Node, Integer> references;
+    private final Map<Node, MethodHandle> numbers = new HashMap<>();
+    private final Map<Node, MethodHandle> conditions = new HashMap<>();
+    private final Set<Node> compiled = new HashSet<>();
+    private int sharedCount = 0;
+
+    MethodHandleCompilation(RuleCompiler compiler, List<String> names, List<Node> roots) {
+        this.compiler = compiler;
+        this.names = names;
+        this.references = RuleCompiler.countReferences(roots);
+    }
+
+    /**
+     * Compiles the specified folded condition.
+     */
+    CompiledEvaluator condition(Node node) {
+        return new CompiledEvaluator(conditionHandle(node), node.toString());
+    }
+
+    int getNodeCount() {
+        return compiled.size();
+    }
+
+    int getSharedNodeCount() {
+        return sharedCount;
+    }
+
+    private boolean isShared(Node node) {
+        return RuleCompiler.isMemoizable(node) && references.getOrDefault(node, 0) > 1;
+    }
+
+    private void register(Node node) {
+        if (compiled.add(node) && isShared(node)) {
+            sharedCount++;
+        }
+    }
+
+    private MethodHandle numberHandle(Node node) {
+        MethodHandle handle = numbers.get(node);
+        if (handle == null) {
+            handle = compileNumber(node);
+            if (isShared(node)) {
+                handle = NUMBER_MEMO.bindTo(new NumberMemo(handle));
+            }
+            numbers.put(node, handle);
+            register(node);
+        }
+        return handle;
+    }
+
+    private MethodHandle conditionHandle(Node node) {
+        MethodHandle handle = conditions.get(node);
+        if (handle == null) {
+            handle = compileCondition(node);
+            if (isShared(node) && node.isCondition()) {
+                handle = CONDITION_MEMO.bindTo(new ConditionMemo(handle));
+            }
+            conditions.put(node, handle);
+            register(node);
+        }
+        return handle;
+    }
+
+    private MethodHandle compileNumber(Node node) {
+        if (node instanceof Node.Constant) {
+            return MethodHandles.dropArguments(
+                    MethodHandles.constant(double.class, ((Node.Constant) node).getValue()), 0, MetricsSnapshot.class);
+        }
+        if (node instanceof Node.Metric) {
+            Node.Metric metric = (Node.Metric) node;
+            return MethodHandles.insertArguments(READ, 0, names.indexOf(metric.getSource()),
+                    compiler.accessorFor(metric.getPath()), RuleCompiler.constantArguments(metric));
+        }
+        if (node instanceof Node.Unary && ((Node.Unary) node).getOperator() == Node.Operator.NEGATE) {
+            return MethodHandles.filterReturnValue(numberHandle(((Node.Unary) node).getOperand()), NEGATE);
+        }
+        if (node instanceof Node.Binary && !node.isCondition()) {
+            Node.Binary binary = (Node.Binary) node;
+            return combine(operator(binary.getOperator()), binary.getLeft(), binary.getRight(), NUMBER);
+        }
+        throw new RuleSyntaxException("Expected a number but found the condition " + node);
+    }
+
+    private MethodHandle compileCondition(Node node) {
+        if (node instanceof Node.Constant) {
+            return RuleCompiler.truth(((Node.Constant) node).getValue()) ? TRUE : FALSE;
+        }
+        if (node instanceof Node.Unary && ((Node.Unary) node).getOperator() == Node.Operator.NOT) {
+            return MethodHandles.filterReturnValue(conditionHandle(((Node.Unary) node).getOperand()), NOT);
+        }
+        if (!node.isCondition()) {
+            return MethodHandles.filterReturnValue(numberHandle(node), TRUTH);
+        }
+        Node.Binary binary = (Node.Binary) node;
+        if (binary.getOperator() == Node.Operator.AND) {
+            return MethodHandles.guardWithTest(conditionHandle(binary.getLeft()), conditionHandle(binary.getRight()), FALSE);
+        }
+        if (binary.getOperator() == Node.Operator.OR) {
+            return MethodHandles.guardWithTest(conditionHandle(binary.getLeft()), TRUE, conditionHandle(binary.getRight()));
+        }
+        return combine(operator(binary.getOperator()), binary.getLeft(), binary.getRight(), CompiledEvaluator.TYPE);
+    }
+
+    /**
+     * Applies a primitive operator to two numeric subexpressions, binding a constant right
+     * operand directly into the operator.
+     */
+    private MethodHandle combine(MethodHandle operator, Node left, Node right, MethodType type) {
+        MethodHandle leftHandle = numberHandle(left);
+        if (right instanceof Node.Constant) {
+            register(right);
+            return MethodHandles.filterArguments(
+                    MethodHandles.insertArguments(operator, 1, ((Node.Constant) right).getValue()), 0, leftHandle);
+        }
+        MethodHandle both = MethodHandles.filterArguments(operator, 0, leftHandle, numberHandle(right));
+        return MethodHandles.permuteArguments(both, type, 0, 0);
+    }
+
+    private static MethodHandle operator(Node.Operator operator) {
+        switch (operator) {
+            case ADD:
+                return ADD;
+            case SUBTRACT:
+                return SUBTRACT;
+            case MULTIPLY:
+                return MULTIPLY;
+            case DIVIDE:
+                return DIVIDE;
+            case LESS:
+                return LESS;
+            case LESS_OR_EQUAL:
+                return LESS_OR_EQUAL;
+            case GREATER:
+                return GREATER;
+            case GREATER_OR_EQUAL:
+                return GREATER_OR_EQUAL;
+            case EQUAL:
+                return EQUAL;
+            case NOT_EQUAL:
+                return NOT_EQUAL;
+            default:
+                throw new IllegalArgumentException("Not a binary operator: " + operator);
+        }
+    }
+
+    private static MethodHandle constant(boolean value) {
+        return MethodHandles.dropArguments(MethodHandles.constant(boolean.class, value), 0, MetricsSnapshot.class);
+    }
+
+    private static double add(double left, double right) {
+        return left + right;
+    }
+
+    private static double subtract(double left, double right) {
+        return left - right;
+    }
+
+    private static double multiply(double left, double right) {
+        return left * right;
+    }
+
+    private static double divide(double left, double right) {
+        return left / right;
+    }
+
+    private static double negate(double value) {
+        return -value;
+    }
+
+    private static boolean less(double left, double right) {
+        return left < right;
+    }
+
+    private static boolean lessOrEqual(double left, double right) {
+        return left <= right;
+    }
+
+    private static boolean greater(double left, double right) {
+        return left > right;
+    }
+
+    private static boolean greaterOrEqual(double left, double right) {
+        return left >= right;
+    }
+
+    private static boolean equal(double left, double right) {
+        return left == right;
+    }
+
+    private static boolean notEqual(double left, double right) {
+        return left != right;
+    }
+
+    private static boolean not(boolean value) {
+        return !value;
+    }
+
+    private static boolean truth(double value) {
+        return RuleCompiler.truth(value);
+    }
+
+    private static double read(int index, MetricAccessor accessor, double[] arguments, MetricsSnapshot snapshot) {
+        Object value = snapshot.get(index);
+        return value == null ? Double.NaN : accessor.read(value, arguments);
+    }
+
+    /**
+     * A shared numeric subexpression, computed once per snapshot.
+     */
+    private static final class NumberMemo {
+        private final MethodHandle target;
+        private MetricsSnapshot snapshot;
+        private double value;
+
+        private NumberMemo(MethodHandle target) {
+            this.target = target;
+        }
+
+        synchronized double apply(MetricsSnapshot current) throws Throwable {
+            if (current != snapshot) {
+                value = (double) target.invokeExact(current);
+                snapshot = current;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * A shared condition, evaluated once per snapshot.
+     */
+    private static final class ConditionMemo {
+        private final MethodHandle target;
+        private MetricsSnapshot snapshot;
+        private boolean value;
+
+        private ConditionMemo(MethodHandle target) {
+            this.target = target;
+        }
+
+        synchronized boolean apply(MetricsSnapshot current) throws Throwable {
+            if (current != snapshot) {
+                value = (boolean) target.invokeExact(current);
+                snapshot = current;
+            }
+            return value;
+        }
+    }
+}
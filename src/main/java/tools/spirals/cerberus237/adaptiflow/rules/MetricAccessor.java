@@ -0,0 +1,45 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.rules;
+
+/**
+ * The {@link MetricAccessor} interface reads a number out of the value of a metric
+ * source, for a metric reference such as {@code requests.rate(60s)}.
+ * <p>
+ * Accessors are registered by path on a {@link RuleCompiler}. They receive the raw
+ * value collected from the source, never {@code null}, and the constant arguments of
+ * the reference, and return {@link Double#NaN} when the value has not the expected type
+ * so that comparisons against it are false.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * compiler.accessor("pendingQueries", (value, arguments) -&gt;
+ *         value instanceof DatabaseStatus ? ((DatabaseStatus) value).getPendingQueries() : Double.NaN);
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+@FunctionalInterface
+public interface MetricAccessor {
+
+    /**
+     * Reads a number out of a collected metric value.
+     *
+     * @param value the value collected from the metric source.
+     * @param arguments the constant arguments of the metric reference, possibly empty.
+     * @return the number, or {@link Double#NaN} if it cannot be read.
+     */
+    double read(Object value, double[] arguments);
+}
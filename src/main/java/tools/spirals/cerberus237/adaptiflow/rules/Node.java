@@ -0,0 +1,292 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.rules;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The {@link Node} class is the syntax tree of an adaptation rule condition.
+ * <p>
+ * Nodes are immutable and compare structurally, so that two occurrences of the same
+ * subexpression, in one rule or across rules, are equal and can be compiled once.
+ * Their {@link #toString()} is a canonical, fully parenthesized form of the expression.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public abstract class Node {
+
+    /**
+     * The operators of unary and binary nodes.
+     */
+    public enum Operator {
+        NEGATE("-"), NOT("not"),
+        ADD("+"), SUBTRACT("-"), MULTIPLY("*"), DIVIDE("/"),
+        LESS("<"), LESS_OR_EQUAL("<="), GREATER(">"), GREATER_OR_EQUAL(">="), EQUAL("=="), NOT_EQUAL("!="),
+        AND("and"), OR("or");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * Returns the symbol of this operator in the rule language.
+         *
+         * @return the operator symbol.
+         */
+        public String getSymbol() {
+            return symbol;
+        }
+
+        /**
+         * Returns whether this operator yields a condition rather than a number.
+         *
+         * @return {@code true} for comparison and logical operators.
+         */
+        public boolean isCondition() {
+            return compareTo(LESS) >= 0 || this == NOT;
+        }
+
+        /**
+         * Returns the comparison obtained by swapping the operands of this one,
+         * e.g. {@code >} for {@code <}.
+         *
+         * @return the mirrored comparison, or this operator if it is symmetric or not a comparison.
+         */
+        public Operator mirror() {
+            switch (this) {
+                case LESS:
+                    return GREATER;
+                case LESS_OR_EQUAL:
+                    return GREATER_OR_EQUAL;
+                case GREATER:
+                    return LESS;
+                case GREATER_OR_EQUAL:
+                    return LESS_OR_EQUAL;
+                default:
+                    return this;
+            }
+        }
+    }
+
+    Node() {
+    }
+
+    /**
+     * Returns whether this node yields a condition rather than a number.
+     *
+     * @return {@code true} if this node is a comparison or a logical expression.
+     */
+    public boolean isCondition() {
+        return false;
+    }
+
+    /**
+     * A numeric literal; durations such as {@code 60s} are literals in milliseconds.
+     */
+    public static final class Constant extends Node {
+        private final double value;
+
+        public Constant(double value) {
+            this.value = value;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Constant && Double.compare(value, ((Constant) o).value) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Double.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return Double.isFinite(value) ? BigDecimal.valueOf(value).stripTrailingZeros().toPlainString()
+                    : Double.toString(value);
+        }
+    }
+
+    /**
+     * A reference to a metric, such as {@code cpu}, {@code db.responseTime} or
+     * {@code requests.rate(60s)}: the name of a metric source, an optional accessor
+     * path and optional accessor arguments.
+     */
+    public static final class Metric extends Node {
+        private final String source;
+        private final String path;
+        private final List<Node> arguments;
+
+        public Metric(String source, String path, List<Node> arguments) {
+            this.source = Objects.requireNonNull(source);
+            this.path = path;
+            this.arguments = List.copyOf(arguments);
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * Returns the accessor path following the source name.
+         *
+         * @return the dotted path, or {@code null} when the metric is the source value itself.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public List<Node> getArguments() {
+            return arguments;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Metric)) {
+                return false;
+            }
+            Metric other = (Metric) o;
+            return source.equals(other.source) && Objects.equals(path, other.path) && arguments.equals(other.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, path, arguments);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(source);
+            if (path != null) {
+                builder.append('.').append(path);
+            }
+            if (!arguments.isEmpty()) {
+                builder.append('(');
+                for (int i = 0; i < arguments.size(); i++) {
+                    builder.append(i > 0 ? ", " : "").append(arguments.get(i));
+                }
+                builder.append(')');
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * A negation, either arithmetic ({@code -x}) or logical ({@code not x}).
+     */
+    public static final class Unary extends Node {
+        private final Operator operator;
+        private final Node operand;
+
+        public Unary(Operator operator, Node operand) {
+            if (operator != Operator.NEGATE && operator != Operator.NOT) {
+                throw new IllegalArgumentException("Not a unary operator: " + operator);
+            }
+            this.operator = operator;
+            this.operand = Objects.requireNonNull(operand);
+        }
+
+        public Operator getOperator() {
+            return operator;
+        }
+
+        public Node getOperand() {
+            return operand;
+        }
+
+        @Override
+        public boolean isCondition() {
+            return operator == Operator.NOT;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Unary && operator == ((Unary) o).operator && operand.equals(((Unary) o).operand);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * operator.hashCode() + operand.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return operator == Operator.NOT ? "(not " + operand + ")" : "(-" + operand + ")";
+        }
+    }
+
+    /**
+     * An arithmetic, comparison or logical expression over two operands.
+     */
+    public static final class Binary extends Node {
+        private final Operator operator;
+        private final Node left;
+        private final Node right;
+
+        public Binary(Operator operator, Node left, Node right) {
+            if (operator == Operator.NEGATE || operator == Operator.NOT) {
+                throw new IllegalArgumentException("Not a binary operator: " + operator);
+            }
+            this.operator = operator;
+            this.left = Objects.requireNonNull(left);
+            this.right = Objects.requireNonNull(right);
+        }
+
+        public Operator getOperator() {
+            return operator;
+        }
+
+        public Node getLeft() {
+            return left;
+        }
+
+        public Node getRight() {
+            return right;
+        }
+
+        @Override
+        public boolean isCondition() {
+            return operator.isCondition();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Binary)) {
+                return false;
+            }
+            Binary other = (Binary) o;
+            return operator == other.operator && left.equals(other.left) && right.equals(other.right);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(new Object[]{operator, left, right});
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " " + operator.getSymbol() + " " + right + ")";
+        }
+    }
+}
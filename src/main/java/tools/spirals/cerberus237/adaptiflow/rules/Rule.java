@@ -0,0 +1,107 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.rules;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The {@link Rule} class is a parsed adaptation rule: a condition, the number of
+ * consecutive observations it must hold on, and the names of the actions to perform.
+ * <p>
+ * Rules compare structurally, so a reloaded rule file can tell which rules changed.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public final class Rule {
+
+    /**
+     * The name of the rule, used as the name of its event.
+     */
+    private final String name;
+
+    /**
+     * The condition of the rule.
+     */
+    private final Node condition;
+
+    /**
+     * The number of consecutive observations the condition must hold on.
+     */
+    private final int ticks;
+
+    /**
+     * The names of the actions to perform, in order.
+     */
+    private final List<String> actions;
+
+    /**
+     * Constructs a {@code Rule}.
+     *
+     * @param name the name of the rule.
+     * @param condition the condition of the rule.
+     * @param ticks the number of consecutive observations the condition must hold on, at least 1.
+     * @param actions the names of the actions to perform, in order.
+     */
+    public Rule(String name, Node condition, int ticks, List<String> actions) {
+        if (ticks < 1) {
+            throw new IllegalArgumentException("The number of ticks must be positive: " + ticks);
+        }
+        if (actions.isEmpty()) {
+            throw new IllegalArgumentException("A rule needs at least one action: " + name);
+        }
+        this.name = Objects.requireNonNull(name);
+        this.condition = Objects.requireNonNull(condition);
+        this.ticks = ticks;
+        this.actions = List.copyOf(actions);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Node getCondition() {
+        return condition;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public List<String> getActions() {
+        return actions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Rule)) {
+            return false;
+        }
+        Rule other = (Rule) o;
+        return name.equals(other.name) && condition.equals(other.condition) && ticks == other.ticks
+                && actions.equals(other.actions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, condition, ticks, actions);
+    }
+
+    @Override
+    public String toString() {
+        return name + ": when " + condition + (ticks > 1 ? " for " + ticks + " ticks" : "")
+                + " then " + String.join(", ", actions);
+    }
+}
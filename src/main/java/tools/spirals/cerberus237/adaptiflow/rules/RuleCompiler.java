@@ -0,0 +1,705 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.rules;
+
+import tools.spirals.cerberus237.adaptationactionsbase.core.IAdaptationAction;
+import tools.spirals.cerberus237.adaptiflow.collectors.CompositeMetricsCollector;
+import tools.spirals.cerberus237.adaptiflow.events.ConditionalEvent;
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.models.MetricsSnapshot;
+import tools.spirals.cerberus237.adaptiflow.models.ResourceUsageMetrics;
+import tools.spirals.cerberus237.adaptiflow.operators.ConsecutiveEvaluator;
+import tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.EventSubscriber;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+import tools.spirals.cerberus237.metricscollectorbase.models.SQLDatabaseMetrics;
+import tools.spirals.cerberus237.metricscollectorbase.models.ServiceMetrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The {@link RuleCompiler} class compiles adaptation rules into {@link ConditionalEvent}s
+ * subscribed by {@link EventSubscriber}s, ready to be scheduled.
+ * <p>
+ * Metric references name a registered metric source, optionally followed by an accessor
+ * path: {@code cpu} is the value of the {@code cpu} source, {@code db.responseTime} reads
+ * the response time of the {@code db} source, and {@code requests.rate(60s)} the request
+ * rate of the {@code requests} source over one minute. Besides registered
+ * {@link MetricAccessor}s, the built-in accessors are {@code rate(window)} on
+ * {@link ServiceMetrics} (the window defaults to one minute), {@code responseTime} and
+ * {@code networkStatus} on {@link SQLDatabaseMetrics}, and {@code cpu} and {@code memory}
+ * on {@link ResourceUsageMetrics}; any other path is looked up as a key when the source
+ * value is a {@link Map}. A metric that cannot be read is {@link Double#NaN}, so
+ * comparisons against it are false. A number used as a condition holds when it is neither
+ * zero nor NaN.
+ * </p>
+ * <p>
+ * Compilation happens once: constant subexpressions are folded, comparisons are normalized
+ * so that the constant threshold is on the right, and structurally equal subexpressions
+ * are compiled once and shared between all rules. A shared subexpression, other than a
+ * plain source value, caches its value for the last snapshot it saw, so it is computed
+ * once per tick. All events observe one
+ * {@link CompositeMetricsCollector} over the referenced sources, which queries each source
+ * once per tick; its snapshots are reused for {@link #maxAge(long)} milliseconds, which
+ * should stay below the observation interval. A rule with {@code for N ticks} is wrapped in
+ * a {@link ConsecutiveEvaluator}. Actions are looked up by case-insensitive name among
+ * registered instances and classes; each action is instantiated once per rule set.
+ * </p>
+ * <p>
+ * By default a condition is a tree of small evaluator lambdas. With
+ * {@link #methodHandles(boolean)}, each condition is instead composed into a single
+ * method handle, which the JIT compiles and inlines as one unit.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * RuleSet ruleSet = new RuleCompiler()
+ *         .source("requests", new LocalServiceMetricsCollector())
+ *         .source("db", LocalDatabaseMetricsCollector.getInstance(url, user, password))
+ *         .actions(ActionScanner.scanForActions("tools.descartes.teastore.persistence.adaptation.actions"))
+ *         .compile("attack: when requests.rate(60s) &gt; 300 for 3 ticks then OpenCircuitBreaker, LowPowerMode\n"
+ *                 + "dbDown: when db.responseTime &gt; 5s or not db.networkStatus then DisableCache");
+ * new ContinuousObservationScheduler(ruleSet.getEvents(), EVENT_LISTENING_INTERVAL_MS).start();
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class RuleCompiler {
+
+    /**
+     * The default time, in milliseconds, a snapshot of the metric sources is reused.
+     */
+    public static final long DEFAULT_MAX_AGE_MILLIS = 500;
+
+    /**
+     * The default window, in milliseconds, of the {@code rate} accessor.
+     */
+    public static final long DEFAULT_RATE_WINDOW_MILLIS = 60_000;
+
+    private final Map<String, IMetricsCollector<?>> sources = new LinkedHashMap<>();
+    private final Map<String, MetricAccessor> accessors = new HashMap<>();
+    private final Map<String, IAdaptationAction> actions = new HashMap<>();
+    private final Map<String, Class<? extends IAdaptationAction>> actionClasses = new HashMap<>();
+    private long maxAgeMillis = DEFAULT_MAX_AGE_MILLIS;
+    private ExecutorService executor;
+    private long timeoutMillis;
+    private boolean methodHandles = false;
+
+    /**
+     * Constructs a {@code RuleCompiler} with the built-in accessors and no source or action.
+     */
+    public RuleCompiler() {
+        accessor("rate", (value, arguments) -> value instanceof ServiceMetrics
+                ? ((ServiceMetrics) value).getRequestRatePerSecond(
+                        arguments.length > 0 ? (long) arguments[0] : DEFAULT_RATE_WINDOW_MILLIS)
+                : Double.NaN);
+        accessor("responseTime", (value, arguments) -> value instanceof SQLDatabaseMetrics
+                ? toDouble(((SQLDatabaseMetrics) value).getResponseTime()) : Double.NaN);
+        accessor("networkStatus", (value, arguments) -> value instanceof SQLDatabaseMetrics
+                ? toDouble(((SQLDatabaseMetrics) value).getNetworkStatus()) : Double.NaN);
+        accessor("cpu", (value, arguments) -> value instanceof ResourceUsageMetrics
+                ? ((ResourceUsageMetrics) value).getCpu() : Double.NaN);
+        accessor("memory", (value, arguments) -> value instanceof ResourceUsageMetrics
+                ? ((ResourceUsageMetrics) value).getMemory() : Double.NaN);
+    }
+
+    /**
+     * Registers a metric source.
+     *
+     * @param name the name rules use to reference the source.
+     * @param collector the collector of the source.
+     * @return this compiler.
+     */
+    public RuleCompiler source(String name, IMetricsCollector<?> collector) {
+        sources.put(name, collector);
+        return this;
+    }
+
+    /**
+     * Registers an accessor, replacing any accessor with the same path.
+     *
+     * @param path the path following the source name in metric references.
+     * @param accessor the accessor.
+     * @return this compiler.
+     */
+    public RuleCompiler accessor(String path, MetricAccessor accessor) {
+        accessors.put(path, accessor);
+        return this;
+    }
+
+    /**
+     * Registers an action instance.
+     *
+     * @param name the case-insensitive name rules use to reference the action.
+     * @param action the action.
+     * @return this compiler.
+     */
+    public RuleCompiler action(String name, IAdaptationAction action) {
+        actions.put(name.toLowerCase(), action);
+        return this;
+    }
+
+    /**
+     * Registers action classes, such as those found by
+     * {@link tools.spirals.cerberus237.adaptiflow.scanner.ActionScanner}. They are
+     * instantiated with their no-argument constructor when a rule references them.
+     *
+     * @param classes the action classes, by case-insensitive name.
+     * @return this compiler.
+     */
+    public RuleCompiler actions(Map<String, Class<? extends IAdaptationAction>> classes) {
+        classes.forEach((name, actionClass) -> actionClasses.put(name.toLowerCase(), actionClass));
+        return this;
+    }
+
+    /**
+     * Sets how long a snapshot of the metric sources is reused.
+     *
+     * @param maxAgeMillis the maximum age, in milliseconds, of a snapshot.
+     * @return this compiler.
+     */
+    public RuleCompiler maxAge(long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+        return this;
+    }
+
+    /**
+     * Makes the shared collector query the metric sources concurrently.
+     *
+     * @param executor the executor running the queries.
+     * @param timeoutMillis how long, in milliseconds, a fetch waits for all sources.
+     * @return this compiler.
+     */
+    public RuleCompiler executor(ExecutorService executor, long timeoutMillis) {
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    /**
+     * Selects how conditions are compiled: as a tree of evaluator lambdas, the default,
+     * or as one {@link java.lang.invoke.MethodHandle} per rule wrapped in a
+     * {@link CompiledEvaluator}.
+     *
+     * @param enabled {@code true} to compile conditions into method handles.
+     * @return this compiler.
+     */
+    public RuleCompiler methodHandles(boolean enabled) {
+        this.methodHandles = enabled;
+        return this;
+    }
+
+    /**
+     * Parses and compiles the specified rule file.
+     *
+     * @param source the rule file contents.
+     * @return the compiled rule set.
+     * @throws RuleSyntaxException if the rules are invalid or reference unknown sources or actions.
+     */
+    public RuleSet compile(String source) {
+        return compile(RuleParser.parse(source));
+    }
+
+    /**
+     * Compiles the specified rules.
+     *
+     * @param rules the rules to compile.
+     * @return the compiled rule set.
+     * @throws RuleSyntaxException if the rules reference unknown sources or actions.
+     */
+    public RuleSet compile(List<Rule> rules) {
+        return compile(rules, null);
+    }
+
+    /**
+     * Compiles the specified rules to replace a rule set previously compiled by this compiler.
+     * <p>
+     * Rules that did not change keep their state. When the new rules read the same metric
+     * sources as the previous ones, the shared collector is reused and unchanged rules keep
+     * their event, with its subscribers and evaluator state; otherwise unchanged rules get a
+     * new event that carries over their consecutive-tick streak. Actions instantiated for the
+     * previous rule set are reused.
+     * </p>
+     *
+     * @param rules the rules to compile.
+     * @param previous the rule set being replaced, or {@code null}.
+     * @return the compiled rule set.
+     * @throws RuleSyntaxException if the rules reference unknown sources or actions.
+     */
+    public RuleSet compile(List<Rule> rules, RuleSet previous) {
+        List<Node> conditions = new ArrayList<>(rules.size());
+        Set<String> referenced = new HashSet<>();
+        for (Rule rule : rules) {
+            Node condition = fold(rule.getCondition());
+            collectSources(condition, referenced);
+            conditions.add(condition);
+        }
+        Map<String, IMetricsCollector<?>> used = new LinkedHashMap<>();
+        for (Map.Entry<String, IMetricsCollector<?>> entry : sources.entrySet()) {
+            if (referenced.remove(entry.getKey())) {
+                used.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!referenced.isEmpty()) {
+            throw new RuleSyntaxException("Unknown metric source(s) " + referenced);
+        }
+        boolean sameSources = previous != null && previous.getSources().equals(used)
+                && previous.getCollector().getNames().equals(new ArrayList<>(used.keySet()));
+        CompositeMetricsCollector collector;
+        if (sameSources) {
+            collector = previous.getCollector();
+        } else if (executor == null) {
+            collector = new CompositeMetricsCollector(used, maxAgeMillis);
+        } else {
+            collector = new CompositeMetricsCollector(used, maxAgeMillis, executor, timeoutMillis);
+        }
+
+        Compilation compilation = new Compilation(collector.getNames(), conditions);
+        MethodHandleCompilation handles = methodHandles
+                ? new MethodHandleCompilation(this, collector.getNames(), conditions) : null;
+        Map<String, IAdaptationAction> instances = previous == null
+                ? new HashMap<>() : new HashMap<>(previous.getActionInstances());
+        Map<String, ConditionalEvent<MetricsSnapshot>> events = new LinkedHashMap<>();
+        int reused = 0;
+        for (int i = 0; i < rules.size(); i++) {
+            Rule rule = rules.get(i);
+            if (events.containsKey(rule.getName())) {
+                throw new RuleSyntaxException("Duplicate rule name '" + rule.getName() + "'");
+            }
+            boolean unchanged = previous != null && rule.equals(previous.getRule(rule.getName()));
+            if (unchanged && sameSources) {
+                events.put(rule.getName(), previous.getEvent(rule.getName()));
+                reused++;
+                continue;
+            }
+            ConditionEvaluator<MetricsSnapshot> evaluator = handles != null
+                    ? handles.condition(conditions.get(i)) : compilation.condition(conditions.get(i));
+            if (rule.getTicks() > 1) {
+                ConsecutiveEvaluator<MetricsSnapshot> consecutive = new ConsecutiveEvaluator<>(evaluator, rule.getTicks());
+                if (unchanged && previous.getEvent(rule.getName()).getConditionEvaluator() instanceof ConsecutiveEvaluator) {
+                    consecutive.copyStateFrom((ConsecutiveEvaluator<?>) previous.getEvent(rule.getName()).getConditionEvaluator());
+                }
+                evaluator = consecutive;
+            }
+            ConditionalEvent<MetricsSnapshot> event = new ConditionalEvent<>(rule.getName(), collector, evaluator);
+            event.subscribe(new EventSubscriber<>(resolveActions(rule, instances)));
+            events.put(rule.getName(), event);
+        }
+        int nodeCount = handles != null ? handles.getNodeCount() : compilation.compiled.size();
+        int sharedCount = handles != null ? handles.getSharedNodeCount() : compilation.sharedCount;
+        return new RuleSet(rules, events, collector, used, instances, nodeCount, sharedCount, reused);
+    }
+
+    private List<IAdaptationAction> resolveActions(Rule rule, Map<String, IAdaptationAction> instances) {
+        List<IAdaptationAction> resolved = new ArrayList<>(rule.getActions().size());
+        for (String name : rule.getActions()) {
+            String key = name.toLowerCase();
+            IAdaptationAction action = instances.get(key);
+            if (action == null) {
+                action = actions.get(key);
+                if (action == null) {
+                    Class<? extends IAdaptationAction> actionClass = actionClasses.get(key);
+                    if (actionClass == null) {
+                        throw new RuleSyntaxException("Unknown action '" + name + "' in rule '" + rule.getName() + "'");
+                    }
+                    try {
+                        action = actionClass.getDeclaredConstructor().newInstance();
+                    } catch (ReflectiveOperationException e) {
+                        throw new IllegalArgumentException("Cannot instantiate action " + actionClass.getName(), e);
+                    }
+                }
+                instances.put(key, action);
+            }
+            resolved.add(action);
+        }
+        return resolved;
+    }
+
+    /**
+     * Folds the constant subexpressions of the specified node and moves constant
+     * operands of comparisons to the right, after checking operand types.
+     */
+    static Node fold(Node node) {
+        if (node instanceof Node.Metric) {
+            Node.Metric metric = (Node.Metric) node;
+            List<Node> arguments = new ArrayList<>(metric.getArguments().size());
+            for (Node argument : metric.getArguments()) {
+                arguments.add(fold(requireNumber(argument)));
+            }
+            return new Node.Metric(metric.getSource(), metric.getPath(), arguments);
+        }
+        if (node instanceof Node.Unary) {
+            Node.Unary unary = (Node.Unary) node;
+            if (unary.getOperator() == Node.Operator.NEGATE) {
+                Node operand = fold(requireNumber(unary.getOperand()));
+                return operand instanceof Node.Constant
+                        ? new Node.Constant(-((Node.Constant) operand).getValue()) : new Node.Unary(Node.Operator.NEGATE, operand);
+            }
+            Node operand = fold(unary.getOperand());
+            if (operand instanceof Node.Constant) {
+                return new Node.Constant(truth(((Node.Constant) operand).getValue()) ? 0 : 1);
+            }
+            if (operand instanceof Node.Unary && ((Node.Unary) operand).getOperator() == Node.Operator.NOT) {
+                return ((Node.Unary) operand).getOperand();
+            }
+            return new Node.Unary(Node.Operator.NOT, operand);
+        }
+        if (node instanceof Node.Binary) {
+            Node.Binary binary = (Node.Binary) node;
+            Node.Operator operator = binary.getOperator();
+            boolean logical = operator == Node.Operator.AND || operator == Node.Operator.OR;
+            Node left = fold(logical ? binary.getLeft() : requireNumber(binary.getLeft()));
+            Node right = fold(logical ? binary.getRight() : requireNumber(binary.getRight()));
+            if (left instanceof Node.Constant && right instanceof Node.Constant) {
+                return new Node.Constant(apply(operator, ((Node.Constant) left).getValue(), ((Node.Constant) right).getValue()));
+            }
+            if (logical) {
+                Node constant = left instanceof Node.Constant ? left : right instanceof Node.Constant ? right : null;
+                Node other = constant == left ? right : left;
+                if (constant != null && other.isCondition()) {
+                    boolean value = truth(((Node.Constant) constant).getValue());
+                    if (operator == Node.Operator.AND) {
+                        return value ? other : new Node.Constant(0);
+                    }
+                    return value ? new Node.Constant(1) : other;
+                }
+            } else if (operator.isCondition() && left instanceof Node.Constant) {
+                return new Node.Binary(operator.mirror(), right, left);
+            }
+            return new Node.Binary(operator, left, right);
+        }
+        return node;
+    }
+
+    private static Node requireNumber(Node node) {
+        if (node.isCondition()) {
+            throw new RuleSyntaxException("Expected a number but found the condition " + node);
+        }
+        return node;
+    }
+
+    private static void collectSources(Node node, Set<String> sources) {
+        if (node instanceof Node.Metric) {
+            sources.add(((Node.Metric) node).getSource());
+        } else if (node instanceof Node.Unary) {
+            collectSources(((Node.Unary) node).getOperand(), sources);
+        } else if (node instanceof Node.Binary) {
+            collectSources(((Node.Binary) node).getLeft(), sources);
+            collectSources(((Node.Binary) node).getRight(), sources);
+        }
+    }
+
+    private static double apply(Node.Operator operator, double left, double right) {
+        switch (operator) {
+            case ADD:
+                return left + right;
+            case SUBTRACT:
+                return left - right;
+            case MULTIPLY:
+                return left * right;
+            case DIVIDE:
+                return left / right;
+            case LESS:
+                return left < right ? 1 : 0;
+            case LESS_OR_EQUAL:
+                return left <= right ? 1 : 0;
+            case GREATER:
+                return left > right ? 1 : 0;
+            case GREATER_OR_EQUAL:
+                return left >= right ? 1 : 0;
+            case EQUAL:
+                return left == right ? 1 : 0;
+            case NOT_EQUAL:
+                return left != right ? 1 : 0;
+            case AND:
+                return truth(left) && truth(right) ? 1 : 0;
+            case OR:
+                return truth(left) || truth(right) ? 1 : 0;
+            default:
+                throw new IllegalArgumentException("Not a binary operator: " + operator);
+        }
+    }
+
+    /**
+     * Counts, for every distinct node of the specified trees, the number of distinct
+     * parents (or roots) referencing it.
+     */
+    static Map<Node, Integer> countReferences(List<Node> roots) {
+        Map<Node, Integer> references = new HashMap<>();
+        for (Node root : roots) {
+            countReferences(root, references);
+        }
+        return references;
+    }
+
+    private static void countReferences(Node node, Map<Node, Integer> references) {
+        if (references.merge(node, 1, Integer::sum) > 1) {
+            return;
+        }
+        if (node instanceof Node.Unary) {
+            countReferences(((Node.Unary) node).getOperand(), references);
+        } else if (node instanceof Node.Binary) {
+            countReferences(((Node.Binary) node).getLeft(), references);
+            countReferences(((Node.Binary) node).getRight(), references);
+        }
+    }
+
+    /**
+     * Returns whether caching the value of the specified node is worth a lock: constants
+     * and plain source values are cheaper to recompute.
+     */
+    static boolean isMemoizable(Node node) {
+        return !(node instanceof Node.Constant)
+                && !(node instanceof Node.Metric && ((Node.Metric) node).getPath() == null);
+    }
+
+    /**
+     * Returns the accessor reading the specified path of a metric source value.
+     */
+    MetricAccessor accessorFor(String path) {
+        if (path == null) {
+            return (value, arguments) -> toDouble(value);
+        }
+        return accessors.getOrDefault(path, (value, arguments) -> value instanceof Map
+                ? toDouble(((Map<?, ?>) value).get(path)) : Double.NaN);
+    }
+
+    static double[] constantArguments(Node.Metric metric) {
+        double[] arguments = new double[metric.getArguments().size()];
+        for (int i = 0; i < arguments.length; i++) {
+            Node argument = metric.getArguments().get(i);
+            if (!(argument instanceof Node.Constant)) {
+                throw new RuleSyntaxException("The arguments of " + metric + " must be constant");
+            }
+            arguments[i] = ((Node.Constant) argument).getValue();
+        }
+        return arguments;
+    }
+
+    static boolean truth(double value) {
+        return value != 0 && !Double.isNaN(value);
+    }
+
+    static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * The state of one compilation: the reference counts of the folded nodes and the
+     * nodes compiled so far.
+     */
+    private final class Compilation {
+        private final List<String> names;
+        private final Map<Node, Integer> references;
+        private final Map<Node, ToDoubleFunction<MetricsSnapshot>> numbers = new HashMap<>();
+        private final Map<Node, ConditionEvaluator<MetricsSnapshot>> conditions = new HashMap<>();
+        private final Set<Node> compiled = new HashSet<>();
+        private int sharedCount = 0;
+
+        private Compilation(List<String> names, List<Node> roots) {
+            this.names = names;
+            this.references = countReferences(roots);
+        }
+
+        private boolean isShared(Node node) {
+            return isMemoizable(node) && references.getOrDefault(node, 0) > 1;
+        }
+
+        private void register(Node node) {
+            if (compiled.add(node) && isShared(node)) {
+                sharedCount++;
+            }
+        }
+
+        private ToDoubleFunction<MetricsSnapshot> number(Node node) {
+            ToDoubleFunction<MetricsSnapshot> function = numbers.get(node);
+            if (function == null) {
+                function = compileNumber(node);
+                if (isShared(node)) {
+                    function = new MemoizedNumber(function);
+                }
+                numbers.put(node, function);
+                register(node);
+            }
+            return function;
+        }
+
+        private ConditionEvaluator<MetricsSnapshot> condition(Node node) {
+            ConditionEvaluator<MetricsSnapshot> evaluator = conditions.get(node);
+            if (evaluator == null) {
+                evaluator = compileCondition(node);
+                if (isShared(node) && node.isCondition()) {
+                    evaluator = new MemoizedCondition(evaluator);
+                }
+                conditions.put(node, evaluator);
+                register(node);
+            }
+            return evaluator;
+        }
+
+        private ToDoubleFunction<MetricsSnapshot> compileNumber(Node node) {
+            if (node instanceof Node.Constant) {
+                double value = ((Node.Constant) node).getValue();
+                return snapshot -> value;
+            }
+            if (node instanceof Node.Metric) {
+                return compileMetric((Node.Metric) node);
+            }
+            if (node instanceof Node.Unary && ((Node.Unary) node).getOperator() == Node.Operator.NEGATE) {
+                ToDoubleFunction<MetricsSnapshot> operand = number(((Node.Unary) node).getOperand());
+                return snapshot -> -operand.applyAsDouble(snapshot);
+            }
+            if (node instanceof Node.Binary && !node.isCondition()) {
+                Node.Binary binary = (Node.Binary) node;
+                ToDoubleFunction<MetricsSnapshot> left = number(binary.getLeft());
+                ToDoubleFunction<MetricsSnapshot> right = number(binary.getRight());
+                switch (binary.getOperator()) {
+                    case ADD:
+                        return snapshot -> left.applyAsDouble(snapshot) + right.applyAsDouble(snapshot);
+                    case SUBTRACT:
+                        return snapshot -> left.applyAsDouble(snapshot) - right.applyAsDouble(snapshot);
+                    case MULTIPLY:
+                        return snapshot -> left.applyAsDouble(snapshot) * right.applyAsDouble(snapshot);
+                    default:
+                        return snapshot -> left.applyAsDouble(snapshot) / right.applyAsDouble(snapshot);
+                }
+            }
+            throw new RuleSyntaxException("Expected a number but found the condition " + node);
+        }
+
+        private ToDoubleFunction<MetricsSnapshot> compileMetric(Node.Metric metric) {
+            int index = names.indexOf(metric.getSource());
+            double[] arguments = constantArguments(metric);
+            MetricAccessor accessor = accessorFor(metric.getPath());
+            return snapshot -> {
+                Object value = snapshot.get(index);
+                return value == null ? Double.NaN : accessor.read(value, arguments);
+            };
+        }
+
+        private ConditionEvaluator<MetricsSnapshot> compileCondition(Node node) {
+            if (node instanceof Node.Constant) {
+                boolean value = truth(((Node.Constant) node).getValue());
+                return snapshot -> value;
+            }
+            if (node instanceof Node.Unary && ((Node.Unary) node).getOperator() == Node.Operator.NOT) {
+                ConditionEvaluator<MetricsSnapshot> operand = condition(((Node.Unary) node).getOperand());
+                return snapshot -> !operand.test(snapshot);
+            }
+            if (!node.isCondition()) {
+                ToDoubleFunction<MetricsSnapshot> number = number(node);
+                return snapshot -> truth(number.applyAsDouble(snapshot));
+            }
+            Node.Binary binary = (Node.Binary) node;
+            if (binary.getOperator() == Node.Operator.AND || binary.getOperator() == Node.Operator.OR) {
+                ConditionEvaluator<MetricsSnapshot> left = condition(binary.getLeft());
+                ConditionEvaluator<MetricsSnapshot> right = condition(binary.getRight());
+                return binary.getOperator() == Node.Operator.AND
+                        ? snapshot -> left.test(snapshot) && right.test(snapshot)
+                        : snapshot -> left.test(snapshot) || right.test(snapshot);
+            }
+            ToDoubleFunction<MetricsSnapshot> left = number(binary.getLeft());
+            if (binary.getRight() instanceof Node.Constant) {
+                double threshold = ((Node.Constant) binary.getRight()).getValue();
+                register(binary.getRight());
+                switch (binary.getOperator()) {
+                    case LESS:
+                        return snapshot -> left.applyAsDouble(snapshot) < threshold;
+                    case LESS_OR_EQUAL:
+                        return snapshot -> left.applyAsDouble(snapshot) <= threshold;
+                    case GREATER:
+                        return snapshot -> left.applyAsDouble(snapshot) > threshold;
+                    case GREATER_OR_EQUAL:
+                        return snapshot -> left.applyAsDouble(snapshot) >= threshold;
+                    case EQUAL:
+                        return snapshot -> left.applyAsDouble(snapshot) == threshold;
+                    default:
+                        return snapshot -> left.applyAsDouble(snapshot) != threshold;
+                }
+            }
+            ToDoubleFunction<MetricsSnapshot> right = number(binary.getRight());
+            switch (binary.getOperator()) {
+                case LESS:
+                    return snapshot -> left.applyAsDouble(snapshot) < right.applyAsDouble(snapshot);
+                case LESS_OR_EQUAL:
+                    return snapshot -> left.applyAsDouble(snapshot) <= right.applyAsDouble(snapshot);
+                case GREATER:
+                    return snapshot -> left.applyAsDouble(snapshot) > right.applyAsDouble(snapshot);
+                case GREATER_OR_EQUAL:
+                    return snapshot -> left.applyAsDouble(snapshot) >= right.applyAsDouble(snapshot);
+                case EQUAL:
+                    return snapshot -> left.applyAsDouble(snapshot) == right.applyAsDouble(snapshot);
+                default:
+                    return snapshot -> left.applyAsDouble(snapshot) != right.applyAsDouble(snapshot);
+            }
+        }
+    }
+
+    /**
+     * A shared numeric subexpression, computed once per snapshot.
+     */
+    private static final class MemoizedNumber implements ToDoubleFunction<MetricsSnapshot> {
+        private final ToDoubleFunction<MetricsSnapshot> delegate;
+        private MetricsSnapshot snapshot;
+        private double value;
+
+        private MemoizedNumber(ToDoubleFunction<MetricsSnapshot> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized double applyAsDouble(MetricsSnapshot current) {
+            if (current != snapshot) {
+                value = delegate.applyAsDouble(current);
+                snapshot = current;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * A shared condition, evaluated once per snapshot.
+     */
+    private static final class MemoizedCondition implements ConditionEvaluator<MetricsSnapshot> {
+        private final ConditionEvaluator<MetricsSnapshot> delegate;
+        private MetricsSnapshot snapshot;
+        private boolean value;
+
+        private MemoizedCondition(ConditionEvaluator<MetricsSnapshot> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized boolean test(MetricsSnapshot current) {
+            if (current != snapshot) {
+                value = delegate.test(current);
+                snapshot = current;
+            }
+            return value;
+        }
+    }
+}
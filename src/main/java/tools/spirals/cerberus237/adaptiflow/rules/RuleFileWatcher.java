@@ -0,0 +1,280 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.rules;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.spirals.cerberus237.adaptiflow.subscriptions.AbstractObservationScheduler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link RuleFileWatcher} class keeps the events of a running scheduler in sync with
+ * a rule file.
+ * <p>
+ * The file is watched with a {@link WatchService}. Once a change has been followed by a
+ * quiet period, since editors often write a file in several steps, the file is parsed and
+ * compiled on the watcher thread and the new events are swapped into the scheduler with
+ * {@link AbstractObservationScheduler#setEvents(java.util.List)}. The scheduler keeps
+ * running: its executor is not replaced and no observation round is skipped. Rules that
+ * did not change keep their state, as described in {@link RuleCompiler#compile(java.util.List, RuleSet)}.
+ * A file that fails to parse or compile is logged and the previous rules stay in place.
+ * </p>
+ * <p>
+ * The watcher records the duration of the last reload and its latency, from the moment
+ * the change was detected to the moment the new events were in place. Detection itself
+ * depends on the platform: it is immediate on Linux but may take seconds where the
+ * {@link WatchService} polls.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * ContinuousObservationScheduler scheduler = new ContinuousObservationScheduler(new ArrayList&lt;&gt;(), EVENT_LISTENING_INTERVAL_MS);
+ * RuleFileWatcher watcher = new RuleFileWatcher(Path.of("/etc/teastore/adaptation.rules"), compiler, scheduler);
+ * watcher.start();
+ * scheduler.start();
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class RuleFileWatcher implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(RuleFileWatcher.class);
+
+    /**
+     * The default time, in milliseconds, without further change before a file is reloaded.
+     */
+    public static final long DEFAULT_QUIET_PERIOD_MILLIS = 50;
+
+    /**
+     * How long, in milliseconds, {@link #close()} waits for the watcher thread to end.
+     */
+    public static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+    private final Path file;
+    private final RuleCompiler compiler;
+    private final AbstractObservationScheduler scheduler;
+    private final long quietPeriodMillis;
+
+    private volatile RuleSet ruleSet;
+    private String text;
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean closed = false;
+
+    private volatile long reloadCount = 0;
+    private volatile long failedReloadCount = 0;
+    private volatile long lastReloadNanos = 0;
+    private volatile long lastReloadLatencyNanos = 0;
+
+    /**
+     * Constructs a {@code RuleFileWatcher} with the default quiet period.
+     *
+     * @param file the rule file.
+     * @param compiler the compiler of the rules, with their sources and actions registered.
+     * @param scheduler the scheduler whose events to replace.
+     */
+    public RuleFileWatcher(Path file, RuleCompiler compiler, AbstractObservationScheduler scheduler) {
+        this(file, compiler, scheduler, DEFAULT_QUIET_PERIOD_MILLIS);
+    }
+
+    /**
+     * Constructs a {@code RuleFileWatcher}.
+     *
+     * @param file the rule file.
+     * @param compiler the compiler of the rules, with their sources and actions registered.
+     * @param scheduler the scheduler whose events to replace.
+     * @param quietPeriodMillis the time, in milliseconds, without further change before the file is reloaded.
+     */
+    public RuleFileWatcher(Path file, RuleCompiler compiler, AbstractObservationScheduler scheduler, long quietPeriodMillis) {
+        if (quietPeriodMillis < 0) {
+            throw new IllegalArgumentException("The quiet period must not be negative: " + quietPeriodMillis);
+        }
+        this.file = file.toAbsolutePath();
+        this.compiler = compiler;
+        this.scheduler = scheduler;
+        this.quietPeriodMillis = quietPeriodMillis;
+    }
+
+    /**
+     * Loads the rule file into the scheduler and starts watching it.
+     *
+     * @return the initial rule set.
+     * @throws IOException if the file cannot be read or watched.
+     * @throws RuleSyntaxException if the initial rules are invalid.
+     */
+    public synchronized RuleSet start() throws IOException {
+        if (thread != null) {
+            throw new IllegalStateException("The watcher is already started");
+        }
+        text = Files.readString(file);
+        ruleSet = compiler.compile(RuleParser.parse(text));
+        scheduler.setEvents(ruleSet.getEvents());
+        LOG.info("Loaded {} rule(s) from {}", ruleSet.getRules().size(), file);
+
+        watchService = file.getFileSystem().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        thread = new Thread(this::watch, "rule-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return ruleSet;
+    }
+
+    /**
+     * Reloads the rule file now.
+     *
+     * @return {@code true} if the rules were reloaded, {@code false} if the file did not
+     *         change, or could not be read or compiled, and the previous rules were kept.
+     */
+    public boolean reload() {
+        return reload(System.nanoTime());
+    }
+
+    private synchronized boolean reload(long detectedNanos) {
+        long start = System.nanoTime();
+        try {
+            String current = Files.readString(file);
+            if (current.equals(text)) {
+                return false;
+            }
+            RuleSet next = compiler.compile(RuleParser.parse(current), ruleSet);
+            scheduler.setEvents(next.getEvents());
+            ruleSet = next;
+            text = current;
+            long end = System.nanoTime();
+            lastReloadNanos = end - start;
+            lastReloadLatencyNanos = end - detectedNanos;
+            reloadCount++;
+            LOG.info("Reloaded {} rule(s) from {} in {} ms, {} unchanged", next.getRules().size(), file,
+                    TimeUnit.NANOSECONDS.toMillis(lastReloadNanos), next.getReusedEventCount());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            failedReloadCount++;
+            LOG.error("Failed to reload rules from {}, keeping the previous rules", file, e);
+            return false;
+        }
+    }
+
+    private void watch() {
+        Path name = file.getFileName();
+        try {
+            while (!closed) {
+                WatchKey key = watchService.take();
+                long detected = System.nanoTime();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context());
+                }
+                key.reset();
+                if (!changed) {
+                    continue;
+                }
+                while ((key = watchService.poll(quietPeriodMillis, TimeUnit.MILLISECONDS)) != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+                reload(detected);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Returns the rule set currently in place.
+     *
+     * @return the current rule set, or {@code null} before {@link #start()}.
+     */
+    public RuleSet getRuleSet() {
+        return ruleSet;
+    }
+
+    /**
+     * Returns the number of successful reloads since the watcher started.
+     *
+     * @return the reload count.
+     */
+    public long getReloadCount() {
+        return reloadCount;
+    }
+
+    /**
+     * Returns the number of reloads that failed and kept the previous rules.
+     *
+     * @return the failed reload count.
+     */
+    public long getFailedReloadCount() {
+        return failedReloadCount;
+    }
+
+    /**
+     * Returns how long the last successful reload took to read, compile and swap the rules.
+     *
+     * @return the duration, in nanoseconds.
+     */
+    public long getLastReloadNanos() {
+        return lastReloadNanos;
+    }
+
+    /**
+     * Returns the time between the detection of the last change and the new events being
+     * in place, including the quiet period.
+     *
+     * @return the latency, in nanoseconds.
+     */
+    public long getLastReloadLatencyNanos() {
+        return lastReloadLatencyNanos;
+    }
+
+    /**
+     * Stops watching the rule file, waiting up to {@link #CLOSE_TIMEOUT_MILLIS} for a
+     * reload in progress to finish. The scheduler keeps its current events.
+     *
+     * @throws IOException if the watch service cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        WatchService service;
+        Thread watcher;
+        // The join happens outside the monitor, which a reload in progress holds
+        synchronized (this) {
+            service = watchService;
+            watcher = thread;
+        }
+        if (service != null) {
+            service.close();
+        }
+        if (watcher == null || watcher == Thread.currentThread()) {
+            return;
+        }
+        watcher.interrupt();
+        try {
+            watcher.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (watcher.isAlive()) {
+            LOG.warn("The rule file watcher did not stop within {} ms", CLOSE_TIMEOUT_MILLIS);
+        }
+    }
+}
@@ -0,0 +1,403 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.rules;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@link RuleParser} class parses adaptation rules written in a compact rule language.
+ * <p>
+ * A rule file holds any number of rules, optionally separated by {@code ;}. Line breaks
+ * are insignificant and {@code #} starts a comment running to the end of the line.
+ * The grammar is:
+ * </p>
+ * <pre>
+ * rule       := [name ':'] 'when' or ['for' integer ('tick' | 'ticks')] 'then' action (',' action)*
+ * or         := and (('or' | '||') and)*
+ * and        := unary (('and' | '&amp;&amp;') unary)*
+ * unary      := ('not' | '!') unary | comparison
+ * comparison := sum [('&lt;' | '&lt;=' | '&gt;' | '&gt;=' | '==' | '!=') sum]
+ * sum        := product (('+' | '-') product)*
+ * product    := factor (('*' | '/') factor)*
+ * factor     := number [unit] | '-' factor | '(' or ')' | metric
+ * metric     := source ('.' identifier)* ['(' [sum (',' sum)*] ')']
+ * </pre>
+ * <p>
+ * A number followed by one of the units {@code ms}, {@code s}, {@code m} or {@code h}
+ * is a duration in milliseconds. Keywords are case-insensitive. Unnamed rules are
+ * named {@code rule-1}, {@code rule-2}, ... after their position in the file.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * List&lt;Rule&gt; rules = RuleParser.parse(
+ *         "attack: when requests.rate(60s) &gt; 300 for 3 ticks then OpenCircuitBreaker, LowPowerMode");
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public final class RuleParser {
+
+    private enum Type {
+        IDENTIFIER, NUMBER, SYMBOL, END
+    }
+
+    private static final class Token {
+        private final Type type;
+        private final String text;
+        private final double number;
+        private final int line;
+        private final int column;
+
+        private Token(Type type, String text, double number, int line, int column) {
+            this.type = type;
+            this.text = text;
+            this.number = number;
+            this.line = line;
+            this.column = column;
+        }
+    }
+
+    private final List<Token> tokens;
+    private int position = 0;
+
+    private RuleParser(List<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * Parses the rules of the specified source text.
+     *
+     * @param source the rule file contents.
+     * @return the parsed rules, in order.
+     * @throws RuleSyntaxException if the text is not valid or two rules share a name.
+     */
+    public static List<Rule> parse(String source) {
+        return new RuleParser(tokenize(source)).rules();
+    }
+
+    private List<Rule> rules() {
+        List<Rule> rules = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        while (true) {
+            while (acceptSymbol(";")) {
+                // empty statement
+            }
+            if (peek().type == Type.END) {
+                return rules;
+            }
+            Token start = peek();
+            Rule rule = rule(rules.size() + 1);
+            if (!names.add(rule.getName())) {
+                throw new RuleSyntaxException("Duplicate rule name '" + rule.getName() + "'", start.line, start.column);
+            }
+            rules.add(rule);
+        }
+    }
+
+    private Rule rule(int index) {
+        String name = "rule-" + index;
+        if (peek().type == Type.IDENTIFIER && peek(1).type == Type.SYMBOL && peek(1).text.equals(":")) {
+            name = next().text;
+            next();
+        }
+        expectKeyword("when");
+        Node condition = or();
+        int ticks = 1;
+        if (acceptKeyword("for")) {
+            Token count = next();
+            if (count.type != Type.NUMBER || count.number != Math.rint(count.number) || count.number < 1
+                    || count.number > Integer.MAX_VALUE || !count.text.chars().allMatch(Character::isDigit)) {
+                throw error("Expected a positive number of ticks", count);
+            }
+            ticks = (int) count.number;
+            if (!acceptKeyword("ticks")) {
+                acceptKeyword("tick");
+            }
+        }
+        expectKeyword("then");
+        List<String> actions = new ArrayList<>();
+        do {
+            Token action = next();
+            if (action.type != Type.IDENTIFIER || isKeyword(action.text)) {
+                throw error("Expected an action name", action);
+            }
+            actions.add(action.text);
+        } while (acceptSymbol(","));
+        return new Rule(name, condition, ticks, actions);
+    }
+
+    private Node or() {
+        Node node = and();
+        while (acceptKeyword("or") || acceptSymbol("||")) {
+            node = new Node.Binary(Node.Operator.OR, node, and());
+        }
+        return node;
+    }
+
+    private Node and() {
+        Node node = unary();
+        while (acceptKeyword("and") || acceptSymbol("&&")) {
+            node = new Node.Binary(Node.Operator.AND, node, unary());
+        }
+        return node;
+    }
+
+    private Node unary() {
+        if (acceptKeyword("not") || acceptSymbol("!")) {
+            return new Node.Unary(Node.Operator.NOT, unary());
+        }
+        return comparison();
+    }
+
+    private Node comparison() {
+        Node left = sum();
+        Token token = peek();
+        if (token.type == Type.SYMBOL) {
+            Node.Operator operator = comparisonOperator(token.text);
+            if (operator != null) {
+                next();
+                return new Node.Binary(operator, left, sum());
+            }
+        }
+        return left;
+    }
+
+    private static Node.Operator comparisonOperator(String symbol) {
+        switch (symbol) {
+            case "<":
+                return Node.Operator.LESS;
+            case "<=":
+                return Node.Operator.LESS_OR_EQUAL;
+            case ">":
+                return Node.Operator.GREATER;
+            case ">=":
+                return Node.Operator.GREATER_OR_EQUAL;
+            case "==":
+                return Node.Operator.EQUAL;
+            case "!=":
+                return Node.Operator.NOT_EQUAL;
+            default:
+                return null;
+        }
+    }
+
+    private Node sum() {
+        Node node = product();
+        while (true) {
+            if (acceptSymbol("+")) {
+                node = new Node.Binary(Node.Operator.ADD, node, product());
+            } else if (acceptSymbol("-")) {
+                node = new Node.Binary(Node.Operator.SUBTRACT, node, product());
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private Node product() {
+        Node node = factor();
+        while (true) {
+            if (acceptSymbol("*")) {
+                node = new Node.Binary(Node.Operator.MULTIPLY, node, factor());
+            } else if (acceptSymbol("/")) {
+                node = new Node.Binary(Node.Operator.DIVIDE, node, factor());
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private Node factor() {
+        Token token = next();
+        if (token.type == Type.NUMBER) {
+            return new Node.Constant(token.number);
+        }
+        if (token.type == Type.SYMBOL && token.text.equals("-")) {
+            return new Node.Unary(Node.Operator.NEGATE, factor());
+        }
+        if (token.type == Type.SYMBOL && token.text.equals("(")) {
+            Node node = or();
+            expectSymbol(")");
+            return node;
+        }
+        if (token.type == Type.IDENTIFIER && !isKeyword(token.text)) {
+            return metric(token.text);
+        }
+        throw error("Expected a number, a metric or '('", token);
+    }
+
+    private Node metric(String source) {
+        StringBuilder path = null;
+        while (acceptSymbol(".")) {
+            Token segment = next();
+            if (segment.type != Type.IDENTIFIER) {
+                throw error("Expected a metric name", segment);
+            }
+            path = path == null ? new StringBuilder(segment.text) : path.append('.').append(segment.text);
+        }
+        List<Node> arguments = new ArrayList<>();
+        if (acceptSymbol("(")) {
+            if (!acceptSymbol(")")) {
+                do {
+                    arguments.add(sum());
+                } while (acceptSymbol(","));
+                expectSymbol(")");
+            }
+        }
+        return new Node.Metric(source, path == null ? null : path.toString(), arguments);
+    }
+
+    private static boolean isKeyword(String text) {
+        switch (text.toLowerCase()) {
+            case "when":
+            case "for":
+            case "then":
+            case "and":
+            case "or":
+            case "not":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private Token peek() {
+        return peek(0);
+    }
+
+    private Token peek(int offset) {
+        return tokens.get(Math.min(position + offset, tokens.size() - 1));
+    }
+
+    private Token next() {
+        Token token = peek();
+        if (token.type != Type.END) {
+            position++;
+        }
+        return token;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        Token token = peek();
+        if (token.type == Type.IDENTIFIER && token.text.equalsIgnoreCase(keyword)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean acceptSymbol(String symbol) {
+        Token token = peek();
+        if (token.type == Type.SYMBOL && token.text.equals(symbol)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expectKeyword(String keyword) {
+        if (!acceptKeyword(keyword)) {
+            throw error("Expected '" + keyword + "'", peek());
+        }
+    }
+
+    private void expectSymbol(String symbol) {
+        if (!acceptSymbol(symbol)) {
+            throw error("Expected '" + symbol + "'", peek());
+        }
+    }
+
+    private static RuleSyntaxException error(String message, Token token) {
+        String found = token.type == Type.END ? "end of input" : "'" + token.text + "'";
+        return new RuleSyntaxException(message + " but found " + found, token.line, token.column);
+    }
+
+    private static List<Token> tokenize(String source) {
+        List<Token> tokens = new ArrayList<>();
+        int line = 1;
+        int lineStart = 0;
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            int column = i - lineStart + 1;
+            if (c == '\n') {
+                line++;
+                lineStart = ++i;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '#') {
+                while (i < source.length() && source.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < source.length() && Character.isDigit(source.charAt(i + 1)))) {
+                int start = i;
+                while (i < source.length() && (Character.isDigit(source.charAt(i)) || source.charAt(i) == '.')) {
+                    i++;
+                }
+                String digits = source.substring(start, i);
+                int unitStart = i;
+                while (i < source.length() && Character.isLetter(source.charAt(i))) {
+                    i++;
+                }
+                double value;
+                try {
+                    value = Double.parseDouble(digits) * unitMillis(source.substring(unitStart, i));
+                } catch (NumberFormatException e) {
+                    throw new RuleSyntaxException("Invalid number '" + source.substring(start, i) + "'", line, column);
+                }
+                tokens.add(new Token(Type.NUMBER, source.substring(start, i), value, line, column));
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < source.length() && (Character.isLetterOrDigit(source.charAt(i)) || source.charAt(i) == '_')) {
+                    i++;
+                }
+                tokens.add(new Token(Type.IDENTIFIER, source.substring(start, i), 0, line, column));
+            } else {
+                String two = i + 1 < source.length() ? source.substring(i, i + 2) : "";
+                if (two.equals("<=") || two.equals(">=") || two.equals("==") || two.equals("!=")
+                        || two.equals("&&") || two.equals("||")) {
+                    tokens.add(new Token(Type.SYMBOL, two, 0, line, column));
+                    i += 2;
+                } else if ("()<>+-*/,.:;!".indexOf(c) >= 0) {
+                    tokens.add(new Token(Type.SYMBOL, String.valueOf(c), 0, line, column));
+                    i++;
+                } else {
+                    throw new RuleSyntaxException("Unexpected character '" + c + "'", line, column);
+                }
+            }
+        }
+        tokens.add(new Token(Type.END, "", 0, line, source.length() - lineStart + 1));
+        return tokens;
+    }
+
+    private static double unitMillis(String unit) {
+        switch (unit) {
+            case "":
+            case "ms":
+                return 1;
+            case "s":
+                return 1_000;
+            case "m":
+                return 60_000;
+            case "h":
+                return 3_600_000;
+            default:
+                throw new NumberFormatException(unit);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.rules;
+
+import tools.spirals.cerberus237.adaptationactionsbase.core.IAdaptationAction;
+import tools.spirals.cerberus237.adaptiflow.collectors.CompositeMetricsCollector;
+import tools.spirals.cerberus237.adaptiflow.events.ConditionalEvent;
+import tools.spirals.cerberus237.adaptiflow.events.Event;
+import tools.spirals.cerberus237.adaptiflow.models.MetricsSnapshot;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link RuleSet} class holds the events compiled from a rule file by a
+ * {@link RuleCompiler}.
+ * <p>
+ * Every event observes the same {@link CompositeMetricsCollector}, so each referenced
+ * metric source is queried once per tick whatever the number of rules.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * RuleSet ruleSet = compiler.compile(rules);
+ * new ContinuousObservationScheduler(ruleSet.getEvents(), EVENT_LISTENING_INTERVAL_MS).start();
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class RuleSet {
+
+    /**
+     * The compiled rules, in order.
+     */
+    private final List<Rule> rules;
+
+    /**
+     * The events of the rules, by rule name, in rule order.
+     */
+    private final Map<String, ConditionalEvent<MetricsSnapshot>> events;
+
+    /**
+     * The collector shared by all events.
+     */
+    private final CompositeMetricsCollector collector;
+
+    /**
+     * The metric sources read by the rules, by name.
+     */
+    private final Map<String, IMetricsCollector<?>> sources;
+
+    /**
+     * The action instances of the rules, by lowercase name.
+     */
+    private final Map<String, IAdaptationAction> actionInstances;
+
+    /**
+     * The number of distinct nodes compiled for all rules.
+     */
+    private final int nodeCount;
+
+    /**
+     * The number of those nodes referenced more than once and cached per snapshot.
+     */
+    private final int sharedNodeCount;
+
+    /**
+     * The number of events kept from the rule set this one replaces.
+     */
+    private final int reusedEventCount;
+
+    RuleSet(List<Rule> rules, Map<String, ConditionalEvent<MetricsSnapshot>> events,
+            CompositeMetricsCollector collector, Map<String, IMetricsCollector<?>> sources,
+            Map<String, IAdaptationAction> actionInstances, int nodeCount, int sharedNodeCount, int reusedEventCount) {
+        this.rules = List.copyOf(rules);
+        this.events = Collections.unmodifiableMap(events);
+        this.collector = collector;
+        this.sources = Collections.unmodifiableMap(sources);
+        this.actionInstances = Collections.unmodifiableMap(actionInstances);
+        this.nodeCount = nodeCount;
+        this.sharedNodeCount = sharedNodeCount;
+        this.reusedEventCount = reusedEventCount;
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Returns the rule with the specified name.
+     *
+     * @param name the name of the rule.
+     * @return the rule, or {@code null} if no rule has that name.
+     */
+    public Rule getRule(String name) {
+        for (Rule rule : rules) {
+            if (rule.getName().equals(name)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the events of the rules, in rule order, for an observation scheduler.
+     *
+     * @return a new list of the events.
+     */
+    @SuppressWarnings("rawtypes")
+    public List<Event> getEvents() {
+        return new ArrayList<>(events.values());
+    }
+
+    /**
+     * Returns the event of the specified rule.
+     *
+     * @param name the name of the rule.
+     * @return the event, or {@code null} if no rule has that name.
+     */
+    public ConditionalEvent<MetricsSnapshot> getEvent(String name) {
+        return events.get(name);
+    }
+
+    public CompositeMetricsCollector getCollector() {
+        return collector;
+    }
+
+    /**
+     * Returns the metric sources read by the rules.
+     *
+     * @return the sources, by name, in collector order.
+     */
+    public Map<String, IMetricsCollector<?>> getSources() {
+        return sources;
+    }
+
+    Map<String, IAdaptationAction> getActionInstances() {
+        return actionInstances;
+    }
+
+    /**
+     * Returns the number of distinct expression nodes compiled for all rules, after
+     * constant folding and deduplication.
+     *
+     * @return the number of compiled nodes.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the number of compiled nodes referenced more than once whose value is
+     * cached and computed once per snapshot.
+     *
+     * @return the number of shared nodes.
+     */
+    public int getSharedNodeCount() {
+        return sharedNodeCount;
+    }
+
+    /**
+     * Returns the number of events, with their state, kept from the rule set this one
+     * replaces because their rule did not change.
+     *
+     * @return the number of reused events.
+     */
+    public int getReusedEventCount() {
+        return reusedEventCount;
+    }
+}
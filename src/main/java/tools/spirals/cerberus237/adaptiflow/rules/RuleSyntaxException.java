@@ -0,0 +1,79 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.rules;
+
+/**
+ * The {@link RuleSyntaxException} class signals an adaptation rule that cannot be
+ * parsed or compiled.
+ * <p>
+ * Parse errors carry the line and column of the offending token; errors found while
+ * compiling, such as a reference to an unknown metric source or action, report a
+ * line and column of {@code 0}.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class RuleSyntaxException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The line of the offending token, starting at 1, or 0 when unknown.
+     */
+    private final int line;
+
+    /**
+     * The column of the offending token, starting at 1, or 0 when unknown.
+     */
+    private final int column;
+
+    /**
+     * Constructs a {@code RuleSyntaxException} without position.
+     *
+     * @param message the detail message.
+     */
+    public RuleSyntaxException(String message) {
+        this(message, 0, 0);
+    }
+
+    /**
+     * Constructs a {@code RuleSyntaxException} at the specified position.
+     *
+     * @param message the detail message.
+     * @param line the line of the offending token, starting at 1.
+     * @param column the column of the offending token, starting at 1.
+     */
+    public RuleSyntaxException(String message, int line, int column) {
+        super(line > 0 ? message + " at line " + line + ", column " + column : message);
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * Returns the line of the offending token.
+     *
+     * @return the line, starting at 1, or 0 when unknown.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the column of the offending token.
+     *
+     * @return the column, starting at 1, or 0 when unknown.
+     */
+    public int getColumn() {
+        return column;
+    }
+}
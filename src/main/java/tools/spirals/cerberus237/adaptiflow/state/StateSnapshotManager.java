@@ -0,0 +1,366 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.state;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.spirals.cerberus237.adaptiflow.events.ConditionalEvent;
+import tools.spirals.cerberus237.adaptiflow.events.Event;
+import tools.spirals.cerberus237.adaptiflow.interfaces.Observer;
+import tools.spirals.cerberus237.adaptiflow.interfaces.Snapshottable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * The {@link StateSnapshotManager} class saves the runtime state of events, evaluators
+ * and subscribers to a file and restores it when the service starts again, so counters,
+ * smoothing windows and streaks survive a redeploy.
+ * <p>
+ * Components are registered under stable keys, either one by one or by walking a list
+ * of named events: each event, the evaluator of a {@link ConditionalEvent} and the
+ * event's subscribers are registered when they are {@link Snapshottable}. A snapshot
+ * is one binary file holding the state of every component under its key, with a CRC32
+ * checksum; it is written to a temporary file, forced to the storage device and moved
+ * in place, so a crash while writing leaves the previous snapshot intact.
+ * </p>
+ * <p>
+ * On restore, components absent from the file keep their fresh state and keys no longer
+ * registered are ignored, so a snapshot survives rule changes. A component whose state
+ * fails to read is logged and put back in the state it had before; a file with a wrong
+ * checksum is rejected as a whole. Components are captured one at a time while the
+ * observations go on, not as one atomic cut: the snapshot of a round in progress may
+ * hold the state of some components before the round and of others after it, and an
+ * event captured during its observation may pair the new observation count with the
+ * outcome of the previous observation.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * StateSnapshotManager snapshots = new StateSnapshotManager(Path.of("/var/lib/teastore/adaptation.state"));
+ * snapshots.registerEvents(events);
+ * snapshots.restore();
+ * snapshots.start(30000);
+ * Runtime.getRuntime().addShutdownHook(new Thread(snapshots::close));
+ * new ContinuousObservationScheduler(events, EVENT_LISTENING_INTERVAL_MS).start();
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class StateSnapshotManager implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(StateSnapshotManager.class);
+
+    private static final int MAGIC = 0x41465353;
+    private static final int VERSION = 1;
+
+    private final Path file;
+    private final Map<String, Snapshottable> components = new LinkedHashMap<>();
+    private ScheduledExecutorService executor;
+
+    private volatile long snapshotCount = 0;
+    private volatile long failedSnapshotCount = 0;
+    private volatile long lastSnapshotBytes = 0;
+    private volatile long lastSnapshotNanos = 0;
+
+    /**
+     * Constructs a {@code StateSnapshotManager} saving to the specified file.
+     *
+     * @param file the snapshot file.
+     * @throws IllegalArgumentException if the file is {@code null}.
+     */
+    public StateSnapshotManager(Path file) {
+        if (file == null) {
+            throw new IllegalArgumentException("The snapshot file must not be null");
+        }
+        this.file = file;
+    }
+
+    /**
+     * Registers a component under a key.
+     *
+     * @param key the key identifying the component across restarts.
+     * @param component the component.
+     * @throws IllegalArgumentException if an argument is {@code null} or the key is already registered.
+     */
+    public synchronized void register(String key, Snapshottable component) {
+        if (key == null || component == null) {
+            throw new IllegalArgumentException("The key and component must not be null");
+        }
+        if (components.putIfAbsent(key, component) != null) {
+            throw new IllegalArgumentException("A component is already registered under " + key);
+        }
+    }
+
+    /**
+     * Registers named events with their {@link Snapshottable} evaluators and subscribers,
+     * under the keys {@code name}, {@code name/evaluator} and {@code name/subscriber/id}.
+     * <p>
+     * A subscriber is keyed by its {@link Snapshottable#getSnapshotId()}, so reordering the
+     * subscribers of an event keeps their state. Subscribers sharing an identifier get the
+     * suffixes {@code #1}, {@code #2}, ... in subscription order.
+     * </p>
+     *
+     * @param events the events.
+     * @throws IllegalArgumentException if an event has no name or two events share one.
+     */
+    public synchronized void registerEvents(List<? extends Event<?>> events) {
+        for (Event<?> event : events) {
+            String name = event.getName();
+            if (name == null) {
+                throw new IllegalArgumentException("Events must be named to be snapshotted");
+            }
+            register(name, event);
+            if (event instanceof ConditionalEvent
+                    && ((ConditionalEvent<?>) event).getConditionEvaluator() instanceof Snapshottable) {
+                register(name + "/evaluator", (Snapshottable) ((ConditionalEvent<?>) event).getConditionEvaluator());
+            }
+            Map<String, Integer> occurrences = new HashMap<>();
+            for (Observer<?> subscriber : event.getSubscribers()) {
+                if (subscriber instanceof Snapshottable) {
+                    String id = ((Snapshottable) subscriber).getSnapshotId();
+                    int occurrence = occurrences.merge(id, 1, Integer::sum) - 1;
+                    register(name + "/subscriber/" + id + (occurrence == 0 ? "" : "#" + occurrence),
+                            (Snapshottable) subscriber);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the state of every registered component to the snapshot file.
+     *
+     * @throws IOException if the snapshot cannot be written; the previous snapshot is kept.
+     */
+    public synchronized void snapshot() throws IOException {
+        long start = System.nanoTime();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(components.size());
+        ByteArrayOutputStream state = new ByteArrayOutputStream();
+        for (Map.Entry<String, Snapshottable> entry : components.entrySet()) {
+            state.reset();
+            entry.getValue().writeState(new DataOutputStream(state));
+            out.writeUTF(entry.getKey());
+            out.writeInt(state.size());
+            state.writeTo(out);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            // The content must reach the device before the rename, or a crash could leave
+            // the snapshot name on an empty or partial file.
+            channel.force(true);
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        forceDirectory();
+        snapshotCount++;
+        lastSnapshotBytes = bytes.size();
+        lastSnapshotNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Forces the rename of the snapshot to the device, where the platform allows opening
+     * a directory; otherwise the rename is durable once the file system commits it.
+     */
+    private void forceDirectory() {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            LOG.debug("Could not force the directory {}", directory, e);
+        }
+    }
+
+    /**
+     * Restores the registered components from the snapshot file.
+     *
+     * @return the number of components restored; 0 if there is no snapshot file.
+     * @throws IOException if the file cannot be read, is not a snapshot or fails its checksum.
+     */
+    public synchronized int restore() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        byte[] content = Files.readAllBytes(file);
+        if (content.length < 28) {
+            throw new IOException("Truncated snapshot file: " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length - 8);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+        in.skipBytes(content.length - 8);
+        if (in.readLong() != crc.getValue()) {
+            throw new IOException("Corrupted snapshot file: " + file);
+        }
+        in = new DataInputStream(new ByteArrayInputStream(content, 0, content.length - 8));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a snapshot file of this version: " + file);
+        }
+        long takenAt = in.readLong();
+        int entries = in.readInt();
+        int restored = 0;
+        for (int i = 0; i < entries; i++) {
+            String key = in.readUTF();
+            byte[] state = new byte[in.readInt()];
+            in.readFully(state);
+            Snapshottable component = components.get(key);
+            if (component == null) {
+                continue;
+            }
+            byte[] previous = stateOf(component);
+            try {
+                component.readState(new DataInputStream(new ByteArrayInputStream(state)));
+                restored++;
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Could not restore the state of {}", key, e);
+                // A component, or one it wraps, may have applied part of the state before failing
+                component.readState(new DataInputStream(new ByteArrayInputStream(previous)));
+            }
+        }
+        LOG.info("Restored {} of {} component(s) from a snapshot taken {} ms ago",
+                restored, components.size(), System.currentTimeMillis() - takenAt);
+        return restored;
+    }
+
+    private static byte[] stateOf(Snapshottable component) throws IOException {
+        ByteArrayOutputStream state = new ByteArrayOutputStream();
+        component.writeState(new DataOutputStream(state));
+        return state.toByteArray();
+    }
+
+    /**
+     * Starts taking a snapshot periodically on a background thread.
+     *
+     * @param intervalMillis the time between two snapshots, in milliseconds.
+     * @throws IllegalArgumentException if the interval is not positive.
+     * @throws IllegalStateException if the manager is already started.
+     */
+    public synchronized void start(long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("The snapshot interval must be positive: " + intervalMillis);
+        }
+        if (executor != null) {
+            throw new IllegalStateException("The snapshot manager is already started");
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "adaptiflow-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            failedSnapshotCount++;
+            LOG.warn("Could not write the state snapshot to {}", file, e);
+        }
+    }
+
+    /**
+     * Stops the periodic snapshots, if started, and takes a final snapshot.
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = executor;
+            executor = null;
+        }
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        snapshotQuietly();
+    }
+
+    /**
+     * Returns the number of snapshots written.
+     *
+     * @return the snapshot count.
+     */
+    public long getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    /**
+     * Returns the number of periodic or final snapshots that failed.
+     *
+     * @return the failed snapshot count.
+     */
+    public long getFailedSnapshotCount() {
+        return failedSnapshotCount;
+    }
+
+    /**
+     * Returns the size of the last snapshot written.
+     *
+     * @return the size, in bytes.
+     */
+    public long getLastSnapshotBytes() {
+        return lastSnapshotBytes;
+    }
+
+    /**
+     * Returns the time taken by the last snapshot, including the file write.
+     *
+     * @return the duration, in nanoseconds.
+     */
+    public long getLastSnapshotNanos() {
+        return lastSnapshotNanos;
+    }
+}
@@ -25,6 +25,11 @@ import java.util.List;
  * and can be extended by concrete implementations that define specific
  * behaviors for starting and stopping event handling.
  * </p>
+ * <p>
+ * The event list can be replaced while the scheduler runs with {@link #setEvents(List)}:
+ * implementations read the list once per observation round, so a round observes
+ * either the old or the new events, never a mix.
+ * </p>
  *
  * @author Arléon Zemtsop (Cerberus)
  */
@@ -33,7 +38,7 @@ public abstract class AbstractObservationScheduler {
     /**
      * A list of events that this scheduler listens to.
      */
-    protected final List<Event> events;
+    protected volatile List<Event> events;
 
     /**
      * Constructs an {@code AbstractEventScheduler} with the specified list of events.
@@ -44,6 +49,28 @@ public abstract class AbstractObservationScheduler {
         this.events = events;
     }
 
+    /**
+     * Returns the events this scheduler currently listens to.
+     *
+     * @return the current list of events.
+     */
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    /**
+     * Atomically replaces the events this scheduler listens to, without stopping it.
+     * <p>
+     * The observation round in progress, if any, completes with the previous events;
+     * the next round observes the new ones.
+     * </p>
+     *
+     * @param events the new list of events, copied.
+     */
+    public void setEvents(List<Event> events) {
+        this.events = List.copyOf(events);
+    }
+
     /**
      * Starts the event scheduler by initiating the listening process
      * for all registered events.
@@ -62,4 +89,20 @@ public abstract class AbstractObservationScheduler {
      * </p>
      */
     public abstract void stop();
+
+    /**
+     * Stops the event scheduler, giving the observation in progress, and the actions it
+     * triggers, up to {@code timeoutMillis} milliseconds to finish.
+     * <p>
+     * No observation starts after this call. The default implementation calls
+     * {@link #stop()} and reports the scheduler as drained.
+     * </p>
+     *
+     * @param timeoutMillis how long, in milliseconds, to wait for the observation in progress.
+     * @return {@code true} if no observation was running when this method returned.
+     */
+    public boolean stop(long timeoutMillis) {
+        stop();
+        return true;
+    }
 }
\ No newline at end of file
@@ -18,8 +18,9 @@ import org.slf4j.LoggerFactory;
 import tools.spirals.cerberus237.adaptiflow.events.Event;
 
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -29,23 +30,121 @@ import java.util.concurrent.TimeUnit;
  * This class utilizes a scheduled executor service to invoke the listening
  * process for all registered events at regular intervals.
  * </p>
+ * <p>
+ * Each observation round reads the event list once, so events swapped in with
+ * {@link #setEvents(List)} take effect at the next round without restarting the
+ * executor. The scheduler records the number of rounds and the largest gap between the
+ * starts of two consecutive rounds, which should stay close to the interval across
+ * reloads.
+ * </p>
+ * <p>
+ * Rounds are scheduled on a fixed grid of ticks. When a round takes longer than the interval,
+ * the {@link OverrunPolicy} decides what happens to the ticks it missed; the default,
+ * {@link OverrunPolicy#CATCH_UP}, keeps the fixed-rate behavior of earlier versions. The
+ * scheduler counts rounds longer than the interval and dropped ticks, and measures the lag between the
+ * time a round was due and the time it started.
+ * </p>
+ * <p>
+ * {@link #stop()} drains the scheduler: no new round starts, and the round in progress,
+ * including the actions it triggers, is given {@link #DEFAULT_DRAIN_TIMEOUT_MILLIS} to
+ * finish before it is interrupted. The executor is created by the first {@code start()}
+ * and reused by the following ones; its thread terminates after being idle for
+ * {@link #IDLE_THREAD_TIMEOUT_SECONDS} seconds.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * ContinuousObservationScheduler scheduler = new ContinuousObservationScheduler(
+ *         List.of(attackEvent, calmEvent), 5000, OverrunPolicy.COALESCE);
+ * scheduler.start();
+ * </pre>
  *
  * @author Arléon Zemtsop (Cerberus)
  */
 public class ContinuousObservationScheduler extends AbstractObservationScheduler {
     private static final Logger LOG = LoggerFactory.getLogger(ContinuousObservationScheduler.class);
 
+    /**
+     * How long, in milliseconds, {@link #stop()} waits for the round in progress.
+     */
+    public static final long DEFAULT_DRAIN_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * How long, in seconds, the executor thread survives without rounds to run.
+     */
+    public static final long IDLE_THREAD_TIMEOUT_SECONDS = 30;
+
     /**
      * The interval in milliseconds at which to listen for events.
      */
     private final int interval;
 
     /**
-     * The scheduled executor service used to run tasks at fixed intervals.
+     * What to do with the ticks missed by an overrunning round.
      */
-    private ScheduledExecutorService scheduler;
+    private final OverrunPolicy overrunPolicy;
 
-    private boolean running = false;
+    /**
+     * The scheduled executor service used to run tasks at fixed intervals, created lazily.
+     */
+    private ScheduledThreadPoolExecutor scheduler;
+
+    private volatile boolean running = false;
+
+    /**
+     * Guards the lifecycle state below, and is notified when a round ends.
+     */
+    private final Object lifecycle = new Object();
+
+    /**
+     * Incremented by every start and stop, so rounds of a previous run do not reschedule.
+     */
+    private long generation = 0;
+
+    /**
+     * The next scheduled round.
+     */
+    private ScheduledFuture<?> pending;
+
+    /**
+     * The thread running the current round, or {@code null} between rounds.
+     */
+    private Thread roundThread;
+
+    /**
+     * The number of observation rounds performed.
+     */
+    private volatile long tickCount = 0;
+
+    /**
+     * The start time, in nanoseconds, of the last observation round.
+     */
+    private volatile long lastTickNanos = 0;
+
+    /**
+     * The largest gap, in nanoseconds, between the starts of two consecutive rounds.
+     */
+    private volatile long maxObservationGapNanos = 0;
+
+    /**
+     * The number of rounds that took longer than the interval.
+     */
+    private volatile long overrunCount = 0;
+
+    /**
+     * The number of ticks dropped by {@link OverrunPolicy#SKIP} or {@link OverrunPolicy#COALESCE}.
+     */
+    private volatile long skippedTickCount = 0;
+
+    /**
+     * The delay, in nanoseconds, between the time the last round was due and its start.
+     */
+    private volatile long lastTickLagNanos = 0;
+
+    /**
+     * The largest delay, in nanoseconds, between the time a round was due and its start.
+     */
+    private volatile long maxTickLagNanos = 0;
 
     /**
      * Constructs a {@code ContinuousEventScheduler} with the specified list of events
@@ -55,9 +154,27 @@ public class ContinuousObservationScheduler extends AbstractObservationScheduler
      * @param interval the interval in milliseconds for listening to events.
      */
     public ContinuousObservationScheduler(List<Event> events, int interval) {
+        this(events, interval, OverrunPolicy.CATCH_UP);
+    }
+
+    /**
+     * Constructs a {@code ContinuousEventScheduler} with the specified list of events,
+     * an interval for event listening and a policy for overrunning rounds.
+     *
+     * @param events a list of events to be managed by this scheduler.
+     * @param interval the interval in milliseconds for listening to events.
+     * @param overrunPolicy what to do with the ticks missed by a round longer than the interval.
+     */
+    public ContinuousObservationScheduler(List<Event> events, int interval, OverrunPolicy overrunPolicy) {
         super(events);
+        if (interval <= 0) {
+            throw new IllegalArgumentException("The interval must be positive: " + interval);
+        }
+        if (overrunPolicy == null) {
+            throw new IllegalArgumentException("The overrun policy must not be null");
+        }
         this.interval = interval;
-        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+        this.overrunPolicy = overrunPolicy;
     }
 
     /**
@@ -70,26 +187,255 @@ public class ContinuousObservationScheduler extends AbstractObservationScheduler
      */
     @Override
     public void start() {
-        LOG.info("Start Continuous Event Observations ...");
-        scheduler.scheduleAtFixedRate(() -> events.forEach(Event::observe), interval, interval, TimeUnit.MILLISECONDS);
-        this.running = true;
+        synchronized (lifecycle) {
+            if (running) {
+                return;
+            }
+            LOG.info("Start Continuous Event Observations ...");
+            if (scheduler == null) {
+                scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                    Thread thread = new Thread(runnable, "adaptiflow-observation");
+                    thread.setDaemon(false);
+                    return thread;
+                });
+                scheduler.setKeepAliveTime(IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                scheduler.allowCoreThreadTimeOut(true);
+                scheduler.setRemoveOnCancelPolicy(true);
+            }
+            long run = ++generation;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(interval);
+            pending = scheduler.schedule(() -> tick(run, deadline), interval, TimeUnit.MILLISECONDS);
+            this.running = true;
+        }
+    }
+
+    /**
+     * Performs one observation round over the current events, then schedules the next one
+     * unless the scheduler was stopped or restarted meanwhile.
+     *
+     * @param run the generation that scheduled this round.
+     * @param deadline the time, in nanoseconds, this round was due.
+     */
+    private void tick(long run, long deadline) {
+        synchronized (lifecycle) {
+            if (run != generation) {
+                return;
+            }
+            roundThread = Thread.currentThread();
+        }
+        long now = System.nanoTime();
+        long lag = Math.max(0, now - deadline);
+        lastTickLagNanos = lag;
+        if (lag > maxTickLagNanos) {
+            maxTickLagNanos = lag;
+        }
+        if (tickCount > 0 && now - lastTickNanos > maxObservationGapNanos) {
+            maxObservationGapNanos = now - lastTickNanos;
+        }
+        lastTickNanos = now;
+        tickCount++;
+        List<Event> current = events;
+        for (int i = 0; i < current.size(); i++) {
+            // One failing event, e.g. a missing metric, must not cost the others their round
+            try {
+                current.get(i).observe();
+            } catch (RuntimeException e) {
+                LOG.error("Observation of {} failed", current.get(i).getName(), e);
+            }
+        }
+        long end = System.nanoTime();
+        if (end - now > TimeUnit.MILLISECONDS.toNanos(interval)) {
+            overrunCount++;
+        }
+        long next = nextDeadline(deadline, end);
+        synchronized (lifecycle) {
+            roundThread = null;
+            // Clears an interrupt sent by a drain that timed out, so it does not hit the next run
+            Thread.interrupted();
+            lifecycle.notifyAll();
+            if (run == generation) {
+                try {
+                    pending = scheduler.schedule(() -> tick(run, next), Math.max(0, next - end), TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    LOG.debug("Scheduler shut down, not scheduling the next round");
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes when the round following the one due at {@code deadline} and ended at
+     * {@code end} starts, applying the overrun policy.
+     *
+     * @param deadline the time, in nanoseconds, the finished round was due.
+     * @param end the time, in nanoseconds, the finished round ended.
+     * @return the time, in nanoseconds, the next round is due.
+     */
+    long nextDeadline(long deadline, long end) {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+        long missed = (end - deadline) / intervalNanos;
+        switch (overrunPolicy) {
+            case FIXED_DELAY:
+                return end + intervalNanos;
+            case SKIP:
+                skippedTickCount += missed;
+                return deadline + (missed + 1) * intervalNanos;
+            case COALESCE:
+                if (missed > 1) {
+                    skippedTickCount += missed - 1;
+                }
+                return deadline + Math.max(1, missed) * intervalNanos;
+            default:
+                return deadline + intervalNanos;
+        }
     }
 
     /**
      * Stops the continuous event scheduler.
      * <p>
-     * This method halts the listening process and shuts down the scheduled executor service.
+     * This method drains the scheduler within {@link #DEFAULT_DRAIN_TIMEOUT_MILLIS}
+     * milliseconds, see {@link #stop(long)}.
      * </p>
      */
     @Override
     public void stop() {
-        LOG.info("Stop Continuous Event Observations ...");
-        scheduler.shutdownNow();
-        scheduler = Executors.newSingleThreadScheduledExecutor();
-        this.running = false;
+        stop(DEFAULT_DRAIN_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Stops the continuous event scheduler, letting the round in progress finish.
+     * <p>
+     * No round starts after this call. The round in progress, if any, completes its
+     * observations and actions; if it is still running after {@code timeoutMillis}, its
+     * thread is interrupted. The executor is kept for the next {@link #start()}.
+     * </p>
+     *
+     * @param timeoutMillis how long, in milliseconds, to wait for the round in progress.
+     * @return {@code true} if no round was running when this method returned.
+     * @throws IllegalArgumentException if the timeout is negative.
+     */
+    @Override
+    public boolean stop(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("The drain timeout must not be negative: " + timeoutMillis);
+        }
+        synchronized (lifecycle) {
+            if (!running) {
+                return roundThread == null;
+            }
+            LOG.info("Stop Continuous Event Observations ...");
+            running = false;
+            generation++;
+            if (pending != null) {
+                pending.cancel(false);
+                pending = null;
+            }
+            if (roundThread == Thread.currentThread()) {
+                // Stopped from an action of the current round, which ends on return
+                return true;
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            boolean interrupted = false;
+            long remaining;
+            while (roundThread != null && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(lifecycle, remaining);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    break;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (roundThread != null) {
+                LOG.warn("Observation round still running after {} ms, interrupting it", timeoutMillis);
+                roundThread.interrupt();
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Shuts the executor down once the scheduler is stopped, instead of waiting for its
+     * thread to time out. A later {@link #start()} creates a new executor.
+     */
+    public void shutdown() {
+        synchronized (lifecycle) {
+            stop(DEFAULT_DRAIN_TIMEOUT_MILLIS);
+            if (scheduler != null) {
+                scheduler.shutdown();
+                scheduler = null;
+            }
+        }
     }
 
     public boolean isRunning() {
         return running;
     }
+
+    /**
+     * Returns the number of observation rounds performed.
+     *
+     * @return the round count.
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Returns the largest gap between the starts of two consecutive observation rounds.
+     *
+     * @return the largest gap, in nanoseconds, or 0 before the second round.
+     */
+    public long getMaxObservationGapNanos() {
+        return maxObservationGapNanos;
+    }
+
+    /**
+     * Returns the policy applied to overrunning rounds.
+     *
+     * @return the overrun policy.
+     */
+    public OverrunPolicy getOverrunPolicy() {
+        return overrunPolicy;
+    }
+
+    /**
+     * Returns the number of rounds that took longer than the interval.
+     *
+     * @return the overrun count.
+     */
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+
+    /**
+     * Returns the number of ticks dropped by the {@link OverrunPolicy#SKIP} and
+     * {@link OverrunPolicy#COALESCE} policies.
+     *
+     * @return the number of skipped ticks.
+     */
+    public long getSkippedTickCount() {
+        return skippedTickCount;
+    }
+
+    /**
+     * Returns the delay between the time the last round was due and the time it started.
+     *
+     * @return the lag, in nanoseconds.
+     */
+    public long getLastTickLagNanos() {
+        return lastTickLagNanos;
+    }
+
+    /**
+     * Returns the largest delay between the time a round was due and the time it started.
+     *
+     * @return the largest lag, in nanoseconds.
+     */
+    public long getMaxTickLagNanos() {
+        return maxTickLagNanos;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.subscriptions;
+
+/**
+ * The {@link OverrunPolicy} enum defines what a {@link ContinuousObservationScheduler} does
+ * with the ticks it missed while an observation round took longer than its interval.
+ * <p>
+ * Ticks are laid on a fixed grid starting one interval after {@code start()}. A round
+ * overruns when it ends after the next tick of the grid was due; the policy decides when the
+ * following round starts.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public enum OverrunPolicy {
+
+    /**
+     * Runs every missed tick, back-to-back, until the scheduler is back on the grid. This is
+     * the behavior of {@code scheduleAtFixedRate}, and may trigger the same actions several
+     * times in a row after a slow round.
+     */
+    CATCH_UP,
+
+    /**
+     * Drops the missed ticks and waits for the next tick of the grid.
+     */
+    SKIP,
+
+    /**
+     * Collapses the missed ticks into a single round run immediately, then resumes on the grid.
+     */
+    COALESCE,
+
+    /**
+     * Abandons the grid: each round starts one interval after the previous one ended, so
+     * rounds never run back-to-back.
+     */
+    FIXED_DELAY
+}
@@ -0,0 +1,488 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.subscriptions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.spirals.cerberus237.adaptiflow.events.Event;
+import tools.spirals.cerberus237.adaptiflow.events.EventPriority;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@link PriorityObservationScheduler} class extends {@link AbstractObservationScheduler}
+ * to observe events by priority and deadline rather than in list order.
+ * <p>
+ * At every interval, the scheduler makes all its events due. {@link EventPriority#CRITICAL}
+ * events run on a reserved pool of threads, so they never wait behind other events. The
+ * other events are queued for a shared pool, ordered by priority, then by earliest deadline
+ * ({@link Event#getDeadlineMillis()}, or the interval when the event has none): under load,
+ * queued events of a higher priority overtake those queued earlier. An event still queued or
+ * running from a previous round is not queued again, and when at least
+ * {@code sheddingThreshold} observations are waiting for the shared pool,
+ * {@link EventPriority#LOW} events are skipped for the round.
+ * </p>
+ * <p>
+ * Events are observed concurrently, one observation at a time for a given event, so
+ * collectors shared by several events must be thread-safe. The scheduler measures, per
+ * priority, the delay between the time an event became due and the start of its
+ * observation.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * databaseUnavailableEvent.setPriority(EventPriority.CRITICAL);
+ * memoryEvent.setPriority(EventPriority.LOW);
+ * PriorityObservationScheduler scheduler = new PriorityObservationScheduler(
+ *         List.of(databaseUnavailableEvent, databaseAvailableEvent, memoryEvent), 5000, 2, 1, 4);
+ * scheduler.start();
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class PriorityObservationScheduler extends AbstractObservationScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(PriorityObservationScheduler.class);
+
+    /**
+     * How long, in milliseconds, {@link #stop()} waits for the observations in progress.
+     */
+    public static final long DEFAULT_DRAIN_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * How long, in seconds, an idle thread of the scheduler survives.
+     */
+    public static final long IDLE_THREAD_TIMEOUT_SECONDS = 30;
+
+    /**
+     * The observation state of an event across rounds.
+     */
+    private static final class EventState {
+        private final AtomicBoolean inFlight = new AtomicBoolean(false);
+    }
+
+    /**
+     * An observation queued for a pool, ordered by priority then earliest deadline.
+     */
+    private final class Observation implements Runnable, Comparable<Observation> {
+        private final Event<?> event;
+        private final EventState state;
+        private final EventPriority priority;
+        private final long dueNanos;
+        private final long deadlineNanos;
+        private final long sequence;
+        private final long run;
+
+        private Observation(Event<?> event, EventState state, long dueNanos, long deadlineNanos, long sequence, long run) {
+            this.event = event;
+            this.state = state;
+            this.priority = event.getPriority();
+            this.dueNanos = dueNanos;
+            this.deadlineNanos = deadlineNanos;
+            this.sequence = sequence;
+            this.run = run;
+        }
+
+        @Override
+        public int compareTo(Observation other) {
+            int order = priority.compareTo(other.priority);
+            if (order == 0) {
+                order = Long.compare(deadlineNanos - other.deadlineNanos, 0);
+            }
+            return order != 0 ? order : Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public void run() {
+            synchronized (lifecycle) {
+                if (run != generation) {
+                    state.inFlight.set(false);
+                    return;
+                }
+                observingThreads.add(Thread.currentThread());
+            }
+            long start = System.nanoTime();
+            record(priority, start - dueNanos);
+            if (start - deadlineNanos > 0) {
+                deadlineMisses.increment();
+            }
+            try {
+                event.observe();
+            } catch (RuntimeException e) {
+                LOG.error("Observation of {} failed", event.getName(), e);
+            } finally {
+                state.inFlight.set(false);
+                synchronized (lifecycle) {
+                    observingThreads.remove(Thread.currentThread());
+                    // Clears an interrupt sent by a drain that timed out
+                    Thread.interrupted();
+                    lifecycle.notifyAll();
+                }
+            }
+        }
+    }
+
+    private final int interval;
+    private final int workers;
+    private final int criticalWorkers;
+    private final int sheddingThreshold;
+
+    /**
+     * Guards the lifecycle state below, and is notified when an observation ends.
+     */
+    private final Object lifecycle = new Object();
+    private ScheduledThreadPoolExecutor ticker;
+    private ThreadPoolExecutor sharedPool;
+    private ThreadPoolExecutor criticalPool;
+    private ScheduledFuture<?> pending;
+    private volatile boolean running = false;
+
+    /**
+     * Incremented by every start and stop, so observations queued by a previous run are dropped.
+     */
+    private volatile long generation = 0;
+    private final Set<Thread> observingThreads = new HashSet<>();
+
+    /**
+     * The order of queued observations and the state of the events, used by the ticker
+     * thread only; events removed from the scheduler are forgotten.
+     */
+    private long sequence = 0;
+    private final Map<Event<?>, EventState> states = new WeakHashMap<>();
+    private final LongAdder[] observations = new LongAdder[EventPriority.values().length];
+    private final LongAdder[] latencyNanos = new LongAdder[EventPriority.values().length];
+    private final AtomicLong[] maxLatencyNanos = new AtomicLong[EventPriority.values().length];
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder busySkips = new LongAdder();
+    private final LongAdder deadlineMisses = new LongAdder();
+
+    /**
+     * Constructs a {@code PriorityObservationScheduler}.
+     *
+     * @param events a list of events to be managed by this scheduler.
+     * @param interval the interval in milliseconds at which events become due.
+     * @param workers the number of threads observing non-critical events.
+     * @param criticalWorkers the number of threads reserved for critical events.
+     * @param sheddingThreshold the number of waiting observations from which low-priority
+     *                          events are skipped.
+     */
+    public PriorityObservationScheduler(List<Event> events, int interval, int workers, int criticalWorkers,
+                                        int sheddingThreshold) {
+        super(events);
+        if (interval <= 0) {
+            throw new IllegalArgumentException("The interval must be positive: " + interval);
+        }
+        if (workers <= 0 || criticalWorkers <= 0) {
+            throw new IllegalArgumentException("The pools need at least one thread: " + workers + ", " + criticalWorkers);
+        }
+        if (sheddingThreshold <= 0) {
+            throw new IllegalArgumentException("The shedding threshold must be positive: " + sheddingThreshold);
+        }
+        this.interval = interval;
+        this.workers = workers;
+        this.criticalWorkers = criticalWorkers;
+        this.sheddingThreshold = sheddingThreshold;
+        for (int i = 0; i < observations.length; i++) {
+            observations[i] = new LongAdder();
+            latencyNanos[i] = new LongAdder();
+            maxLatencyNanos[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Starts the scheduler: the first round runs immediately, then one round per interval.
+     * <p>
+     * The thread pools are created by the first call and reused by the following ones.
+     * </p>
+     */
+    @Override
+    public void start() {
+        synchronized (lifecycle) {
+            if (running) {
+                return;
+            }
+            LOG.info("Start Priority Event Observations ...");
+            if (ticker == null) {
+                ticker = new ScheduledThreadPoolExecutor(1, threads("adaptiflow-priority-ticker"));
+                ticker.setKeepAliveTime(IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                ticker.allowCoreThreadTimeOut(true);
+                ticker.setRemoveOnCancelPolicy(true);
+                sharedPool = pool(workers, new PriorityBlockingQueue<>(), "adaptiflow-priority-worker");
+                criticalPool = pool(criticalWorkers, new LinkedBlockingQueue<>(), "adaptiflow-priority-critical");
+            }
+            long run = ++generation;
+            pending = ticker.scheduleAtFixedRate(() -> round(run), 0, interval, TimeUnit.MILLISECONDS);
+            running = true;
+        }
+    }
+
+    private static ThreadFactory threads(String name) {
+        return runnable -> new Thread(runnable, name);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ThreadPoolExecutor pool(int size, BlockingQueue queue, String name) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                queue, threads(name));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Makes every event due and queues the ones not already queued or running.
+     * <p>
+     * Failures are logged rather than thrown, since an exception would cancel the
+     * periodic task and no round would run again.
+     * </p>
+     *
+     * @param run the generation that scheduled this round.
+     */
+    private void round(long run) {
+        ThreadPoolExecutor sharedPool;
+        ThreadPoolExecutor criticalPool;
+        synchronized (lifecycle) {
+            if (run != generation) {
+                return;
+            }
+            sharedPool = this.sharedPool;
+            criticalPool = this.criticalPool;
+        }
+        try {
+            round(run, sharedPool, criticalPool);
+        } catch (RuntimeException e) {
+            LOG.error("Priority observation round failed", e);
+        }
+    }
+
+    private void round(long run, ThreadPoolExecutor sharedPool, ThreadPoolExecutor criticalPool) {
+        long now = System.nanoTime();
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+        int waiting = sharedPool.getQueue().size();
+        List<Event> current = events;
+        for (int i = 0; i < current.size(); i++) {
+            Event<?> event = current.get(i);
+            EventState state = states.computeIfAbsent(event, e -> new EventState());
+            if (!state.inFlight.compareAndSet(false, true)) {
+                busySkips.increment();
+                continue;
+            }
+            EventPriority priority = event.getPriority();
+            if (priority == EventPriority.LOW && waiting >= sheddingThreshold) {
+                state.inFlight.set(false);
+                shed.increment();
+                continue;
+            }
+            long deadline = now + (event.getDeadlineMillis() > 0
+                    ? TimeUnit.MILLISECONDS.toNanos(event.getDeadlineMillis()) : intervalNanos);
+            Observation observation = new Observation(event, state, now, deadline, sequence++, run);
+            try {
+                if (priority == EventPriority.CRITICAL) {
+                    criticalPool.execute(observation);
+                } else {
+                    sharedPool.execute(observation);
+                    waiting++;
+                }
+            } catch (RejectedExecutionException e) {
+                // The pools were shut down during the round: the event must be observable after a restart.
+                state.inFlight.set(false);
+                LOG.debug("Observation of {} rejected, the scheduler is shutting down", event.getName());
+                return;
+            }
+        }
+    }
+
+    private void record(EventPriority priority, long latency) {
+        int index = priority.ordinal();
+        observations[index].increment();
+        latencyNanos[index].add(latency);
+        maxLatencyNanos[index].accumulateAndGet(latency, Math::max);
+    }
+
+    /**
+     * Stops the scheduler.
+     * <p>
+     * This method drains the scheduler within {@link #DEFAULT_DRAIN_TIMEOUT_MILLIS}
+     * milliseconds, see {@link #stop(long)}.
+     * </p>
+     */
+    @Override
+    public void stop() {
+        stop(DEFAULT_DRAIN_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Stops the scheduler, letting the observations in progress finish.
+     * <p>
+     * No round starts after this call and queued observations are dropped. The
+     * observations in progress complete with their actions; those still running after
+     * {@code timeoutMillis} are interrupted.
+     * </p>
+     *
+     * @param timeoutMillis how long, in milliseconds, to wait for the observations in progress.
+     * @return {@code true} if no observation of another thread was running when this method returned.
+     * @throws IllegalArgumentException if the timeout is negative.
+     */
+    @Override
+    public boolean stop(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("The drain timeout must not be negative: " + timeoutMillis);
+        }
+        synchronized (lifecycle) {
+            if (running) {
+                LOG.info("Stop Priority Event Observations ...");
+                running = false;
+                generation++;
+                pending.cancel(false);
+                pending = null;
+                drop(sharedPool);
+                drop(criticalPool);
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            long remaining;
+            while (isDraining() && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(lifecycle, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (!isDraining()) {
+                return true;
+            }
+            LOG.warn("{} observation(s) still running after {} ms, interrupting them", observingThreads.size(), timeoutMillis);
+            for (Thread thread : observingThreads) {
+                if (thread != Thread.currentThread()) {
+                    thread.interrupt();
+                }
+            }
+            return false;
+        }
+    }
+
+    private static void drop(ThreadPoolExecutor pool) {
+        List<Runnable> queued = new ArrayList<>();
+        pool.getQueue().drainTo(queued);
+        for (Runnable observation : queued) {
+            ((Observation) observation).state.inFlight.set(false);
+        }
+    }
+
+    /**
+     * Returns whether an observation other than the one of the calling thread is running;
+     * guarded by {@link #lifecycle}.
+     */
+    private boolean isDraining() {
+        return observingThreads.size() > (observingThreads.contains(Thread.currentThread()) ? 1 : 0);
+    }
+
+    /**
+     * Stops the scheduler and shuts its thread pools down, instead of waiting for their
+     * threads to time out. A later {@link #start()} creates new pools.
+     */
+    public void shutdown() {
+        synchronized (lifecycle) {
+            stop(DEFAULT_DRAIN_TIMEOUT_MILLIS);
+            if (ticker != null) {
+                ticker.shutdown();
+                sharedPool.shutdown();
+                criticalPool.shutdown();
+                ticker = null;
+                sharedPool = null;
+                criticalPool = null;
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the number of observations started for events of the given priority.
+     *
+     * @param priority the event priority.
+     * @return the observation count.
+     */
+    public long getObservationCount(EventPriority priority) {
+        return observations[priority.ordinal()].sum();
+    }
+
+    /**
+     * Returns the average delay between the time events of the given priority became due
+     * and the start of their observation.
+     *
+     * @param priority the event priority.
+     * @return the average delay, in nanoseconds, or 0 before the first observation.
+     */
+    public long getAverageLatencyNanos(EventPriority priority) {
+        long count = observations[priority.ordinal()].sum();
+        return count == 0 ? 0 : latencyNanos[priority.ordinal()].sum() / count;
+    }
+
+    /**
+     * Returns the largest delay between the time an event of the given priority became due
+     * and the start of its observation.
+     *
+     * @param priority the event priority.
+     * @return the largest delay, in nanoseconds.
+     */
+    public long getMaxLatencyNanos(EventPriority priority) {
+        return maxLatencyNanos[priority.ordinal()].get();
+    }
+
+    /**
+     * Returns the number of low-priority observations skipped because the shared pool was overloaded.
+     *
+     * @return the number of shed observations.
+     */
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    /**
+     * Returns the number of times an event was not queued because its previous observation
+     * was still queued or running.
+     *
+     * @return the number of busy skips.
+     */
+    public long getBusySkipCount() {
+        return busySkips.sum();
+    }
+
+    /**
+     * Returns the number of observations started after their deadline.
+     *
+     * @return the number of missed deadlines.
+     */
+    public long getDeadlineMissCount() {
+        return deadlineMisses.sum();
+    }
+}
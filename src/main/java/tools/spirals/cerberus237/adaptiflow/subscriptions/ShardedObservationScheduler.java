@@ -0,0 +1,655 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.subscriptions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.spirals.cerberus237.adaptiflow.events.Event;
+import tools.spirals.cerberus237.adaptiflow.events.EventGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@link ShardedObservationScheduler} class extends {@link AbstractObservationScheduler}
+ * to observe thousands of events on several event loops, usually one per core.
+ * <p>
+ * Events sharing a collector form a group, observed in list order by one thread at a time,
+ * so collectors and their state need no synchronization. A {@link tools.spirals.cerberus237.adaptiflow.events.DerivedEvent}
+ * joins the group of its scheduled inputs, and the events of a group are observed in the
+ * order of {@link EventGraph#order(List)}, so each input is observed before the events
+ * derived from it within a round. Groups are assigned to shards by
+ * the identity hash of their collector, and each shard has its own thread. In each round,
+ * every shard observes its groups, then steals the groups not yet started by the other
+ * shards, so a shard finishing early helps the busy ones. A stolen group runs on the thief
+ * for that round only; the hand-over goes through an atomic counter, so the group's state
+ * is safely published to it.
+ * </p>
+ * <p>
+ * The scheduler keeps a moving average of the observation time of each group. Every
+ * {@link #REBALANCE_PERIOD} rounds, if the busiest shard has more than
+ * {@link #REBALANCE_THRESHOLD} times the average work, groups are reassigned, the longest
+ * first, to the least loaded shard. Rounds never overlap: a tick that finds the previous
+ * round still running is skipped.
+ * </p>
+ *
+ * <h3>Usage Example:</h3>
+ * <pre>
+ * ShardedObservationScheduler scheduler = new ShardedObservationScheduler(tenantEvents, 5000,
+ *         Runtime.getRuntime().availableProcessors());
+ * scheduler.start();
+ * </pre>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class ShardedObservationScheduler extends AbstractObservationScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedObservationScheduler.class);
+
+    /**
+     * How long, in milliseconds, {@link #stop()} waits for the round in progress.
+     */
+    public static final long DEFAULT_DRAIN_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * How long, in seconds, an idle thread of the scheduler survives.
+     */
+    public static final long IDLE_THREAD_TIMEOUT_SECONDS = 30;
+
+    /**
+     * The number of rounds between two load checks.
+     */
+    public static final int REBALANCE_PERIOD = 16;
+
+    /**
+     * The ratio of the busiest shard's work to the average from which groups are reassigned.
+     */
+    public static final double REBALANCE_THRESHOLD = 1.25;
+
+    /**
+     * The weight of the last round in the moving average of a group's observation time.
+     */
+    private static final double COST_SMOOTHING = 0.2;
+
+    /**
+     * Events sharing a collector, or linked through the inputs of derived events.
+     */
+    private static final class Group {
+        private final Object collector;
+        private final List<Event> events = new ArrayList<>();
+        private int shard;
+        private long lastNanos = 0;
+        private double cost = 0;
+
+        private Group(Object collector, int shard) {
+            this.collector = collector;
+            this.shard = shard;
+        }
+    }
+
+    /**
+     * The groups of a shard for the current round, claimed through the cursor by the shard
+     * and by thieves.
+     */
+    private static final class Shard {
+        private final int index;
+        private Group[] groups = new Group[0];
+        private final AtomicInteger cursor = new AtomicInteger();
+        private ThreadPoolExecutor executor;
+
+        private Shard(int index) {
+            this.index = index;
+        }
+    }
+
+    private final int interval;
+    private final Shard[] shards;
+
+    /**
+     * Serializes rounds; guards the grouping below.
+     */
+    private final Object roundLock = new Object();
+    private List<Event> groupedEvents;
+    private Group[] groups = new Group[0];
+
+    /**
+     * Guards the lifecycle state below, and is notified when a round ends.
+     */
+    private final Object lifecycle = new Object();
+    private ScheduledThreadPoolExecutor ticker;
+    private ScheduledFuture<?> pending;
+    private volatile boolean running = false;
+    private long generation = 0;
+    private boolean roundRunning = false;
+    private final Set<Thread> shardThreads = new HashSet<>();
+
+    private final LongAdder steals = new LongAdder();
+    private volatile long roundCount = 0;
+    private volatile long skippedTickCount = 0;
+    private volatile long rebalanceCount = 0;
+    private volatile long lastRoundNanos = 0;
+
+    /**
+     * Constructs a {@code ShardedObservationScheduler}.
+     *
+     * @param events a list of events to be managed by this scheduler.
+     * @param interval the interval in milliseconds between the starts of two rounds.
+     * @param shards the number of event loops.
+     */
+    public ShardedObservationScheduler(List<Event> events, int interval, int shards) {
+        super(events);
+        if (interval <= 0) {
+            throw new IllegalArgumentException("The interval must be positive: " + interval);
+        }
+        if (shards <= 0) {
+            throw new IllegalArgumentException("The number of shards must be positive: " + shards);
+        }
+        this.interval = interval;
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * Starts the scheduler: one round per interval, the first one after an interval.
+     */
+    @Override
+    public void start() {
+        synchronized (lifecycle) {
+            if (running) {
+                return;
+            }
+            LOG.info("Start Sharded Event Observations on {} shard(s) ...", shards.length);
+            if (ticker == null) {
+                ticker = new ScheduledThreadPoolExecutor(1, runnable -> new Thread(runnable, "adaptiflow-shard-ticker"));
+                ticker.setKeepAliveTime(IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                ticker.allowCoreThreadTimeOut(true);
+                ticker.setRemoveOnCancelPolicy(true);
+            }
+            long run = ++generation;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(interval);
+            pending = ticker.schedule(() -> tick(run, deadline), interval, TimeUnit.MILLISECONDS);
+            running = true;
+        }
+    }
+
+    private void tick(long run, long deadline) {
+        synchronized (lifecycle) {
+            if (run != generation) {
+                return;
+            }
+        }
+        try {
+            observeAll();
+        } catch (RuntimeException e) {
+            // A failed round must not stop the next ones from being scheduled
+            LOG.error("Observation round failed", e);
+        }
+        long end = System.nanoTime();
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+        long missed = Math.max(0, (end - deadline) / intervalNanos);
+        skippedTickCount += missed;
+        long next = deadline + (missed + 1) * intervalNanos;
+        synchronized (lifecycle) {
+            if (run == generation) {
+                try {
+                    pending = ticker.schedule(() -> tick(run, next), next - end, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    LOG.debug("Scheduler shut down, not scheduling the next round");
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs one round over all events on the shard threads and waits for its end.
+     * <p>
+     * Called by the scheduler at every tick; it may also be called directly, for instance
+     * to drive rounds from another clock. Rounds never overlap.
+     * </p>
+     *
+     * @throws IllegalArgumentException if the inputs of the events form a cycle.
+     * @throws RejectedExecutionException if a shard thread cannot be started; the round
+     *         still waits for the shards that started.
+     */
+    public void observeAll() {
+        synchronized (roundLock) {
+            List<Event> current = events;
+            if (current != groupedEvents) {
+                regroup(current);
+            }
+            synchronized (lifecycle) {
+                roundRunning = true;
+            }
+            long start = System.nanoTime();
+            CountDownLatch done = new CountDownLatch(shards.length);
+            try {
+                for (Shard shard : shards) {
+                    shard.cursor.set(0);
+                }
+                RejectedExecutionException rejected = null;
+                for (Shard shard : shards) {
+                    try {
+                        executor(shard).execute(() -> {
+                            try {
+                                work(shard);
+                            } finally {
+                                done.countDown();
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        done.countDown();
+                        rejected = e;
+                    }
+                }
+                // The started shards finish before the round ends, even a failed one
+                awaitUninterruptibly(done);
+                if (rejected != null) {
+                    throw rejected;
+                }
+                // Counted before the round is signalled as ended, so waiters see it
+                roundCount++;
+            } finally {
+                lastRoundNanos = System.nanoTime() - start;
+                synchronized (lifecycle) {
+                    roundRunning = false;
+                    lifecycle.notifyAll();
+                }
+            }
+            updateCosts();
+            if (roundCount % REBALANCE_PERIOD == 0) {
+                rebalance();
+            }
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ThreadPoolExecutor executor(Shard shard) {
+        if (shard.executor == null) {
+            String name = "adaptiflow-shard-" + shard.index;
+            shard.executor = new ThreadPoolExecutor(1, 1, IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> new Thread(runnable, name));
+            shard.executor.allowCoreThreadTimeOut(true);
+        }
+        return shard.executor;
+    }
+
+    /**
+     * Observes the groups of a shard, then steals the groups not yet started by the others.
+     */
+    private void work(Shard shard) {
+        synchronized (lifecycle) {
+            shardThreads.add(Thread.currentThread());
+        }
+        try {
+            drain(shard, shard);
+            for (int i = 1; i < shards.length; i++) {
+                drain(shards[(shard.index + i) % shards.length], shard);
+            }
+        } finally {
+            synchronized (lifecycle) {
+                shardThreads.remove(Thread.currentThread());
+                // Clears an interrupt sent by a drain that timed out
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private void drain(Shard owner, Shard worker) {
+        Group[] owned = owner.groups;
+        int next;
+        while ((next = owner.cursor.getAndIncrement()) < owned.length) {
+            if (owner != worker) {
+                steals.increment();
+            }
+            observe(owned[next]);
+        }
+    }
+
+    private static void observe(Group group) {
+        long start = System.nanoTime();
+        List<Event> members = group.events;
+        for (int i = 0; i < members.size(); i++) {
+            try {
+                members.get(i).observe();
+            } catch (RuntimeException e) {
+                LOG.error("Observation of {} failed", members.get(i).getName(), e);
+            }
+        }
+        group.lastNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Groups the events sharing a collector, or linked as input and derived event, keeping
+     * the shard and cost of the groups that already existed. A group is identified by the
+     * collector of its first event.
+     *
+     * @throws IllegalArgumentException if the inputs of the events form a cycle.
+     */
+    private void regroup(List<Event> current) {
+        Map<Object, Group> previous = new IdentityHashMap<>();
+        for (Group group : groups) {
+            previous.put(group.collector, group);
+        }
+        List<Event> ordered = scheduledOrder(current);
+        Map<Event<?>, Integer> positions = new IdentityHashMap<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            positions.put(ordered.get(i), i);
+        }
+        int[] parents = new int[ordered.size()];
+        Map<Object, Integer> byCollector = new IdentityHashMap<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            Event<?> event = ordered.get(i);
+            parents[i] = i;
+            Integer sharing = byCollector.putIfAbsent(event.getCollector(), i);
+            if (sharing != null) {
+                union(parents, i, sharing);
+            }
+            for (Event<?> input : event.getInputs()) {
+                Integer position = positions.get(input);
+                if (position != null) {
+                    union(parents, i, position);
+                }
+            }
+        }
+        Map<Integer, Group> grouped = new HashMap<>();
+        List<Group> groupList = new ArrayList<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            int root = find(parents, i);
+            Group group = grouped.get(root);
+            if (group == null) {
+                Object collector = ordered.get(i).getCollector();
+                Group old = previous.get(collector);
+                group = new Group(collector, old != null ? old.shard
+                        : (System.identityHashCode(collector) & Integer.MAX_VALUE) % shards.length);
+                if (old != null) {
+                    group.cost = old.cost;
+                }
+                grouped.put(root, group);
+                groupList.add(group);
+            }
+            group.events.add(ordered.get(i));
+        }
+        groups = groupList.toArray(new Group[0]);
+        groupedEvents = current;
+        assign();
+    }
+
+    /**
+     * Returns the scheduled events, each after its scheduled inputs.
+     */
+    private static List<Event> scheduledOrder(List<Event> current) {
+        Set<Event> scheduled = Collections.newSetFromMap(new IdentityHashMap<>());
+        scheduled.addAll(current);
+        List<Event> ordered = EventGraph.order(current);
+        ordered.removeIf(event -> !scheduled.contains(event));
+        return ordered;
+    }
+
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parents, int i, int j) {
+        int first = find(parents, i);
+        int second = find(parents, j);
+        // The earliest event in the order is the root, so the group keeps its first collector
+        parents[Math.max(first, second)] = Math.min(first, second);
+    }
+
+    private void assign() {
+        List<List<Group>> byShard = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (Group group : groups) {
+            byShard.get(group.shard).add(group);
+        }
+        for (int i = 0; i < shards.length; i++) {
+            shards[i].groups = byShard.get(i).toArray(new Group[0]);
+        }
+    }
+
+    private void updateCosts() {
+        for (Group group : groups) {
+            group.cost = group.cost == 0 ? group.lastNanos
+                    : (1 - COST_SMOOTHING) * group.cost + COST_SMOOTHING * group.lastNanos;
+        }
+    }
+
+    /**
+     * Reassigns the groups, longest first, to the least loaded shard, when the busiest
+     * shard has more than {@link #REBALANCE_THRESHOLD} times the average work.
+     */
+    private void rebalance() {
+        if (shards.length == 1 || groups.length < 2) {
+            return;
+        }
+        double[] loads = new double[shards.length];
+        double total = 0;
+        for (Group group : groups) {
+            loads[group.shard] += group.cost;
+            total += group.cost;
+        }
+        double max = Arrays.stream(loads).max().orElse(0);
+        if (total == 0 || max <= REBALANCE_THRESHOLD * total / shards.length) {
+            return;
+        }
+        Group[] byCost = groups.clone();
+        Arrays.sort(byCost, Comparator.comparingDouble((Group group) -> group.cost).reversed());
+        Arrays.fill(loads, 0);
+        for (Group group : byCost) {
+            int lightest = 0;
+            for (int i = 1; i < loads.length; i++) {
+                if (loads[i] < loads[lightest]) {
+                    lightest = i;
+                }
+            }
+            group.shard = lightest;
+            loads[lightest] += group.cost;
+        }
+        assign();
+        rebalanceCount++;
+        LOG.debug("Rebalanced {} group(s) over {} shard(s)", groups.length, shards.length);
+    }
+
+    /**
+     * Stops the scheduler.
+     * <p>
+     * This method drains the scheduler within {@link #DEFAULT_DRAIN_TIMEOUT_MILLIS}
+     * milliseconds, see {@link #stop(long)}.
+     * </p>
+     */
+    @Override
+    public void stop() {
+        stop(DEFAULT_DRAIN_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Stops the scheduler, letting the round in progress finish.
+     * <p>
+     * No round starts after this call. If the round in progress is still running after
+     * {@code timeoutMillis}, the shard threads are interrupted.
+     * </p>
+     *
+     * @param timeoutMillis how long, in milliseconds, to wait for the round in progress.
+     * @return {@code true} if no round was running when this method returned.
+     * @throws IllegalArgumentException if the timeout is negative.
+     */
+    @Override
+    public boolean stop(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("The drain timeout must not be negative: " + timeoutMillis);
+        }
+        synchronized (lifecycle) {
+            if (running) {
+                LOG.info("Stop Sharded Event Observations ...");
+                running = false;
+                generation++;
+                pending.cancel(false);
+                pending = null;
+            }
+            if (shardThreads.contains(Thread.currentThread())) {
+                // Stopped from an action of the current round, which ends on return
+                return true;
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            long remaining;
+            while (roundRunning && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(lifecycle, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (!roundRunning) {
+                return true;
+            }
+            LOG.warn("Observation round still running after {} ms, interrupting it", timeoutMillis);
+            shardThreads.forEach(Thread::interrupt);
+            return false;
+        }
+    }
+
+    /**
+     * Stops the scheduler and shuts its threads down, instead of waiting for them to time
+     * out. A later {@link #start()} creates new threads.
+     */
+    public void shutdown() {
+        stop(DEFAULT_DRAIN_TIMEOUT_MILLIS);
+        synchronized (roundLock) {
+            synchronized (lifecycle) {
+                if (ticker != null) {
+                    ticker.shutdown();
+                    ticker = null;
+                }
+            }
+            for (Shard shard : shards) {
+                if (shard.executor != null) {
+                    shard.executor.shutdown();
+                    shard.executor = null;
+                }
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return the shard count.
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the number of groups assigned to each shard.
+     *
+     * @return the group counts, indexed by shard.
+     */
+    public int[] getGroupCounts() {
+        synchronized (roundLock) {
+            int[] counts = new int[shards.length];
+            for (int i = 0; i < shards.length; i++) {
+                counts[i] = shards[i].groups.length;
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Returns the number of rounds performed.
+     *
+     * @return the round count.
+     */
+    public long getRoundCount() {
+        return roundCount;
+    }
+
+    /**
+     * Returns the number of groups observed by another shard than their own.
+     *
+     * @return the steal count.
+     */
+    public long getStealCount() {
+        return steals.sum();
+    }
+
+    /**
+     * Returns the number of times the groups were reassigned.
+     *
+     * @return the rebalance count.
+     */
+    public long getRebalanceCount() {
+        return rebalanceCount;
+    }
+
+    /**
+     * Returns the number of ticks skipped because the previous round was still running.
+     *
+     * @return the skipped tick count.
+     */
+    public long getSkippedTickCount() {
+        return skippedTickCount;
+    }
+
+    /**
+     * Returns the duration of the last round.
+     *
+     * @return the duration, in nanoseconds.
+     */
+    public long getLastRoundNanos() {
+        return lastRoundNanos;
+    }
+}
@@ -15,7 +15,10 @@ package tools.spirals.cerberus237.adaptiflow.subscriptions;
 
 import tools.spirals.cerberus237.adaptiflow.events.Event;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The {@link SingleObservationScheduler} class extends {@link AbstractObservationScheduler}
@@ -24,6 +27,11 @@ import java.util.List;
  * This class initiates the listening process for all registered events
  * without any continuous or scheduled execution.
  * </p>
+ * <p>
+ * {@link #stop()} may be called from another thread, or from an action, while
+ * {@link #start()} runs: the event being observed completes, and the following ones
+ * are not observed.
+ * </p>
  *
  * @author Arléon Zemtsop (Cerberus)
  */
@@ -38,6 +46,16 @@ public class SingleObservationScheduler extends AbstractObservationScheduler {
         super(events);
     }
 
+    /**
+     * Set by {@link #stop()} to end the pass in progress before its next event.
+     */
+    private volatile boolean stopRequested = false;
+
+    /**
+     * The threads running a pass; guarded by {@code this}.
+     */
+    private final Set<Thread> passThreads = new HashSet<>();
+
     /**
      * Starts the single event scheduler by initiating the listening process
      * for all registered events.
@@ -48,18 +66,68 @@ public class SingleObservationScheduler extends AbstractObservationScheduler {
      */
     @Override
     public void start() {
-        events.forEach(Event::observe);
+        stopRequested = false;
+        synchronized (this) {
+            passThreads.add(Thread.currentThread());
+        }
+        try {
+            List<Event> current = events;
+            for (int i = 0; i < current.size() && !stopRequested; i++) {
+                current.get(i).observe();
+            }
+        } finally {
+            synchronized (this) {
+                passThreads.remove(Thread.currentThread());
+                notifyAll();
+            }
+        }
     }
 
     /**
      * Stops the single event scheduler.
      * <p>
-     * This method is intended to halt the event handling process.
-     * Currently, it has no implementation.
+     * The pass in progress, if any, observes no further event. This method does not
+     * wait for the current event; see {@link #stop(long)}.
      * </p>
      */
     @Override
     public void stop() {
-        // Implementation for stopping the event handling process can be added here.
+        stopRequested = true;
+    }
+
+    /**
+     * Stops the single event scheduler and waits for the event being observed to complete.
+     *
+     * @param timeoutMillis how long, in milliseconds, to wait for the pass in progress.
+     * @return {@code true} if no pass of another thread was running when this method returned.
+     * @throws IllegalArgumentException if the timeout is negative.
+     */
+    @Override
+    public boolean stop(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("The drain timeout must not be negative: " + timeoutMillis);
+        }
+        stop();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (this) {
+            long remaining;
+            while (isDraining() && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return !isDraining();
+        }
+    }
+
+    /**
+     * Returns whether a pass other than the one of the calling thread, which stops on
+     * return, is still running.
+     */
+    private synchronized boolean isDraining() {
+        return passThreads.size() > (passThreads.contains(Thread.currentThread()) ? 1 : 0);
     }
 }
\ No newline at end of file
@@ -13,9 +13,12 @@
  */
 package tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers;
 
+import tools.spirals.cerberus237.adaptiflow.interfaces.EventContext;
 import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
 import tools.spirals.cerberus237.adaptationactionsbase.core.IAdaptationAction;
 import tools.spirals.cerberus237.adaptiflow.interfaces.Observer;
+import tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.logging.EveryTriggerLoggingPolicy;
+import tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.logging.LoggingPolicy;
 
 import java.util.List;
 
@@ -42,6 +45,16 @@ public abstract class AbstractEventSubscriber<T> implements Observer<T> {
      */
     protected ConditionEvaluator<T> conditionEvaluator;
 
+    /**
+     * The policy deciding how triggers are logged; one line per trigger by default.
+     */
+    protected LoggingPolicy<T> loggingPolicy = new EveryTriggerLoggingPolicy<>();
+
+    /**
+     * The context last built for a plain message, reused while the message does not change.
+     */
+    private EventContext messageContext;
+
     /**
      * Constructs an {@code AbstractEventSubscriber} with the specified
      * actions and a condition evaluator.
@@ -64,4 +77,90 @@ public abstract class AbstractEventSubscriber<T> implements Observer<T> {
     public ConditionEvaluator<T> getConditionEvaluator() {
         return conditionEvaluator;
     }
+
+    /**
+     * Retrieves the logging policy of this subscriber.
+     *
+     * @return the current logging policy.
+     */
+    public LoggingPolicy<T> getLoggingPolicy() {
+        return loggingPolicy;
+    }
+
+    /**
+     * Sets the policy deciding how triggers of this subscriber are logged.
+     *
+     * @param loggingPolicy the new logging policy.
+     */
+    public void setLoggingPolicy(LoggingPolicy<T> loggingPolicy) {
+        this.loggingPolicy = loggingPolicy;
+    }
+
+    /**
+     * Updates the subscriber with a new metric value and a message.
+     * <p>
+     * The message is wrapped in a reusable context and handed to
+     * {@link #handle(Object, EventContext)}.
+     * </p>
+     *
+     * @param metricValue the new metric value to be evaluated.
+     * @param message a message indicating the context of the update.
+     */
+    @Override
+    public final void update(T metricValue, String message) {
+        handle(metricValue, contextFor(message));
+    }
+
+    /**
+     * Updates the subscriber with a new metric value and the context of the
+     * notifying event, by handing both to {@link #handle(Object, EventContext)}.
+     *
+     * @param metricValue the new metric value to be evaluated.
+     * @param context the context of the notifying event.
+     */
+    @Override
+    public final void update(T metricValue, EventContext context) {
+        handle(metricValue, context);
+    }
+
+    /**
+     * Reacts to a notification, whichever {@code update} method delivered it.
+     * <p>
+     * Subclasses implement this method instead of the {@code update} methods, so
+     * that events, which pass a context, and callers passing a message reach the
+     * same code.
+     * </p>
+     *
+     * @param metricValue the new metric value to be evaluated.
+     * @param context the context of the notification.
+     */
+    protected abstract void handle(T metricValue, EventContext context);
+
+    /**
+     * Returns a context carrying the specified message, for notifications received
+     * through {@link #update(Object, String)}.
+     *
+     * @param message the notification message.
+     * @return a context whose message is {@code message}.
+     */
+    private EventContext contextFor(String message) {
+        EventContext current = messageContext;
+        if (current == null || !current.getMessage().equals(message)) {
+            current = EventContext.forMessage(message);
+            messageContext = current;
+        }
+        return current;
+    }
+
+    /**
+     * Performs all the adaptation actions of this subscriber, in order.
+     * <p>
+     * Actions are walked by index so that no iterator is allocated per notification.
+     * </p>
+     */
+    protected void performActions() {
+        for (int i = 0; i < actions.size(); i++) {
+            actions.get(i).perform();
+        }
+    }
 }
\ No newline at end of file
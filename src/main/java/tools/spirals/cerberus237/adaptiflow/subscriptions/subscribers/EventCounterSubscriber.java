@@ -15,10 +15,15 @@ package tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import tools.spirals.cerberus237.adaptiflow.interfaces.EventContext;
 import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.interfaces.Snapshottable;
 import tools.spirals.cerberus237.adaptationactionsbase.core.IAdaptationAction;
 import tools.spirals.cerberus237.adaptiflow.operators.TrueEvaluator;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -33,7 +38,7 @@ import java.util.List;
  * @param <T> the type of data that this subscriber will work with.
  * @author Arléon Zemtsop (Cerberus)
  */
-public class EventCounterSubscriber<T> extends AbstractEventSubscriber<T> {
+public class EventCounterSubscriber<T> extends AbstractEventSubscriber<T> implements Snapshottable {
     private static final Logger LOG = LoggerFactory.getLogger(EventCounterSubscriber.class);
 
     /**
@@ -42,10 +47,16 @@ public class EventCounterSubscriber<T> extends AbstractEventSubscriber<T> {
     private final int cycle;
 
     /**
-     * The current count of received updates.
+     * The current count of received updates, guarded by this subscriber's monitor so
+     * state snapshots taken on another thread see a consistent value.
      */
     private int counter = 0;
 
+    /**
+     * The identifier of this subscriber in state snapshots, or {@code null} for the class name.
+     */
+    private String snapshotId;
+
     /**
      * Constructs an {@code EventCounterSubscriber} with the specified actions,
      * condition evaluator, and cycle count.
@@ -74,31 +85,79 @@ public class EventCounterSubscriber<T> extends AbstractEventSubscriber<T> {
     }
 
     /**
-     * Updates the subscriber with a new metric value and a message.
+     * Increments the counter and checks if it has reached the cycle limit.
      * <p>
-     * This method increments the counter and checks if it has reached the cycle limit.
-     * If so, it prints the message, performs the adaptation actions, and resets the counter.
+     * If so, this method logs the notification according to the logging policy,
+     * performs the adaptation actions, and resets the counter. The context is only
+     * rendered if the log line is written.
      * </p>
      *
      * @param metricValue the new metric value to be evaluated.
-     * @param message a message indicating the context of the update.
+     * @param context the context of the notification.
      */
     @Override
-    public void update(T metricValue, String message) {
-        counter++;
-        if (counter >= cycle) {
-            LOG.info("{}: {}", message, metricValue);
-            actions.forEach(IAdaptationAction::perform);
-            counter = 0; // Reset the counter after actions are performed
+    protected void handle(T metricValue, EventContext context) {
+        loggingPolicy.onNotification(context);
+        boolean triggered;
+        synchronized (this) {
+            counter++;
+            triggered = counter >= cycle;
+            if (triggered) {
+                counter = 0; // Reset the counter, the actions run outside the monitor
+            }
+        }
+        if (triggered) {
+            loggingPolicy.onTrigger(LOG, context, metricValue);
+            performActions();
         }
     }
 
+    /**
+     * Writes the current counter.
+     *
+     * @param out the output receiving the state.
+     * @throws IOException if the state cannot be written.
+     */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(getCounter());
+    }
+
+    /**
+     * Restores the current counter, so the cycle continues where it stopped.
+     *
+     * @param in the input holding the state.
+     * @throws IOException if the state cannot be read.
+     */
+    @Override
+    public void readState(DataInput in) throws IOException {
+        int savedCounter = in.readInt();
+        synchronized (this) {
+            counter = Math.max(0, savedCounter);
+        }
+    }
+
+    @Override
+    public String getSnapshotId() {
+        return snapshotId != null ? snapshotId : Snapshottable.super.getSnapshotId();
+    }
+
+    /**
+     * Sets the identifier of this subscriber in state snapshots, needed when an event has
+     * several {@code EventCounterSubscriber}s.
+     *
+     * @param snapshotId the identifier, or {@code null} for the class name.
+     */
+    public void setSnapshotId(String snapshotId) {
+        this.snapshotId = snapshotId;
+    }
+
     /**
      * Retrieves the current counter value.
      *
      * @return the current count of updates received since the last action was performed.
      */
-    public int getCounter() {
+    public synchronized int getCounter() {
         return counter;
     }
 }
\ No newline at end of file
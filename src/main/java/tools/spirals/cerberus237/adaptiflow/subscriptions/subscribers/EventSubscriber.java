@@ -15,6 +15,7 @@ package tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import tools.spirals.cerberus237.adaptiflow.interfaces.EventContext;
 import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
 import tools.spirals.cerberus237.adaptationactionsbase.core.IAdaptationAction;
 import tools.spirals.cerberus237.adaptiflow.operators.TrueEvaluator;
@@ -60,18 +61,20 @@ public class EventSubscriber<T> extends AbstractEventSubscriber<T> {
     }
 
     /**
-     * Updates the subscriber with a new metric value and a message.
+     * Logs the notification according to the logging policy, and then performs
+     * all the adaptation actions.
      * <p>
-     * This method prints the message and the metric value, and then
-     * performs all the adaptation actions if the conditions are met.
+     * The context and the metric value are handed to the logging policy
+     * unformatted, so nothing is rendered unless a log line is actually written.
      * </p>
      *
      * @param metricValue the new metric value to be evaluated.
-     * @param message a message indicating the context of the update.
+     * @param context the context of the notification.
      */
     @Override
-    public void update(T metricValue, String message) {
-        LOG.info("{}: {}", message, metricValue);
-        actions.forEach(IAdaptationAction::perform);
+    protected void handle(T metricValue, EventContext context) {
+        loggingPolicy.onNotification(context);
+        loggingPolicy.onTrigger(LOG, context, metricValue);
+        performActions();
     }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.logging;
+
+import org.slf4j.Logger;
+import tools.spirals.cerberus237.adaptiflow.interfaces.EventContext;
+
+/**
+ * The {@link EveryTriggerLoggingPolicy} class logs one INFO line per trigger.
+ * <p>
+ * This is the default policy of the subscribers.
+ * </p>
+ *
+ * @param <T> the type of data that the subscriber works with.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class EveryTriggerLoggingPolicy<T> implements LoggingPolicy<T> {
+
+    @Override
+    public void onTrigger(Logger logger, EventContext context, T metricValue) {
+        logger.info("{}: {}", context, metricValue);
+    }
+}
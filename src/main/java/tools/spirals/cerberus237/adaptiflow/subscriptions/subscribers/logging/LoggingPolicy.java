@@ -0,0 +1,53 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.logging;
+
+import org.slf4j.Logger;
+import tools.spirals.cerberus237.adaptiflow.interfaces.EventContext;
+
+/**
+ * The {@link LoggingPolicy} interface decides how a subscriber reports the
+ * notifications that trigger its adaptation actions.
+ * <p>
+ * Logging one line per trigger is fine in normal operation, but during an incident
+ * events fire on every tick for every service and log I/O becomes a noticeable share
+ * of the CPU of the very services being relieved. Policies such as
+ * {@link StateChangeLoggingPolicy}, {@link SampledLoggingPolicy} and
+ * {@link SummaryLoggingPolicy} keep the logging cost flat however often events fire.
+ * </p>
+ *
+ * @param <T> the type of data that the subscriber works with.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public interface LoggingPolicy<T> {
+
+    /**
+     * Called every time the subscriber is notified, whether or not the notification
+     * triggers its actions, so policies can follow the state of the subscriber between
+     * triggers. Does nothing by default.
+     *
+     * @param context the context of the notifying event.
+     */
+    default void onNotification(EventContext context) {
+    }
+
+    /**
+     * Called every time the subscriber is triggered, before its actions are performed.
+     *
+     * @param logger the logger of the subscriber.
+     * @param context the context of the notifying event.
+     * @param metricValue the metric value that triggered the subscriber.
+     */
+    void onTrigger(Logger logger, EventContext context, T metricValue);
+}
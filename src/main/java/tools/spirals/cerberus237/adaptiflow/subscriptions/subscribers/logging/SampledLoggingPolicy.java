@@ -0,0 +1,52 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.logging;
+
+import org.slf4j.Logger;
+import tools.spirals.cerberus237.adaptiflow.interfaces.EventContext;
+
+/**
+ * The {@link SampledLoggingPolicy} class logs the first trigger and then one trigger
+ * out of every {@code n}, with the running trigger count.
+ *
+ * @param <T> the type of data that the subscriber works with.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class SampledLoggingPolicy<T> implements LoggingPolicy<T> {
+    private final long every;
+    private long triggers = 0L;
+
+    /**
+     * Constructs a {@code SampledLoggingPolicy} logging one trigger out of {@code every}.
+     *
+     * @param every the sampling period, in triggers.
+     */
+    public SampledLoggingPolicy(long every) {
+        if (every <= 0L) {
+            throw new IllegalArgumentException("The sampling period must be positive: " + every);
+        }
+        this.every = every;
+    }
+
+    @Override
+    public void onTrigger(Logger logger, EventContext context, T metricValue) {
+        long count;
+        synchronized (this) {
+            count = ++triggers;
+        }
+        if ((count - 1L) % every == 0L) {
+            logger.info("{}: {} (trigger #{})", context, metricValue, count);
+        }
+    }
+}
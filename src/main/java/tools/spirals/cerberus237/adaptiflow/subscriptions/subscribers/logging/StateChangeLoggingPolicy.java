@@ -0,0 +1,71 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.logging;
+
+import org.slf4j.Logger;
+import tools.spirals.cerberus237.adaptiflow.interfaces.EventContext;
+
+/**
+ * The {@link StateChangeLoggingPolicy} class logs only when a subscriber enters the
+ * triggered state: the first trigger after an observation on which the subscriber was
+ * not notified, or the first trigger coming from another event.
+ * <p>
+ * The state is followed through the notifications of the subscriber, not through its
+ * triggers, so subscribers triggering once every few notifications, such as
+ * {@code EventCounterSubscriber}, stay in the same state as long as their condition holds
+ * on consecutive observations. Consecutive triggers in the same state are counted
+ * silently; the length of the previous streak is reported with the next state change.
+ * </p>
+ *
+ * @param <T> the type of data that the subscriber works with.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class StateChangeLoggingPolicy<T> implements LoggingPolicy<T> {
+    private EventContext lastContext;
+    private long lastObservation = -1L;
+    private boolean stateChanged = true;
+    private long streak = 0L;
+
+    @Override
+    public synchronized void onNotification(EventContext context) {
+        long observation = context.getObservationCount();
+        // Detached contexts carry no observation count: every change of message is a new state.
+        boolean continued = context == lastContext
+                && (observation == 0L || observation == lastObservation + 1L);
+        if (!continued) {
+            stateChanged = true;
+        }
+        lastContext = context;
+        lastObservation = observation;
+    }
+
+    @Override
+    public synchronized void onTrigger(Logger logger, EventContext context, T metricValue) {
+        if (context != lastContext || context.getObservationCount() != lastObservation) {
+            // The subscriber does not report its notifications: each trigger is one.
+            onNotification(context);
+        }
+        if (stateChanged) {
+            if (streak > 0L) {
+                logger.info("{}: {} (previous streak: {} trigger(s))", context, metricValue, streak);
+            } else {
+                logger.info("{}: {}", context, metricValue);
+            }
+            streak = 1L;
+            stateChanged = false;
+        } else {
+            streak++;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.logging;
+
+import org.slf4j.Logger;
+import tools.spirals.cerberus237.adaptiflow.interfaces.EventContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The {@link SummaryLoggingPolicy} class writes at most one summary line per interval,
+ * with the number of triggers and, when a value function is given, the minimum and
+ * maximum metric values seen since the previous line.
+ * <p>
+ * The first trigger is logged immediately. Later triggers are aggregated and the
+ * summary is written by the first trigger arriving after the interval has elapsed,
+ * so the policy needs no timer thread; a quiet period is summarized when triggers resume.
+ * </p>
+ *
+ * @param <T> the type of data that the subscriber works with.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class SummaryLoggingPolicy<T> implements LoggingPolicy<T> {
+    private final long intervalNanos;
+    private final ToDoubleFunction<T> valueFunction;
+
+    private boolean started = false;
+    private long windowStart;
+    private long count = 0L;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Constructs a {@code SummaryLoggingPolicy} reporting trigger counts only.
+     *
+     * @param intervalMillis the minimum time between two lines, in milliseconds.
+     */
+    public SummaryLoggingPolicy(long intervalMillis) {
+        this(intervalMillis, null);
+    }
+
+    /**
+     * Constructs a {@code SummaryLoggingPolicy} reporting trigger counts and metric ranges.
+     *
+     * @param intervalMillis the minimum time between two lines, in milliseconds.
+     * @param valueFunction the function reading a numeric value from the metric, or {@code null}.
+     */
+    public SummaryLoggingPolicy(long intervalMillis, ToDoubleFunction<T> valueFunction) {
+        if (intervalMillis <= 0L) {
+            throw new IllegalArgumentException("The interval must be positive: " + intervalMillis);
+        }
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.valueFunction = valueFunction;
+    }
+
+    @Override
+    public synchronized void onTrigger(Logger logger, EventContext context, T metricValue) {
+        long now = System.nanoTime();
+        if (!started) {
+            started = true;
+            windowStart = now;
+            logger.info("{}: {}", context, metricValue);
+            return;
+        }
+        count++;
+        if (valueFunction != null && metricValue != null) {
+            double value = valueFunction.applyAsDouble(metricValue);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        long elapsed = now - windowStart;
+        if (elapsed < intervalNanos) {
+            return;
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+        if (valueFunction != null && min <= max) {
+            logger.info("{}: {} trigger(s) in the last {} ms, min={}, max={}", context, count, elapsedMillis, min, max);
+        } else {
+            logger.info("{}: {} trigger(s) in the last {} ms", context, count, elapsedMillis);
+        }
+        windowStart = now;
+        count = 0L;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.wire;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The {@link MetricCodec} interface converts a metric value to and from its compact
+ * binary form, so a service can serve its metrics as a few bytes and a remote collector
+ * can read them without parsing text.
+ * <p>
+ * Every frame starts with a header byte carrying the kind of metric and the version of
+ * the format, which decoders check before reading the rest of the frame.
+ * See {@link MetricCodecs} for the codecs of the metric models.
+ * </p>
+ *
+ * @param <T> the type of the metric value.
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public interface MetricCodec<T> {
+
+    /**
+     * Writes the frame of a metric value at the position of a buffer.
+     *
+     * @param value the metric value, possibly {@code null} when the codec allows it.
+     * @param out the buffer receiving the frame.
+     * @throws java.nio.BufferOverflowException if the buffer is too small for the frame.
+     * @throws IllegalArgumentException if the value cannot be encoded by this codec.
+     */
+    void encode(T value, ByteBuffer out);
+
+    /**
+     * Reads the frame of a metric value from the position of a buffer.
+     *
+     * @param in the buffer holding the frame.
+     * @return the metric value, possibly {@code null} when the codec allows it.
+     * @throws IllegalArgumentException if the frame is malformed or of another kind.
+     */
+    T decode(ByteBuffer in);
+}
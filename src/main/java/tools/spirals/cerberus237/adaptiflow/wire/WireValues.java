@@ -0,0 +1,203 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.wire;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes the header and the tagged values of metric frames.
+ * <p>
+ * A value is a tag byte followed by its payload: nothing for {@code null} and booleans,
+ * a zig-zag varint for integers and for doubles holding small integral values, 4 bytes
+ * for doubles exactly representable as floats and 8 bytes for the other doubles. Metric
+ * values such as {@code 42.0} or {@code 87.5} therefore cost 2 to 5 bytes, and decoding
+ * them never goes through text.
+ * </p>
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+final class WireValues {
+    static final int VERSION = 1;
+
+    static final int SCALAR = 1;
+    static final int DATABASE = 2;
+    static final int SERVICE = 3;
+    static final int SNAPSHOT = 4;
+
+    static final byte NULL = 0;
+    static final byte FALSE = 1;
+    static final byte TRUE = 2;
+    static final byte INT = 3;
+    static final byte LONG = 4;
+    static final byte INTEGRAL_DOUBLE = 5;
+    static final byte FLOAT_DOUBLE = 6;
+    static final byte DOUBLE = 7;
+
+    private static final long NEGATIVE_ZERO = Double.doubleToRawLongBits(-0.0);
+    private static final long MAX_INTEGRAL = 1L << 48;
+
+    private WireValues() {
+    }
+
+    static void putHeader(ByteBuffer out, int kind) {
+        out.put((byte) (kind << 4 | VERSION));
+    }
+
+    static void checkHeader(ByteBuffer in, int kind) {
+        int header = in.get() & 0xFF;
+        if ((header & 0x0F) != VERSION) {
+            throw new IllegalArgumentException("Unknown metric frame version: " + (header & 0x0F));
+        }
+        if (header >>> 4 != kind) {
+            throw new IllegalArgumentException("Expected a metric frame of kind " + kind + " but got " + (header >>> 4));
+        }
+    }
+
+    static void putValue(ByteBuffer out, Object value) {
+        if (value == null) {
+            out.put(NULL);
+        } else if (value instanceof Double) {
+            putDouble(out, (Double) value);
+        } else if (value instanceof Integer) {
+            out.put(INT);
+            putZigzag(out, (Integer) value);
+        } else if (value instanceof Long) {
+            out.put(LONG);
+            putZigzag(out, (Long) value);
+        } else if (value instanceof Boolean) {
+            out.put((Boolean) value ? TRUE : FALSE);
+        } else {
+            throw new IllegalArgumentException("Unsupported metric value type: " + value.getClass().getName());
+        }
+    }
+
+    static void putDouble(ByteBuffer out, double value) {
+        long integral = (long) value;
+        if (integral == value && Math.abs(integral) < MAX_INTEGRAL && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO) {
+            out.put(INTEGRAL_DOUBLE);
+            putZigzag(out, integral);
+        } else if ((float) value == value || Double.isNaN(value)) {
+            out.put(FLOAT_DOUBLE);
+            out.putFloat((float) value);
+        } else {
+            out.put(DOUBLE);
+            out.putDouble(value);
+        }
+    }
+
+    static Object getValue(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case INT:
+                return (int) getZigzag(in);
+            case LONG:
+                return getZigzag(in);
+            default:
+                return getDouble(in, tag);
+        }
+    }
+
+    /**
+     * Reads a numeric value, {@link Double#NaN} when {@code null}.
+     */
+    static double getDouble(ByteBuffer in) {
+        return getDouble(in, in.get());
+    }
+
+    private static double getDouble(ByteBuffer in, byte tag) {
+        switch (tag) {
+            case NULL:
+                return Double.NaN;
+            case INT:
+            case LONG:
+            case INTEGRAL_DOUBLE:
+                return getZigzag(in);
+            case FLOAT_DOUBLE:
+                return in.getFloat();
+            case DOUBLE:
+                return in.getDouble();
+            default:
+                throw new IllegalArgumentException("Expected a numeric value but got tag " + tag);
+        }
+    }
+
+    /**
+     * Reads an integer value, {@code null} when absent.
+     */
+    static Long getLong(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case INT:
+            case LONG:
+            case INTEGRAL_DOUBLE:
+                return getZigzag(in);
+            default:
+                throw new IllegalArgumentException("Expected an integer value but got tag " + tag);
+        }
+    }
+
+    /**
+     * Reads a boolean value, {@code null} when absent.
+     */
+    static Boolean getBoolean(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            default:
+                throw new IllegalArgumentException("Expected a boolean value but got tag " + tag);
+        }
+    }
+
+    static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long getVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static void putZigzag(ByteBuffer out, long value) {
+        putVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long getZigzag(ByteBuffer in) {
+        long zigzag = getVarint(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
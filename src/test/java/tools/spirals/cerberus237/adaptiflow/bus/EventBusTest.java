@@ -0,0 +1,239 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.bus;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.events.ConditionalEvent;
+import tools.spirals.cerberus237.adaptiflow.operators.GreaterThanEvaluator;
+import tools.spirals.cerberus237.adaptiflow.scanner.ExampleAction;
+import tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.EventSubscriber;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class EventBusTest {
+
+    @Test
+    public void testFrameRoundTrip() {
+        List<BusMessage> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(new BusMessage(i % 3 == 0 ? "ddosAttack" : "databaseUnavailable", "service-" + (i % 2),
+                    1700000000000L + i * 7 - (i % 5 == 0 ? 1000 : 0), i * 1.5));
+        }
+        ByteBuffer frame = FrameCodec.encode(batch, null);
+        Assert.assertTrue("frame of " + frame.remaining() + " bytes", frame.remaining() < 100 * 14);
+        List<BusMessage> decoded = new ArrayList<>();
+        Assert.assertEquals(100, FrameCodec.decode(frame, decoded::add));
+        for (int i = 0; i < batch.size(); i++) {
+            Assert.assertEquals(batch.get(i).toString(), decoded.get(i).toString());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedFrameIsRejected() {
+        ByteBuffer frame = FrameCodec.encode(List.of(new BusMessage("topic", "source", 1, 2)), null);
+        frame.limit(frame.limit() - 3);
+        FrameCodec.decode(frame, message -> { });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCountsBeyondTheFrameAreRejected() {
+        ByteBuffer frame = FrameCodec.encode(List.of(new BusMessage("topic", "source", 1, 2)), null);
+        // The string table announces 2^31 - 1 strings in a frame of a few bytes.
+        ByteBuffer corrupted = ByteBuffer.allocate(frame.remaining() + 4);
+        corrupted.put(frame.get()).put(frame.get()).putLong(frame.getLong());
+        frame.get();
+        corrupted.put(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07}).put(frame).flip();
+        FrameCodec.decode(corrupted, message -> { });
+    }
+
+    /**
+     * Checks the delivery rules of {@link BusTransport}: every bus receives every message
+     * once, including its own.
+     */
+    private static void assertEveryBusReceivesEveryMessageOnce(List<EventBus> buses) throws InterruptedException {
+        List<List<String>> received = new ArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(buses.size() * buses.size());
+        for (EventBus bus : buses) {
+            List<String> sources = new CopyOnWriteArrayList<>();
+            received.add(sources);
+            bus.subscribe("hello", message -> {
+                sources.add(message.getSource());
+                delivered.countDown();
+            });
+        }
+        for (EventBus bus : buses) {
+            Assert.assertTrue(bus.publish("hello", 1));
+        }
+        Assert.assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        // Leaves time for duplicates to arrive.
+        TimeUnit.MILLISECONDS.sleep(200);
+        for (int i = 0; i < buses.size(); i++) {
+            List<String> sources = new ArrayList<>(received.get(i));
+            sources.sort(null);
+            List<String> expected = new ArrayList<>();
+            for (EventBus bus : buses) {
+                expected.add(bus.getSource());
+            }
+            expected.sort(null);
+            Assert.assertEquals(buses.get(i).getSource(), expected, sources);
+        }
+    }
+
+    @Test
+    public void testInProcessDeliveryRules() throws Exception {
+        InProcessTransport transport = new InProcessTransport();
+        try (EventBus a = new EventBus(transport, "a");
+             EventBus b = new EventBus(transport, "b");
+             EventBus c = new EventBus(transport, "c")) {
+            assertEveryBusReceivesEveryMessageOnce(List.of(a, b, c));
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void testLoopbackDeliveryRules() throws Exception {
+        LoopbackSocketTransport server = LoopbackSocketTransport.listen(0);
+        LoopbackSocketTransport first = LoopbackSocketTransport.connect(server.getPort());
+        LoopbackSocketTransport second = LoopbackSocketTransport.connect(server.getPort());
+        try (EventBus a = new EventBus(server, "a");
+             EventBus b = new EventBus(first, "b");
+             EventBus c = new EventBus(second, "c")) {
+            awaitConnections(server, 2);
+            assertEveryBusReceivesEveryMessageOnce(List.of(a, b, c));
+        } finally {
+            second.close();
+            first.close();
+            server.close();
+        }
+    }
+
+    @Test
+    public void testClosingABusKeepsTheOthersAttached() throws Exception {
+        InProcessTransport transport = new InProcessTransport();
+        try (EventBus publisher = new EventBus(transport, "publisher");
+             EventBus receiver = new EventBus(transport, "receiver")) {
+            EventBus closed = new EventBus(transport, "closed");
+            AtomicInteger atClosed = new AtomicInteger();
+            closed.subscribe("topic", message -> atClosed.incrementAndGet());
+            closed.close();
+            CountDownLatch received = new CountDownLatch(1);
+            receiver.subscribe("topic", message -> received.countDown());
+            publisher.publish("topic", 1);
+            Assert.assertTrue(received.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, atClosed.get());
+        } finally {
+            transport.close();
+        }
+    }
+
+    private static void awaitConnections(LoopbackSocketTransport server, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.getConnectionCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(count, server.getConnectionCount());
+    }
+
+    @Test
+    public void testRemoteEventTriggersLocalActions() throws Exception {
+        InProcessTransport transport = new InProcessTransport();
+        try (EventBus persistence = new EventBus(transport, "persistence");
+             EventBus webui = new EventBus(transport, "webui")) {
+            CountDownLatch performed = new CountDownLatch(1);
+            RemoteEvent remote = new RemoteEvent(webui, "databaseUnavailable");
+            remote.subscribe(new EventSubscriber<>(List.of(new ExampleAction(performed::countDown)),
+                    message -> message.getValue() > 5000));
+
+            double[] responseTime = {100};
+            ConditionalEvent<Double> local = new ConditionalEvent<>(() -> responseTime[0], new GreaterThanEvaluator<>(5000.0));
+            local.subscribe(new BusPublishingSubscriber<>(persistence, "databaseUnavailable", Double::doubleValue));
+            local.observe();
+            responseTime[0] = 8000;
+            local.observe();
+
+            Assert.assertTrue(performed.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals("persistence", remote.getLastValue().getSource());
+            Assert.assertEquals(8000, remote.getLastValue().getValue(), 0.0);
+            Assert.assertEquals(1, persistence.getPublishedCount());
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void testMessagesAreBatchedUnderLoad() throws Exception {
+        InProcessTransport transport = new InProcessTransport();
+        CountDownLatch received = new CountDownLatch(10000);
+        try (EventBus bus = new EventBus(transport, "source")) {
+            bus.subscribe("load", message -> received.countDown());
+            for (int i = 0; i < 10000; i++) {
+                Assert.assertTrue(bus.publish("load", i));
+            }
+            Assert.assertTrue(received.await(5, TimeUnit.SECONDS));
+            // Closing waits for the sender, which counts a frame once it is delivered.
+            bus.close();
+            Assert.assertEquals(10000, bus.getSentCount());
+            Assert.assertTrue("frames: " + bus.getFrameCount(), bus.getFrameCount() < 10000);
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void testLoopbackSocketTransport() throws Exception {
+        LoopbackSocketTransport server = LoopbackSocketTransport.listen(0);
+        LoopbackSocketTransport client = LoopbackSocketTransport.connect(server.getPort());
+        try (EventBus persistence = new EventBus(server, "persistence");
+             EventBus webui = new EventBus(client, "webui")) {
+            awaitConnections(server, 1);
+            List<BusMessage> atWebui = new CopyOnWriteArrayList<>();
+            CountDownLatch toWebui = new CountDownLatch(1000);
+            webui.subscribe("ddosAttack", message -> {
+                atWebui.add(message);
+                toWebui.countDown();
+            });
+            AtomicInteger atPersistence = new AtomicInteger();
+            CountDownLatch toPersistence = new CountDownLatch(1);
+            persistence.subscribe("ack", message -> {
+                atPersistence.incrementAndGet();
+                toPersistence.countDown();
+            });
+            for (int i = 0; i < 1000; i++) {
+                persistence.publish("ddosAttack", i);
+            }
+            webui.publish("ack", 1);
+            Assert.assertTrue(toWebui.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(toPersistence.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertEquals(i, atWebui.get(i).getValue(), 0.0);
+            }
+            Assert.assertEquals(1, atPersistence.get());
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+}
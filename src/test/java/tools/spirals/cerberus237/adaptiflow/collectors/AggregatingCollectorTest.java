@@ -0,0 +1,109 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.events.IncreaseEvent;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class AggregatingCollectorTest {
+    private static final int INSTANCES = 8;
+    private static final long DELAY_MS = 100;
+
+    private FakeMetricsServer server;
+    private ExecutorService executor;
+    private List<IMetricsCollector<Double>> instances;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FakeMetricsServer();
+        instances = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            server.metric("/instance" + i + "/cpu", 10.0 * (i + 1), DELAY_MS);
+            instances.add(server.collector("/instance" + i + "/cpu"));
+        }
+        executor = Executors.newFixedThreadPool(INSTANCES);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testInstancesAreQueriedConcurrently() {
+        AggregatingCollector collector = new AggregatingCollector(instances, Aggregate.max(), executor, 2000);
+        long start = System.nanoTime();
+        Assert.assertEquals(80.0, collector.get(), 0.0);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        Assert.assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < INSTANCES * DELAY_MS / 2);
+        Assert.assertEquals(INSTANCES, collector.getLastResponseCount());
+        Assert.assertEquals(INSTANCES, server.totalHits());
+    }
+
+    @Test
+    public void testSlowInstancesAreLeftOut() {
+        server.metric("/slow/cpu", 99.0, 1000);
+        List<IMetricsCollector<Double>> withSlow = new ArrayList<>(instances);
+        withSlow.add(server.collector("/slow/cpu"));
+        AggregatingCollector collector = new AggregatingCollector(withSlow, Aggregate.max(), executor, 400, 5);
+        Assert.assertEquals(80.0, collector.get(), 0.0);
+        Assert.assertEquals(INSTANCES, collector.getLastResponseCount());
+        Assert.assertEquals(1, collector.getTimeoutCount());
+    }
+
+    @Test
+    public void testQuorumNotMetSkipsObservation() {
+        List<IMetricsCollector<Double>> failing = List.of(instances.get(0), () -> {
+            throw new IllegalStateException("instance down");
+        });
+        AggregatingCollector collector = new AggregatingCollector(failing, Aggregate.mean(), executor, 1000, 2);
+        Assert.assertNull(collector.get());
+        Assert.assertEquals(1, collector.getFailureCount());
+
+        IncreaseEvent<Double> event = new IncreaseEvent<>(collector, () -> 0.0);
+        event.setSkipMissingValues(true);
+        event.observe(); // must not fail on the missing value
+        Assert.assertEquals(1, event.getObservationCount());
+    }
+
+    @Test
+    public void testAggregates() {
+        double[] values = {30, 10, 50, 20, 40};
+        Assert.assertEquals(50, Aggregate.max().apply(values.clone(), 5), 0.0);
+        Assert.assertEquals(10, Aggregate.min().apply(values.clone(), 5), 0.0);
+        Assert.assertEquals(150, Aggregate.sum().apply(values.clone(), 5), 0.0);
+        Assert.assertEquals(30, Aggregate.mean().apply(values.clone(), 5), 0.0);
+        Assert.assertEquals(30, Aggregate.quantile(0.5).apply(values.clone(), 5), 0.0);
+        Assert.assertEquals(46, Aggregate.quantile(0.9).apply(values.clone(), 5), 1e-9);
+        Assert.assertEquals(40, Aggregate.kthLargest(2).apply(values.clone(), 5), 0.0);
+        Assert.assertEquals(30, Aggregate.max().apply(values.clone(), 2), 0.0);
+        Assert.assertTrue(Double.isNaN(Aggregate.kthLargest(3).apply(values.clone(), 2)));
+        Assert.assertTrue(Double.isNaN(Aggregate.mean().apply(values.clone(), 0)));
+    }
+}
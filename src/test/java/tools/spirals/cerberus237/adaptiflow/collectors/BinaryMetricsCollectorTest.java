@@ -0,0 +1,102 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.models.MetricsSnapshot;
+import tools.spirals.cerberus237.adaptiflow.wire.MetricCodec;
+import tools.spirals.cerberus237.adaptiflow.wire.MetricCodecs;
+import tools.spirals.cerberus237.metricscollectorbase.models.SQLDatabaseMetrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class BinaryMetricsCollectorTest {
+
+    @Test
+    public void testCollectsDatabaseMetrics() throws Exception {
+        AtomicLong responseTime = new AtomicLong(120);
+        MetricCodec<SQLDatabaseMetrics> serverCodec = MetricCodecs.databaseMetrics();
+        try (FakeMetricsServer server = new FakeMetricsServer().endpoint("/metrics/database", () -> {
+            SQLDatabaseMetrics metrics = new SQLDatabaseMetrics();
+            metrics.setResponseTime(responseTime.get());
+            metrics.setNetworkStatus(true);
+            return MetricCodecs.toBytes(serverCodec, metrics);
+        }, BinaryMetricsCollector.CONTENT_TYPE, 0)) {
+            BinaryMetricsCollector<SQLDatabaseMetrics> collector = new BinaryMetricsCollector<>(
+                    server.url("/metrics/database"), MetricCodecs.databaseMetrics());
+
+            SQLDatabaseMetrics first = collector.get();
+            Assert.assertEquals(Long.valueOf(120), first.getResponseTime());
+            Assert.assertEquals(Boolean.TRUE, first.getNetworkStatus());
+            Assert.assertEquals(5, collector.getLastFrameBytes());
+
+            responseTime.set(6000);
+            Assert.assertEquals(Long.valueOf(6000), collector.get().getResponseTime());
+            Assert.assertEquals(2, server.hits("/metrics/database"));
+            Assert.assertEquals(2, collector.getFetchCount());
+            Assert.assertEquals(0, collector.getFailureCount());
+        }
+    }
+
+    @Test
+    public void testCollectsSnapshots() throws Exception {
+        List<String> names = List.of("cpu", "memory", "requests");
+        MetricsSnapshot served = new MetricsSnapshot(names, new Object[]{73.5, 41.0, 980L}, 1760000000000L);
+        try (FakeMetricsServer server = new FakeMetricsServer().endpoint("/metrics",
+                () -> MetricCodecs.toBytes(MetricCodecs.snapshot(names), served), BinaryMetricsCollector.CONTENT_TYPE, 0)) {
+            MetricsSnapshot snapshot = new BinaryMetricsCollector<>(server.url("/metrics"), MetricCodecs.snapshot(names)).get();
+            Assert.assertEquals(served.toString(), snapshot.toString());
+            Assert.assertEquals(1760000000000L, snapshot.getTimestamp());
+        }
+    }
+
+    @Test
+    public void testFailuresReturnNull() throws Exception {
+        try (FakeMetricsServer server = new FakeMetricsServer()
+                .endpoint("/metrics/cpu", () -> "73.5", "text/plain", 0)
+                .endpoint("/metrics/large", () -> new byte[64], BinaryMetricsCollector.CONTENT_TYPE, 0)
+                .endpoint("/metrics/trailing", () -> Arrays.copyOf(MetricCodecs.toBytes(MetricCodecs.scalar(), 73.5), 16),
+                        BinaryMetricsCollector.CONTENT_TYPE, 0)) {
+            BinaryMetricsCollector<Double> text = new BinaryMetricsCollector<>(server.url("/metrics/cpu"), MetricCodecs.scalar());
+            Assert.assertNull(text.get());
+            Assert.assertEquals(1, text.getFailureCount());
+
+            BinaryMetricsCollector<Double> large = new BinaryMetricsCollector<>(server.url("/metrics/large"),
+                    MetricCodecs.scalar(), 1000, 16);
+            Assert.assertNull(large.get());
+
+            BinaryMetricsCollector<Double> trailing = new BinaryMetricsCollector<>(server.url("/metrics/trailing"),
+                    MetricCodecs.scalar());
+            Assert.assertNull(trailing.get());
+            Assert.assertEquals(1, trailing.getFailureCount());
+
+            BinaryMetricsCollector<Double> missing = new BinaryMetricsCollector<>(server.url("/metrics/missing"),
+                    MetricCodecs.scalar());
+            Assert.assertNull(missing.get());
+            Assert.assertEquals(1, missing.getFailureCount());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedUrl() {
+        new BinaryMetricsCollector<>("metrics/cpu", MetricCodecs.scalar());
+    }
+}
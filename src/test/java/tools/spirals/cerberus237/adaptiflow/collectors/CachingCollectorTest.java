@@ -0,0 +1,153 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class CachingCollectorTest {
+    private static final String PATH = "/metrics/requests";
+
+    private FakeMetricsServer server;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FakeMetricsServer().metric(PATH, 120.0, 100);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneFetch() throws Exception {
+        CachingCollector<Double> collector = new CachingCollector<>(server.collector(PATH), 5000);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Double>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return collector.get();
+            }));
+        }
+        start.countDown();
+        for (Future<Double> result : results) {
+            Assert.assertEquals(120.0, result.get(5, TimeUnit.SECONDS), 0.0);
+        }
+        Assert.assertEquals(1, server.hits(PATH));
+        Assert.assertEquals(1, collector.getFetchCount());
+        Assert.assertEquals(10, collector.getMissCount() + collector.getHitCount());
+        Assert.assertTrue(collector.getLastFetchNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testValueExpires() throws InterruptedException {
+        CachingCollector<Double> collector = new CachingCollector<>(server.collector(PATH), 150);
+        collector.get();
+        collector.get();
+        Assert.assertEquals(1, collector.getHitCount());
+        Assert.assertEquals(1, server.hits(PATH));
+        TimeUnit.MILLISECONDS.sleep(200);
+        collector.get();
+        Assert.assertEquals(2, server.hits(PATH));
+        Assert.assertEquals(2, collector.getMissCount());
+    }
+
+    @Test
+    public void testRefreshAheadKeepsServingCachedValue() throws InterruptedException {
+        CachingCollector<Double> collector = new CachingCollector<>(server.collector(PATH), 400, 250, executor);
+        collector.get();
+        TimeUnit.MILLISECONDS.sleep(200);
+        long start = System.nanoTime();
+        collector.get();
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertEquals(1, collector.getRefreshAheadCount());
+        TimeUnit.MILLISECONDS.sleep(300);
+        Assert.assertEquals(2, server.hits(PATH));
+        collector.get(); // 500 ms after the first fetch, served by the refreshed value
+        Assert.assertEquals(1, collector.getMissCount());
+        Assert.assertEquals(2, collector.getHitCount());
+    }
+
+    @Test
+    public void testFailuresAreNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+        CachingCollector<Double> collector = new CachingCollector<>(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("unreachable");
+            }
+            return 1.0;
+        }, 5000);
+        try {
+            collector.get();
+            Assert.fail("Expected the failure to be rethrown");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("unreachable", e.getMessage());
+        }
+        Assert.assertEquals(1.0, collector.get(), 0.0);
+        Assert.assertEquals(1, collector.getFailureCount());
+    }
+
+    @Test
+    public void testErrorsReleaseWaitingCallers() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CachingCollector<Double> collector = new CachingCollector<>(() -> {
+            fetching.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new StackOverflowError("delegate error");
+        }, 5000);
+        Future<?> owner = executor.submit(collector::get);
+        Assert.assertTrue(fetching.await(5, TimeUnit.SECONDS));
+        Future<?> waiter = executor.submit(collector::get);
+        while (collector.getSharedFetchCount() == 0) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        release.countDown();
+        for (Future<?> result : List.of(owner, waiter)) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                Assert.fail("Expected the error to be rethrown");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof StackOverflowError);
+            }
+        }
+        Assert.assertEquals(1, collector.getFailureCount());
+    }
+}
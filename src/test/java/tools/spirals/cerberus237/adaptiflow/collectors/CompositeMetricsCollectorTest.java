@@ -0,0 +1,130 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.events.DecreaseEvent;
+import tools.spirals.cerberus237.adaptiflow.events.Event;
+import tools.spirals.cerberus237.adaptiflow.events.IncreaseEvent;
+import tools.spirals.cerberus237.adaptiflow.models.MetricsSnapshot;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class CompositeMetricsCollectorTest {
+    private static final long DELAY_MS = 150;
+
+    private FakeMetricsServer server;
+    private ExecutorService executor;
+    private Map<String, IMetricsCollector<?>> sources;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FakeMetricsServer()
+                .metric("/metrics/cpu", 85.0, DELAY_MS)
+                .metric("/metrics/memory", 40.0, DELAY_MS)
+                .metric("/metrics/requests", 120.0, DELAY_MS);
+        executor = Executors.newFixedThreadPool(3);
+        sources = new LinkedHashMap<>();
+        sources.put("cpu", server.collector("/metrics/cpu"));
+        sources.put("memory", server.collector("/metrics/memory"));
+        sources.put("requests", server.collector("/metrics/requests"));
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testEventsShareOneFetchPerTick() {
+        CompositeMetricsCollector host = new CompositeMetricsCollector(sources, 5_000, executor, 2_000);
+        List<Event<Double>> events = List.of(
+                new IncreaseEvent<>(host.field("cpu"), () -> 80.0),
+                new DecreaseEvent<>(host.field("cpu"), () -> 50.0),
+                new IncreaseEvent<>(host.field("memory"), () -> 80.0),
+                new DecreaseEvent<>(host.field("memory"), () -> 50.0),
+                new IncreaseEvent<>(host.field("requests"), () -> 300.0),
+                new DecreaseEvent<>(host.field("requests"), () -> 100.0));
+        events.forEach(Event::observe);
+
+        Assert.assertEquals(1, host.getFetchCount());
+        Assert.assertEquals(3, server.totalHits());
+    }
+
+    @Test
+    public void testConcurrentFanOutCostsSlowestRoundTrip() {
+        CompositeMetricsCollector sequential = new CompositeMetricsCollector(sources, 0);
+        CompositeMetricsCollector concurrent = new CompositeMetricsCollector(sources, 0, executor, 2_000);
+        concurrent.get(); // warm up connections and threads
+
+        long start = System.nanoTime();
+        MetricsSnapshot snapshot = concurrent.get();
+        long concurrentMillis = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        sequential.get();
+        long sequentialMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Assert.assertEquals(85.0, snapshot.getDouble(0), 0.0);
+        Assert.assertEquals(120.0, (Double) snapshot.get("requests"), 0.0);
+        Assert.assertTrue("sequential fetch took " + sequentialMillis + " ms", sequentialMillis >= 3 * DELAY_MS);
+        Assert.assertTrue("concurrent fetch took " + concurrentMillis + " ms", concurrentMillis < 2 * DELAY_MS);
+    }
+
+    @Test
+    public void testSlowSourceYieldsNull() {
+        server.metric("/metrics/slow", 1.0, 1_000);
+        Map<String, IMetricsCollector<?>> withSlowSource = new LinkedHashMap<>(sources);
+        withSlowSource.put("slow", server.collector("/metrics/slow"));
+        withSlowSource.put("broken", () -> {
+            throw new IllegalStateException("unreachable");
+        });
+        CompositeMetricsCollector host = new CompositeMetricsCollector(withSlowSource, 0, executor, 2 * DELAY_MS + 100);
+
+        MetricsSnapshot snapshot = host.get();
+        Assert.assertEquals(40.0, (Double) snapshot.get("memory"), 0.0);
+        Assert.assertNull(snapshot.get("slow"));
+        Assert.assertNull(snapshot.get("broken"));
+        Assert.assertTrue(Double.isNaN(snapshot.getDouble(snapshot.indexOf("slow"))));
+    }
+
+    @Test
+    public void testSnapshotExpires() throws InterruptedException {
+        CompositeMetricsCollector host = new CompositeMetricsCollector(sources, 50);
+        MetricsSnapshot first = host.get();
+        Assert.assertSame(first, host.get());
+        Thread.sleep(60);
+        Assert.assertNotSame(first, host.get());
+        Assert.assertEquals(2, host.getFetchCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownField() {
+        new CompositeMetricsCollector(sources, 0).field("disk");
+    }
+}
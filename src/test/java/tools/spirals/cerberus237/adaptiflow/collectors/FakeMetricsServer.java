@@ -0,0 +1,121 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import com.sun.net.httpserver.HttpServer;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the {@code /metrics/*} endpoints of a service, answering
+ * with a plain-text value after a configurable delay and counting the requests.
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class FakeMetricsServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+
+    public FakeMetricsServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Serves {@code value} on {@code path} after {@code delayMillis}.
+     */
+    public FakeMetricsServer metric(String path, double value, long delayMillis) {
+        return endpoint(path, () -> value, "text/plain", delayMillis);
+    }
+
+    /**
+     * Serves the body returned by {@code body} on {@code path} after {@code delayMillis}.
+     */
+    public FakeMetricsServer endpoint(String path, java.util.function.Supplier<Object> body, String contentType,
+                                      long delayMillis) {
+        AtomicInteger counter = hits.computeIfAbsent(path, key -> new AtomicInteger());
+        server.createContext(path, exchange -> {
+            counter.incrementAndGet();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Object content = body.get();
+            byte[] bytes = content instanceof byte[] ? (byte[]) content
+                    : content.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        return this;
+    }
+
+    public String url(String path) {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path;
+    }
+
+    /**
+     * Returns a collector reading the plain-text value served on {@code path}.
+     */
+    public IMetricsCollector<Double> collector(String path) {
+        return () -> Double.parseDouble(new String(fetch(path), StandardCharsets.UTF_8).trim());
+    }
+
+    public byte[] fetch(String path) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url(path)).openConnection();
+            try (InputStream in = connection.getInputStream()) {
+                return in.readAllBytes();
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int hits(String path) {
+        AtomicInteger counter = hits.get(path);
+        return counter == null ? 0 : counter.get();
+    }
+
+    public int totalHits() {
+        return hits.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.models.ResourceUsageMetrics;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.util.HashMap;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class ResourceUsageMetricsCollectorTest {
+
+    @Test
+    public void testGetReusesSnapshot() {
+        double[] cpu = {10.0};
+        ResourceUsageMetricsCollector collector = new ResourceUsageMetricsCollector(() -> cpu[0], () -> 40.0);
+        ResourceUsageMetrics first = collector.get();
+        Assert.assertEquals(10.0, first.getCpu(), 0.0);
+        Assert.assertEquals(40.0, first.getMemory(), 0.0);
+
+        ResourceUsageMetrics kept = first.copy();
+        cpu[0] = 20.0;
+        ResourceUsageMetrics second = collector.get();
+        Assert.assertSame(first, second);
+        Assert.assertEquals(20.0, second.getCpu(), 0.0);
+        Assert.assertEquals(10.0, kept.getCpu(), 0.0);
+    }
+
+    @Test
+    public void testOfScalarCollectors() {
+        IMetricsCollector<Double> cpuCollector = () -> 55.0;
+        IMetricsCollector<Double> memoryCollector = () -> null;
+        ResourceUsageMetrics metric = ResourceUsageMetricsCollector.of(cpuCollector, memoryCollector).get();
+        Assert.assertEquals(55.0, metric.getCpu(), 0.0);
+        Assert.assertTrue(Double.isNaN(metric.getMemory()));
+        Assert.assertFalse(metric.isComplete());
+    }
+
+    @Test
+    public void testFromMap() {
+        HashMap<String, Double> map = new HashMap<>();
+        map.put("cpu", 70.0);
+        map.put("memory", 30.0);
+        IMetricsCollector<HashMap<String, Double>> legacy = () -> map;
+        ResourceUsageMetrics metric = ResourceUsageMetricsCollector.fromMap(legacy).get();
+        Assert.assertEquals(70.0, metric.getCpu(), 0.0);
+        Assert.assertEquals(30.0, metric.getMemory(), 0.0);
+        Assert.assertTrue(metric.isComplete());
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class SharedMetricCacheTest {
+    private Path file;
+    private SharedMetricCache first;
+    private SharedMetricCache second;
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final IMetricsCollector<Double> registry = () -> (double) fetches.incrementAndGet();
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("adaptiflow", ".cache");
+        Files.delete(file);
+        // Two mappings of the same file stand for two JVMs of the host.
+        first = SharedMetricCache.open(file, 16);
+        second = SharedMetricCache.open(file, 16);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        first.close();
+        second.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testProcessesShareOneFetchPerTtl() {
+        SharedCachedCollector a = new SharedCachedCollector(first, "registry.cpu", registry, 1000, clock::get);
+        SharedCachedCollector b = new SharedCachedCollector(second, "registry.cpu", registry, 1000, clock::get);
+        Assert.assertEquals(1.0, a.get(), 0.0);
+        Assert.assertEquals(1.0, b.get(), 0.0);
+        clock.addAndGet(500);
+        Assert.assertEquals(1.0, a.get(), 0.0);
+        Assert.assertEquals(1.0, b.get(), 0.0);
+        clock.addAndGet(600);
+        Assert.assertEquals(2.0, b.get(), 0.0);
+        Assert.assertEquals(2.0, a.get(), 0.0);
+        Assert.assertEquals(2, fetches.get());
+        Assert.assertEquals(1, a.getRefreshCount());
+        Assert.assertEquals(1, b.getRefreshCount());
+        Assert.assertEquals(4, a.getHitCount() + b.getHitCount());
+    }
+
+    @Test
+    public void testOthersReadStaleValueDuringRefresh() {
+        SharedCachedCollector a = new SharedCachedCollector(first, "registry.cpu", registry, 1000, clock::get);
+        AtomicReference<Double> seenDuringRefresh = new AtomicReference<>();
+        SharedCachedCollector[] b = new SharedCachedCollector[1];
+        IMetricsCollector<Double> slowRegistry = () -> {
+            seenDuringRefresh.set(b[0].get());
+            return 42.0;
+        };
+        SharedCachedCollector refresher = new SharedCachedCollector(first, "registry.cpu", slowRegistry, 1000, clock::get);
+        b[0] = new SharedCachedCollector(second, "registry.cpu", registry, 1000, clock::get);
+        a.get();
+        clock.addAndGet(1500);
+        Assert.assertEquals(42.0, refresher.get(), 0.0);
+        Assert.assertEquals(1.0, seenDuringRefresh.get(), 0.0);
+        Assert.assertEquals(1, b[0].getStaleCount());
+        Assert.assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void testKeysUseDistinctSlots() {
+        int cpu = first.slot("registry.cpu");
+        int memory = first.slot("registry.memory");
+        Assert.assertNotEquals(cpu, memory);
+        Assert.assertEquals(cpu, second.slot("registry.cpu"));
+        first.write(cpu, 10, 1.5);
+        Assert.assertEquals(1.5, second.read(cpu, 100, 20), 0.0);
+        Assert.assertTrue(Double.isNaN(second.read(memory, 100, 20)));
+        Assert.assertTrue(Double.isNaN(second.read(cpu, 5, 20)));
+    }
+
+    @Test
+    public void testConcurrentReadersNeverSeeTornValues() throws Exception {
+        int slot = first.slot("registry.cpu");
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            double last = 0;
+            while (!done.get()) {
+                // Values are written in increasing order, so a reader never sees one go back.
+                double value = second.read(slot, Long.MAX_VALUE, Long.MAX_VALUE);
+                if (value < last) {
+                    failure.compareAndSet(null, value + " after " + last);
+                }
+                if (!Double.isNaN(value)) {
+                    last = value;
+                }
+            }
+        });
+        reader.start();
+        for (long i = 1; i <= 200000; i++) {
+            first.write(slot, i, i);
+            double value = second.read(slot, Long.MAX_VALUE, i);
+            if (value != i) {
+                failure.compareAndSet(null, value + " != " + i);
+            }
+        }
+        done.set(true);
+        reader.join();
+        Assert.assertNull(failure.get());
+    }
+
+    @Test
+    public void testSlotLeftMidWriteIsRecoveredAfterTheWriteLease() {
+        SharedCachedCollector collector = new SharedCachedCollector(first, "registry.cpu", registry, 1000, clock::get);
+        Assert.assertEquals(1.0, collector.get(), 0.0);
+        int slot = first.slot("registry.cpu");
+        clock.addAndGet(1500);
+        // The other process dies between making the sequence odd and making it even again.
+        Assert.assertTrue(second.beginWrite(slot, clock.get()) > 0);
+        Assert.assertEquals(2.0, collector.get(), 0.0);
+        Assert.assertEquals(1, collector.getUnpublishedCount());
+        Assert.assertTrue(Double.isNaN(first.read(slot, Long.MAX_VALUE, clock.get())));
+
+        clock.addAndGet(SharedMetricCache.WRITE_LEASE_MILLIS);
+        Assert.assertEquals(3.0, collector.get(), 0.0);
+        Assert.assertEquals(3.0, second.read(slot, 1000, clock.get()), 0.0);
+        Assert.assertEquals(3.0, collector.get(), 0.0);
+        Assert.assertEquals(3, fetches.get());
+    }
+
+    @Test
+    public void testFailingRefreshReleasesTheLease() {
+        IMetricsCollector<Double> failing = () -> {
+            throw new AssertionError("The registry is unreachable");
+        };
+        SharedCachedCollector a = new SharedCachedCollector(first, "registry.cpu", failing, 1000, clock::get);
+        SharedCachedCollector b = new SharedCachedCollector(second, "registry.cpu", registry, 1000, clock::get);
+        try {
+            a.get();
+            Assert.fail("The error of the delegate should propagate");
+        } catch (AssertionError e) {
+            Assert.assertEquals("The registry is unreachable", e.getMessage());
+        }
+        // The other process refreshes at once instead of fetching directly until the lease expires
+        Assert.assertEquals(1.0, b.get(), 0.0);
+        Assert.assertEquals(1, b.getRefreshCount());
+        Assert.assertEquals(0, b.getDirectFetchCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void testGeometryMismatchIsRejected() throws IOException {
+        SharedMetricCache.open(file, 32).close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFullCacheRejectsKeys() {
+        for (int i = 0; i <= 16; i++) {
+            first.slot("key-" + i);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.coordination;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptationactionsbase.enums.AdaptationActionResult;
+import tools.spirals.cerberus237.adaptiflow.scanner.ExampleAction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class LeaderElectorTest {
+    private Path directory;
+    private final AtomicLong clock = new AtomicLong(1000);
+    private final List<LeaderElector> electors = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("adaptiflow-election");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (LeaderElector elector : electors) {
+            elector.close();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private LeaderElector replica() throws IOException {
+        LeaderElector elector = new LeaderElector(directory, "cluster-actions", 3000, clock::get);
+        electors.add(elector);
+        return elector;
+    }
+
+    private int leaders(List<LeaderElector> replicas) {
+        int leaders = 0;
+        for (LeaderElector elector : replicas) {
+            if (elector.isLeader()) {
+                leaders++;
+            }
+        }
+        return leaders;
+    }
+
+    private void tickAll(List<LeaderElector> replicas) {
+        for (LeaderElector elector : replicas) {
+            elector.tick();
+        }
+    }
+
+    @Test
+    public void testSingleLeaderIsElected() throws IOException {
+        List<LeaderElector> replicas = List.of(replica(), replica(), replica());
+        for (int i = 0; i < 5; i++) {
+            clock.addAndGet(1000);
+            tickAll(replicas);
+            Assert.assertEquals(1, leaders(replicas));
+        }
+        Assert.assertTrue(replicas.get(0).isLeader());
+        Assert.assertEquals(replicas.get(0).getId(), replicas.get(2).getLeaderId());
+        Assert.assertEquals(clock.get(), replicas.get(1).getLastHeartbeatMillis());
+    }
+
+    @Test
+    public void testFailoverWithinOneTickWhenLeaderCloses() throws IOException {
+        List<LeaderElector> replicas = new ArrayList<>(List.of(replica(), replica(), replica()));
+        tickAll(replicas);
+        LeaderElector leader = replicas.remove(0);
+        long epoch = leader.getEpoch();
+        leader.close();
+        Assert.assertEquals(0, leaders(replicas));
+        clock.addAndGet(1000);
+        tickAll(replicas);
+        Assert.assertEquals(1, leaders(replicas));
+        Assert.assertEquals(epoch + 1, replicas.get(0).getEpoch());
+    }
+
+    @Test
+    public void testStalledLeaderStepsDown() throws IOException {
+        List<LeaderElector> replicas = List.of(replica(), replica());
+        tickAll(replicas);
+        LeaderElector leader = replicas.get(0);
+        LeaderElector follower = replicas.get(1);
+        // The leader misses its ticks for longer than its lease while the follower keeps ticking.
+        for (int i = 0; i < 4; i++) {
+            clock.addAndGet(1000);
+            follower.tick();
+        }
+        Assert.assertFalse(leader.isLeader());
+        Assert.assertFalse(leader.tick());
+        Assert.assertEquals(1, leader.getStepDownCount());
+        Assert.assertTrue(follower.tick());
+        Assert.assertEquals(1, leaders(replicas));
+    }
+
+    @Test
+    public void testGuardedActionRunsOnLeaderOnly() throws IOException {
+        AtomicInteger performed = new AtomicInteger();
+        List<LeaderElector> replicas = List.of(replica(), replica(), replica());
+        tickAll(replicas);
+        List<LeaderGuardedAction> actions = new ArrayList<>();
+        for (LeaderElector elector : replicas) {
+            actions.add(new LeaderGuardedAction(new ExampleAction(performed::incrementAndGet), elector));
+        }
+        for (LeaderGuardedAction action : actions) {
+            Assert.assertEquals(AdaptationActionResult.SUCCESS, action.perform());
+        }
+        Assert.assertEquals(1, performed.get());
+        Assert.assertEquals(1, actions.get(0).getPerformedCount());
+        Assert.assertEquals(1, actions.get(1).getSkippedCount());
+        Assert.assertFalse(actions.get(2).canPerform());
+    }
+
+    @Test
+    public void testBackgroundTicks() throws Exception {
+        LeaderElector elector = new LeaderElector(directory, "background", 500);
+        electors.add(elector);
+        elector.start(50);
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!elector.isLeader() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(elector.isLeader());
+        elector.close();
+        Assert.assertFalse(elector.isLeader());
+    }
+
+    @Test
+    public void testFailedBackgroundTickReleasesTheLeadership() throws Exception {
+        AtomicBoolean failing = new AtomicBoolean();
+        LeaderElector flaky = new LeaderElector(directory, "background", 500, () -> {
+            if (failing.get()) {
+                throw new IllegalStateException("Clock unavailable");
+            }
+            return System.currentTimeMillis();
+        });
+        electors.add(flaky);
+        LeaderElector other = new LeaderElector(directory, "background", 500);
+        electors.add(other);
+        flaky.start(20);
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!flaky.isLeader() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(flaky.isLeader());
+
+        failing.set(true);
+        deadline = System.currentTimeMillis() + 2000;
+        while (!other.tick() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(other.isLeader());
+        Assert.assertEquals(1, flaky.getStepDownCount());
+
+        // The schedule survived the failures: the replica takes over once the other leaves.
+        failing.set(false);
+        other.close();
+        deadline = System.currentTimeMillis() + 2000;
+        while (!flaky.isLeader() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(flaky.isLeader());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTickMustBeShorterThanLease() throws IOException {
+        replica().start(3000);
+    }
+}
@@ -93,4 +93,42 @@ public class ConditionalEventTest {
 
         Assert.assertTrue(observer.getNotifiedValues().isEmpty());
     }
+
+    @Test
+    public void testConditionIsEvaluatedOncePerObservation() {
+        int[] evaluations = {0};
+        ConditionalEvent<Double> event = new ConditionalEvent<>(collector, value -> {
+            evaluations[0]++;
+            return true;
+        });
+        event.subscribe(new TestObserver<>());
+        event.subscribe(new TestObserver<>());
+        event.subscribe(new TestObserver<>());
+        event.observe();
+
+        Assert.assertEquals(1, evaluations[0]);
+    }
+
+    @Test
+    public void testMissingValuesAreEvaluatedUnlessSkipped() {
+        List<Double> evaluated = new ArrayList<>();
+        ConditionalEvent<Double> noDataEvent = new ConditionalEvent<>(() -> null, value -> {
+            evaluated.add(value);
+            return value == null;
+        });
+        TestObserver<Double> noDataObserver = new TestObserver<>();
+        noDataEvent.subscribe(noDataObserver);
+
+        noDataEvent.observe();
+        Assert.assertEquals(1, evaluated.size());
+        Assert.assertEquals(1, noDataObserver.getNotifiedValues().size());
+        Assert.assertTrue(noDataEvent.isLastOutcome());
+
+        noDataEvent.setSkipMissingValues(true);
+        noDataEvent.observe();
+        Assert.assertEquals(1, evaluated.size());
+        Assert.assertEquals(1, noDataObserver.getNotifiedValues().size());
+        Assert.assertFalse(noDataEvent.isLastOutcome());
+        Assert.assertEquals(2, noDataEvent.getObservationCount());
+    }
 }
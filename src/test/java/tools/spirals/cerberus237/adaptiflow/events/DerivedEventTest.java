@@ -0,0 +1,112 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.events;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.scanner.ExampleAction;
+import tools.spirals.cerberus237.adaptiflow.subscriptions.SingleObservationScheduler;
+import tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.EventSubscriber;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class DerivedEventTest {
+    private final AtomicInteger databaseCollections = new AtomicInteger();
+    private final AtomicInteger rateCollections = new AtomicInteger();
+    private double responseTime = 100;
+    private double requestRate = 50;
+
+    private final ConditionalEvent<Double> databaseUnhealthy = new ConditionalEvent<>("database-unhealthy", () -> {
+        databaseCollections.incrementAndGet();
+        return responseTime;
+    }, metric -> metric > 5000);
+    private final ConditionalEvent<Double> rateHigh = new ConditionalEvent<>("rate-high", () -> {
+        rateCollections.incrementAndGet();
+        return requestRate;
+    }, metric -> metric > 300);
+
+    @Test
+    public void testDerivedEventReusesInputOutcomes() {
+        DerivedEvent degraded = DerivedEvent.allOf("degraded", databaseUnhealthy, rateHigh);
+        DerivedEvent alert = DerivedEvent.anyOf("alert", databaseUnhealthy, rateHigh);
+        AtomicInteger degradedActions = new AtomicInteger();
+        degraded.subscribe(new EventSubscriber<>(List.of(new ExampleAction(degradedActions::incrementAndGet))));
+        SingleObservationScheduler scheduler = new SingleObservationScheduler(
+                EventGraph.order(List.of(degraded, alert)));
+
+        scheduler.start();
+        Assert.assertFalse(degraded.isLastOutcome());
+        Assert.assertFalse(alert.isLastOutcome());
+
+        responseTime = 6000;
+        scheduler.start();
+        Assert.assertFalse(degraded.isLastOutcome());
+        Assert.assertTrue(alert.isLastOutcome());
+
+        requestRate = 500;
+        scheduler.start();
+        Assert.assertTrue(degraded.isLastOutcome());
+        Assert.assertEquals(1, degradedActions.get());
+        Assert.assertEquals(500.0, degraded.getLastValue().getValue(rateHigh), 0.0);
+
+        // Each input is collected once per round, whatever the number of derived events
+        Assert.assertEquals(3, databaseCollections.get());
+        Assert.assertEquals(3, rateCollections.get());
+    }
+
+    @Test
+    public void testDerivedEventsCanBeChained() {
+        DerivedEvent degraded = DerivedEvent.allOf("degraded", databaseUnhealthy, rateHigh);
+        DerivedEvent notDegraded = new DerivedEvent("not-degraded", List.of(degraded), outcomes -> !outcomes.isTrue(0));
+        List<Event> ordered = EventGraph.order(List.of(notDegraded, rateHigh));
+
+        Assert.assertEquals(List.of(databaseUnhealthy, rateHigh, degraded, notDegraded), ordered);
+        new SingleObservationScheduler(ordered).start();
+        Assert.assertTrue(notDegraded.isLastOutcome());
+    }
+
+    @Test
+    public void testAtLeastCountsTrueOutcomes() {
+        ConditionalEvent<Double> always = new ConditionalEvent<>(() -> 1.0, metric -> true);
+        DerivedEvent twoOfThree = DerivedEvent.atLeast("two-of-three", 2, databaseUnhealthy, rateHigh, always);
+        new SingleObservationScheduler(EventGraph.order(List.of(twoOfThree))).start();
+        Assert.assertFalse(twoOfThree.isLastOutcome());
+        Assert.assertEquals(1, twoOfThree.getLastValue().countTrue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCycleIsRejected() {
+        List<Event<?>> inputs = new ArrayList<>();
+        Event<Double> cyclic = new Event<>("cyclic", () -> 0.0) {
+            @Override
+            public List<Event<?>> getInputs() {
+                return inputs;
+            }
+        };
+        DerivedEvent derived = DerivedEvent.anyOf("derived", cyclic);
+        inputs.add(derived);
+        EventGraph.order(List.of(derived));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDerivedEventWithoutInputsIsRejected() {
+        DerivedEvent.anyOf("empty");
+    }
+}
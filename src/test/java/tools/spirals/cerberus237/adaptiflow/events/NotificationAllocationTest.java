@@ -0,0 +1,134 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.events;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import tools.spirals.cerberus237.adaptationactionsbase.core.IAdaptationAction;
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.interfaces.EventContext;
+import tools.spirals.cerberus237.adaptiflow.interfaces.Observer;
+import tools.spirals.cerberus237.adaptiflow.operators.GreaterThanEvaluator;
+import tools.spirals.cerberus237.adaptiflow.operators.TrueEvaluator;
+import tools.spirals.cerberus237.adaptiflow.scanner.ExampleAction;
+import tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.EventCounterSubscriber;
+import tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.EventSubscriber;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class NotificationAllocationTest {
+    private static final int WARM_UP_TICKS = 20_000;
+    private static final int MEASURED_TICKS = 20_000;
+    private static final Double METRIC = 80.0;
+
+    private static class CountingObserver implements Observer<Double> {
+        private final ConditionEvaluator<Double> conditionEvaluator = new TrueEvaluator<>();
+        private long updates = 0;
+        private EventContext lastContext;
+
+        @Override
+        public void update(Double metricValue, String message) {
+            Assert.fail("The string variant should not be used by events");
+        }
+
+        @Override
+        public void update(Double metricValue, EventContext context) {
+            updates++;
+            lastContext = context;
+        }
+
+        @Override
+        public ConditionEvaluator<Double> getConditionEvaluator() {
+            return conditionEvaluator;
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        return threadBean;
+    }
+
+    private static double allocatedBytesPerTick(Event<Double> event) {
+        com.sun.management.ThreadMXBean threadBean = threadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARM_UP_TICKS; i++) {
+            event.observe();
+        }
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_TICKS; i++) {
+            event.observe();
+        }
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+        return (after - before) / (double) MEASURED_TICKS;
+    }
+
+    @Test
+    public void testContextIsSharedAcrossNotifications() {
+        ConditionalEvent<Double> event = new ConditionalEvent<>("cpu", () -> METRIC, new GreaterThanEvaluator<>(50.0));
+        CountingObserver observer = new CountingObserver();
+        event.subscribe(observer);
+        event.observe();
+        EventContext first = observer.lastContext;
+        event.observe();
+
+        Assert.assertSame(first, observer.lastContext);
+        Assert.assertEquals("Handling cpu event", first.getMessage());
+        Assert.assertEquals("cpu", first.getEventName());
+    }
+
+    @Test
+    public void testContextFollowsNameAssignedBySubclass() {
+        IncreaseEvent<Double> event = new IncreaseEvent<>(() -> METRIC, () -> 50.0);
+        Assert.assertEquals("Handling increase event", event.getContext().toString());
+    }
+
+    @Test
+    public void testEventNotificationDoesNotAllocate() {
+        ConditionalEvent<Double> event = new ConditionalEvent<>("cpu", () -> METRIC, new GreaterThanEvaluator<>(50.0));
+        CountingObserver first = new CountingObserver();
+        CountingObserver second = new CountingObserver();
+        event.subscribe(first);
+        event.subscribe(second);
+
+        double bytesPerTick = allocatedBytesPerTick(event);
+
+        Assert.assertEquals(WARM_UP_TICKS + MEASURED_TICKS, first.updates);
+        Assert.assertTrue("allocated " + bytesPerTick + " bytes per tick", bytesPerTick < 1.0);
+    }
+
+    @Test
+    public void testSubscriberNotificationDoesNotAllocateWhenNotLogging() {
+        Assume.assumeFalse(LoggerFactory.getLogger(EventSubscriber.class).isInfoEnabled());
+        Assume.assumeFalse(LoggerFactory.getLogger(EventCounterSubscriber.class).isInfoEnabled());
+        List<IAdaptationAction> actions = List.of(new ExampleAction("noop", () -> { }));
+        ConditionalEvent<Double> event = new ConditionalEvent<>("cpu", () -> METRIC, new GreaterThanEvaluator<>(50.0));
+        event.subscribe(new EventSubscriber<>(actions));
+        event.subscribe(new EventCounterSubscriber<>(actions, 3));
+
+        double bytesPerTick = allocatedBytesPerTick(event);
+
+        Assert.assertTrue("allocated " + bytesPerTick + " bytes per tick", bytesPerTick < 1.0);
+    }
+}
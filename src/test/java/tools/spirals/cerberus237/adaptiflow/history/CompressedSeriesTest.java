@@ -0,0 +1,131 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.history;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.operators.GreaterThanEvaluator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class CompressedSeriesTest {
+
+    @Test
+    public void testRoundTripsArbitrarySamples() {
+        Random random = new Random(42);
+        CompressedSeries series = new CompressedSeries(100, 1000);
+        long[] timestamps = new long[5000];
+        double[] values = new double[timestamps.length];
+        double[] specials = {Double.NaN, Double.POSITIVE_INFINITY, -0.0, 0.0, Double.MIN_VALUE, -Double.MAX_VALUE};
+        long timestamp = -50000;
+        for (int i = 0; i < timestamps.length; i++) {
+            // Mixes regular ticks, jitter, repeated timestamps and large gaps.
+            int kind = random.nextInt(10);
+            timestamp += kind < 5 ? 1000 : kind < 8 ? 1000 + random.nextInt(5000) - 2500 : kind == 8 ? 0 : 1L << 40;
+            timestamps[i] = timestamp;
+            values[i] = random.nextInt(4) == 0 ? specials[random.nextInt(specials.length)]
+                    : random.nextBoolean() ? random.nextGaussian() * 1e6 : random.nextInt(100);
+            series.accept(timestamps[i], values[i]);
+        }
+        List<long[]> decoded = new ArrayList<>();
+        Assert.assertEquals(timestamps.length, series.scan(Long.MIN_VALUE, Long.MAX_VALUE,
+                (t, v) -> decoded.add(new long[]{t, Double.doubleToRawLongBits(v)})));
+        for (int i = 0; i < timestamps.length; i++) {
+            Assert.assertEquals(timestamps[i], decoded.get(i)[0]);
+            Assert.assertEquals(Double.doubleToRawLongBits(values[i]), decoded.get(i)[1]);
+        }
+    }
+
+    @Test
+    public void testScanSelectsRange() {
+        CompressedSeries series = new CompressedSeries(10, 100);
+        for (int i = 0; i < 100; i++) {
+            series.accept(i * 1000L, i);
+        }
+        List<Double> values = new ArrayList<>();
+        Assert.assertEquals(3, series.scan(24500, 27000, (t, v) -> values.add(v)));
+        Assert.assertEquals(List.of(25.0, 26.0, 27.0), values);
+        Assert.assertEquals(99000, series.getLastTimestamp());
+        Assert.assertEquals(4.5, series.aggregate(0, 9000, WindowAggregate.MEAN), 1e-9);
+        Assert.assertEquals(99, series.aggregate(0, Long.MAX_VALUE, WindowAggregate.LAST), 0.0);
+        Assert.assertTrue(Double.isNaN(series.aggregate(200000, 300000, WindowAggregate.MAX)));
+    }
+
+    @Test
+    public void testOldestBlocksAreDropped() {
+        CompressedSeries series = new CompressedSeries(10, 3);
+        for (int i = 0; i < 45; i++) {
+            series.accept(i, i);
+        }
+        Assert.assertEquals(45, series.getSampleCount());
+        Assert.assertEquals(25, series.size());
+        Assert.assertEquals(20, series.aggregate(Long.MIN_VALUE, Long.MAX_VALUE, WindowAggregate.MIN), 0.0);
+    }
+
+    @Test
+    public void testRegularTraceCompresses() {
+        Random random = new Random(7);
+        CompressedSeries cpu = new CompressedSeries(3600, 4);
+        CompressedSeries memory = new CompressedSeries(3600, 4);
+        double load = 40;
+        for (int i = 0; i < 7200; i++) {
+            long timestamp = 1700000000000L + i * 1000L;
+            load = Math.max(0, Math.min(100, load + random.nextInt(3) - 1));
+            cpu.accept(timestamp, load);
+            memory.accept(timestamp, i < 3600 ? 512.0 : 768.0);
+        }
+        Assert.assertTrue("cpu ratio " + cpu.getCompressionRatio(), cpu.getCompressionRatio() > 8);
+        Assert.assertTrue("memory ratio " + memory.getCompressionRatio(), memory.getCompressionRatio() > 50);
+    }
+
+    @Test
+    public void testHistoriesScanInTheSameOrder() {
+        MetricHistoryStore store = MetricHistoryStore.allocate(1, 8);
+        SampleConsumer recorder = store.recorder("cpu");
+        CompressedSeries series = new CompressedSeries(4, 4);
+        for (int i = 1; i <= 12; i++) {
+            recorder.accept(i * 1000L, i);
+            series.accept(i * 1000L, i);
+        }
+        for (SeriesHistory history : List.of(store.history("cpu"), series)) {
+            List<Long> timestamps = new ArrayList<>();
+            Assert.assertEquals(4, history.scan(6000, 9500, (t, v) -> timestamps.add(t)));
+            Assert.assertEquals(List.of(6000L, 7000L, 8000L, 9000L), timestamps);
+        }
+    }
+
+    @Test
+    public void testWindowedEvaluatorOverCompressedSeries() {
+        CompressedSeries series = new CompressedSeries(16, 4);
+        long[] clock = {0};
+        double[] cpu = {0};
+        RecordingCollector<Double> collector = new RecordingCollector<>(() -> cpu[0], series,
+                Double::doubleValue, () -> clock[0]);
+        WindowedEvaluator<Double> evaluator = new WindowedEvaluator<>(series, 1000, WindowAggregate.MIN,
+                new GreaterThanEvaluator<>(80.0));
+        double[] samples = {90, 85, 70, 95, 95};
+        boolean[] expected = {true, true, false, false, true};
+        for (int i = 0; i < samples.length; i++) {
+            clock[0] = i * 1000L;
+            cpu[0] = samples[i];
+            Assert.assertEquals("sample " + i, expected[i], evaluator.test(collector.get()));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.history;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class MetricHistoryStoreTest {
+
+    @Test
+    public void testRecordAndScanOldestFirst() {
+        MetricHistoryStore store = MetricHistoryStore.allocate(4, 8);
+        int cpu = store.series("cpu");
+        for (int i = 1; i <= 5; i++) {
+            store.record(cpu, i * 1000L, i * 10.0);
+        }
+        List<Double> values = new ArrayList<>();
+        Assert.assertEquals(3, store.scan(cpu, 2000, 4000, (timestamp, value) -> values.add(value)));
+        Assert.assertEquals(List.of(20.0, 30.0, 40.0), values);
+        Assert.assertEquals(5000, store.getLastTimestamp(cpu));
+        Assert.assertEquals(5, store.getRecordedCount(cpu));
+    }
+
+    @Test
+    public void testSeriesAreIndependent() {
+        MetricHistoryStore store = MetricHistoryStore.allocate(4, 8);
+        int cpu = store.series("cpu");
+        int memory = store.series("memory");
+        Assert.assertEquals(cpu, store.series("cpu"));
+        store.record(cpu, 1000, 1.0);
+        store.record(memory, 1000, 2.0);
+        Assert.assertEquals(1.0, store.aggregate(cpu, 0, 1000, WindowAggregate.SUM), 0.0);
+        Assert.assertEquals(2.0, store.aggregate(memory, 0, 1000, WindowAggregate.SUM), 0.0);
+        Assert.assertEquals(List.of("cpu", "memory"), store.getSeriesNames());
+    }
+
+    @Test
+    public void testRingKeepsLatestSamples() {
+        MetricHistoryStore store = MetricHistoryStore.allocate(1, 4);
+        int cpu = store.series("cpu");
+        for (int i = 1; i <= 10; i++) {
+            store.record(cpu, i, i);
+        }
+        List<Long> timestamps = new ArrayList<>();
+        store.scan(cpu, Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, value) -> timestamps.add(timestamp));
+        Assert.assertEquals(List.of(7L, 8L, 9L, 10L), timestamps);
+        Assert.assertEquals(4, store.aggregate(cpu, Long.MIN_VALUE, Long.MAX_VALUE, WindowAggregate.COUNT), 0.0);
+    }
+
+    @Test
+    public void testAggregates() {
+        MetricHistoryStore store = MetricHistoryStore.allocate(1, 16);
+        int cpu = store.series("cpu");
+        double[] values = {50, 70, 90, 60};
+        for (int i = 0; i < values.length; i++) {
+            store.record(cpu, i * 1000L, values[i]);
+        }
+        Assert.assertEquals(4, store.aggregate(cpu, 0, 3000, WindowAggregate.COUNT), 0.0);
+        Assert.assertEquals(270, store.aggregate(cpu, 0, 3000, WindowAggregate.SUM), 0.0);
+        Assert.assertEquals(67.5, store.aggregate(cpu, 0, 3000, WindowAggregate.MEAN), 1e-9);
+        Assert.assertEquals(60, store.aggregate(cpu, 1000, 3000, WindowAggregate.MIN), 0.0);
+        Assert.assertEquals(90, store.aggregate(cpu, 0, 3000, WindowAggregate.MAX), 0.0);
+        Assert.assertEquals(90, store.aggregate(cpu, 0, 2000, WindowAggregate.LAST), 0.0);
+        Assert.assertTrue(Double.isNaN(store.aggregate(cpu, 5000, 6000, WindowAggregate.MEAN)));
+        Assert.assertEquals(0, store.aggregate(cpu, 5000, 6000, WindowAggregate.COUNT), 0.0);
+    }
+
+    @Test
+    public void testMappedStore() throws Exception {
+        Path file = Files.createTempFile("history", ".bin");
+        try (MetricHistoryStore store = MetricHistoryStore.map(file, 2, 4)) {
+            int cpu = store.series("cpu");
+            store.record(cpu, 1000, 42.0);
+            Assert.assertEquals(42.0, store.aggregate(cpu, 0, 1000, WindowAggregate.LAST), 0.0);
+            Assert.assertTrue(Files.size(file) > 0);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFullStoreRejectsSeries() {
+        MetricHistoryStore store = MetricHistoryStore.allocate(1, 4);
+        store.series("cpu");
+        store.series("memory");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOversizedStoreIsRejected() {
+        MetricHistoryStore.allocate(1 << 16, 1 << 16);
+    }
+
+    @Test
+    public void testConcurrentReaderSeesConsistentSamples() throws Exception {
+        MetricHistoryStore store = MetricHistoryStore.allocate(1, 8);
+        int cpu = store.series("cpu");
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                // Every sample has value == timestamp, so a torn read shows as a mismatch.
+                store.scan(cpu, Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, value) -> {
+                    if (value != timestamp) {
+                        failure.compareAndSet(null, timestamp + " != " + value);
+                    }
+                });
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 200000; i++) {
+            store.record(cpu, i, i);
+        }
+        done.set(true);
+        reader.join();
+        Assert.assertNull(failure.get());
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.history;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.operators.GreaterThanEvaluator;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+import tools.spirals.cerberus237.metricscollectorbase.models.SQLDatabaseMetrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class WindowedEvaluatorTest {
+
+    @Test
+    public void testEvaluatesWindowAggregate() {
+        MetricHistoryStore store = MetricHistoryStore.allocate(1, 16);
+        AtomicLong clock = new AtomicLong();
+        double[] cpu = {0};
+        IMetricsCollector<Double> collector = new RecordingCollector<>(() -> cpu[0], store, "cpu",
+                Double::doubleValue, clock::get);
+        WindowedEvaluator<Double> evaluator = new WindowedEvaluator<>(store, "cpu", 2000, WindowAggregate.MEAN,
+                new GreaterThanEvaluator<>(80.0));
+
+        double[] samples = {90, 90, 50, 95, 95, 95};
+        boolean[] expected = {true, true, false, false, false, true};
+        for (int i = 0; i < samples.length; i++) {
+            clock.set(i * 1000L);
+            cpu[0] = samples[i];
+            Assert.assertEquals("sample " + i, expected[i], evaluator.test(collector.get()));
+        }
+    }
+
+    @Test
+    public void testSharedValueIsRecordedOnce() {
+        MetricHistoryStore store = MetricHistoryStore.allocate(1, 16);
+        Double value = 42.0;
+        RecordingCollector<Double> collector = new RecordingCollector<>(() -> value, store, "cpu");
+        collector.setSkipRepeatedValues(true);
+        collector.get();
+        collector.get();
+        Assert.assertEquals(1, store.getRecordedCount(collector.getSeries()));
+    }
+
+    @Test
+    public void testReusedResultObjectIsRecordedEachTime() {
+        MetricHistoryStore store = MetricHistoryStore.allocate(1, 16);
+        // Like the ResourceUsageMetricsCollector, the collector updates and returns one instance
+        SQLDatabaseMetrics metrics = new SQLDatabaseMetrics();
+        AtomicLong clock = new AtomicLong();
+        RecordingCollector<SQLDatabaseMetrics> collector = new RecordingCollector<>(() -> metrics, store,
+                "database.responseTime", SQLDatabaseMetrics::getResponseTime, clock::get);
+        WindowedEvaluator<Double> evaluator = new WindowedEvaluator<>(store, "database.responseTime", 10000,
+                WindowAggregate.MAX, new GreaterThanEvaluator<>(5000.0));
+        long[] responseTimes = {100, 200, 6000};
+        for (int i = 0; i < responseTimes.length; i++) {
+            clock.set(i * 1000L);
+            metrics.setResponseTime(responseTimes[i]);
+            collector.get();
+        }
+        Assert.assertEquals(3, store.getRecordedCount(collector.getSeries()));
+        Assert.assertTrue(evaluator.test(0.0));
+    }
+
+    @Test
+    public void testMissingDataIsNotRecorded() {
+        MetricHistoryStore store = MetricHistoryStore.allocate(1, 16);
+        RecordingCollector<Double> collector = new RecordingCollector<>(() -> null, store, "cpu");
+        WindowedEvaluator<Double> evaluator = new WindowedEvaluator<>(store, "cpu", 1000, WindowAggregate.MAX,
+                new GreaterThanEvaluator<>(0.0));
+        Assert.assertNull(collector.get());
+        Assert.assertEquals(0, store.getRecordedCount(collector.getSeries()));
+        Assert.assertFalse(evaluator.test(1.0));
+        Assert.assertFalse(evaluator.test(null));
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.operators;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class ConsecutiveEvaluatorTest {
+    @Test
+    public void testTest() {
+        ConsecutiveEvaluator<Integer> evaluator = new ConsecutiveEvaluator<>(new GreaterThanEvaluator<>(10), 3);
+        Assert.assertFalse(evaluator.test(11));
+        Assert.assertFalse(evaluator.test(12));
+        Assert.assertTrue(evaluator.test(13));
+        Assert.assertTrue(evaluator.test(14));
+        Assert.assertFalse(evaluator.test(5));
+        Assert.assertEquals(0, evaluator.getStreak());
+        Assert.assertFalse(evaluator.test(11));
+        Assert.assertFalse(evaluator.test(11));
+        Assert.assertTrue(evaluator.test(11));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidStreakLength() {
+        new ConsecutiveEvaluator<>(new TrueEvaluator<Integer>(), 0);
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.operators;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.models.ResourceUsageMetrics;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class LowResourceUsageEvaluatorTest {
+    @Test
+    public void testTest() {
+        LowResourceUsageEvaluator evaluator = new LowResourceUsageEvaluator(60.0, 60.0);
+        Assert.assertTrue(evaluator.test(new ResourceUsageMetrics(60.0, 90.0)));
+        Assert.assertTrue(evaluator.test(new ResourceUsageMetrics(90.0, 20.0)));
+        Assert.assertFalse(evaluator.test(new ResourceUsageMetrics(61.0, 61.0)));
+        Assert.assertFalse(evaluator.test(new ResourceUsageMetrics(Double.NaN, 20.0)));
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.operators.smoothing;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.operators.GreaterThanOrEqualEvaluator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class ExponentialMovingAverageEvaluatorTest {
+
+    @Test
+    public void testFirstSampleSeedsAverage() {
+        ExponentialMovingAverageEvaluator<Double> evaluator =
+                new ExponentialMovingAverageEvaluator<>(0.5, new GreaterThanOrEqualEvaluator<>(80.0));
+        Assert.assertTrue(Double.isNaN(evaluator.getSmoothedValue()));
+        Assert.assertTrue(evaluator.test(90.0));
+        Assert.assertEquals(90.0, evaluator.getSmoothedValue(), 0.0001);
+    }
+
+    @Test
+    public void testSingleSpikeDoesNotTrigger() {
+        ExponentialMovingAverageEvaluator<Double> evaluator =
+                new ExponentialMovingAverageEvaluator<>(0.3, new GreaterThanOrEqualEvaluator<>(80.0));
+        Assert.assertFalse(evaluator.test(40.0));
+        Assert.assertFalse(evaluator.test(100.0)); // 40 + 0.3 * 60 = 58
+        Assert.assertEquals(58.0, evaluator.getSmoothedValue(), 0.0001);
+        Assert.assertFalse(evaluator.test(40.0));
+    }
+
+    @Test
+    public void testSustainedLoadTriggers() {
+        ExponentialMovingAverageEvaluator<Integer> evaluator =
+                new ExponentialMovingAverageEvaluator<>(0.5, new GreaterThanOrEqualEvaluator<>(80.0));
+        evaluator.test(40);
+        boolean triggered = false;
+        for (int i = 0; i < 10 && !triggered; i++) {
+            triggered = evaluator.test(100);
+        }
+        Assert.assertTrue(triggered);
+    }
+
+    @Test
+    public void testNullMetricIsIgnored() {
+        ExponentialMovingAverageEvaluator<Double> evaluator =
+                new ExponentialMovingAverageEvaluator<>(0.5, new GreaterThanOrEqualEvaluator<>(0.0));
+        Assert.assertFalse(evaluator.test(null));
+        Assert.assertTrue(Double.isNaN(evaluator.getSmoothedValue()));
+    }
+
+    @Test
+    public void testReset() {
+        ExponentialMovingAverageEvaluator<Double> evaluator =
+                new ExponentialMovingAverageEvaluator<>(0.5, new GreaterThanOrEqualEvaluator<>(80.0));
+        evaluator.test(10.0);
+        evaluator.reset();
+        evaluator.test(90.0);
+        Assert.assertEquals(90.0, evaluator.getSmoothedValue(), 0.0001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidAlpha() {
+        new ExponentialMovingAverageEvaluator<Double>(0.0, new GreaterThanOrEqualEvaluator<>(80.0));
+    }
+
+    @Test
+    public void testConcurrentUpdatesKeepConstantInput() throws InterruptedException {
+        ExponentialMovingAverageEvaluator<Double> evaluator =
+                new ExponentialMovingAverageEvaluator<>(0.2, new GreaterThanOrEqualEvaluator<>(80.0));
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    evaluator.test(50.0);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(50.0, evaluator.getSmoothedValue(), 0.0001);
+    }
+}
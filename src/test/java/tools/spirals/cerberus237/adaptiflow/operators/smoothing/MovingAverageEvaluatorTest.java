@@ -0,0 +1,79 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.operators.smoothing;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.operators.GreaterThanOrEqualEvaluator;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class MovingAverageEvaluatorTest {
+
+    @Test
+    public void testAverageOverPartialWindow() {
+        MovingAverageEvaluator<Double> evaluator = new MovingAverageEvaluator<>(4, new GreaterThanOrEqualEvaluator<>(80.0));
+        evaluator.test(60.0);
+        evaluator.test(80.0);
+        Assert.assertEquals(70.0, evaluator.getSmoothedValue(), 0.0001);
+    }
+
+    @Test
+    public void testOldSamplesLeaveTheWindow() {
+        MovingAverageEvaluator<Double> evaluator = new MovingAverageEvaluator<>(3, new GreaterThanOrEqualEvaluator<>(80.0));
+        Assert.assertFalse(evaluator.test(10.0));
+        Assert.assertFalse(evaluator.test(100.0));
+        Assert.assertFalse(evaluator.test(100.0)); // (10 + 100 + 100) / 3 = 70
+        Assert.assertTrue(evaluator.test(100.0));  // 10 left the window
+        Assert.assertEquals(100.0, evaluator.getSmoothedValue(), 0.0001);
+    }
+
+    @Test
+    public void testSingleSpikeDoesNotTrigger() {
+        MovingAverageEvaluator<Double> evaluator = new MovingAverageEvaluator<>(5, new GreaterThanOrEqualEvaluator<>(80.0));
+        for (int i = 0; i < 5; i++) {
+            evaluator.test(50.0);
+        }
+        Assert.assertFalse(evaluator.test(100.0));
+        Assert.assertFalse(evaluator.test(50.0));
+    }
+
+    @Test
+    public void testLongRunDoesNotDrift() {
+        MovingAverageEvaluator<Double> evaluator = new MovingAverageEvaluator<>(7, new GreaterThanOrEqualEvaluator<>(80.0));
+        for (int i = 0; i < 100_000; i++) {
+            evaluator.test(i % 2 == 0 ? 0.1 : 1e6);
+        }
+        for (int i = 0; i < 7; i++) {
+            evaluator.test(42.0);
+        }
+        Assert.assertEquals(42.0, evaluator.getSmoothedValue(), 1e-9);
+    }
+
+    @Test
+    public void testReset() {
+        MovingAverageEvaluator<Double> evaluator = new MovingAverageEvaluator<>(3, new GreaterThanOrEqualEvaluator<>(80.0));
+        evaluator.test(10.0);
+        evaluator.reset();
+        Assert.assertTrue(Double.isNaN(evaluator.getSmoothedValue()));
+        Assert.assertTrue(evaluator.test(90.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindow() {
+        new MovingAverageEvaluator<Double>(0, new GreaterThanOrEqualEvaluator<>(80.0));
+    }
+}
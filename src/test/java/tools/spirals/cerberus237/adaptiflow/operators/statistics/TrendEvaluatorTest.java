@@ -0,0 +1,133 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.operators.statistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class TrendEvaluatorTest {
+
+    @Test
+    public void testSlopeOfLinearSeries() {
+        TrendEvaluator<Double> evaluator = new TrendEvaluator<>(Double::doubleValue, () -> 1000.0, 5, 3);
+        for (int i = 0; i < 12; i++) {
+            evaluator.test(10.0 + 2.0 * i);
+        }
+        Assert.assertEquals(2.0, evaluator.getSlope(), 1e-9);
+        Assert.assertEquals(32.0 + 2.0 * 3, evaluator.getProjectedValue(), 1e-9);
+    }
+
+    @Test
+    public void testMatchesBatchRegressionOverWindow() {
+        double[] series = {3, 7, 4, 9, 12, 8, 15, 14, 20, 18, 25};
+        int window = 4;
+        TrendEvaluator<Double> evaluator = new TrendEvaluator<>(Double::doubleValue, () -> 1000.0, window, 0);
+        for (double value : series) {
+            evaluator.test(value);
+        }
+        double n = window, sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (int i = 0; i < window; i++) {
+            double x = i;
+            double y = series[series.length - window + i];
+            sx += x;
+            sy += y;
+            sxx += x * x;
+            sxy += x * y;
+        }
+        double slope = (n * sxy - sx * sy) / (n * sxx - sx * sx);
+        Assert.assertEquals(slope, evaluator.getSlope(), 1e-9);
+        Assert.assertEquals((sy - slope * sx) / n + slope * (window - 1), evaluator.getProjectedValue(), 1e-9);
+    }
+
+    @Test
+    public void testPredictsUpperBreachBeforeItHappens() {
+        TrendEvaluator<Double> evaluator = new TrendEvaluator<>(Double::doubleValue, () -> 80.0, 4, 5);
+        Assert.assertFalse(evaluator.test(40.0));
+        Assert.assertFalse(evaluator.test(45.0));
+        Assert.assertFalse(evaluator.test(50.0)); // the window is not full yet
+        Assert.assertTrue(evaluator.test(55.0));  // 55 + 5 * 5 = 80 although the value is still far below
+    }
+
+    @Test
+    public void testDoesNotFireWhenProjectionStaysBelowBound() {
+        TrendEvaluator<Double> evaluator = new TrendEvaluator<>(Double::doubleValue, () -> 80.0, 4, 5);
+        evaluator.test(40.0);
+        evaluator.test(42.0);
+        evaluator.test(44.0);
+        Assert.assertFalse(evaluator.test(46.0)); // 46 + 5 * 2 = 56
+    }
+
+    @Test
+    public void testFlatSeriesDoesNotFire() {
+        TrendEvaluator<Double> evaluator = new TrendEvaluator<>(Double::doubleValue, () -> 80.0, 4, 100);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertFalse(evaluator.test(60.0));
+        }
+    }
+
+    @Test
+    public void testLowerDirection() {
+        TrendEvaluator<Double> evaluator = new TrendEvaluator<>(Double::doubleValue, 10.0, Direction.LOWER, 3, 4);
+        evaluator.test(40.0);
+        evaluator.test(35.0);
+        Assert.assertTrue(evaluator.test(30.0)); // 30 - 4 * 5 = 10 reaches the bound
+        evaluator.reset();
+        evaluator.test(40.0);
+        evaluator.test(38.0);
+        Assert.assertFalse(evaluator.test(36.0)); // 36 - 4 * 2 = 28
+    }
+
+    @Test
+    public void testBothDirectionsRequireCrossing() {
+        TrendEvaluator<Double> evaluator = new TrendEvaluator<>(Double::doubleValue, 50.0, Direction.BOTH, 3, 2);
+        evaluator.test(60.0);
+        evaluator.test(70.0);
+        Assert.assertFalse(evaluator.test(80.0)); // moving away from the bound
+        evaluator.reset();
+        evaluator.test(70.0);
+        evaluator.test(60.0);
+        Assert.assertTrue(evaluator.test(52.0));
+    }
+
+    @Test
+    public void testStateRoundTrip() throws IOException {
+        TrendEvaluator<Double> saved = new TrendEvaluator<>(Double::doubleValue, () -> 80.0, 4, 2);
+        for (double value : new double[]{10, 30, 50, 60, 70}) {
+            saved.test(value);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        saved.writeState(new DataOutputStream(bytes));
+
+        TrendEvaluator<Double> restored = new TrendEvaluator<>(Double::doubleValue, () -> 80.0, 4, 2);
+        restored.readState(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        Assert.assertEquals(saved.getSlope(), restored.getSlope(), 1e-9);
+        Assert.assertEquals(saved.getProjectedValue(), restored.getProjectedValue(), 1e-9);
+        Assert.assertEquals(saved.test(75.0), restored.test(75.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindow() {
+        new TrendEvaluator<Double>(Double::doubleValue, () -> 80.0, 1, 5);
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.operators.statistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class ZScoreAnomalyEvaluatorTest {
+
+    @Test
+    public void testWelfordStatistics() {
+        ZScoreAnomalyEvaluator<Double> evaluator = new ZScoreAnomalyEvaluator<>(Double::doubleValue, 3.0);
+        double[] samples = {2, 4, 4, 4, 5, 5, 7, 9};
+        for (double sample : samples) {
+            evaluator.test(sample);
+        }
+        Assert.assertEquals(8, evaluator.getCount());
+        Assert.assertEquals(5.0, evaluator.getMean(), 1e-9);
+        Assert.assertEquals(Math.sqrt(32.0 / 7.0), evaluator.getStandardDeviation(), 1e-9);
+    }
+
+    @Test
+    public void testDoesNotFireDuringWarmUp() {
+        ZScoreAnomalyEvaluator<Double> evaluator =
+                new ZScoreAnomalyEvaluator<>(Double::doubleValue, 3.0, Direction.UPPER, 5, 0.0);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertFalse(evaluator.test(i % 2 == 0 ? 10.0 : 1000.0));
+        }
+    }
+
+    @Test
+    public void testFiresRelativeToBaseline() {
+        ZScoreAnomalyEvaluator<Double> small = new ZScoreAnomalyEvaluator<>(Double::doubleValue, 3.0);
+        ZScoreAnomalyEvaluator<Double> large = new ZScoreAnomalyEvaluator<>(Double::doubleValue, 3.0);
+        for (int i = 0; i < 50; i++) {
+            Assert.assertFalse(small.test(30.0 + (i % 5)));
+            Assert.assertFalse(large.test(3000.0 + 100 * (i % 5)));
+        }
+        Assert.assertTrue(small.test(300.0));
+        Assert.assertFalse(large.test(3300.0));
+        Assert.assertTrue(large.test(30000.0));
+    }
+
+    @Test
+    public void testDirection() {
+        ZScoreAnomalyEvaluator<Double> upper =
+                new ZScoreAnomalyEvaluator<>(Double::doubleValue, 3.0, Direction.UPPER, 10, 0.0);
+        ZScoreAnomalyEvaluator<Double> lower =
+                new ZScoreAnomalyEvaluator<>(Double::doubleValue, 3.0, Direction.LOWER, 10, 0.0);
+        ZScoreAnomalyEvaluator<Double> both =
+                new ZScoreAnomalyEvaluator<>(Double::doubleValue, () -> 3.0, Direction.BOTH, 10, 0.0);
+        for (int i = 0; i < 20; i++) {
+            double sample = 100.0 + (i % 2 == 0 ? 1 : -1);
+            upper.test(sample);
+            lower.test(sample);
+            both.test(sample);
+        }
+        Assert.assertFalse(upper.test(0.0));
+        Assert.assertTrue(lower.test(0.0));
+        Assert.assertTrue(both.test(0.0));
+    }
+
+    @Test
+    public void testFlatBaselineFiresOnAnyChange() {
+        ZScoreAnomalyEvaluator<Double> evaluator = new ZScoreAnomalyEvaluator<>(Double::doubleValue, 3.0);
+        for (int i = 0; i < 20; i++) {
+            Assert.assertFalse(evaluator.test(100.0));
+        }
+        Assert.assertTrue(evaluator.test(101.0));
+    }
+
+    @Test
+    public void testDecayFollowsNewBaseline() {
+        ZScoreAnomalyEvaluator<Double> evaluator =
+                new ZScoreAnomalyEvaluator<>(Double::doubleValue, 3.0, Direction.UPPER, 10, 0.1);
+        for (int i = 0; i < 100; i++) {
+            evaluator.test(100.0 + (i % 3));
+        }
+        for (int i = 0; i < 200; i++) {
+            evaluator.test(500.0 + (i % 3));
+        }
+        Assert.assertEquals(501.0, evaluator.getMean(), 1.0);
+        Assert.assertFalse(evaluator.test(501.0));
+    }
+
+    @Test
+    public void testIgnoresNullAndNonFiniteSamples() {
+        ZScoreAnomalyEvaluator<Double> evaluator = new ZScoreAnomalyEvaluator<>(Double::doubleValue, 3.0);
+        Assert.assertFalse(evaluator.test(null));
+        Assert.assertFalse(evaluator.test(Double.NaN));
+        Assert.assertEquals(0, evaluator.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDecay() {
+        new ZScoreAnomalyEvaluator<Double>(Double::doubleValue, 3.0, Direction.UPPER, 10, 1.0);
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.patterns;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.events.ConditionalEvent;
+import tools.spirals.cerberus237.adaptiflow.subscriptions.SingleObservationScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class PatternMatcherTest {
+    private final List<String> matches = new ArrayList<>();
+
+    private PatternMatcher matcher(Pattern... patterns) {
+        return new PatternMatcher(List.of(patterns), (name, start, end) -> matches.add(name + "[" + start + ", " + end + "]"));
+    }
+
+    private static Pattern degraded() {
+        return Pattern.named("degraded").begin("db-slow").followedBy("rate-high").within(30000);
+    }
+
+    @Test
+    public void testSequenceWithinWindow() {
+        PatternMatcher matcher = matcher(degraded());
+        matcher.onEvent("rate-high", 0);
+        matcher.onEvent("db-slow", 1000);
+        matcher.onEvent("cpu-high", 5000);
+        matcher.onEvent("rate-high", 11000);
+        Assert.assertEquals(List.of("degraded[1000, 11000]"), matches);
+
+        matcher.onEvent("db-slow", 50000);
+        matcher.onEvent("rate-high", 90000);
+        Assert.assertEquals(1, matcher.getMatchCount());
+        Assert.assertEquals(0, matcher.getPartialMatchCount());
+    }
+
+    @Test
+    public void testTrailingAbsenceMatchesWhenWindowExpires() {
+        PatternMatcher matcher = matcher(Pattern.named("unrecovered")
+                .begin("db-slow").followedBy("rate-high").notFollowedBy("db-recovered").within(30000));
+        matcher.onEvent("db-slow", 0);
+        matcher.onEvent("rate-high", 10000);
+        matcher.advanceTo(29000);
+        Assert.assertTrue(matches.isEmpty());
+        matcher.advanceTo(31000);
+        Assert.assertEquals(List.of("unrecovered[0, 30000]"), matches);
+
+        matcher.onEvent("db-slow", 100000);
+        matcher.onEvent("rate-high", 105000);
+        matcher.onEvent("db-recovered", 110000);
+        matcher.advanceTo(200000);
+        Assert.assertEquals(1, matches.size());
+    }
+
+    @Test
+    public void testOverlappingWindowsOfTrailingAbsenceAreReportedSeparately() {
+        PatternMatcher matcher = matcher(Pattern.named("unrecovered")
+                .begin("A").followedBy("B").notFollowedBy("C").within(30));
+        matcher.onEvent("A", 0);
+        matcher.onEvent("B", 1);
+        matcher.onEvent("A", 5);
+        matcher.onEvent("B", 6);
+        matcher.onEvent("C", 32);
+        // The window of the first match ended before C, the one of the second did not
+        Assert.assertEquals(List.of("unrecovered[0, 30]"), matches);
+        matcher.advanceTo(100);
+        Assert.assertEquals(1, matcher.getMatchCount());
+
+        matcher.onEvent("A", 200);
+        matcher.onEvent("B", 201);
+        matcher.onEvent("A", 205);
+        matcher.onEvent("B", 206);
+        matcher.advanceTo(300);
+        Assert.assertEquals(List.of("unrecovered[0, 30]", "unrecovered[200, 230]", "unrecovered[205, 235]"), matches);
+    }
+
+    @Test
+    public void testAbsenceBetweenSteps() {
+        PatternMatcher matcher = matcher(Pattern.named("no-recovery-before-attack")
+                .begin("db-slow").notFollowedBy("db-recovered").followedBy("rate-high"));
+        matcher.onEvent("db-slow", 0);
+        matcher.onEvent("db-recovered", 10);
+        matcher.onEvent("rate-high", 20);
+        Assert.assertTrue(matches.isEmpty());
+        matcher.onEvent("db-slow", 30);
+        matcher.onEvent("rate-high", 40);
+        Assert.assertEquals(List.of("no-recovery-before-attack[30, 40]"), matches);
+    }
+
+    @Test
+    public void testRepeatedOccurrencesKeepOnePartialMatch() {
+        PatternMatcher matcher = matcher(degraded(),
+                Pattern.named("flapping").begin("db-slow").followedBy("db-recovered").followedBy("db-slow").within(60000));
+        for (long t = 0; t < 100000; t += 1000) {
+            matcher.onEvent("db-slow", t);
+        }
+        Assert.assertEquals(2, matcher.getPartialMatchCount());
+        matcher.onEvent("rate-high", 100000);
+        // The latest partial match started at 99 s, the others expired
+        Assert.assertEquals(List.of("degraded[99000, 100000]"), matches);
+    }
+
+    @Test
+    public void testObserverFeedsEventNotifications() {
+        AtomicLong clock = new AtomicLong();
+        PatternMatcher matcher = new PatternMatcher(List.of(degraded()),
+                (name, start, end) -> matches.add(name), clock::get);
+        double[] responseTime = {100};
+        double[] requestRate = {50};
+        ConditionalEvent<Double> dbSlow = new ConditionalEvent<>(() -> responseTime[0], metric -> metric > 5000);
+        ConditionalEvent<Double> rateHigh = new ConditionalEvent<>(() -> requestRate[0], metric -> metric > 300);
+        dbSlow.subscribe(matcher.observer("db-slow"));
+        rateHigh.subscribe(matcher.observer("rate-high"));
+        SingleObservationScheduler scheduler = new SingleObservationScheduler(List.of(dbSlow, rateHigh));
+
+        responseTime[0] = 6000;
+        scheduler.start();
+        clock.set(5000);
+        requestRate[0] = 500;
+        scheduler.start();
+        Assert.assertEquals(List.of("degraded"), matches);
+    }
+
+    @Test
+    public void testTickEventReportsTrailingAbsenceWithoutOccurrences() {
+        AtomicLong clock = new AtomicLong();
+        PatternMatcher matcher = new PatternMatcher(List.of(Pattern.named("unrecovered")
+                .begin("db-slow").notFollowedBy("db-recovered").within(30000)),
+                (name, start, end) -> matches.add(name + "[" + start + ", " + end + "]"), clock::get);
+        double[] responseTime = {6000};
+        ConditionalEvent<Double> dbSlow = new ConditionalEvent<>(() -> responseTime[0], metric -> metric > 5000);
+        dbSlow.subscribe(matcher.observer("db-slow"));
+        SingleObservationScheduler scheduler = new SingleObservationScheduler(List.of(dbSlow, matcher.tickEvent()));
+
+        scheduler.start();
+        responseTime[0] = 100;
+        clock.set(20000);
+        scheduler.start();
+        Assert.assertTrue(matches.isEmpty());
+        clock.set(35000);
+        scheduler.start();
+        Assert.assertEquals(List.of("unrecovered[0, 30000]"), matches);
+    }
+
+    @Test
+    public void testPartialMatchCountDoesNotReportMatches() {
+        PatternMatcher matcher = matcher(Pattern.named("unrecovered")
+                .begin("db-slow").notFollowedBy("db-recovered").within(30000));
+        matcher.onEvent("db-slow", 0);
+        matcher.onEvent("cpu-high", 40000);
+        Assert.assertEquals(0, matcher.getPartialMatchCount());
+        Assert.assertEquals(1, matches.size()); // reported by the occurrence at 40 s
+
+        matcher.onEvent("db-slow", 50000);
+        Assert.assertEquals(1, matcher.getPartialMatchCount());
+        Assert.assertEquals(1, matcher.getMatchCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTrailingAbsenceWithoutWindowIsRejected() {
+        matcher(Pattern.named("never").begin("db-slow").notFollowedBy("db-recovered"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFollowedByBeforeBeginIsRejected() {
+        Pattern.named("invalid").followedBy("rate-high");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testObserverForUnknownEventIsRejected() {
+        matcher(degraded()).observer("unknown");
+    }
+}
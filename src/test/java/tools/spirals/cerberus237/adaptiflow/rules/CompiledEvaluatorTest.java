@@ -0,0 +1,80 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.rules;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.models.MetricsSnapshot;
+import tools.spirals.cerberus237.adaptiflow.scanner.ExampleAction;
+import tools.spirals.cerberus237.metricscollectorbase.models.ServiceMetrics;
+
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.Random;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class CompiledEvaluatorTest {
+    private static final String RULES =
+            "a: when requests.rate(60s) > 300 and cpu > 80 then A\n"
+                    + "b: when 300 < requests.rate(1m) and (cpu < 20 or not memory >= 50) then A\n"
+                    + "c: when -(cpu - memory) * 2 / 4 != 5 and cpu + memory == 100 or missing then A\n"
+                    + "d: when memory <= 10 or cpu > memory * 1.5 then A\n"
+                    + "e: when (1 < 2) and missing > 0 or cpu then A";
+
+    private static RuleSet compile(boolean methodHandles) {
+        return new RuleCompiler()
+                .source("requests", () -> null)
+                .source("cpu", () -> null)
+                .source("memory", () -> null)
+                .source("missing", () -> null)
+                .action("A", new ExampleAction(() -> { }))
+                .methodHandles(methodHandles)
+                .compile(RULES);
+    }
+
+    @Test
+    public void testMatchesInterpretedEvaluation() {
+        RuleSet interpreted = compile(false);
+        RuleSet compiled = compile(true);
+        Assert.assertEquals(interpreted.getNodeCount(), compiled.getNodeCount());
+        Assert.assertEquals(interpreted.getSharedNodeCount(), compiled.getSharedNodeCount());
+        Assert.assertTrue(compiled.getEvent("a").getConditionEvaluator() instanceof CompiledEvaluator);
+
+        List<String> names = List.of("requests", "cpu", "memory", "missing");
+        Random random = new Random(42);
+        for (int i = 0; i < 2_000; i++) {
+            Object[] values = {
+                    new ServiceMetrics(random.nextInt(600)),
+                    random.nextInt(10) == 0 ? null : (double) random.nextInt(100),
+                    (double) random.nextInt(100),
+                    null
+            };
+            MetricsSnapshot snapshot = new MetricsSnapshot(names, values, i);
+            for (Rule rule : interpreted.getRules()) {
+                ConditionEvaluator<MetricsSnapshot> expected = interpreted.getEvent(rule.getName()).getConditionEvaluator();
+                ConditionEvaluator<MetricsSnapshot> actual = compiled.getEvent(rule.getName()).getConditionEvaluator();
+                Assert.assertEquals(rule + " on " + snapshot, expected.test(snapshot), actual.test(snapshot));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsHandleOfWrongType() {
+        new CompiledEvaluator(MethodHandles.constant(boolean.class, true), "true");
+    }
+}
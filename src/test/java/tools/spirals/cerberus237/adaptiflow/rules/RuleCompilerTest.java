@@ -0,0 +1,192 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.rules;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.events.Event;
+import tools.spirals.cerberus237.adaptiflow.scanner.ExampleAction;
+import tools.spirals.cerberus237.metricscollectorbase.models.SQLDatabaseMetrics;
+import tools.spirals.cerberus237.metricscollectorbase.models.ServiceMetrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class RuleCompilerTest {
+
+    private static void tick(RuleSet ruleSet) {
+        for (Event<?> event : ruleSet.getEvents()) {
+            event.observe();
+        }
+    }
+
+    @Test
+    public void testRuleTriggersAfterConsecutiveTicks() {
+        double[] rate = {500.0};
+        AtomicInteger opened = new AtomicInteger();
+        AtomicInteger lowPower = new AtomicInteger();
+        RuleSet ruleSet = new RuleCompiler()
+                .source("requests", () -> new ServiceMetrics(rate[0]))
+                .action("OpenCircuitBreaker", new ExampleAction("open", opened::incrementAndGet))
+                .action("lowpowermode", new ExampleAction("low", lowPower::incrementAndGet))
+                .maxAge(0)
+                .compile("when requests.rate(60s) > 300 for 3 ticks then OpenCircuitBreaker, LowPowerMode");
+
+        tick(ruleSet);
+        tick(ruleSet);
+        Assert.assertEquals(0, opened.get());
+        tick(ruleSet);
+        Assert.assertEquals(1, opened.get());
+        Assert.assertEquals(1, lowPower.get());
+
+        rate[0] = 100.0;
+        tick(ruleSet);
+        rate[0] = 500.0;
+        tick(ruleSet);
+        tick(ruleSet);
+        Assert.assertEquals(1, opened.get());
+    }
+
+    @Test
+    public void testDatabaseScenario() {
+        SQLDatabaseMetrics metrics = new SQLDatabaseMetrics();
+        metrics.setResponseTime(100L);
+        metrics.setNetworkStatus(true);
+        AtomicInteger down = new AtomicInteger();
+        AtomicInteger up = new AtomicInteger();
+        RuleSet ruleSet = new RuleCompiler()
+                .source("db", () -> metrics)
+                .action("DisableCache", new ExampleAction("down", down::incrementAndGet))
+                .action("EnableCache", new ExampleAction("up", up::incrementAndGet))
+                .maxAge(0)
+                .compile("down: when db.responseTime > 5s or not db.networkStatus then DisableCache\n"
+                        + "up: when db.responseTime <= 5s and db.networkStatus then EnableCache");
+
+        tick(ruleSet);
+        Assert.assertEquals(0, down.get());
+        Assert.assertEquals(1, up.get());
+        metrics.setNetworkStatus(false);
+        tick(ruleSet);
+        Assert.assertEquals(1, down.get());
+        Assert.assertEquals(1, up.get());
+    }
+
+    @Test
+    public void testConstantsAreFolded() {
+        RuleSet ruleSet = new RuleCompiler()
+                .source("cpu", () -> 90.0)
+                .action("A", new ExampleAction(() -> { }))
+                .compile("when 40 * 2 < cpu and (1 < 2 or cpu > 1000) then A");
+        Assert.assertEquals(RuleCompiler.fold(RuleParser.parse("when cpu > 80 then A").get(0).getCondition()),
+                RuleCompiler.fold(ruleSet.getRules().get(0).getCondition()));
+        Assert.assertEquals(3, ruleSet.getNodeCount());
+    }
+
+    @Test
+    public void testSharedSubexpressionsAreComputedOncePerSnapshot() throws InterruptedException {
+        AtomicInteger fetches = new AtomicInteger();
+        AtomicInteger reads = new AtomicInteger();
+        RuleSet ruleSet = new RuleCompiler()
+                .source("requests", () -> {
+                    fetches.incrementAndGet();
+                    return new ServiceMetrics(500.0);
+                })
+                .source("cpu", () -> 50.0)
+                .source("unused", () -> {
+                    throw new IllegalStateException("Unreferenced sources must not be collected");
+                })
+                .accessor("rate", (value, arguments) -> {
+                    reads.incrementAndGet();
+                    return ((ServiceMetrics) value).getRequestRatePerSecond((long) arguments[0]);
+                })
+                .action("A", new ExampleAction(() -> { }))
+                .action("B", new ExampleAction(() -> { }))
+                .maxAge(50)
+                .compile("a: when requests.rate(60s) > 300 and cpu > 80 then A\n"
+                        + "b: when 300 < requests.rate(1m) and cpu < 20 then B\n"
+                        + "c: when requests.rate(60s) / 2 > 100 then A, B");
+
+        Assert.assertEquals(2, ruleSet.getSharedNodeCount()); // rate(60000) and (rate(60000) > 300)
+        Assert.assertEquals(ruleSet.getCollector(), ruleSet.getEvent("a").getCollector());
+        Assert.assertEquals(List.of("requests", "cpu"), ruleSet.getCollector().getNames());
+
+        tick(ruleSet);
+        Assert.assertEquals(1, fetches.get());
+        Assert.assertEquals(1, reads.get());
+        Thread.sleep(60);
+        tick(ruleSet);
+        Assert.assertEquals(2, fetches.get());
+        Assert.assertEquals(2, reads.get());
+    }
+
+    @Test
+    public void testRecompilationKeepsUnchangedRules() {
+        AtomicInteger triggers = new AtomicInteger();
+        RuleCompiler compiler = new RuleCompiler()
+                .source("cpu", () -> 90.0)
+                .source("memory", () -> 10.0)
+                .action("A", new ExampleAction(triggers::incrementAndGet))
+                .maxAge(0);
+        RuleSet first = compiler.compile("hot: when cpu > 80 for 3 ticks then A\ncold: when cpu < 20 then A");
+        tick(first);
+        tick(first);
+
+        RuleSet sameSources = compiler.compile(RuleParser.parse(
+                "hot: when cpu > 80 for 3 ticks then A\ncold: when cpu < 10 then A"), first);
+        Assert.assertSame(first.getCollector(), sameSources.getCollector());
+        Assert.assertSame(first.getEvent("hot"), sameSources.getEvent("hot"));
+        Assert.assertNotSame(first.getEvent("cold"), sameSources.getEvent("cold"));
+        Assert.assertEquals(1, sameSources.getReusedEventCount());
+
+        RuleSet newSources = compiler.compile(RuleParser.parse(
+                "hot: when cpu > 80 for 3 ticks then A\nlow: when memory < 20 then A"), sameSources);
+        Assert.assertNotSame(first.getCollector(), newSources.getCollector());
+        Assert.assertNotSame(first.getEvent("hot"), newSources.getEvent("hot"));
+        Assert.assertEquals(0, newSources.getReusedEventCount());
+        newSources.getEvent("hot").observe();
+        Assert.assertEquals(1, triggers.get()); // the streak of two ticks was carried over
+    }
+
+    @Test
+    public void testMapSource() {
+        AtomicInteger triggers = new AtomicInteger();
+        RuleSet ruleSet = new RuleCompiler()
+                .source("host", () -> Map.of("load", 3.5))
+                .action("A", new ExampleAction(triggers::incrementAndGet))
+                .compile("when host.load > 2 and not host.missing > 0 then A");
+        tick(ruleSet);
+        Assert.assertEquals(1, triggers.get());
+    }
+
+    @Test(expected = RuleSyntaxException.class)
+    public void testUnknownSource() {
+        new RuleCompiler().action("A", new ExampleAction(() -> { })).compile("when cpu > 80 then A");
+    }
+
+    @Test(expected = RuleSyntaxException.class)
+    public void testUnknownAction() {
+        new RuleCompiler().source("cpu", () -> 90.0).compile("when cpu > 80 then A");
+    }
+
+    @Test(expected = RuleSyntaxException.class)
+    public void testConditionUsedAsNumber() {
+        new RuleCompiler().source("cpu", () -> 90.0).action("A", new ExampleAction(() -> { }))
+                .compile("when (cpu > 80) + 1 > 1 then A");
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.rules;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.events.Event;
+import tools.spirals.cerberus237.adaptiflow.scanner.ExampleAction;
+import tools.spirals.cerberus237.adaptiflow.subscriptions.ContinuousObservationScheduler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class RuleFileWatcherTest {
+    private Path directory;
+    private Path file;
+    private ContinuousObservationScheduler scheduler;
+    private RuleFileWatcher watcher;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("rules");
+        file = directory.resolve("adaptation.rules");
+        Files.writeString(file, "hot: when cpu > 80 then A\nstable: when memory > 90 for 2 ticks then B\n");
+        RuleCompiler compiler = new RuleCompiler()
+                .source("cpu", () -> 75.0)
+                .source("memory", () -> 95.0)
+                .action("A", new ExampleAction(() -> { }))
+                .action("B", new ExampleAction(() -> { }))
+                .maxAge(0);
+        scheduler = new ContinuousObservationScheduler(new ArrayList<>(), 10);
+        watcher = new RuleFileWatcher(file, compiler, scheduler, 20);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        watcher.close();
+        scheduler.stop();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Timed out", System.nanoTime() < deadline);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    @Test
+    public void testChangedRulesAreSwappedWithoutStoppingTheScheduler() throws Exception {
+        RuleSet initial = watcher.start();
+        Assert.assertEquals(2, scheduler.getEvents().size());
+        scheduler.start();
+        await(() -> scheduler.getTickCount() >= 5);
+        Event<?> hot = initial.getEvent("hot");
+        Event<?> stable = initial.getEvent("stable");
+
+        Files.writeString(file, "hot: when cpu > 70 then A\nstable: when memory > 90 for 2 ticks then B\n");
+        await(() -> watcher.getReloadCount() == 1);
+
+        List<Event> events = scheduler.getEvents();
+        Assert.assertEquals(2, events.size());
+        Assert.assertNotSame(hot, events.get(0));
+        Assert.assertSame(stable, events.get(1));
+        Assert.assertEquals(1, watcher.getRuleSet().getReusedEventCount());
+        Assert.assertTrue(watcher.getLastReloadLatencyNanos() >= watcher.getLastReloadNanos());
+
+        long ticks = scheduler.getTickCount();
+        await(() -> scheduler.getTickCount() >= ticks + 5);
+        Assert.assertTrue(events.get(0).getObservationCount() > 0);
+        Assert.assertTrue(scheduler.isRunning());
+        Assert.assertTrue("Observation gap " + scheduler.getMaxObservationGapNanos(),
+                scheduler.getMaxObservationGapNanos() < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testInvalidFileKeepsPreviousRules() throws Exception {
+        RuleSet initial = watcher.start();
+        Files.writeString(file, "hot: when cpu > then A\n");
+        await(() -> watcher.getFailedReloadCount() == 1);
+        Assert.assertSame(initial, watcher.getRuleSet());
+        Assert.assertSame(initial.getEvent("hot"), scheduler.getEvents().get(0));
+
+        Files.writeString(file, "hot: when cpu > 70 then A\n");
+        await(() -> watcher.getReloadCount() == 1);
+        Assert.assertEquals(1, scheduler.getEvents().size());
+    }
+
+    @Test
+    public void testUnchangedFileIsNotReloaded() throws Exception {
+        RuleSet initial = watcher.start();
+        Assert.assertFalse(watcher.reload());
+        Assert.assertSame(initial, watcher.getRuleSet());
+        Assert.assertEquals(0, watcher.getReloadCount());
+
+        Files.writeString(file, "hot: when cpu > 70 then A\n");
+        watcher.close();
+        Assert.assertTrue(watcher.reload());
+        Assert.assertEquals(1, watcher.getReloadCount());
+    }
+
+    @Test
+    public void testCloseWaitsForTheWatcherThread() throws Exception {
+        watcher.start();
+        watcher.close();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            Assert.assertNotEquals("rule-file-watcher", thread.getName());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.rules;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class RuleParserTest {
+    @Test
+    public void testParseRule() {
+        List<Rule> rules = RuleParser.parse(
+                "attack: when requests.rate(60s) > 300 for 3 ticks then OpenCircuitBreaker, LowPowerMode");
+        Assert.assertEquals(1, rules.size());
+        Rule rule = rules.get(0);
+        Assert.assertEquals("attack", rule.getName());
+        Assert.assertEquals(3, rule.getTicks());
+        Assert.assertEquals(List.of("OpenCircuitBreaker", "LowPowerMode"), rule.getActions());
+        Assert.assertEquals("(requests.rate(60000) > 300)", rule.getCondition().toString());
+    }
+
+    @Test
+    public void testParseSeveralRules() {
+        List<Rule> rules = RuleParser.parse(
+                "# database scenario\n"
+                        + "when db.responseTime > 5s or not db.networkStatus then DisableCache;\n"
+                        + "when db.responseTime <= 5s AND db.networkStatus\n"
+                        + "    then EnableCache");
+        Assert.assertEquals(2, rules.size());
+        Assert.assertEquals("rule-1", rules.get(0).getName());
+        Assert.assertEquals("rule-2", rules.get(1).getName());
+        Assert.assertEquals(1, rules.get(0).getTicks());
+        Assert.assertEquals("((db.responseTime > 5000) or (not db.networkStatus))", rules.get(0).getCondition().toString());
+        Assert.assertEquals("((db.responseTime <= 5000) and db.networkStatus)", rules.get(1).getCondition().toString());
+    }
+
+    @Test
+    public void testPrecedence() {
+        Rule rule = RuleParser.parse("when a + b * 2 > -c and x or y < 1 then A").get(0);
+        Assert.assertEquals("((((a + (b * 2)) > (-c)) and x) or (y < 1))", rule.getCondition().toString());
+    }
+
+    @Test
+    public void testStructuralEquality() {
+        Assert.assertEquals(RuleParser.parse("r: when cpu > 80 then A"), RuleParser.parse("r:\nwhen   cpu>80.0 then A"));
+        Assert.assertNotEquals(RuleParser.parse("r: when cpu > 80 then A"), RuleParser.parse("r: when cpu > 81 then A"));
+    }
+
+    @Test
+    public void testSyntaxErrorPosition() {
+        try {
+            RuleParser.parse("when cpu > 80\nthen");
+            Assert.fail("Expected a syntax error");
+        } catch (RuleSyntaxException e) {
+            Assert.assertEquals(2, e.getLine());
+            Assert.assertEquals(5, e.getColumn());
+        }
+    }
+
+    @Test(expected = RuleSyntaxException.class)
+    public void testDuplicateName() {
+        RuleParser.parse("r: when cpu > 80 then A r: when cpu < 20 then B");
+    }
+
+    @Test(expected = RuleSyntaxException.class)
+    public void testInvalidTicks() {
+        RuleParser.parse("when cpu > 80 for 2s then A");
+    }
+}
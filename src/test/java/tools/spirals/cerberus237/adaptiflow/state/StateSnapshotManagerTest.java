@@ -0,0 +1,213 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.state;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.events.ConditionalEvent;
+import tools.spirals.cerberus237.adaptiflow.interfaces.Snapshottable;
+import tools.spirals.cerberus237.adaptiflow.operators.ConsecutiveEvaluator;
+import tools.spirals.cerberus237.adaptiflow.operators.GreaterThanEvaluator;
+import tools.spirals.cerberus237.adaptiflow.operators.smoothing.ExponentialMovingAverageEvaluator;
+import tools.spirals.cerberus237.adaptiflow.operators.smoothing.MovingAverageEvaluator;
+import tools.spirals.cerberus237.adaptiflow.operators.statistics.ZScoreAnomalyEvaluator;
+import tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.EventCounterSubscriber;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class StateSnapshotManagerTest {
+    private Path file;
+    private double cpu;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("adaptiflow", ".state");
+        Files.delete(file);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * The services of a deployment: an event firing after three consecutive high
+     * smoothed samples, counted by a subscriber triggering every fifth notification.
+     */
+    private final class Service {
+        final ConsecutiveEvaluator<Double> evaluator = new ConsecutiveEvaluator<>(
+                new ExponentialMovingAverageEvaluator<>(0.5, new GreaterThanEvaluator<>(80.0)), 3);
+        final ConditionalEvent<Double> event = new ConditionalEvent<>("highCpu", () -> cpu, evaluator);
+        final EventCounterSubscriber<Double> subscriber = new EventCounterSubscriber<>(List.of(), 5);
+        final StateSnapshotManager snapshots = new StateSnapshotManager(file);
+
+        Service() {
+            event.subscribe(subscriber);
+            snapshots.registerEvents(List.of(event));
+        }
+
+        boolean observe(double value) {
+            cpu = value;
+            event.observe();
+            return event.isLastOutcome();
+        }
+    }
+
+    @Test
+    public void testRestartResumesFromSnapshot() throws IOException {
+        Service before = new Service();
+        Service reference = new Service();
+        for (double value : new double[]{90, 95, 99, 99, 99}) {
+            before.observe(value);
+            reference.observe(value);
+        }
+        before.snapshots.snapshot();
+
+        Service after = new Service();
+        Assert.assertEquals(3, after.snapshots.restore());
+        Assert.assertEquals(reference.evaluator.getStreak(), after.evaluator.getStreak());
+        Assert.assertEquals(reference.subscriber.getCounter(), after.subscriber.getCounter());
+        Assert.assertEquals(reference.event.getObservationCount(), after.event.getObservationCount());
+        Assert.assertTrue(after.event.isLastOutcome());
+        // The first tick after the restart behaves as if the service had never stopped.
+        for (double value : new double[]{99, 10, 10, 10, 99}) {
+            Assert.assertEquals(reference.observe(value), after.observe(value));
+            Assert.assertEquals(reference.subscriber.getCounter(), after.subscriber.getCounter());
+        }
+    }
+
+    @Test
+    public void testMissingSnapshotRestoresNothing() throws IOException {
+        Assert.assertEquals(0, new Service().snapshots.restore());
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptedSnapshotIsRejected() throws IOException {
+        Service service = new Service();
+        service.observe(90);
+        service.snapshots.snapshot();
+        byte[] content = Files.readAllBytes(file);
+        content[content.length / 2] ^= 1;
+        Files.write(file, content);
+        new Service().snapshots.restore();
+    }
+
+    @Test
+    public void testUnknownAndMissingKeysAreTolerated() throws IOException {
+        StateSnapshotManager writer = new StateSnapshotManager(file);
+        MovingAverageEvaluator<Double> saved = new MovingAverageEvaluator<>(4, new GreaterThanEvaluator<>(0.0));
+        for (double value : new double[]{1, 2, 3, 4, 5}) {
+            saved.test(value);
+        }
+        writer.register("average", saved);
+        writer.register("removed", new ZScoreAnomalyEvaluator<Double>(Double::doubleValue, 3.0));
+        writer.snapshot();
+
+        StateSnapshotManager reader = new StateSnapshotManager(file);
+        MovingAverageEvaluator<Double> smaller = new MovingAverageEvaluator<>(2, new GreaterThanEvaluator<>(0.0));
+        ZScoreAnomalyEvaluator<Double> added = new ZScoreAnomalyEvaluator<>(Double::doubleValue, 3.0);
+        reader.register("average", smaller);
+        reader.register("added", added);
+        Assert.assertEquals(1, reader.restore());
+        // The smaller window keeps the newest samples.
+        Assert.assertEquals(4.5, smaller.getSmoothedValue(), 1e-9);
+        Assert.assertEquals(0, added.getCount());
+    }
+
+    @Test
+    public void testReorderedSubscribersKeepTheirState() throws IOException {
+        EventCounterSubscriber<Double> fast = new EventCounterSubscriber<>(List.of(), 2);
+        EventCounterSubscriber<Double> slow = new EventCounterSubscriber<>(List.of(), 7);
+        fast.setSnapshotId("fast");
+        slow.setSnapshotId("slow");
+        ConditionalEvent<Double> event = new ConditionalEvent<>("highCpu", () -> 90.0, new GreaterThanEvaluator<>(80.0));
+        event.subscribe(fast);
+        event.subscribe(slow);
+        for (int i = 0; i < 3; i++) {
+            event.observe();
+        }
+        StateSnapshotManager writer = new StateSnapshotManager(file);
+        writer.registerEvents(List.of(event));
+        writer.snapshot();
+
+        EventCounterSubscriber<Double> restoredFast = new EventCounterSubscriber<>(List.of(), 2);
+        EventCounterSubscriber<Double> restoredSlow = new EventCounterSubscriber<>(List.of(), 7);
+        restoredFast.setSnapshotId("fast");
+        restoredSlow.setSnapshotId("slow");
+        ConditionalEvent<Double> restored = new ConditionalEvent<>("highCpu", () -> 90.0, new GreaterThanEvaluator<>(80.0));
+        restored.subscribe(restoredSlow);
+        restored.subscribe(restoredFast);
+        StateSnapshotManager reader = new StateSnapshotManager(file);
+        reader.registerEvents(List.of(restored));
+        Assert.assertEquals(3, reader.restore());
+        Assert.assertEquals(fast.getCounter(), restoredFast.getCounter());
+        Assert.assertEquals(slow.getCounter(), restoredSlow.getCounter());
+        Assert.assertNotEquals(fast.getCounter(), slow.getCounter());
+    }
+
+    @Test
+    public void testComponentFailingToReadKeepsItsState() throws IOException {
+        StateSnapshotManager writer = new StateSnapshotManager(file);
+        // A streak followed by a nested block too short for the smoothing evaluator
+        writer.register("highCpu", new Snapshottable() {
+            @Override
+            public void writeState(DataOutput out) throws IOException {
+                out.writeInt(0);
+                out.writeInt(4);
+                out.writeInt(0);
+            }
+
+            @Override
+            public void readState(DataInput in) {
+            }
+        });
+        writer.snapshot();
+
+        Service service = new Service();
+        service.observe(90);
+        service.observe(95);
+        StateSnapshotManager reader = new StateSnapshotManager(file);
+        reader.register("highCpu", service.evaluator);
+        Assert.assertEquals(0, reader.restore());
+        Assert.assertEquals(2, service.evaluator.getStreak());
+        Assert.assertTrue(service.observe(99));
+    }
+
+    @Test
+    public void testCloseTakesFinalSnapshot() throws IOException {
+        Service service = new Service();
+        service.snapshots.start(60000);
+        service.observe(90);
+        service.snapshots.close();
+        Assert.assertEquals(1, service.snapshots.getSnapshotCount());
+        Assert.assertTrue(service.snapshots.getLastSnapshotBytes() > 0);
+        Assert.assertEquals(3, new Service().snapshots.restore());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnnamedEventIsRejected() {
+        new StateSnapshotManager(file).registerEvents(List.of(new ConditionalEvent<>(() -> 1.0, new GreaterThanEvaluator<>(0.0))));
+    }
+}
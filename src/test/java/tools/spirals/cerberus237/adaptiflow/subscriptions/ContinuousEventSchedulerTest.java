@@ -17,10 +17,14 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.Assert;
 import tools.spirals.cerberus237.adaptiflow.events.Event;
+import tools.spirals.cerberus237.adaptiflow.events.IncreaseEvent;
 import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -55,6 +59,48 @@ public class ContinuousEventSchedulerTest {
         }
     }
 
+    /**
+     * An event whose first observation takes 250 ms, counting the observations that started.
+     */
+    private static class SlowFirstEvent extends Event<Double> {
+        private final CountDownLatch starts = new CountDownLatch(3);
+
+        public SlowFirstEvent() {
+            super(() -> 0.0);
+        }
+
+        @Override
+        public void observe() {
+            boolean first = starts.getCount() == 3;
+            starts.countDown();
+            if (first) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(250);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Returns the time at which the round following a round due at 100 ms and ended at
+     * 350 ms is due, with a 100 ms interval.
+     */
+    private static long nextDeadlineAfterOverrun(ContinuousObservationScheduler policyScheduler) {
+        return policyScheduler.nextDeadline(100 * MS, 350 * MS);
+    }
+
+    private static void awaitTicks(ContinuousObservationScheduler polled, long ticks) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (polled.getTickCount() < ticks && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        Assert.assertTrue(polled.getTickCount() >= ticks);
+    }
+
     @Before
     public void setUp() {
         IMetricsCollector<Double> collector1 = () -> 10.0; // Mock collector for event1
@@ -99,4 +145,146 @@ public class ContinuousEventSchedulerTest {
         Assert.assertTrue(scheduler.events.contains(event1));
         Assert.assertTrue(scheduler.events.contains(event2));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCatchUpRunsMissedTicksBackToBack() {
+        ContinuousObservationScheduler policyScheduler =
+                new ContinuousObservationScheduler(events, 100, OverrunPolicy.CATCH_UP);
+        // The tick at 200 ms is already late when the round ends, so it runs at once
+        Assert.assertEquals(200 * MS, nextDeadlineAfterOverrun(policyScheduler));
+        Assert.assertEquals(0, policyScheduler.getSkippedTickCount());
+    }
+
+    @Test
+    public void testSkipWaitsForNextTick() {
+        ContinuousObservationScheduler policyScheduler =
+                new ContinuousObservationScheduler(events, 100, OverrunPolicy.SKIP);
+        // The ticks at 200 and 300 ms are dropped, the next round runs at 400 ms
+        Assert.assertEquals(400 * MS, nextDeadlineAfterOverrun(policyScheduler));
+        Assert.assertEquals(2, policyScheduler.getSkippedTickCount());
+    }
+
+    @Test
+    public void testCoalesceRunsOneRoundForMissedTicks() {
+        ContinuousObservationScheduler policyScheduler =
+                new ContinuousObservationScheduler(events, 100, OverrunPolicy.COALESCE);
+        // The ticks at 200 and 300 ms become one round, due at 300 ms and run at once
+        Assert.assertEquals(300 * MS, nextDeadlineAfterOverrun(policyScheduler));
+        Assert.assertEquals(1, policyScheduler.getSkippedTickCount());
+        // The grid then resumes at 400 ms
+        Assert.assertEquals(400 * MS, policyScheduler.nextDeadline(300 * MS, 360 * MS));
+    }
+
+    @Test
+    public void testFixedDelayWaitsOneIntervalAfterOverrun() {
+        ContinuousObservationScheduler policyScheduler =
+                new ContinuousObservationScheduler(events, 100, OverrunPolicy.FIXED_DELAY);
+        Assert.assertEquals(450 * MS, nextDeadlineAfterOverrun(policyScheduler));
+        Assert.assertEquals(0, policyScheduler.getSkippedTickCount());
+    }
+
+    @Test
+    public void testOverrunningRoundIsCounted() throws InterruptedException {
+        SlowFirstEvent event = new SlowFirstEvent();
+        ContinuousObservationScheduler slowScheduler =
+                new ContinuousObservationScheduler(List.of(event), 100, OverrunPolicy.CATCH_UP);
+        slowScheduler.start();
+        Assert.assertTrue(event.starts.await(5, TimeUnit.SECONDS));
+        slowScheduler.shutdown();
+        Assert.assertTrue(slowScheduler.getOverrunCount() >= 1);
+        // The round due at 200 ms cannot start before the slow round ends at 350 ms
+        Assert.assertTrue(slowScheduler.getMaxTickLagNanos() >= 100 * MS);
+    }
+
+    @Test
+    public void testMissingMetricDoesNotSkipTheOtherEvents() throws InterruptedException {
+        // Unboxing the missing value throws a NullPointerException in the first event
+        IncreaseEvent<Double> missing = new IncreaseEvent<>(() -> null, () -> 80.0);
+        ContinuousObservationScheduler partial =
+                new ContinuousObservationScheduler(List.of(missing, event1), 20);
+        partial.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!event1.isListened() && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        partial.shutdown();
+        Assert.assertTrue(event1.isListened());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveIntervalIsRejected() {
+        new ContinuousObservationScheduler(events, 0, OverrunPolicy.SKIP);
+    }
+
+    @Test
+    public void testStopLetsRoundInProgressFinish() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean(false);
+        AtomicBoolean finished = new AtomicBoolean(false);
+        Event<Double> slowEvent = new Event<>(() -> 0.0) {
+            @Override
+            public void observe() {
+                started.countDown();
+                try {
+                    TimeUnit.MILLISECONDS.sleep(150);
+                    finished.set(true);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+            }
+        };
+        ContinuousObservationScheduler slowScheduler = new ContinuousObservationScheduler(List.of(slowEvent), 20);
+        slowScheduler.start();
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(slowScheduler.stop(5000));
+        Assert.assertTrue(finished.get());
+        Assert.assertFalse(interrupted.get());
+        Assert.assertFalse(slowScheduler.isRunning());
+        Assert.assertEquals(1, slowScheduler.getTickCount());
+        slowScheduler.shutdown();
+        Assert.assertEquals(1, slowScheduler.getTickCount());
+    }
+
+    @Test
+    public void testStopInterruptsRoundAfterTimeout() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Event<Double> stuckEvent = new Event<>(() -> 0.0) {
+            @Override
+            public void observe() {
+                started.countDown();
+                try {
+                    TimeUnit.SECONDS.sleep(10);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        };
+        ContinuousObservationScheduler stuckScheduler = new ContinuousObservationScheduler(List.of(stuckEvent), 20);
+        stuckScheduler.start();
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(stuckScheduler.stop(50));
+        Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        stuckScheduler.shutdown();
+    }
+
+    @Test
+    public void testRestartReusesExecutor() throws InterruptedException {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        Event<Double> recordingEvent = new Event<>(() -> 0.0) {
+            @Override
+            public void observe() {
+                threads.add(Thread.currentThread());
+            }
+        };
+        ContinuousObservationScheduler restarted = new ContinuousObservationScheduler(List.of(recordingEvent), 20);
+        restarted.start();
+        awaitTicks(restarted, 1);
+        restarted.stop();
+        restarted.start();
+        Assert.assertTrue(restarted.isRunning());
+        awaitTicks(restarted, restarted.getTickCount() + 1);
+        Assert.assertEquals(1, threads.size());
+        restarted.shutdown();
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.subscriptions;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.events.Event;
+import tools.spirals.cerberus237.adaptiflow.events.EventPriority;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class PriorityObservationSchedulerTest {
+    private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+    private PriorityObservationScheduler scheduler;
+
+    private class SlowEvent extends Event<Double> {
+        private final long durationMillis;
+
+        SlowEvent(String name, EventPriority priority, long durationMillis) {
+            super(name, () -> 0.0);
+            this.durationMillis = durationMillis;
+            setPriority(priority);
+        }
+
+        @Override
+        public void observe() {
+            observationCount++;
+            order.add(name);
+            try {
+                TimeUnit.MILLISECONDS.sleep(durationMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testCriticalEventDoesNotWaitBehindSlowEvents() throws InterruptedException {
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            events.add(new SlowEvent("memory-" + i, EventPriority.NORMAL, 40));
+        }
+        events.add(new SlowEvent("database", EventPriority.CRITICAL, 0));
+        scheduler = new PriorityObservationScheduler(events, 1000, 1, 1, 100);
+        scheduler.start();
+        TimeUnit.MILLISECONDS.sleep(300);
+
+        // In list order, the database check would start after 5 x 40 ms
+        Assert.assertEquals(1, scheduler.getObservationCount(EventPriority.CRITICAL));
+        Assert.assertTrue(scheduler.getMaxLatencyNanos(EventPriority.CRITICAL) < TimeUnit.MILLISECONDS.toNanos(30));
+        Assert.assertTrue(scheduler.getMaxLatencyNanos(EventPriority.NORMAL) >= TimeUnit.MILLISECONDS.toNanos(150));
+    }
+
+    @Test
+    public void testQueuedEventsAreOrderedByPriorityThenDeadline() throws InterruptedException {
+        SlowEvent relaxed = new SlowEvent("relaxed", EventPriority.NORMAL, 0);
+        SlowEvent urgent = new SlowEvent("urgent", EventPriority.NORMAL, 0);
+        urgent.setDeadlineMillis(10);
+        List<Event> events = List.of(new SlowEvent("first", EventPriority.LOW, 50),
+                new SlowEvent("low", EventPriority.LOW, 0), relaxed, urgent,
+                new SlowEvent("high", EventPriority.HIGH, 0));
+        scheduler = new PriorityObservationScheduler(events, 1000, 1, 1, 100);
+        scheduler.start();
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        // "first" occupies the single worker while the others are queued
+        Assert.assertEquals(List.of("first", "high", "urgent", "relaxed", "low"), order);
+        Assert.assertTrue(scheduler.getDeadlineMissCount() >= 1);
+    }
+
+    @Test
+    public void testLowPriorityEventsAreShedUnderLoad() throws InterruptedException {
+        SlowEvent low = new SlowEvent("low", EventPriority.LOW, 0);
+        List<Event> events = List.of(new SlowEvent("slow", EventPriority.NORMAL, 200),
+                new SlowEvent("normal", EventPriority.NORMAL, 0), low);
+        scheduler = new PriorityObservationScheduler(events, 50, 1, 1, 1);
+        scheduler.start();
+        TimeUnit.MILLISECONDS.sleep(150);
+
+        Assert.assertEquals(0, low.getObservationCount());
+        Assert.assertTrue(scheduler.getShedCount() >= 1);
+        Assert.assertTrue(scheduler.getBusySkipCount() >= 1);
+    }
+
+    @Test
+    public void testStopDropsQueuedObservations() throws InterruptedException {
+        SlowEvent queued = new SlowEvent("queued", EventPriority.NORMAL, 0);
+        scheduler = new PriorityObservationScheduler(List.of(new SlowEvent("slow", EventPriority.NORMAL, 100), queued),
+                1000, 1, 1, 100);
+        scheduler.start();
+        TimeUnit.MILLISECONDS.sleep(30);
+        Assert.assertTrue(scheduler.stop(1000));
+        TimeUnit.MILLISECONDS.sleep(50);
+        Assert.assertEquals(0, queued.getObservationCount());
+        Assert.assertEquals(List.of("slow"), order);
+    }
+
+    @Test
+    public void testEventsStayObservableAfterShutdownDuringRounds() throws InterruptedException {
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            events.add(new SlowEvent("event-" + i, EventPriority.NORMAL, 0));
+        }
+        scheduler = new PriorityObservationScheduler(events, 1000, 2, 1, 10_000);
+        for (int i = 0; i < 30; i++) {
+            scheduler.start();
+            scheduler.shutdown();
+        }
+        long[] before = new long[events.size()];
+        for (int i = 0; i < before.length; i++) {
+            before[i] = events.get(i).getObservationCount();
+        }
+        scheduler.start();
+        TimeUnit.MILLISECONDS.sleep(300);
+
+        for (int i = 0; i < before.length; i++) {
+            Assert.assertTrue("event-" + i + " was not observed after the restart",
+                    events.get(i).getObservationCount() > before[i]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroWorkersIsRejected() {
+        new PriorityObservationScheduler(new ArrayList<>(), 100, 0, 1, 1);
+    }
+}
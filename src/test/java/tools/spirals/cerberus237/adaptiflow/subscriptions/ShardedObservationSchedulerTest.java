@@ -0,0 +1,225 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.subscriptions;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.events.ConditionalEvent;
+import tools.spirals.cerberus237.adaptiflow.events.DerivedEvent;
+import tools.spirals.cerberus237.adaptiflow.events.Event;
+import tools.spirals.cerberus237.metricscollectorbase.IMetricsCollector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class ShardedObservationSchedulerTest {
+    private ShardedObservationScheduler scheduler;
+
+    /**
+     * An event recording the threads observing its collector in each round.
+     */
+    private static class RecordingEvent extends Event<Double> {
+        private final Map<Long, Set<Thread>> threadsByRound;
+        private final AtomicInteger round;
+        private final long sleepMillis;
+
+        RecordingEvent(IMetricsCollector<Double> collector, Map<Long, Set<Thread>> threadsByRound,
+                       AtomicInteger round, long sleepMillis) {
+            super(collector);
+            this.threadsByRound = threadsByRound;
+            this.round = round;
+            this.sleepMillis = sleepMillis;
+        }
+
+        @Override
+        public void observe() {
+            observationCount++;
+            threadsByRound.computeIfAbsent((long) round.get(), r -> ConcurrentHashMap.newKeySet()).add(Thread.currentThread());
+            if (sleepMillis > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testEventsSharingCollectorRunOnOneThreadPerRound() {
+        AtomicInteger round = new AtomicInteger();
+        List<Event> events = new ArrayList<>();
+        List<Map<Long, Set<Thread>>> byCollector = new ArrayList<>();
+        for (int c = 0; c < 50; c++) {
+            double value = c;
+            IMetricsCollector<Double> collector = () -> value;
+            Map<Long, Set<Thread>> threads = new ConcurrentHashMap<>();
+            byCollector.add(threads);
+            for (int e = 0; e < 4; e++) {
+                events.add(new RecordingEvent(collector, threads, round, 0));
+            }
+        }
+        scheduler = new ShardedObservationScheduler(events, 1000, 4);
+        for (int r = 0; r < 3; r++) {
+            round.set(r);
+            scheduler.observeAll();
+        }
+
+        for (Event event : events) {
+            Assert.assertEquals(3, event.getObservationCount());
+        }
+        for (Map<Long, Set<Thread>> threads : byCollector) {
+            for (Set<Thread> roundThreads : threads.values()) {
+                Assert.assertEquals(1, roundThreads.size());
+            }
+        }
+        Assert.assertEquals(50, Arrays.stream(scheduler.getGroupCounts()).sum());
+    }
+
+    @Test
+    public void testIdleShardStealsAndRebalances() {
+        AtomicInteger round = new AtomicInteger();
+        List<Event> events = new ArrayList<>();
+        Map<Long, Set<Thread>> threads = new ConcurrentHashMap<>();
+        // Collectors whose identity hash puts them all on the first of two shards
+        for (int i = 0; events.size() < 8; i++) {
+            double value = i;
+            IMetricsCollector<Double> collector = () -> value;
+            if ((System.identityHashCode(collector) & Integer.MAX_VALUE) % 2 == 0) {
+                events.add(new RecordingEvent(collector, threads, round, 5));
+            }
+        }
+        scheduler = new ShardedObservationScheduler(events, 1000, 2);
+        scheduler.observeAll();
+        Assert.assertEquals(8, scheduler.getGroupCounts()[0]);
+        Assert.assertEquals(0, scheduler.getGroupCounts()[1]);
+        Assert.assertTrue(scheduler.getStealCount() > 0);
+
+        for (int r = 1; r < ShardedObservationScheduler.REBALANCE_PERIOD; r++) {
+            scheduler.observeAll();
+        }
+        Assert.assertEquals(1, scheduler.getRebalanceCount());
+        int[] counts = scheduler.getGroupCounts();
+        Assert.assertTrue(counts[0] >= 3 && counts[1] >= 3);
+    }
+
+    @Test
+    public void testReplacedEventsAreRegrouped() {
+        AtomicInteger round = new AtomicInteger();
+        Map<Long, Set<Thread>> threads = new ConcurrentHashMap<>();
+        double value = 0;
+        IMetricsCollector<Double> collector = () -> value;
+        scheduler = new ShardedObservationScheduler(List.of(new RecordingEvent(collector, threads, round, 0)), 1000, 2);
+        scheduler.observeAll();
+        double otherValue = 1;
+        RecordingEvent added = new RecordingEvent(() -> otherValue, threads, round, 0);
+        scheduler.setEvents(List.of(new RecordingEvent(collector, threads, round, 0), added));
+        scheduler.observeAll();
+        Assert.assertEquals(1, added.getObservationCount());
+        Assert.assertEquals(2, Arrays.stream(scheduler.getGroupCounts()).sum());
+    }
+
+    @Test
+    public void testStartRunsRoundsUntilStopped() throws InterruptedException {
+        AtomicInteger observations = new AtomicInteger();
+        Event<Double> event = new Event<>(() -> 0.0) {
+            @Override
+            public void observe() {
+                observations.incrementAndGet();
+            }
+        };
+        scheduler = new ShardedObservationScheduler(List.of(event), 30, 2);
+        scheduler.start();
+        TimeUnit.MILLISECONDS.sleep(200);
+        Assert.assertTrue(scheduler.stop(1000));
+        int observed = observations.get();
+        Assert.assertTrue(observed >= 3);
+        Assert.assertEquals(observed, scheduler.getRoundCount());
+        TimeUnit.MILLISECONDS.sleep(100);
+        Assert.assertEquals(observed, observations.get());
+    }
+
+    @Test
+    public void testDerivedEventsAreObservedAfterTheirInputs() {
+        double[] responseTime = {0};
+        ConditionalEvent<Double> slow = new ConditionalEvent<>("slow", () -> responseTime[0], metric -> metric > 5000);
+        ConditionalEvent<Double> busy = new ConditionalEvent<>("busy", () -> responseTime[0], metric -> metric > 3000);
+        DerivedEvent degraded = DerivedEvent.allOf("degraded", slow, busy);
+        // Listed before its inputs on purpose
+        scheduler = new ShardedObservationScheduler(List.of(degraded, slow, busy), 1000, 4);
+        for (int i = 0; i < 5; i++) {
+            responseTime[0] = i % 2 == 0 ? 6000 : 0;
+            scheduler.observeAll();
+            Assert.assertEquals(i % 2 == 0, degraded.isLastOutcome());
+        }
+        Assert.assertEquals(1, Arrays.stream(scheduler.getGroupCounts()).sum());
+    }
+
+    @Test
+    public void testFailedRoundsDoNotStopTheSchedule() throws InterruptedException {
+        AtomicInteger observations = new AtomicInteger();
+        Event<Double> counted = new Event<>(() -> 0.0) {
+            @Override
+            public void observe() {
+                observations.incrementAndGet();
+            }
+        };
+        // Two events depending on each other make every round fail while they are scheduled
+        List<Event<?>> cycle = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            int other = 1 - i;
+            cycle.add(new Event<Double>(() -> 0.0) {
+                @Override
+                public List<Event<?>> getInputs() {
+                    return List.of(cycle.get(other));
+                }
+            });
+        }
+        scheduler = new ShardedObservationScheduler(List.of(counted), 10, 2);
+        scheduler.setEvents(List.of(cycle.get(0), cycle.get(1)));
+        scheduler.start();
+        TimeUnit.MILLISECONDS.sleep(50);
+        Assert.assertEquals(0, observations.get());
+        scheduler.setEvents(List.of(counted));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (observations.get() == 0 && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        Assert.assertTrue(observations.get() > 0);
+        Assert.assertTrue(scheduler.isRunning());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroShardsIsRejected() {
+        new ShardedObservationScheduler(new ArrayList<>(), 100, 0);
+    }
+}
@@ -83,4 +83,19 @@ public class SingleEventSchedulerTest {
         Assert.assertTrue(scheduler.events.contains(event1));
         Assert.assertTrue(scheduler.events.contains(event2));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStopFromActionSkipsRemainingEvents() {
+        TestEvent last = new TestEvent(() -> 0.0);
+        Event<Double> stopping = new Event<>(() -> 0.0) {
+            @Override
+            public void observe() {
+                Assert.assertTrue(scheduler.stop(1000));
+            }
+        };
+        scheduler = new SingleObservationScheduler(List.of(event1, stopping, last));
+        scheduler.start();
+        Assert.assertTrue(event1.isListened());
+        Assert.assertFalse(last.isListened());
+    }
+}
@@ -15,7 +15,9 @@ package tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers;
 
 import org.junit.Assert;
 import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.events.Event;
 import tools.spirals.cerberus237.adaptiflow.interfaces.ConditionEvaluator;
+import tools.spirals.cerberus237.adaptiflow.interfaces.EventContext;
 import tools.spirals.cerberus237.adaptiflow.scanner.ExampleAction;
 import tools.spirals.cerberus237.adaptationactionsbase.core.IAdaptationAction;
 
@@ -68,6 +70,21 @@ public class EventSubscriberTest {
         System.setOut(originalOut);
     }
 
+    @Test
+    public void testSubclassHandlesNotificationsFromEventsAndMessages() {
+        List<String> handled = new ArrayList<>();
+        EventSubscriber<Double> custom = new EventSubscriber<>(new ArrayList<>()) {
+            @Override
+            protected void handle(Double metricValue, EventContext context) {
+                handled.add(context.getMessage());
+            }
+        };
+        Event<Double> event = new Event<>("HighCpu", () -> 42.0);
+        event.notifyObserver(custom, 42.0);
+        custom.update(42.0, "Test Message");
+        Assert.assertEquals(List.of("Handling HighCpu event", "Test Message"), handled);
+    }
+
     @Test
     public void testConditionEvaluator() {
         Assert.assertEquals(conditionEvaluator, subscriber.getConditionEvaluator());
@@ -0,0 +1,160 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.logging;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import tools.spirals.cerberus237.adaptationactionsbase.core.IAdaptationAction;
+import tools.spirals.cerberus237.adaptiflow.events.ConditionalEvent;
+import tools.spirals.cerberus237.adaptiflow.interfaces.EventContext;
+import tools.spirals.cerberus237.adaptiflow.scanner.ExampleAction;
+import tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.EventCounterSubscriber;
+import tools.spirals.cerberus237.adaptiflow.subscriptions.subscribers.EventSubscriber;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class LoggingPolicyTest {
+    private List<Object[]> lines;
+    private Logger logger;
+
+    @Before
+    public void setUp() {
+        lines = new ArrayList<>();
+        logger = (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[]{Logger.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("info")) {
+                        lines.add(args);
+                    }
+                    return method.getReturnType() == boolean.class ? Boolean.TRUE : null;
+                });
+    }
+
+    @Test
+    public void testEveryTrigger() {
+        LoggingPolicy<Double> policy = new EveryTriggerLoggingPolicy<>();
+        EventContext context = new EventContext("cpu");
+        for (int i = 0; i < 5; i++) {
+            policy.onTrigger(logger, context, 90.0);
+        }
+        Assert.assertEquals(5, lines.size());
+    }
+
+    @Test
+    public void testSampled() {
+        LoggingPolicy<Double> policy = new SampledLoggingPolicy<>(10);
+        EventContext context = new EventContext("cpu");
+        for (int i = 0; i < 25; i++) {
+            policy.onTrigger(logger, context, 90.0);
+        }
+        Assert.assertEquals(3, lines.size()); // triggers #1, #11 and #21
+    }
+
+    @Test
+    public void testStateChangeLogsOnlyWhenAStreakStarts() {
+        double[] value = {90.0};
+        ConditionalEvent<Double> event = new ConditionalEvent<>("cpu", () -> value[0], metric -> metric >= 80.0);
+        EventSubscriber<Double> subscriber = new EventSubscriber<>(new ArrayList<>());
+        StateChangeLoggingPolicy<Double> policy = new StateChangeLoggingPolicy<>();
+        subscriber.setLoggingPolicy((log, context, metric) -> policy.onTrigger(logger, context, metric));
+        event.subscribe(subscriber);
+
+        for (int i = 0; i < 10; i++) {
+            event.observe();
+        }
+        Assert.assertEquals(1, lines.size());
+
+        value[0] = 10.0;
+        event.observe();
+        value[0] = 95.0;
+        event.observe();
+        event.observe();
+        Assert.assertEquals(2, lines.size());
+        Object[] arguments = (Object[]) lines.get(1)[1];
+        Assert.assertEquals(10L, arguments[2]);
+    }
+
+    @Test
+    public void testStateChangeFollowsNotificationsOfCountingSubscribers() {
+        double[] value = {90.0};
+        ConditionalEvent<Double> event = new ConditionalEvent<>("cpu", () -> value[0], metric -> metric >= 80.0);
+        EventCounterSubscriber<Double> subscriber = new EventCounterSubscriber<>(new ArrayList<>(), 3);
+        StateChangeLoggingPolicy<Double> policy = new StateChangeLoggingPolicy<>();
+        subscriber.setLoggingPolicy(new LoggingPolicy<>() {
+            @Override
+            public void onNotification(EventContext context) {
+                policy.onNotification(context);
+            }
+
+            @Override
+            public void onTrigger(Logger log, EventContext context, Double metricValue) {
+                policy.onTrigger(logger, context, metricValue);
+            }
+        });
+        event.subscribe(subscriber);
+
+        for (int i = 0; i < 9; i++) {
+            event.observe();
+        }
+        Assert.assertEquals(1, lines.size()); // triggers on observations 3, 6 and 9
+
+        value[0] = 10.0;
+        event.observe();
+        value[0] = 95.0;
+        for (int i = 0; i < 3; i++) {
+            event.observe();
+        }
+        Assert.assertEquals(2, lines.size());
+        Object[] arguments = (Object[]) lines.get(1)[1];
+        Assert.assertEquals(3L, arguments[2]);
+    }
+
+    @Test
+    public void testSummaryWritesAtMostOneLinePerInterval() throws InterruptedException {
+        SummaryLoggingPolicy<Double> policy = new SummaryLoggingPolicy<>(50, Double::doubleValue);
+        EventContext context = new EventContext("cpu");
+        for (int i = 0; i < 1_000; i++) {
+            policy.onTrigger(logger, context, 50.0 + i % 10);
+        }
+        Assert.assertEquals(1, lines.size()); // the first trigger only
+        Thread.sleep(60);
+        policy.onTrigger(logger, context, 99.0);
+        Assert.assertEquals(2, lines.size());
+        Object[] summary = (Object[]) lines.get(1)[1];
+        Assert.assertEquals(1_000L, summary[1]);
+        Assert.assertEquals(50.0, summary[3]);
+        Assert.assertEquals(99.0, summary[4]);
+    }
+
+    @Test
+    public void testSubscriberUsesPolicy() {
+        List<IAdaptationAction> actions = List.of(new ExampleAction("noop", () -> { }));
+        EventSubscriber<Double> subscriber = new EventSubscriber<>(actions);
+        int[] triggers = {0};
+        subscriber.setLoggingPolicy((log, context, metric) -> {
+            triggers[0]++;
+            Assert.assertEquals("First", context.getMessage());
+        });
+        subscriber.update(42.0, "First");
+        subscriber.update(43.0, "First");
+        Assert.assertEquals(2, triggers[0]);
+    }
+}
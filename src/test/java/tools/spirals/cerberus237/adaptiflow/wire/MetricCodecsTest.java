@@ -0,0 +1,216 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tools.spirals.cerberus237.adaptiflow.wire;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import tools.spirals.cerberus237.adaptiflow.models.MetricsSnapshot;
+import tools.spirals.cerberus237.metricscollectorbase.models.SQLDatabaseMetrics;
+import tools.spirals.cerberus237.metricscollectorbase.models.ServiceMetrics;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * @author Arléon Zemtsop (Cerberus)
+ */
+public class MetricCodecsTest {
+    private static final List<String> FIELDS = List.of("cpu", "memory", "requests", "healthy", "latency");
+
+    private static <T> T roundTrip(MetricCodec<T> codec, T value) {
+        ByteBuffer frame = ByteBuffer.wrap(MetricCodecs.toBytes(codec, value));
+        T decoded = codec.decode(frame);
+        Assert.assertFalse(frame.hasRemaining());
+        return decoded;
+    }
+
+    private static SQLDatabaseMetrics database(Long responseTime, Boolean networkStatus) {
+        SQLDatabaseMetrics metrics = new SQLDatabaseMetrics();
+        metrics.setResponseTime(responseTime);
+        metrics.setNetworkStatus(networkStatus);
+        return metrics;
+    }
+
+    @Test
+    public void testScalarRoundTrip() {
+        MetricCodec<Double> codec = MetricCodecs.scalar();
+        for (double value : new double[]{0.0, -0.0, 42.0, -3.0, 87.5, 0.1, 61.23456789, 1e300, Double.NaN,
+                Double.POSITIVE_INFINITY, Long.MAX_VALUE, 1L << 52}) {
+            Double decoded = roundTrip(codec, value);
+            Assert.assertEquals(Double.doubleToLongBits(value), Double.doubleToLongBits(decoded));
+        }
+        Assert.assertNull(roundTrip(codec, null));
+    }
+
+    @Test
+    public void testScalarFrameSizes() {
+        Assert.assertEquals(3, MetricCodecs.toBytes(MetricCodecs.scalar(), 42.0).length);
+        Assert.assertEquals(6, MetricCodecs.toBytes(MetricCodecs.scalar(), 87.5).length);
+        Assert.assertEquals(10, MetricCodecs.toBytes(MetricCodecs.scalar(), 61.23456789).length);
+        Assert.assertEquals(2, MetricCodecs.toBytes(MetricCodecs.scalar(), null).length);
+    }
+
+    @Test
+    public void testDatabaseMetricsRoundTrip() {
+        MetricCodec<SQLDatabaseMetrics> codec = MetricCodecs.databaseMetrics();
+        SQLDatabaseMetrics decoded = roundTrip(codec, database(1250L, true));
+        Assert.assertEquals(Long.valueOf(1250L), decoded.getResponseTime());
+        Assert.assertEquals(Boolean.TRUE, decoded.getNetworkStatus());
+
+        SQLDatabaseMetrics next = roundTrip(codec, database(null, false));
+        Assert.assertSame(decoded, next);
+        Assert.assertNull(next.getResponseTime());
+        Assert.assertEquals(Boolean.FALSE, next.getNetworkStatus());
+    }
+
+    @Test
+    public void testServiceMetricsRoundTrip() {
+        ServiceMetrics decoded = roundTrip(MetricCodecs.serviceMetrics(60000), new ServiceMetrics(312.5));
+        Assert.assertEquals(312.5, decoded.getRequestRatePerSecond(60000), 0.0);
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() {
+        MetricCodec<MetricsSnapshot> codec = MetricCodecs.snapshot(FIELDS);
+        Object[] values = {42.5, 61.0, 1250L, true, null};
+        MetricsSnapshot decoded = roundTrip(codec, new MetricsSnapshot(FIELDS, values, 1760000000000L));
+        Assert.assertEquals(FIELDS, decoded.getNames());
+        Assert.assertEquals(1760000000000L, decoded.getTimestamp());
+        Assert.assertEquals(42.5, decoded.<Double>get("cpu"), 0.0);
+        Assert.assertEquals(61.0, decoded.<Double>get("memory"), 0.0);
+        Assert.assertEquals(Long.valueOf(1250L), decoded.get("requests"));
+        Assert.assertEquals(Boolean.TRUE, decoded.get("healthy"));
+        Assert.assertNull(decoded.get("latency"));
+    }
+
+    @Test
+    public void testSnapshotRejectsOtherFields() {
+        List<String> other = List.of("cpu", "memory", "requests", "healthy", "errors");
+        byte[] frame = MetricCodecs.toBytes(MetricCodecs.snapshot(other),
+                new MetricsSnapshot(other, new Object[5], 0L));
+        try {
+            MetricCodecs.snapshot(FIELDS).decode(ByteBuffer.wrap(frame));
+            Assert.fail("A snapshot with other fields should be rejected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("other fields"));
+        }
+    }
+
+    @Test
+    public void testMalformedFrames() {
+        byte[] frame = MetricCodecs.toBytes(MetricCodecs.databaseMetrics(), database(1250L, true));
+        byte[][] malformed = {
+                Arrays.copyOf(frame, frame.length - 1),
+                MetricCodecs.toBytes(MetricCodecs.scalar(), 1.0),
+                {(byte) (WireValues.DATABASE << 4 | 7), 0, 0},
+                {(byte) (WireValues.DATABASE << 4 | WireValues.VERSION), 9, 0},
+                {}
+        };
+        try {
+            // A boolean value in a scalar frame.
+            MetricCodecs.scalar().decode(ByteBuffer.wrap(new byte[]{(byte) (WireValues.SCALAR << 4 | WireValues.VERSION), WireValues.TRUE}));
+            Assert.fail("A scalar frame holding a boolean should be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        for (byte[] bytes : malformed) {
+            try {
+                MetricCodecs.databaseMetrics().decode(ByteBuffer.wrap(bytes));
+                Assert.fail("Frame " + Arrays.toString(bytes) + " should be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testUnsupportedSnapshotValue() {
+        List<String> fields = List.of("status");
+        try {
+            MetricCodecs.toBytes(MetricCodecs.snapshot(fields), new MetricsSnapshot(fields, new Object[]{"UP"}, 0L));
+            Assert.fail("A string value should be rejected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("String"));
+        }
+    }
+
+    @Test
+    public void testFramesAreSmallerThanJson() {
+        int databaseJson = "{\"responseTime\":1250,\"networkStatus\":true}".length();
+        int databaseBinary = MetricCodecs.toBytes(MetricCodecs.databaseMetrics(), database(1250L, true)).length;
+        Assert.assertEquals(5, databaseBinary);
+        Assert.assertEquals(42, databaseJson);
+
+        int snapshotJson = ("{\"timestamp\":1760000000000,\"cpu\":42.5,\"memory\":61.0,\"requests\":1250,"
+                + "\"healthy\":true,\"latency\":null}").length();
+        int snapshotBinary = MetricCodecs.toBytes(MetricCodecs.snapshot(FIELDS),
+                new MetricsSnapshot(FIELDS, new Object[]{42.5, 61.0, 1250L, true, null}, 1760000000000L)).length;
+        Assert.assertEquals(23, snapshotBinary);
+        Assert.assertTrue(snapshotBinary * 4 < snapshotJson);
+    }
+
+    /**
+     * A minimal reading of the JSON form of database metrics: a real JSON parser
+     * allocates at least the string and the number tokens read here.
+     */
+    private static SQLDatabaseMetrics parseJson(byte[] body, SQLDatabaseMetrics target) {
+        String json = new String(body, StandardCharsets.UTF_8);
+        int time = json.indexOf("\"responseTime\":") + 15;
+        target.setResponseTime(Long.parseLong(json.substring(time, json.indexOf(',', time))));
+        int status = json.indexOf("\"networkStatus\":") + 16;
+        target.setNetworkStatus(Boolean.parseBoolean(json.substring(status, json.indexOf('}', status))));
+        return target;
+    }
+
+    private static double allocatedBytesPerDecode(Runnable decode) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < 20_000; i++) {
+            decode.run();
+        }
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 20_000; i++) {
+            decode.run();
+        }
+        return (threadBean.getThreadAllocatedBytes(threadId) - before) / 20_000.0;
+    }
+
+    @Test
+    public void testDecodingAllocatesLessThanJson() {
+        MetricCodec<SQLDatabaseMetrics> codec = MetricCodecs.databaseMetrics();
+        ByteBuffer frame = ByteBuffer.wrap(MetricCodecs.toBytes(codec, database(1250L, true)));
+        byte[] json = "{\"responseTime\":1250,\"networkStatus\":true}".getBytes(StandardCharsets.UTF_8);
+        SQLDatabaseMetrics target = new SQLDatabaseMetrics();
+        long[] checksum = {0};
+
+        double binaryBytes = allocatedBytesPerDecode(() -> {
+            frame.rewind();
+            checksum[0] += codec.decode(frame).getResponseTime();
+        });
+        double jsonBytes = allocatedBytesPerDecode(() -> checksum[0] += parseJson(json, target).getResponseTime());
+
+        Assert.assertEquals(1250L * 80_000, checksum[0]);
+        Assert.assertTrue("binary " + binaryBytes + " bytes, JSON " + jsonBytes + " bytes per decode",
+                binaryBytes * 4 < jsonBytes);
+    }
+}